@@ -1,5 +1,7 @@
 package com.crashinvaders.basisu.gdx;
 
+import com.badlogic.gdx.files.FileHandle;
+
 import java.nio.ByteBuffer;
 
 public class BasisuBufferUtils {
@@ -15,4 +17,17 @@ public class BasisuBufferUtils {
     public static void disposeUnsafeByteBuffer(ByteBuffer buffer) {
         throw new UnsupportedOperationException("Unsafe byte buffers are not supported on GWT.");
     }
+
+    /** There are no memory-mapped files on the web. */
+    public static ByteBuffer mapFile(FileHandle file) {
+        return null;
+    }
+
+    public static boolean isMappedByteBuffer(ByteBuffer buffer) {
+        return false;
+    }
+
+    public static void disposeMappedByteBuffer(ByteBuffer buffer) {
+        throw new UnsupportedOperationException("Memory-mapped byte buffers are not supported on GWT.");
+    }
 }
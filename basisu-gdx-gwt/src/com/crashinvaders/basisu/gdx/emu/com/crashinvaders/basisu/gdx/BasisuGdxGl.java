@@ -48,7 +48,8 @@ public class BasisuGdxGl {
         HasArrayBufferView arrayHolder = (HasArrayBufferView)pixels;
         ArrayBufferView webGLArray = arrayHolder.getTypedArray();
         int remainingBytes = pixels.remaining();
-        ArrayBufferView buffer = Uint8ArrayNative.create(webGLArray.buffer(), 0, remainingBytes);
+        int byteOffset = webGLArray.byteOffset() + pixels.position();
+        ArrayBufferView buffer = Uint8ArrayNative.create(webGLArray.buffer(), byteOffset, remainingBytes);
 
         glCompressedTexImage2DNative(getGlContext(), target, level, internalFormat, width, height, border, imageSize, buffer);
     }
@@ -60,6 +61,52 @@ public class BasisuGdxGl {
         gl.compressedTexImage2D(target, level, internalFormat, width, height, border, pixels);
     }-*/;
 
+    /**
+     * @see #glCompressedTexImage2D(int, int, int, int, int, int, int, Buffer)
+     */
+    public static void glCompressedTexSubImage2D(int target, int level, int xOffset, int yOffset,
+                                                 int width, int height, int format,
+                                                 int imageSize, Buffer pixels) {
+
+        HasArrayBufferView arrayHolder = (HasArrayBufferView)pixels;
+        ArrayBufferView webGLArray = arrayHolder.getTypedArray();
+        int remainingBytes = pixels.remaining();
+        int byteOffset = webGLArray.byteOffset() + pixels.position();
+        ArrayBufferView buffer = Uint8ArrayNative.create(webGLArray.buffer(), byteOffset, remainingBytes);
+
+        glCompressedTexSubImage2DNative(getGlContext(), target, level, xOffset, yOffset, width, height, format, imageSize, buffer);
+    }
+
+    private static native void glCompressedTexSubImage2DNative(WebGLRenderingContext gl,
+                                                               int target, int level, int xOffset, int yOffset,
+                                                               int width, int height, int format,
+                                                               int imageSize, ArrayBufferView pixels) /*-{
+        gl.compressedTexSubImage2D(target, level, xOffset, yOffset, width, height, format, pixels);
+    }-*/;
+
+    /**
+     * Requires a WebGL2 context.
+     * @see #glCompressedTexImage2D(int, int, int, int, int, int, int, Buffer)
+     */
+    public static void glCompressedTexImage3D(int target, int level, int internalFormat,
+                                              int width, int height, int depth, int border,
+                                              int imageSize, Buffer pixels) {
+
+        HasArrayBufferView arrayHolder = (HasArrayBufferView)pixels;
+        ArrayBufferView webGLArray = arrayHolder.getTypedArray();
+        int byteOffset = webGLArray.byteOffset() + pixels.position();
+        ArrayBufferView buffer = Uint8ArrayNative.create(webGLArray.buffer(), byteOffset, imageSize);
+
+        glCompressedTexImage3DNative(getGlContext(), target, level, internalFormat, width, height, depth, border, buffer);
+    }
+
+    private static native void glCompressedTexImage3DNative(WebGLRenderingContext gl,
+                                                            int target, int level, int internalFormat,
+                                                            int width, int height, int depth, int border,
+                                                            ArrayBufferView pixels) /*-{
+        gl.compressedTexImage3D(target, level, internalFormat, width, height, depth, border, pixels);
+    }-*/;
+
     private static WebGLRenderingContext getGlContext() {
         return ((GwtGraphics) Gdx.graphics).getContext();
     }
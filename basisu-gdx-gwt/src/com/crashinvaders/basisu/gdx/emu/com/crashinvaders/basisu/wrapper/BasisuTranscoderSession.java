@@ -0,0 +1,98 @@
+package com.crashinvaders.basisu.wrapper;
+
+import java.io.Closeable;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+
+public class BasisuTranscoderSession implements Closeable {
+
+    final Buffer dataBuffer;
+    boolean closed = false;
+
+    BasisuTranscoderSession(Buffer dataBuffer) {
+        // The Wasm side keeps a single started transcoder per cached BasisFile handle,
+        // so the session merely forwards the calls for the same data buffer.
+        this.dataBuffer = dataBuffer;
+    }
+
+    BasisuTranscoderSession(Object ignored) {
+        throw new UnsupportedOperationException("GWT doesn't support this constructor.");
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            throw new IllegalStateException("Object was already closed!");
+        }
+        closed = true;
+    }
+
+    public Buffer getDataBuffer() {
+        return dataBuffer;
+    }
+
+    public BasisuFileDescription describe() {
+        return BasisuWrapper.basisDescribe(dataBuffer);
+    }
+
+    public BasisuImageInfo getImageInfo(int imageIndex) {
+        return BasisuWrapper.basisGetImageInfo(dataBuffer, imageIndex);
+    }
+
+    public BasisuImageLevelInfo getImageLevelInfo(int imageIndex, int imageLevel) {
+        return BasisuWrapper.basisGetImageLevelInfo(dataBuffer, imageIndex, imageLevel);
+    }
+
+    public int getTranscodedSize(int imageIndex, int levelIndex, BasisuTranscoderTextureFormat textureFormat) {
+        return BasisuWrapper.basisGetTranscodedSize(dataBuffer, imageIndex, levelIndex, textureFormat);
+    }
+
+    public ByteBuffer transcode(int imageIndex, int levelIndex, BasisuTranscoderTextureFormat textureFormat) {
+        return BasisuWrapper.basisTranscode(dataBuffer, imageIndex, levelIndex, textureFormat);
+    }
+
+    public ByteBuffer transcode(int imageIndex, int levelIndex, BasisuTranscoderTextureFormat textureFormat, int decodeFlags) {
+        return BasisuWrapper.basisTranscode(dataBuffer, imageIndex, levelIndex, textureFormat, decodeFlags);
+    }
+
+    public int transcodeInto(int imageIndex, int levelIndex, BasisuTranscoderTextureFormat textureFormat, ByteBuffer outBuffer) {
+        return BasisuWrapper.basisTranscodeInto(dataBuffer, imageIndex, levelIndex, textureFormat, outBuffer);
+    }
+
+    public int transcodeInto(int imageIndex, int levelIndex, BasisuTranscoderTextureFormat textureFormat, ByteBuffer outBuffer, int workerCount) {
+        return BasisuWrapper.basisTranscodeInto(dataBuffer, imageIndex, levelIndex, textureFormat, outBuffer, workerCount);
+    }
+
+    public int transcodeInto(int imageIndex, int levelIndex, BasisuTranscoderTextureFormat textureFormat, ByteBuffer outBuffer, int workerCount, int decodeFlags) {
+        return BasisuWrapper.basisTranscodeInto(dataBuffer, imageIndex, levelIndex, textureFormat, outBuffer, workerCount, decodeFlags);
+    }
+
+    public int getTranscodedRegionSize(int imageIndex, int levelIndex, int blockX, int blockY, int blocksWidth, int blocksHeight, BasisuTranscoderTextureFormat textureFormat) {
+        BasisuImageLevelInfo levelInfo = getImageLevelInfo(imageIndex, levelIndex);
+        try {
+            return textureFormat.getTranscodedRegionSize(levelInfo.getOrigWidth(), levelInfo.getOrigHeight(), blockX, blockY, blocksWidth, blocksHeight);
+        } finally {
+            levelInfo.close();
+        }
+    }
+
+    public int transcodeRegionInto(int imageIndex, int levelIndex, int blockX, int blockY, int blocksWidth, int blocksHeight, BasisuTranscoderTextureFormat textureFormat, ByteBuffer outBuffer) {
+        return BasisuWrapper.basisTranscodeRegionInto(dataBuffer, imageIndex, levelIndex, blockX, blockY, blocksWidth, blocksHeight, textureFormat, outBuffer, BasisuDecodeFlags.NONE);
+    }
+
+    public int transcodeRegionInto(int imageIndex, int levelIndex, int blockX, int blockY, int blocksWidth, int blocksHeight, BasisuTranscoderTextureFormat textureFormat, ByteBuffer outBuffer, int decodeFlags) {
+        return BasisuWrapper.basisTranscodeRegionInto(dataBuffer, imageIndex, levelIndex, blockX, blockY, blocksWidth, blocksHeight, textureFormat, outBuffer, decodeFlags);
+    }
+
+    public BasisuMipChain transcodeMipChain(int imageIndex, BasisuTranscoderTextureFormat textureFormat, int maxLevels) {
+        return BasisuWrapper.basisTranscodeMipChain(dataBuffer, imageIndex, textureFormat, maxLevels, BasisuDecodeFlags.NONE, true);
+    }
+
+    public BasisuMipChain transcodeMipChain(int imageIndex, BasisuTranscoderTextureFormat textureFormat, int maxLevels, int decodeFlags) {
+        return BasisuWrapper.basisTranscodeMipChain(dataBuffer, imageIndex, textureFormat, maxLevels, decodeFlags, true);
+    }
+
+    public BasisuMipChain allocateMipChain(int imageIndex, BasisuTranscoderTextureFormat textureFormat, int maxLevels) {
+        return BasisuWrapper.basisTranscodeMipChain(dataBuffer, imageIndex, textureFormat, maxLevels, BasisuDecodeFlags.NONE, false);
+    }
+}
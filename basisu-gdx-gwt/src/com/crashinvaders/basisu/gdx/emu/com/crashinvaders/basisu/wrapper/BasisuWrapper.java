@@ -31,12 +31,72 @@ public class BasisuWrapper {
     }-*/;
 
     public static ByteBuffer basisTranscode(Buffer data, int imageIndex, int levelIndex, BasisuTranscoderTextureFormat textureFormat) {
-        Uint8Array array = basisTranscodeNative(toTypedArray(data), imageIndex, levelIndex, textureFormat.getId());
+        return basisTranscode(data, imageIndex, levelIndex, textureFormat, BasisuDecodeFlags.NONE);
+    }
+
+    public static ByteBuffer basisTranscode(Buffer data, int imageIndex, int levelIndex, BasisuTranscoderTextureFormat textureFormat, int decodeFlags) {
+        Uint8Array array = basisTranscodeNative(toTypedArray(data), imageIndex, levelIndex, textureFormat.getId(), BasisuDecodeFlags.validate(decodeFlags));
         return fromTypedArray(array);
     }
-    static native Uint8Array basisTranscodeNative(ArrayBufferView data, int imageIndex, int levelIndex, int textureFormat)/*-{
+    static native Uint8Array basisTranscodeNative(ArrayBufferView data, int imageIndex, int levelIndex, int textureFormat, int decodeFlags)/*-{
+        var file = @com.crashinvaders.basisu.wrapper.BasisuWrapper::basisFileOf(Lcom/google/gwt/typedarrays/shared/ArrayBufferView;)(data);
+        return file.transcode(imageIndex, levelIndex, textureFormat, decodeFlags);
+    }-*/;
+
+    public static int basisTranscodeInto(Buffer data, int imageIndex, int levelIndex, BasisuTranscoderTextureFormat textureFormat, ByteBuffer outBuffer) {
+        return basisTranscodeInto(data, imageIndex, levelIndex, textureFormat, outBuffer, 1, BasisuDecodeFlags.NONE);
+    }
+
+    /** There are no worker threads on the web, the "workerCount" is ignored. */
+    public static int basisTranscodeInto(Buffer data, int imageIndex, int levelIndex, BasisuTranscoderTextureFormat textureFormat, ByteBuffer outBuffer, int workerCount) {
+        return basisTranscodeInto(data, imageIndex, levelIndex, textureFormat, outBuffer, workerCount, BasisuDecodeFlags.NONE);
+    }
+
+    /** There are no worker threads on the web, the "workerCount" is ignored. */
+    public static int basisTranscodeInto(Buffer data, int imageIndex, int levelIndex, BasisuTranscoderTextureFormat textureFormat, ByteBuffer outBuffer, int workerCount, int decodeFlags) {
+        // Wasm memory is a separate address space, so the result still has to be copied into the JS side buffer.
+        Uint8Array array = basisTranscodeNative(toTypedArray(data), imageIndex, levelIndex, textureFormat.getId(), BasisuDecodeFlags.validate(decodeFlags));
+        return copyToBuffer(array, outBuffer);
+    }
+
+    public static int basisGetTranscodedSize(Buffer data, int imageIndex, int levelIndex, BasisuTranscoderTextureFormat textureFormat) {
+        BasisuImageLevelInfo levelInfo = basisGetImageLevelInfo(data, imageIndex, levelIndex);
+        try {
+            return getTranscodedSize(levelInfo.getOrigWidth(), levelInfo.getOrigHeight(), levelInfo.getTotalBlocks(), textureFormat);
+        } finally {
+            levelInfo.close();
+        }
+    }
+
+    public static int getTranscodedSize(int origWidth, int origHeight, int totalBlocks, BasisuTranscoderTextureFormat textureFormat) {
+        return textureFormat.getTranscodedSize(origWidth, origHeight, totalBlocks);
+    }
+
+    public static int getTranscodedRegionSize(int origWidth, int origHeight, int blockX, int blockY, int blocksWidth, int blocksHeight, BasisuTranscoderTextureFormat textureFormat) {
+        return textureFormat.getTranscodedRegionSize(origWidth, origHeight, blockX, blockY, blocksWidth, blocksHeight);
+    }
+
+    public static int basisTranscodeRegionInto(Buffer data, int imageIndex, int levelIndex, int blockX, int blockY, int blocksWidth, int blocksHeight, BasisuTranscoderTextureFormat textureFormat, ByteBuffer outBuffer) {
+        return basisTranscodeRegionInto(data, imageIndex, levelIndex, blockX, blockY, blocksWidth, blocksHeight, textureFormat, outBuffer, BasisuDecodeFlags.NONE);
+    }
+
+    public static int basisTranscodeRegionInto(Buffer data, int imageIndex, int levelIndex, int blockX, int blockY, int blocksWidth, int blocksHeight, BasisuTranscoderTextureFormat textureFormat, ByteBuffer outBuffer, int decodeFlags) {
+        Uint8Array array = basisTranscodeRegionNative(toTypedArray(data), imageIndex, levelIndex, blockX, blockY, blocksWidth, blocksHeight, textureFormat.getId(), BasisuDecodeFlags.validate(decodeFlags));
+        return copyToBuffer(array, outBuffer);
+    }
+    static native Uint8Array basisTranscodeRegionNative(ArrayBufferView data, int imageIndex, int levelIndex, int blockX, int blockY, int blocksWidth, int blocksHeight, int textureFormat, int decodeFlags)/*-{
+        var file = @com.crashinvaders.basisu.wrapper.BasisuWrapper::basisFileOf(Lcom/google/gwt/typedarrays/shared/ArrayBufferView;)(data);
+        return file.transcodeRegion(imageIndex, levelIndex, blockX, blockY, blocksWidth, blocksHeight, textureFormat, decodeFlags);
+    }-*/;
+
+    public static BasisuFileDescription basisDescribe(Buffer data) {
+        return new BasisuFileDescription(basisDescribeNative(toTypedArray(data)));
+    }
+    static native int[] basisDescribeNative(ArrayBufferView data)/*-{
         var file = @com.crashinvaders.basisu.wrapper.BasisuWrapper::basisFileOf(Lcom/google/gwt/typedarrays/shared/ArrayBufferView;)(data);
-        return file.transcode(imageIndex, levelIndex, textureFormat);
+        var description = file.describe();
+        // Convert to a regular JS array, which is what GWT uses for int[] at runtime.
+        return Array.prototype.slice.call(description);
     }-*/;
 
     public static BasisuFileInfo basisGetFileInfo(Buffer data) {
@@ -66,6 +126,19 @@ public class BasisuWrapper {
         return file.getImageLevelInfo(imageIndex, imageLevel);
     }-*/;
 
+    public static BasisuTranscoderSession basisCreateTranscoderSession(Buffer data) {
+        return new BasisuTranscoderSession(data);
+    }
+
+    public static Ktx2FileDescription ktx2Describe(Buffer data) {
+        return new Ktx2FileDescription(ktx2DescribeNative(toTypedArray(data)));
+    }
+    static native int[] ktx2DescribeNative(ArrayBufferView data)/*-{
+        var file = @com.crashinvaders.basisu.wrapper.BasisuWrapper::ktx2FileOf(Lcom/google/gwt/typedarrays/shared/ArrayBufferView;)(data);
+        var description = file.describe();
+        return Array.prototype.slice.call(description);
+    }-*/;
+
     public static Ktx2FileInfo ktx2GetFileInfo(Buffer data) {
         JavaScriptObject fileInfoJs = ktx2GetFileInfoNative(toTypedArray(data));
         return new Ktx2FileInfo(fileInfoJs);
@@ -76,27 +149,176 @@ public class BasisuWrapper {
     }-*/;
 
     public static Ktx2ImageLevelInfo ktx2GetImageLevelInfo(Buffer data, int layerIndex, int imageLevel) {
-        JavaScriptObject imageLayerInfoJs = ktx2GetImageLevelInfoNative(toTypedArray(data), layerIndex, imageLevel);
+        return ktx2GetImageLevelInfo(data, layerIndex, imageLevel, 0);
+    }
+
+    static Ktx2ImageLevelInfo ktx2GetImageLevelInfo(Buffer data, int layerIndex, int imageLevel, int faceIndex) {
+        JavaScriptObject imageLayerInfoJs = ktx2GetImageLevelInfoNative(toTypedArray(data), layerIndex, imageLevel, faceIndex);
         return new Ktx2ImageLevelInfo(imageLayerInfoJs);
     }
-    static native JavaScriptObject ktx2GetImageLevelInfoNative(ArrayBufferView data, int layerIndex, int imageLevel) /*-{
+    static native JavaScriptObject ktx2GetImageLevelInfoNative(ArrayBufferView data, int layerIndex, int imageLevel, int faceIndex) /*-{
         var file = @com.crashinvaders.basisu.wrapper.BasisuWrapper::ktx2FileOf(Lcom/google/gwt/typedarrays/shared/ArrayBufferView;)(data);
-        return file.getImageLevelInfo(layerIndex, imageLevel);
+        return file.getImageLevelInfo(layerIndex, imageLevel, faceIndex);
     }-*/;
 
     public static ByteBuffer ktx2Transcode(Buffer data, int layerIndex, int levelIndex, BasisuTranscoderTextureFormat textureFormat) {
-        Uint8Array array = ktx2TranscodeNative(toTypedArray(data), layerIndex, levelIndex, textureFormat.getId());
+        return ktx2Transcode(data, layerIndex, levelIndex, textureFormat, BasisuDecodeFlags.NONE);
+    }
+
+    public static ByteBuffer ktx2Transcode(Buffer data, int layerIndex, int levelIndex, BasisuTranscoderTextureFormat textureFormat, int decodeFlags) {
+        Uint8Array array = ktx2TranscodeNative(toTypedArray(data), layerIndex, levelIndex, 0, textureFormat.getId(), BasisuDecodeFlags.validate(decodeFlags));
         return fromTypedArray(array);
     }
-    static native Uint8Array ktx2TranscodeNative(ArrayBufferView data, int layerIndex, int levelIndex, int textureFormat) /*-{
+    static native Uint8Array ktx2TranscodeNative(ArrayBufferView data, int layerIndex, int levelIndex, int faceIndex, int textureFormat, int decodeFlags) /*-{
         var file = @com.crashinvaders.basisu.wrapper.BasisuWrapper::ktx2FileOf(Lcom/google/gwt/typedarrays/shared/ArrayBufferView;)(data);
-        return file.transcode(layerIndex, levelIndex, textureFormat);
+        return file.transcode(layerIndex, levelIndex, faceIndex, textureFormat, decodeFlags);
     }-*/;
 
+    public static int ktx2GetTranscodedSize(Buffer data, int layerIndex, int levelIndex, BasisuTranscoderTextureFormat textureFormat) {
+        Ktx2ImageLevelInfo levelInfo = ktx2GetImageLevelInfo(data, layerIndex, levelIndex);
+        try {
+            return getTranscodedSize(levelInfo.getOrigWidth(), levelInfo.getOrigHeight(), levelInfo.getTotalBlocks(), textureFormat);
+        } finally {
+            levelInfo.close();
+        }
+    }
+
+    public static int ktx2TranscodeInto(Buffer data, int layerIndex, int levelIndex, BasisuTranscoderTextureFormat textureFormat, ByteBuffer outBuffer) {
+        return ktx2TranscodeInto(data, layerIndex, levelIndex, textureFormat, outBuffer, 1, BasisuDecodeFlags.NONE);
+    }
+
+    /** There are no worker threads on the web, the "workerCount" is ignored. */
+    public static int ktx2TranscodeInto(Buffer data, int layerIndex, int levelIndex, BasisuTranscoderTextureFormat textureFormat, ByteBuffer outBuffer, int workerCount) {
+        return ktx2TranscodeInto(data, layerIndex, levelIndex, textureFormat, outBuffer, workerCount, BasisuDecodeFlags.NONE);
+    }
+
+    /** There are no worker threads on the web, the "workerCount" is ignored. */
+    public static int ktx2TranscodeInto(Buffer data, int layerIndex, int levelIndex, BasisuTranscoderTextureFormat textureFormat, ByteBuffer outBuffer, int workerCount, int decodeFlags) {
+        return ktx2TranscodeFaceInto(data, layerIndex, levelIndex, 0, textureFormat, outBuffer, decodeFlags);
+    }
+
+    static int ktx2TranscodeFaceInto(Buffer data, int layerIndex, int levelIndex, int faceIndex, BasisuTranscoderTextureFormat textureFormat, ByteBuffer outBuffer, int decodeFlags) {
+        Uint8Array array = ktx2TranscodeNative(toTypedArray(data), layerIndex, levelIndex, faceIndex, textureFormat.getId(), BasisuDecodeFlags.validate(decodeFlags));
+        return copyToBuffer(array, outBuffer);
+    }
+
+    public static int ktx2TranscodeRegionInto(Buffer data, int layerIndex, int levelIndex, int blockX, int blockY, int blocksWidth, int blocksHeight, BasisuTranscoderTextureFormat textureFormat, ByteBuffer outBuffer) {
+        return ktx2TranscodeRegionInto(data, layerIndex, levelIndex, blockX, blockY, blocksWidth, blocksHeight, textureFormat, outBuffer, BasisuDecodeFlags.NONE);
+    }
+
+    public static int ktx2TranscodeRegionInto(Buffer data, int layerIndex, int levelIndex, int blockX, int blockY, int blocksWidth, int blocksHeight, BasisuTranscoderTextureFormat textureFormat, ByteBuffer outBuffer, int decodeFlags) {
+        Uint8Array array = ktx2TranscodeRegionNative(toTypedArray(data), layerIndex, levelIndex, blockX, blockY, blocksWidth, blocksHeight, textureFormat.getId(), BasisuDecodeFlags.validate(decodeFlags));
+        return copyToBuffer(array, outBuffer);
+    }
+    static native Uint8Array ktx2TranscodeRegionNative(ArrayBufferView data, int layerIndex, int levelIndex, int blockX, int blockY, int blocksWidth, int blocksHeight, int textureFormat, int decodeFlags) /*-{
+        var file = @com.crashinvaders.basisu.wrapper.BasisuWrapper::ktx2FileOf(Lcom/google/gwt/typedarrays/shared/ArrayBufferView;)(data);
+        return file.transcodeRegion(layerIndex, levelIndex, blockX, blockY, blocksWidth, blocksHeight, textureFormat, decodeFlags);
+    }-*/;
+
+    public static BasisuMipChain ktx2TranscodeMipChain(Buffer data, int layerIndex, BasisuTranscoderTextureFormat textureFormat, int maxLevels) {
+        return ktx2TranscodeMipChain(data, layerIndex, textureFormat, maxLevels, BasisuDecodeFlags.NONE, true);
+    }
+
+    public static BasisuMipChain ktx2TranscodeMipChain(Buffer data, int layerIndex, BasisuTranscoderTextureFormat textureFormat, int maxLevels, int decodeFlags) {
+        return ktx2TranscodeMipChain(data, layerIndex, textureFormat, maxLevels, decodeFlags, true);
+    }
+
+    public static BasisuMipChain ktx2AllocateMipChain(Buffer data, int layerIndex, BasisuTranscoderTextureFormat textureFormat, int maxLevels) {
+        return ktx2TranscodeMipChain(data, layerIndex, textureFormat, maxLevels, BasisuDecodeFlags.NONE, false);
+    }
+
+    private static BasisuMipChain ktx2TranscodeMipChain(Buffer data, int layerIndex, BasisuTranscoderTextureFormat textureFormat, int maxLevels, int decodeFlags, boolean transcodeLevels) {
+        Ktx2FileInfo fileInfo = ktx2GetFileInfo(data);
+        int levelCount = Math.min(maxLevels, fileInfo.getTotalMipmapLevels());
+        fileInfo.close();
+        if (levelCount <= 0) {
+            throw new BasisuWrapperException("At least one mipmap level must be transcoded.");
+        }
+
+        int[] levelTable = new int[levelCount * BasisuMipChain.LEVEL_TABLE_STRIDE];
+        int totalSize = 0;
+        for (int level = 0; level < levelCount; level++) {
+            Ktx2ImageLevelInfo levelInfo = ktx2GetImageLevelInfo(data, layerIndex, level);
+            totalSize = putMipChainLevel(levelTable, level, totalSize, levelInfo.getOrigWidth(), levelInfo.getOrigHeight(), levelInfo.getTotalBlocks(), textureFormat);
+            levelInfo.close();
+        }
+
+        ByteBuffer chainData = ByteBuffer.allocateDirect(totalSize);
+        for (int level = 0; transcodeLevels && level < levelCount; level++) {
+            chainData.position(levelTable[level * BasisuMipChain.LEVEL_TABLE_STRIDE + BasisuMipChain.LEVEL_OFFSET]);
+            ktx2TranscodeInto(data, layerIndex, level, textureFormat, chainData, 1, decodeFlags);
+        }
+        chainData.position(0);
+        return new BasisuMipChain(textureFormat, chainData, levelTable);
+    }
+
+    static BasisuMipChain basisTranscodeMipChain(Buffer data, int imageIndex, BasisuTranscoderTextureFormat textureFormat, int maxLevels, int decodeFlags, boolean transcodeLevels) {
+        BasisuImageInfo imageInfo = basisGetImageInfo(data, imageIndex);
+        int levelCount = Math.min(maxLevels, imageInfo.getTotalLevels());
+        imageInfo.close();
+        if (levelCount <= 0) {
+            throw new BasisuWrapperException("At least one mipmap level must be transcoded.");
+        }
+
+        int[] levelTable = new int[levelCount * BasisuMipChain.LEVEL_TABLE_STRIDE];
+        int totalSize = 0;
+        for (int level = 0; level < levelCount; level++) {
+            BasisuImageLevelInfo levelInfo = basisGetImageLevelInfo(data, imageIndex, level);
+            totalSize = putMipChainLevel(levelTable, level, totalSize, levelInfo.getOrigWidth(), levelInfo.getOrigHeight(), levelInfo.getTotalBlocks(), textureFormat);
+            levelInfo.close();
+        }
+
+        ByteBuffer chainData = ByteBuffer.allocateDirect(totalSize);
+        for (int level = 0; transcodeLevels && level < levelCount; level++) {
+            chainData.position(levelTable[level * BasisuMipChain.LEVEL_TABLE_STRIDE + BasisuMipChain.LEVEL_OFFSET]);
+            basisTranscodeInto(data, imageIndex, level, textureFormat, chainData, 1, decodeFlags);
+        }
+        chainData.position(0);
+        return new BasisuMipChain(textureFormat, chainData, levelTable);
+    }
+
+    /** @return the offset for the next level. */
+    private static int putMipChainLevel(int[] levelTable, int level, int offset, int origWidth, int origHeight, int totalBlocks, BasisuTranscoderTextureFormat textureFormat) {
+        int size = textureFormat.getTranscodedSize(origWidth, origHeight, totalBlocks);
+        int index = level * BasisuMipChain.LEVEL_TABLE_STRIDE;
+        levelTable[index + BasisuMipChain.LEVEL_OFFSET] = offset;
+        levelTable[index + BasisuMipChain.LEVEL_SIZE] = size;
+        levelTable[index + BasisuMipChain.LEVEL_WIDTH] = origWidth;
+        levelTable[index + BasisuMipChain.LEVEL_HEIGHT] = origHeight;
+        return offset + size;
+    }
+
     public static void disposeNativeBuffer(ByteBuffer dataBuffer) {
         // JS array buffers are managed. We don't need to free them manually.
     }
 
+    public static Ktx2TranscoderSession ktx2CreateTranscoderSession(Buffer data) {
+        return new Ktx2TranscoderSession(data, 0);
+    }
+
+    public static Ktx2TranscoderSession ktx2CreateTranscoderSession(Buffer data, int levelCacheCapacity) {
+        return new Ktx2TranscoderSession(data, levelCacheCapacity);
+    }
+
+    static void ktx2SetLevelCacheCapacity(Buffer data, int levelCacheCapacity) {
+        if (levelCacheCapacity < 0) {
+            throw new BasisuWrapperException("The level cache capacity must not be negative.");
+        }
+        ktx2SetLevelCacheCapacityNative(toTypedArray(data), levelCacheCapacity);
+    }
+    static native void ktx2SetLevelCacheCapacityNative(ArrayBufferView data, int levelCacheCapacity) /*-{
+        var file = @com.crashinvaders.basisu.wrapper.BasisuWrapper::ktx2FileOf(Lcom/google/gwt/typedarrays/shared/ArrayBufferView;)(data);
+        file.setLevelCacheCapacity(levelCacheCapacity);
+    }-*/;
+
+    static int ktx2GetLevelCacheSize(Buffer data) {
+        return ktx2GetLevelCacheSizeNative(toTypedArray(data));
+    }
+    static native int ktx2GetLevelCacheSizeNative(ArrayBufferView data) /*-{
+        var file = @com.crashinvaders.basisu.wrapper.BasisuWrapper::ktx2FileOf(Lcom/google/gwt/typedarrays/shared/ArrayBufferView;)(data);
+        return file.getLevelCacheSize();
+    }-*/;
+
     /**
      * Releases the native-side Wasm handle (and the copy of the data it holds) that was lazily
      * created for this buffer by {@link #basisFileOf} / {@link #ktx2FileOf}.
@@ -165,5 +387,18 @@ public class BasisuWrapper {
     private static ByteBuffer fromTypedArray(Uint8Array array) {
         return BasisuGwtBufferUtil.createDirectByteBuffer(array.buffer());
     }
+
+    /** Writes the array content starting from the buffer's position. Neither the position nor the limit are changed. */
+    private static int copyToBuffer(Uint8Array array, ByteBuffer outBuffer) {
+        int size = array.length();
+        if (size > outBuffer.remaining()) {
+            throw new BasisuWrapperException("The output buffer is too small: " + size + " bytes required, but only " + outBuffer.remaining() + " remaining.");
+        }
+        int offset = outBuffer.position();
+        for (int i = 0; i < size; i++) {
+            outBuffer.put(offset + i, (byte)array.get(i));
+        }
+        return size;
+    }
     //endregion
 }
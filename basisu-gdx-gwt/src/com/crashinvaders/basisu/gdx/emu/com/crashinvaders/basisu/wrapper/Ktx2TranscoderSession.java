@@ -0,0 +1,118 @@
+package com.crashinvaders.basisu.wrapper;
+
+import java.io.Closeable;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+
+public class Ktx2TranscoderSession implements Closeable {
+
+    final Buffer dataBuffer;
+    boolean closed = false;
+
+    Ktx2TranscoderSession(Buffer dataBuffer, int levelCacheCapacity) {
+        // The Wasm side keeps a single started transcoder session per cached Ktx2File handle,
+        // so the session merely forwards the calls for the same data buffer.
+        this.dataBuffer = dataBuffer;
+        if (levelCacheCapacity != 0) {
+            BasisuWrapper.ktx2SetLevelCacheCapacity(dataBuffer, levelCacheCapacity);
+        }
+    }
+
+    Ktx2TranscoderSession(Object ignored) {
+        throw new UnsupportedOperationException("GWT doesn't support this constructor.");
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            throw new IllegalStateException("Object was already closed!");
+        }
+        closed = true;
+    }
+
+    public Buffer getDataBuffer() {
+        return dataBuffer;
+    }
+
+    public void setLevelCacheCapacity(int levelCacheCapacity) {
+        BasisuWrapper.ktx2SetLevelCacheCapacity(dataBuffer, levelCacheCapacity);
+    }
+
+    public int getLevelCacheSize() {
+        return BasisuWrapper.ktx2GetLevelCacheSize(dataBuffer);
+    }
+
+    public Ktx2FileDescription describe() {
+        return BasisuWrapper.ktx2Describe(dataBuffer);
+    }
+
+    public Ktx2ImageLevelInfo getImageLevelInfo(int layerIndex, int levelIndex) {
+        return BasisuWrapper.ktx2GetImageLevelInfo(dataBuffer, layerIndex, levelIndex);
+    }
+
+    public int getTranscodedSize(int layerIndex, int levelIndex, BasisuTranscoderTextureFormat textureFormat) {
+        return BasisuWrapper.ktx2GetTranscodedSize(dataBuffer, layerIndex, levelIndex, textureFormat);
+    }
+
+    public ByteBuffer transcode(int layerIndex, int levelIndex, BasisuTranscoderTextureFormat textureFormat) {
+        return BasisuWrapper.ktx2Transcode(dataBuffer, layerIndex, levelIndex, textureFormat);
+    }
+
+    public ByteBuffer transcode(int layerIndex, int levelIndex, BasisuTranscoderTextureFormat textureFormat, int decodeFlags) {
+        return BasisuWrapper.ktx2Transcode(dataBuffer, layerIndex, levelIndex, textureFormat, decodeFlags);
+    }
+
+    public int transcodeInto(int layerIndex, int levelIndex, BasisuTranscoderTextureFormat textureFormat, ByteBuffer outBuffer) {
+        return BasisuWrapper.ktx2TranscodeInto(dataBuffer, layerIndex, levelIndex, textureFormat, outBuffer);
+    }
+
+    public int transcodeInto(int layerIndex, int levelIndex, BasisuTranscoderTextureFormat textureFormat, ByteBuffer outBuffer, int workerCount) {
+        return BasisuWrapper.ktx2TranscodeInto(dataBuffer, layerIndex, levelIndex, textureFormat, outBuffer, workerCount);
+    }
+
+    public int transcodeInto(int layerIndex, int levelIndex, BasisuTranscoderTextureFormat textureFormat, ByteBuffer outBuffer, int workerCount, int decodeFlags) {
+        return BasisuWrapper.ktx2TranscodeInto(dataBuffer, layerIndex, levelIndex, textureFormat, outBuffer, workerCount, decodeFlags);
+    }
+
+    public Ktx2ImageLevelInfo getImageLevelInfo(int layerIndex, int levelIndex, int faceIndex) {
+        return BasisuWrapper.ktx2GetImageLevelInfo(dataBuffer, layerIndex, levelIndex, faceIndex);
+    }
+
+    public int transcodeFaceInto(int layerIndex, int levelIndex, int faceIndex, BasisuTranscoderTextureFormat textureFormat, ByteBuffer outBuffer) {
+        return BasisuWrapper.ktx2TranscodeFaceInto(dataBuffer, layerIndex, levelIndex, faceIndex, textureFormat, outBuffer, BasisuDecodeFlags.NONE);
+    }
+
+    /** There are no worker threads on the web, the "workerCount" is ignored. */
+    public int transcodeFaceInto(int layerIndex, int levelIndex, int faceIndex, BasisuTranscoderTextureFormat textureFormat, ByteBuffer outBuffer, int workerCount, int decodeFlags) {
+        return BasisuWrapper.ktx2TranscodeFaceInto(dataBuffer, layerIndex, levelIndex, faceIndex, textureFormat, outBuffer, decodeFlags);
+    }
+
+    public BasisuMipChain transcodeMipChain(int layerIndex, BasisuTranscoderTextureFormat textureFormat, int maxLevels) {
+        return BasisuWrapper.ktx2TranscodeMipChain(dataBuffer, layerIndex, textureFormat, maxLevels);
+    }
+
+    public BasisuMipChain transcodeMipChain(int layerIndex, BasisuTranscoderTextureFormat textureFormat, int maxLevels, int decodeFlags) {
+        return BasisuWrapper.ktx2TranscodeMipChain(dataBuffer, layerIndex, textureFormat, maxLevels, decodeFlags);
+    }
+
+    public BasisuMipChain allocateMipChain(int layerIndex, BasisuTranscoderTextureFormat textureFormat, int maxLevels) {
+        return BasisuWrapper.ktx2AllocateMipChain(dataBuffer, layerIndex, textureFormat, maxLevels);
+    }
+
+    public int getTranscodedRegionSize(int layerIndex, int levelIndex, int blockX, int blockY, int blocksWidth, int blocksHeight, BasisuTranscoderTextureFormat textureFormat) {
+        Ktx2ImageLevelInfo levelInfo = getImageLevelInfo(layerIndex, levelIndex);
+        try {
+            return textureFormat.getTranscodedRegionSize(levelInfo.getOrigWidth(), levelInfo.getOrigHeight(), blockX, blockY, blocksWidth, blocksHeight);
+        } finally {
+            levelInfo.close();
+        }
+    }
+
+    public int transcodeRegionInto(int layerIndex, int levelIndex, int blockX, int blockY, int blocksWidth, int blocksHeight, BasisuTranscoderTextureFormat textureFormat, ByteBuffer outBuffer) {
+        return BasisuWrapper.ktx2TranscodeRegionInto(dataBuffer, layerIndex, levelIndex, blockX, blockY, blocksWidth, blocksHeight, textureFormat, outBuffer);
+    }
+
+    public int transcodeRegionInto(int layerIndex, int levelIndex, int blockX, int blockY, int blocksWidth, int blocksHeight, BasisuTranscoderTextureFormat textureFormat, ByteBuffer outBuffer, int decodeFlags) {
+        return BasisuWrapper.ktx2TranscodeRegionInto(dataBuffer, layerIndex, levelIndex, blockX, blockY, blocksWidth, blocksHeight, textureFormat, outBuffer, decodeFlags);
+    }
+}
@@ -0,0 +1,256 @@
+package com.crashinvaders.basisu.gdx;
+
+import com.badlogic.gdx.Application;
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.BufferUtils;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.IdentityMap;
+import com.badlogic.gdx.utils.IntMap;
+import com.crashinvaders.basisu.wrapper.BasisuMipChain;
+import com.crashinvaders.basisu.wrapper.BasisuTranscoderTextureFormat;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+
+/**
+ * A reusable pool of the direct byte buffers for the encoded file data and the transcoded mipmap chains.
+ * Loading lots of textures otherwise allocates and frees a native buffer for every file and every mip chain,
+ * which churns the native allocator and fragments the memory (mostly noticeable on Android).
+ * <p/>
+ * The buffers are grouped into the power-of-two size classes (from {@link #MIN_SIZE_CLASS} to {@link #MAX_SIZE_CLASS}).
+ * The larger buffers are allocated with the exact size and released on {@link #free(ByteBuffer)}, they are never pooled.
+ * A freed buffer is kept for reuse while the total size of the idle buffers fits the limit, otherwise it is released right away.
+ * The buffers handed out by {@link #obtain(int)} are views of the exact requested size (so the capacity can be relied on).
+ * <p/>
+ * Plug it in with {@link BasisuGdxUtils#defaultBufferPool} (or per texture data)
+ * and use {@link #getReuseRate()} and {@link #getHighWaterMark()} to tune the limit.
+ * A single instance may be shared between the threads.
+ * On the web backend the pool only recycles the regular heap buffers.
+ */
+public class BasisuBufferPool implements Disposable {
+
+    /** The smallest buffer size class (4kB). */
+    public static final int MIN_SIZE_CLASS = 12;
+    /** The largest buffer size class (1GB), the size of the next one doesn't fit into an int. */
+    public static final int MAX_SIZE_CLASS = 30;
+
+    private final long maxIdleSize;
+
+    /** The idle buffers by their size class. */
+    private final IntMap<Array<ByteBuffer>> idleBuffers = new IntMap<>();
+    /** The handed out buffer views mapped to their pooled buffers. */
+    private final IdentityMap<ByteBuffer, ByteBuffer> obtainedBuffers = new IdentityMap<>();
+    private long idleSize = 0;
+    private long usedSize = 0;
+
+    private int obtainCount = 0;
+    private int reuseCount = 0;
+    private long highWaterMark = 0;
+
+    /**
+     * @param maxIdleSize the total size limit of the idle (kept for reuse) buffers in bytes
+     */
+    public BasisuBufferPool(long maxIdleSize) {
+        this.maxIdleSize = maxIdleSize;
+    }
+
+    public long getMaxIdleSize() {
+        return maxIdleSize;
+    }
+
+    /**
+     * Hands out a buffer (position 0, limit and capacity of the requested size). The content is undefined.
+     * Must be returned with {@link #free(ByteBuffer)}.
+     */
+    public synchronized ByteBuffer obtain(int size) {
+        if (size < 0) {
+            throw new IllegalArgumentException("The buffer size cannot be negative: " + size);
+        }
+        if (size > 1 << MAX_SIZE_CLASS) {
+            // Too large to be pooled.
+            ByteBuffer buffer = allocate(size);
+            obtainCount++;
+            usedSize += size;
+            highWaterMark = Math.max(highWaterMark, usedSize + idleSize);
+            obtainedBuffers.put(buffer, buffer);
+            return buffer;
+        }
+        int sizeClass = toSizeClass(size);
+        int classSize = 1 << sizeClass;
+
+        ByteBuffer buffer = null;
+        Array<ByteBuffer> classBuffers = idleBuffers.get(sizeClass);
+        if (classBuffers != null && classBuffers.size > 0) {
+            buffer = classBuffers.pop();
+            idleSize -= classSize;
+            reuseCount++;
+        } else {
+            buffer = allocate(classSize);
+        }
+        obtainCount++;
+        usedSize += classSize;
+        highWaterMark = Math.max(highWaterMark, usedSize + idleSize);
+
+        ((Buffer)buffer).position(0);
+        ((Buffer)buffer).limit(size);
+        ByteBuffer view = buffer.slice();
+        ((Buffer)buffer).limit(buffer.capacity());
+        obtainedBuffers.put(view, buffer);
+        return view;
+    }
+
+    /**
+     * @return true if the buffer was obtained from the pool and is not yet freed.
+     */
+    public synchronized boolean owns(ByteBuffer buffer) {
+        return obtainedBuffers.containsKey(buffer);
+    }
+
+    /**
+     * Returns the buffer obtained with {@link #obtain(int)} to the pool. The buffer must not be accessed afterwards.
+     */
+    public synchronized void free(ByteBuffer buffer) {
+        ByteBuffer pooledBuffer = obtainedBuffers.remove(buffer);
+        if (pooledBuffer == null) {
+            throw new IllegalArgumentException("The buffer was not obtained from the pool or is already freed.");
+        }
+        int classSize = pooledBuffer.capacity();
+        usedSize -= classSize;
+
+        if (classSize > 1 << MAX_SIZE_CLASS || idleSize + classSize > maxIdleSize) {
+            release(pooledBuffer);
+            return;
+        }
+        int sizeClass = toSizeClass(classSize);
+        Array<ByteBuffer> classBuffers = idleBuffers.get(sizeClass);
+        if (classBuffers == null) {
+            classBuffers = new Array<>();
+            idleBuffers.put(sizeClass, classBuffers);
+        }
+        classBuffers.add(pooledBuffer);
+        idleSize += classSize;
+    }
+
+    /**
+     * Lays out the mipmap chain levels one after another in a single pooled buffer.
+     * Closing the mip chain returns the buffer to the pool.
+     * @param levelTable packed (offset, size, width, height) quadruplets, one per level
+     * @return the mip chain with no level data transcoded yet
+     */
+    public BasisuMipChain obtainMipChain(BasisuTranscoderTextureFormat textureFormat, int[] levelTable) {
+        int levelCount = levelTable.length / BasisuMipChain.LEVEL_TABLE_STRIDE;
+        int totalSize = 0;
+        if (levelCount > 0) {
+            int lastIndex = (levelCount - 1) * BasisuMipChain.LEVEL_TABLE_STRIDE;
+            totalSize = levelTable[lastIndex + BasisuMipChain.LEVEL_OFFSET] + levelTable[lastIndex + BasisuMipChain.LEVEL_SIZE];
+        }
+        return new PooledMipChain(this, textureFormat, obtain(totalSize), levelTable);
+    }
+
+    /**
+     * Releases all the idle buffers. The buffers that are still in use are released once freed.
+     */
+    public synchronized void trim() {
+        for (Array<ByteBuffer> classBuffers : idleBuffers.values()) {
+            for (ByteBuffer buffer : classBuffers) {
+                release(buffer);
+            }
+        }
+        idleBuffers.clear();
+        idleSize = 0;
+    }
+
+    /**
+     * Releases all the idle buffers. The pool can still be used afterwards.
+     */
+    @Override
+    public void dispose() {
+        trim();
+    }
+
+    /**
+     * @return the number of the {@link #obtain(int)} calls since the pool creation.
+     */
+    public synchronized int getObtainCount() {
+        return obtainCount;
+    }
+
+    /**
+     * @return the number of the {@link #obtain(int)} calls served with an idle buffer (no allocation).
+     */
+    public synchronized int getReuseCount() {
+        return reuseCount;
+    }
+
+    /**
+     * @return the share of the {@link #obtain(int)} calls served with an idle buffer, from 0 to 1.
+     */
+    public synchronized float getReuseRate() {
+        return obtainCount == 0 ? 0f : reuseCount / (float)obtainCount;
+    }
+
+    /**
+     * @return the total size of the buffers currently in use in bytes (rounded up to the size classes).
+     */
+    public synchronized long getUsedSize() {
+        return usedSize;
+    }
+
+    /**
+     * @return the total size of the idle buffers kept for reuse in bytes.
+     */
+    public synchronized long getIdleSize() {
+        return idleSize;
+    }
+
+    /**
+     * @return the peak total size of the pool buffers (the used and the idle ones) in bytes.
+     */
+    public synchronized long getHighWaterMark() {
+        return highWaterMark;
+    }
+
+    /**
+     * @return the smallest size class that fits the size, up to {@link #MAX_SIZE_CLASS}.
+     */
+    static int toSizeClass(int size) {
+        if (size > 1 << MAX_SIZE_CLASS) {
+            throw new IllegalArgumentException("The buffer size exceeds the largest size class: " + size);
+        }
+        int sizeClass = MIN_SIZE_CLASS;
+        while ((1L << sizeClass) < size) {
+            sizeClass++;
+        }
+        return sizeClass;
+    }
+
+    private static ByteBuffer allocate(int size) {
+        // We use unsafe (direct) byte buffer everywhere but not on GWT as it doesn't support it.
+        if (Gdx.app.getType() == Application.ApplicationType.WebGL) {
+            return BufferUtils.newByteBuffer(size);
+        }
+        return BasisuBufferUtils.newUnsafeByteBuffer(size);
+    }
+
+    private static void release(ByteBuffer buffer) {
+        if (BasisuBufferUtils.isUnsafeByteBuffer(buffer)) {
+            BasisuBufferUtils.disposeUnsafeByteBuffer(buffer);
+        }
+    }
+
+    /** A mip chain whose data buffer is obtained from the pool. */
+    private static class PooledMipChain extends BasisuMipChain {
+        private final BasisuBufferPool pool;
+
+        PooledMipChain(BasisuBufferPool pool, BasisuTranscoderTextureFormat textureFormat, ByteBuffer data, int[] levelTable) {
+            super(textureFormat, data, levelTable);
+            this.pool = pool;
+        }
+
+        @Override
+        protected void releaseData(ByteBuffer data) {
+            pool.free(data);
+        }
+    }
+}
@@ -1,16 +1,33 @@
 package com.crashinvaders.basisu.gdx;
 
+import com.badlogic.gdx.Files;
+import com.badlogic.gdx.files.FileHandle;
 import com.badlogic.gdx.utils.BufferUtils;
+import com.badlogic.gdx.utils.IdentityMap;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 
 /**
  * Drop in (temporary?) partial replacement for {@link com.badlogic.gdx.utils.BufferUtils}.
  * The problem with the latter is it has no GWT definition/emulation for unsafe byte buffer related methods
  * and thus it's impossible to compile to GWT any code that contain them (even not use).
+ * <p/>
+ * Also hosts the memory-mapped file buffers, as {@link FileChannel} is not available on GWT either.
  */
 public class BasisuBufferUtils {
 
+    /**
+     * The buffers created with {@link #mapFile(FileHandle)} that are not yet disposed, mapped to their files.
+     * Buffers are looked up by identity, {@link ByteBuffer#hashCode()} and equals() depend on the content.
+     */
+    private static final IdentityMap<ByteBuffer, File> mappedBuffers = new IdentityMap<>();
+
     public static boolean isUnsafeByteBuffer(ByteBuffer buffer) {
         return BufferUtils.isUnsafeByteBuffer(buffer);
     }
@@ -22,4 +39,88 @@ public class BasisuBufferUtils {
     public static void disposeUnsafeByteBuffer(ByteBuffer buffer) {
         BufferUtils.disposeUnsafeByteBuffer(buffer);
     }
+
+    /**
+     * Maps the whole file content into memory (read-only).
+     * Only the regular files on the local file system can be mapped,
+     * the classpath files, Android assets and internal files packed into a jar cannot.
+     * Neither can the files larger than 2GB, as a single buffer cannot address them.
+     * @return the mapped direct buffer (must be disposed using {@link #disposeMappedByteBuffer(ByteBuffer)})
+     * or null if the file cannot be mapped (the file should be read the regular way then).
+     */
+    public static ByteBuffer mapFile(FileHandle file) {
+        if (file.type() == Files.FileType.Classpath) {
+            return null;
+        }
+        File javaFile = file.file();
+        if (!javaFile.isFile() || javaFile.length() > Integer.MAX_VALUE) {
+            return null;
+        }
+
+        // The mapping stays valid after the channel is closed.
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(javaFile, "r");
+             FileChannel channel = randomAccessFile.getChannel()) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                // The file has grown since the check above.
+                return null;
+            }
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            synchronized (mappedBuffers) {
+                mappedBuffers.put(buffer, javaFile);
+            }
+            return buffer;
+        } catch (IOException e) {
+            throw new BasisuGdxException("Couldn't map file '" + file + "'", e);
+        }
+    }
+
+    public static boolean isMappedByteBuffer(ByteBuffer buffer) {
+        synchronized (mappedBuffers) {
+            return mappedBuffers.containsKey(buffer);
+        }
+    }
+
+    /**
+     * Unmaps the buffer created with {@link #mapFile(FileHandle)} right away (where the runtime allows that),
+     * so the memory is released and the file is not locked until the buffer is garbage collected.
+     * The buffer must not be accessed afterwards.
+     */
+    public static void disposeMappedByteBuffer(ByteBuffer buffer) {
+        synchronized (mappedBuffers) {
+            if (mappedBuffers.remove(buffer) == null) {
+                throw new IllegalArgumentException("The buffer was not created with mapFile() or is already disposed.");
+            }
+        }
+        unmap(buffer);
+    }
+
+    private static void unmap(ByteBuffer buffer) {
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Method invokeCleaner = null;
+            try {
+                invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            } catch (NoSuchMethodException ignored) {
+            }
+
+            if (invokeCleaner != null) {
+                // Java 9+
+                Field unsafeField = unsafeClass.getDeclaredField("theUnsafe");
+                unsafeField.setAccessible(true);
+                invokeCleaner.invoke(unsafeField.get(null), buffer);
+            } else {
+                // Java 8
+                Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+                cleanerMethod.setAccessible(true);
+                Object cleaner = cleanerMethod.invoke(buffer);
+                if (cleaner != null) {
+                    cleaner.getClass().getMethod("clean").invoke(cleaner);
+                }
+            }
+        } catch (Exception ignored) {
+            // The runtime doesn't allow explicit unmapping (e.g. Android),
+            // the mapping is released once the buffer is garbage collected.
+        }
+    }
 }
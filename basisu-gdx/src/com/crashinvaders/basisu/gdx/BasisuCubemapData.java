@@ -0,0 +1,116 @@
+package com.crashinvaders.basisu.gdx;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.crashinvaders.basisu.wrapper.*;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Provides support for the {@link BasisuTextureType#CUBEMAP_ARRAY} Basis textures for {@link com.badlogic.gdx.graphics.Cubemap}.
+ * Every six consecutive images of the file form a cubemap, in the same order as the GL face targets are: +X, -X, +Y, -Y, +Z, -Z.
+ * All six face images of the selected cubemap are transcoded (with the whole mipmap chain)
+ * from a single {@link BasisuData} instance and uploaded to the matching cube map targets.
+ * <p/>
+ * The texture format is selected the same way as for {@link BasisuTextureData}
+ * (see {@link #setTextureFormatSelector(BasisuTextureFormatSelector)}).
+ */
+public class BasisuCubemapData extends TranscodedCubemapData<BasisuData> {
+    private static final String TAG = BasisuCubemapData.class.getSimpleName();
+
+    private final int cubemapIndex;
+
+    /**
+     * @param file the file to load the Basis cubemap data from
+     */
+    public BasisuCubemapData(FileHandle file) {
+        this(file, 0);
+    }
+
+    /**
+     * @param file the file to load the Basis cubemap data from
+     * @param cubemapIndex the index of the cubemap in the cubemap array (the first face image index divided by six)
+     */
+    public BasisuCubemapData(FileHandle file, int cubemapIndex) {
+        super(TAG, file, null);
+        this.cubemapIndex = validateCubemapIndex(cubemapIndex);
+    }
+
+    /**
+     * @param basisuData the Basis cubemap data to transcode the faces from
+     * @param cubemapIndex the index of the cubemap in the cubemap array (the first face image index divided by six)
+     */
+    public BasisuCubemapData(BasisuData basisuData, int cubemapIndex) {
+        super(TAG, null, basisuData);
+        this.cubemapIndex = validateCubemapIndex(cubemapIndex);
+    }
+
+    private static int validateCubemapIndex(int cubemapIndex) {
+        if (cubemapIndex < 0) {
+            throw new BasisuGdxException("cubemapIndex cannot be negative: " + cubemapIndex);
+        }
+        return cubemapIndex;
+    }
+
+    /**
+     * @throws BasisuGdxException if the cubemap is out of the cubemap array formed by the images
+     */
+    static void checkCubemapIndex(int cubemapIndex, int totalImages) {
+        int totalCubemaps = totalImages / FACE_COUNT;
+        if (cubemapIndex < 0 || cubemapIndex >= totalCubemaps) {
+            throw new BasisuGdxException("cubemapIndex " + cubemapIndex + " exceeds " +
+                    "the total number of cubemaps (" + totalCubemaps + ") in the basis file.");
+        }
+    }
+
+    @Override
+    BasisuData loadData(FileHandle file, boolean memoryMapped) {
+        return new BasisuData(file, memoryMapped);
+    }
+
+    @Override
+    void validateData(BasisuData data) {
+        BasisuFileDescription fileInfo = data.getFileInfo();
+        BasisuTextureType textureType = fileInfo.getTextureType();
+        if (textureType != BasisuTextureType.CUBEMAP_ARRAY) {
+            throw new BasisuGdxException("textureType " + textureType + " cannot be loaded as a cubemap. " +
+                    "Only BasisuTextureType.CUBEMAP_ARRAY texture type is allowed.");
+        }
+        checkCubemapIndex(cubemapIndex, fileInfo.getTotalImages());
+    }
+
+    // Cubemap arrays guarantee every image has the same resolution and the number of mipmap levels.
+
+    @Override
+    int getFaceWidth(BasisuData data) {
+        return data.getImageInfo(getFaceImageIndex(0)).getOrigWidth();
+    }
+
+    @Override
+    int getFaceHeight(BasisuData data) {
+        return data.getImageInfo(getFaceImageIndex(0)).getOrigHeight();
+    }
+
+    @Override
+    int getLevelCount(BasisuData data) {
+        return data.getImageInfo(getFaceImageIndex(0)).getTotalLevels();
+    }
+
+    @Override
+    BasisuTranscoderTextureFormat resolveTextureFormat(BasisuTextureFormatSelector formatSelector, BasisuData data) {
+        return formatSelector.resolveTextureFormat(data, getFaceImageIndex(0));
+    }
+
+    @Override
+    BasisuMipChain allocateFaceMipChain(BasisuData data, int faceIndex, BasisuTranscoderTextureFormat format, int levelCount) {
+        return data.getTranscoderSession().allocateMipChain(getFaceImageIndex(faceIndex), format, levelCount);
+    }
+
+    @Override
+    void transcodeFaceLevel(BasisuData data, int faceIndex, int level, BasisuTranscoderTextureFormat format, ByteBuffer outBuffer, int decodeFlags) {
+        data.transcode(getFaceImageIndex(faceIndex), level, format, outBuffer, 1, decodeFlags);
+    }
+
+    private int getFaceImageIndex(int faceIndex) {
+        return cubemapIndex * FACE_COUNT + faceIndex;
+    }
+}
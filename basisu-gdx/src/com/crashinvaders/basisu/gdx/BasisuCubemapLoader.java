@@ -0,0 +1,43 @@
+package com.crashinvaders.basisu.gdx;
+
+import com.badlogic.gdx.assets.AssetManager;
+import com.badlogic.gdx.assets.loaders.CubemapLoader;
+import com.badlogic.gdx.assets.loaders.FileHandleResolver;
+import com.badlogic.gdx.files.FileHandle;
+
+/**
+ * {@link AssetManager} compliant loader for Basis cubemaps (see {@link BasisuCubemapData}).
+ * <p/>
+ * Here's an example of how to set up the loader, so the {@link AssetManager} can support loading of ".basis" cubemaps:
+ * <br/>
+ * <code>
+ *     assetManager.setLoader(Cubemap.class, ".basis", new BasisuCubemapLoader(assetManager.getFileHandleResolver()));
+ * </code>
+ * <br/>
+ * And after that call to <code>assetManager.load("MySkybox.basis", Cubemap.class);</code> will post the cubemap for loading.
+ */
+public class BasisuCubemapLoader extends TranscodedCubemapLoader {
+
+    public BasisuCubemapLoader(FileHandleResolver resolver) {
+        super(resolver);
+    }
+
+    @Override
+    TranscodedCubemapData<?> createCubemapData(FileHandle fileHandle, CubemapLoader.CubemapParameter parameter) {
+        if (parameter instanceof BasisuCubemapParameter) {
+            return new BasisuCubemapData(fileHandle, ((BasisuCubemapParameter) parameter).cubemapIndex);
+        }
+        return new BasisuCubemapData(fileHandle);
+    }
+
+    /**
+     * Parameter class is an optional extension for the standard {@link CubemapLoader.CubemapParameter}.
+     */
+    public static class BasisuCubemapParameter extends TranscodedCubemapParameter {
+        /** The index of the cubemap in the cubemap array (the first face image index divided by six). */
+        public int cubemapIndex = 0;
+
+        public BasisuCubemapParameter() {
+        }
+    }
+}
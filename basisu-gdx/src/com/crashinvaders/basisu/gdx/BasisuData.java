@@ -2,7 +2,7 @@ package com.crashinvaders.basisu.gdx;
 
 import com.badlogic.gdx.files.FileHandle;
 import com.badlogic.gdx.utils.Disposable;
-import com.badlogic.gdx.utils.IntMap;
+import com.badlogic.gdx.utils.async.AsyncExecutor;
 import com.crashinvaders.basisu.wrapper.*;
 
 import java.nio.ByteBuffer;
@@ -10,71 +10,101 @@ import java.nio.ByteBuffer;
 /**
  * A simple wrapper to load and work with the Basis texture (file) data.
  * Must be disposed when it is no longer used.
+ * <p/>
+ * THREAD SAFETY: The file description is immutable and the transcoding session
+ * allows concurrent calls, so a single instance may be used to query and transcode
+ * from several threads at once (e.g. different images or mipmap levels).
+ * The only exception is the video frame textures, which must be transcoded from a single thread in the frame order.
+ * {@link #dispose()} must not be called until all the other calls are finished.
  */
 public class BasisuData implements Disposable {
 
     private final ByteBuffer encodedData;
-    private final BasisuFileInfo fileInfo;
+    /** The pool the encoded data buffer may come from. May be null. */
+    private final BasisuBufferPool bufferPool;
+    /** The whole file description, obtained once on creation. */
+    private final BasisuFileDescription fileInfo;
+    /**
+     * The transcoding state (parsed header and decoded codebooks) shared
+     * between all the image info and transcode calls of this object.
+     */
+    private final BasisuTranscoderSession transcoderSession;
 
     /**
-     * Keeps track of all the image info instances created by this object
-     * and calls "#close()" for them on dispose.
+     * @param file the file to load the Basis texture data from
      */
-    private IntMap<BasisuImageInfo> imageInfoIndex = null;
+    public BasisuData(FileHandle file) {
+        this(BasisuGdxUtils.readFileIntoBuffer(file));
+    }
+
     /**
-     * Keeps track of all the image level info instances created by this object
-     * and calls "#close()" for them on dispose.
+     * @param file the file to load the Basis texture data from
+     * @param memoryMapped whether to map the file into memory instead of reading it
+     *                     (falls back to reading for the files that cannot be mapped, e.g. classpath or Android asset files).
+     *                     The transcoder then reads directly from the OS page cache with no copying.
+     *                     The file is unmapped on {@link #dispose()}.
+     * @see BasisuGdxUtils#readFileIntoBuffer(FileHandle, boolean)
      */
-    private IntMap<BasisuImageLevelInfo> imageLevelInfoIndex = null;
+    public BasisuData(FileHandle file, boolean memoryMapped) {
+        this(BasisuGdxUtils.readFileIntoBuffer(file, memoryMapped));
+    }
 
     /**
      * @param file the file to load the Basis texture data from
+     * @param memoryMapped whether to map the file into memory instead of reading it
+     * @param bufferPool the pool to obtain the buffer for the file content from (when it's read, not mapped), or null to allocate a new one.
+     *                   The buffer is returned to the pool on {@link #dispose()}.
+     * @see #BasisuData(FileHandle, boolean)
      */
-    public BasisuData(FileHandle file) {
-        this(BasisuGdxUtils.readFileIntoBuffer(file));
+    public BasisuData(FileHandle file, boolean memoryMapped, BasisuBufferPool bufferPool) {
+        this(BasisuGdxUtils.readFileIntoBuffer(file, memoryMapped, bufferPool), bufferPool);
     }
 
     /**
      * @param encodedData the raw Basis texture data (as it's loaded from the file)
      */
     public BasisuData(ByteBuffer encodedData) {
+        this(encodedData, null);
+    }
+
+    private BasisuData(ByteBuffer encodedData, BasisuBufferPool bufferPool) {
         BasisuNativeLibLoader.loadIfNeeded();
 
         this.encodedData = encodedData;
+        this.bufferPool = bufferPool;
 
         if (!BasisuWrapper.basisValidateHeader(encodedData)) {
             throw new BasisuGdxException("Cannot validate header of the basis universal data.");
         }
 
-        this.fileInfo = BasisuWrapper.basisGetFileInfo(encodedData);
+        this.transcoderSession = BasisuWrapper.basisCreateTranscoderSession(encodedData);
+        this.fileInfo = transcoderSession.describe();
     }
 
     @Override
     public void dispose() {
-        fileInfo.close();
-
-        if (imageInfoIndex != null) {
-            for (BasisuImageInfo value : imageInfoIndex.values()) {
-                value.close();
-            }
-            imageInfoIndex.clear();
-        }
-
-        if (imageLevelInfoIndex != null) {
-            for (BasisuImageLevelInfo value : imageLevelInfoIndex.values()) {
-                value.close();
-            }
-            imageLevelInfoIndex.clear();
-        }
+        // The session refers to the encoded data and thus must be closed prior to releasing it.
+        transcoderSession.close();
 
         BasisuWrapper.releaseEncodedData(encodedData);
 
         //TODO Replace with BufferUtils.newUnsafeByteBuffer(fileSize) once it's compatible with GWT compiler.
-        if (BasisuBufferUtils.isUnsafeByteBuffer(encodedData)) {
+        if (bufferPool != null && bufferPool.owns(encodedData)) {
+            bufferPool.free(encodedData);
+        } else if (BasisuBufferUtils.isUnsafeByteBuffer(encodedData)) {
             BasisuBufferUtils.disposeUnsafeByteBuffer(encodedData);
+        } else if (BasisuBufferUtils.isMappedByteBuffer(encodedData)) {
+            BasisuBufferUtils.disposeMappedByteBuffer(encodedData);
         }
     }
 
+    /**
+     * @return true if the encoded data is a memory-mapped file.
+     */
+    public boolean isMemoryMapped() {
+        return BasisuBufferUtils.isMappedByteBuffer(encodedData);
+    }
+
     /**
      * @return the raw Basis texture data (as it's loaded from the file)
      */
@@ -83,56 +113,79 @@ public class BasisuData implements Disposable {
     }
 
     /**
-     * @return the general Basis file info
-     * @see BasisuFileInfo
+     * @return the whole Basis file description (the general file info, every image and every image level)
+     * @see BasisuFileDescription
      */
-    public BasisuFileInfo getFileInfo() {
+    public BasisuFileDescription getFileInfo() {
         return fileInfo;
     }
 
     /**
-     * Retrieves the image info data for the specified image number.
-     * <br/>
-     * NOTE: You don't have to call {@link BasisuImageInfo#close()} as the returned instance is managed by the BasisuData.
-     * @see BasisuImageInfo
+     * @return the transcoder session that is used for all the transcoding calls of this object.
+     * The session is managed by the BasisuData and gets closed on {@link #dispose()}.
+     */
+    public BasisuTranscoderSession getTranscoderSession() {
+        return transcoderSession;
+    }
+
+    /**
+     * Retrieves the image description for the specified image number.
+     * @see BasisuImageDescription
      * @param imageIndex the image index in the Basis file
-     * @return the image info for the specified image index
+     * @return the image description for the specified image index
      */
-    public BasisuImageInfo getImageInfo(int imageIndex) {
-        // Lazy create index map.
-        if (imageInfoIndex == null) {
-            imageInfoIndex = new IntMap<>();
-        }
-        BasisuImageInfo imageInfo = imageInfoIndex.get(imageIndex);
-        if (imageInfo == null) {
-            imageInfo = BasisuWrapper.basisGetImageInfo(encodedData, imageIndex);
-            imageInfoIndex.put(imageIndex, imageInfo);
-        }
-        return imageInfo;
+    public BasisuImageDescription getImageInfo(int imageIndex) {
+        return fileInfo.getImage(imageIndex);
     }
 
     /**
-     * Retrieves the image info data for the specified image number.
-     * <br/>
-     * NOTE: You don't have to call {@link BasisuImageInfo#close()} as the returned instance is managed by the BasisuData.
-     * @see BasisuImageInfo
+     * Retrieves the image level description for the specified image number and mipmap level.
+     * @see BasisuImageLevelDescription
      * @param imageIndex the image index in the Basis file
-     * @return the image info for the specified image index
+     * @param imageLevel the mipmap level of the image
+     * @return the image level description
      */
-    public BasisuImageLevelInfo getImageLevelInfo(int imageIndex, int imageLevel) {
-        // Lazy create index map.
-        if (imageLevelInfoIndex == null) {
-            imageLevelInfoIndex = new IntMap<>();
-        }
-        // Eval aggregated index for.
-        int index = 1024 * imageIndex + imageLevel;
+    public BasisuImageLevelDescription getImageLevelInfo(int imageIndex, int imageLevel) {
+        return fileInfo.getImageLevel(imageIndex, imageLevel);
+    }
+
+    /**
+     * Evaluates the size of the transcoded image level without doing the actual transcoding.
+     * @return the size in bytes of the image level transcoded to the specified format.
+     */
+    public int getTranscodedSize(int imageIndex, int mipmapLevel, BasisuTranscoderTextureFormat textureFormat) {
+        BasisuImageLevelDescription levelInfo = getImageLevelInfo(imageIndex, mipmapLevel);
+        return BasisuWrapper.getTranscodedSize(levelInfo.getOrigWidth(), levelInfo.getOrigHeight(), levelInfo.getTotalBlocks(), textureFormat);
+    }
 
-        BasisuImageLevelInfo imageInfo = imageLevelInfoIndex.get(index);
-        if (imageInfo == null) {
-            imageInfo = BasisuWrapper.basisGetImageLevelInfo(encodedData, imageIndex, imageLevel);
-            imageLevelInfoIndex.put(index, imageInfo);
+    /**
+     * Evaluates the size of the transcoded image level block region without doing the actual transcoding.
+     * @return the size in bytes of the block region transcoded to the specified format.
+     * @see #transcodeRegion(int, int, int, int, int, int, BasisuTranscoderTextureFormat, ByteBuffer)
+     */
+    public int getTranscodedRegionSize(int imageIndex, int mipmapLevel, int blockX, int blockY, int blocksWidth, int blocksHeight, BasisuTranscoderTextureFormat textureFormat) {
+        BasisuImageLevelDescription levelInfo = getImageLevelInfo(imageIndex, mipmapLevel);
+        return BasisuWrapper.getTranscodedRegionSize(levelInfo.getOrigWidth(), levelInfo.getOrigHeight(), blockX, blockY, blocksWidth, blocksHeight, textureFormat);
+    }
+
+    /**
+     * @return the total size in bytes of all the image mipmap levels transcoded to the specified format.
+     */
+    public int getTranscodedMipChainSize(int imageIndex, BasisuTranscoderTextureFormat textureFormat) {
+        return getTranscodedMipChainSize(imageIndex, Integer.MAX_VALUE, textureFormat);
+    }
+
+    /**
+     * @param maxLevels the maximum number of the mipmap levels (starting from the base level) to account for
+     * @return the total size in bytes of the image mipmap levels transcoded to the specified format.
+     */
+    public int getTranscodedMipChainSize(int imageIndex, int maxLevels, BasisuTranscoderTextureFormat textureFormat) {
+        int levels = Math.min(maxLevels, getImageInfo(imageIndex).getTotalLevels());
+        int totalSize = 0;
+        for (int level = 0; level < levels; level++) {
+            totalSize += getTranscodedSize(imageIndex, level, textureFormat);
         }
-        return imageInfo;
+        return totalSize;
     }
 
     /**
@@ -146,6 +199,156 @@ public class BasisuData implements Disposable {
      * Do not forget to use {@link BasisuWrapper#disposeNativeBuffer(ByteBuffer)} when the buffer is no longer required.
      */
     public ByteBuffer transcode(int imageIndex, int mipmapLevel, BasisuTranscoderTextureFormat textureFormat) {
-        return BasisuWrapper.basisTranscode(encodedData, imageIndex, mipmapLevel, textureFormat);
+        return transcode(imageIndex, mipmapLevel, textureFormat, BasisuDecodeFlags.NONE);
+    }
+
+    /**
+     * Same as {@link #transcode(int, int, BasisuTranscoderTextureFormat)}, but with the decode flags
+     * (e.g. {@link BasisuDecodeFlags#HIGH_QUALITY} for the hero assets
+     * or {@link BasisuDecodeFlags#NO_ETC1S_CHROMA_FILTERING} for the faster streaming).
+     * The flags are passed per call, so the concurrent calls may use different ones.
+     * @param decodeFlags a combination of the {@link BasisuDecodeFlags} constants
+     */
+    public ByteBuffer transcode(int imageIndex, int mipmapLevel, BasisuTranscoderTextureFormat textureFormat, int decodeFlags) {
+        return transcoderSession.transcode(imageIndex, mipmapLevel, textureFormat, decodeFlags);
+    }
+
+    /**
+     * Transcodes the Basis image to the target texture format directly into the provided buffer.
+     * The data is written starting from the buffer's current position
+     * and neither the position nor the limit of the buffer are changed.
+     * @param outBuffer a direct buffer with enough space remaining to hold the transcoded image level
+     * @return the number of bytes written.
+     * @see #transcode(int, int, BasisuTranscoderTextureFormat)
+     */
+    public int transcode(int imageIndex, int mipmapLevel, BasisuTranscoderTextureFormat textureFormat, ByteBuffer outBuffer) {
+        return transcode(imageIndex, mipmapLevel, textureFormat, outBuffer, 1, BasisuDecodeFlags.NONE);
+    }
+
+    /**
+     * Same as {@link #transcode(int, int, BasisuTranscoderTextureFormat, ByteBuffer)},
+     * but UASTC image levels are split into block row ranges transcoded concurrently by up to "workerCount" native threads.
+     * Has no effect on ETC1S data, PVRTC1/PVRTC2 target formats and on the web backend.
+     * @return the number of bytes written.
+     * @see BasisuWrapper#basisTranscodeInto(java.nio.Buffer, int, int, BasisuTranscoderTextureFormat, ByteBuffer, int)
+     */
+    public int transcode(int imageIndex, int mipmapLevel, BasisuTranscoderTextureFormat textureFormat, ByteBuffer outBuffer, int workerCount) {
+        return transcode(imageIndex, mipmapLevel, textureFormat, outBuffer, workerCount, BasisuDecodeFlags.NONE);
+    }
+
+    /**
+     * Same as {@link #transcode(int, int, BasisuTranscoderTextureFormat, ByteBuffer, int)}, but with the decode flags.
+     * @param decodeFlags a combination of the {@link BasisuDecodeFlags} constants
+     * @return the number of bytes written.
+     */
+    public int transcode(int imageIndex, int mipmapLevel, BasisuTranscoderTextureFormat textureFormat, ByteBuffer outBuffer, int workerCount, int decodeFlags) {
+        return transcoderSession.transcodeInto(imageIndex, mipmapLevel, textureFormat, outBuffer, workerCount, decodeFlags);
+    }
+
+    /**
+     * Transcodes only a rectangular range of 4x4 blocks of the image level directly into the provided buffer.
+     * Allows to stream a huge texture level tile by tile (e.g. using {@link BasisuGdxGl#glCompressedTexSubImage2D})
+     * instead of transcoding and uploading the whole level at once.
+     * <p/>
+     * Compressed regions are written as tightly packed rows of "blocksWidth" blocks,
+     * uncompressed ones as tightly packed pixel rows clipped by the original level size.
+     * UASTC data is transcoded block by block, so only the requested blocks are processed.
+     * ETC1S data can only be decoded a whole level at a time, so prefer transcoding the entire level once for it.
+     * PVRTC1/PVRTC2 formats are not supported.
+     * @param blockX the region's left block column
+     * @param blockY the region's top block row
+     * @param blocksWidth the region width in blocks
+     * @param blocksHeight the region height in blocks
+     * @param outBuffer a direct buffer with enough space remaining to hold the transcoded region
+     *                  (see {@link #getTranscodedRegionSize(int, int, int, int, int, int, BasisuTranscoderTextureFormat)})
+     * @return the number of bytes written.
+     */
+    public int transcodeRegion(int imageIndex, int mipmapLevel, int blockX, int blockY, int blocksWidth, int blocksHeight, BasisuTranscoderTextureFormat textureFormat, ByteBuffer outBuffer) {
+        return transcodeRegion(imageIndex, mipmapLevel, blockX, blockY, blocksWidth, blocksHeight, textureFormat, outBuffer, BasisuDecodeFlags.NONE);
+    }
+
+    /**
+     * Same as {@link #transcodeRegion(int, int, int, int, int, int, BasisuTranscoderTextureFormat, ByteBuffer)}, but with the decode flags.
+     * @param decodeFlags a combination of the {@link BasisuDecodeFlags} constants
+     * @return the number of bytes written.
+     */
+    public int transcodeRegion(int imageIndex, int mipmapLevel, int blockX, int blockY, int blocksWidth, int blocksHeight, BasisuTranscoderTextureFormat textureFormat, ByteBuffer outBuffer, int decodeFlags) {
+        return transcoderSession.transcodeRegionInto(imageIndex, mipmapLevel, blockX, blockY, blocksWidth, blocksHeight, textureFormat, outBuffer, decodeFlags);
+    }
+
+    /**
+     * Transcodes the Basis image mipmap levels (starting from the base one) to the target texture format
+     * in a single call into a single buffer.
+     * @param imageIndex the image index in the Basis file
+     * @param textureFormat the target format to transcode to
+     * @param maxLevels the maximum number of mipmap levels to transcode (clamped to the total number of the image levels)
+     * @return the transcoded mipmap chain.
+     * Do not forget to call {@link BasisuMipChain#close()} when the data is no longer required.
+     */
+    public BasisuMipChain transcodeMipChain(int imageIndex, BasisuTranscoderTextureFormat textureFormat, int maxLevels) {
+        return transcodeMipChain(imageIndex, textureFormat, maxLevels, null, null, BasisuDecodeFlags.NONE);
+    }
+
+    /**
+     * Same as {@link #transcodeMipChain(int, BasisuTranscoderTextureFormat, int)},
+     * but the mipmap levels are transcoded concurrently using the provided executor
+     * (the base level is transcoded on the calling thread). The levels land in the same single buffer layout.
+     * Video frame textures are always transcoded sequentially.
+     * @param executor the executor to transcode the levels with, or null to transcode them sequentially in a single call
+     * @return the transcoded mipmap chain.
+     * Do not forget to call {@link BasisuMipChain#close()} when the data is no longer required.
+     */
+    public BasisuMipChain transcodeMipChain(int imageIndex, BasisuTranscoderTextureFormat textureFormat, int maxLevels, AsyncExecutor executor) {
+        return transcodeMipChain(imageIndex, textureFormat, maxLevels, executor, null, BasisuDecodeFlags.NONE);
+    }
+
+    /**
+     * Same as {@link #transcodeMipChain(int, BasisuTranscoderTextureFormat, int, AsyncExecutor)},
+     * but the mip chain buffer is obtained from the pool (and returned to it once the mip chain is closed).
+     * @param bufferPool the pool to obtain the mip chain buffer from, or null to allocate it natively
+     * @return the transcoded mipmap chain.
+     * Do not forget to call {@link BasisuMipChain#close()} when the data is no longer required.
+     */
+    public BasisuMipChain transcodeMipChain(int imageIndex, BasisuTranscoderTextureFormat textureFormat, int maxLevels, AsyncExecutor executor, BasisuBufferPool bufferPool) {
+        return transcodeMipChain(imageIndex, textureFormat, maxLevels, executor, bufferPool, BasisuDecodeFlags.NONE);
+    }
+
+    /**
+     * Same as {@link #transcodeMipChain(int, BasisuTranscoderTextureFormat, int, AsyncExecutor, BasisuBufferPool)}, but with the decode flags.
+     * @param decodeFlags a combination of the {@link BasisuDecodeFlags} constants
+     * @return the transcoded mipmap chain.
+     * Do not forget to call {@link BasisuMipChain#close()} when the data is no longer required.
+     */
+    public BasisuMipChain transcodeMipChain(final int imageIndex, final BasisuTranscoderTextureFormat textureFormat, int maxLevels, AsyncExecutor executor, BasisuBufferPool bufferPool, final int decodeFlags) {
+        // Video frames depend on the previously transcoded ones and cannot be transcoded out of order.
+        if (fileInfo.getTextureType() == BasisuTextureType.VIDEO_FRAMES) {
+            executor = null;
+        }
+        if (bufferPool == null && executor == null) {
+            return transcoderSession.transcodeMipChain(imageIndex, textureFormat, maxLevels, decodeFlags);
+        }
+
+        BasisuMipChain mipChain;
+        if (bufferPool == null) {
+            mipChain = transcoderSession.allocateMipChain(imageIndex, textureFormat, maxLevels);
+        } else {
+            // The same layout the native side uses, the levels are packed one after another.
+            int levelCount = Math.min(maxLevels, fileInfo.getImageMipmapLevels()[imageIndex]);
+            int[] levelTable = new int[levelCount * BasisuMipChain.LEVEL_TABLE_STRIDE];
+            int offset = 0;
+            for (int level = 0; level < levelCount; level++) {
+                int size = getTranscodedSize(imageIndex, level, textureFormat);
+                BasisuImageLevelDescription levelInfo = getImageLevelInfo(imageIndex, level);
+                int index = level * BasisuMipChain.LEVEL_TABLE_STRIDE;
+                levelTable[index + BasisuMipChain.LEVEL_OFFSET] = offset;
+                levelTable[index + BasisuMipChain.LEVEL_SIZE] = size;
+                levelTable[index + BasisuMipChain.LEVEL_WIDTH] = levelInfo.getOrigWidth();
+                levelTable[index + BasisuMipChain.LEVEL_HEIGHT] = levelInfo.getOrigHeight();
+                offset += size;
+            }
+            mipChain = bufferPool.obtainMipChain(textureFormat, levelTable);
+        }
+        return BasisuGdxUtils.transcodeMipChainLevels(mipChain, executor,
+                (mipmapLevel, outBuffer) -> transcoderSession.transcodeInto(imageIndex, mipmapLevel, textureFormat, outBuffer, 1, decodeFlags));
     }
 }
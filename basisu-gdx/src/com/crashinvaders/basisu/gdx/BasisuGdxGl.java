@@ -1,10 +1,14 @@
 package com.crashinvaders.basisu.gdx;
 
+import com.badlogic.gdx.Application;
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.graphics.GL20;
 import com.badlogic.gdx.utils.BufferUtils;
 
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
 import java.nio.Buffer;
+import java.nio.ByteBuffer;
 import java.nio.IntBuffer;
 
 /**
@@ -41,4 +45,71 @@ public class BasisuGdxGl {
                                        int imageSize, Buffer data) {
         Gdx.gl.glCompressedTexImage2D(target, level, internalFormat, width, height, border, imageSize, data);
     }
+
+    /**
+     * Updates a sub-rectangle of a compressed texture level (e.g. with the data of a transcoded block region).
+     * The offsets and the size must be multiples of 4 (the block size), except for the region clipped by the level edge.
+     * This method exists here only because libGDX doesn't support it for GWT backend
+     * and basisu-gdx-gwt provides its own implementation.
+     */
+    public static void glCompressedTexSubImage2D(int target, int level, int xOffset, int yOffset,
+                                                 int width, int height, int format,
+                                                 int imageSize, Buffer data) {
+        Gdx.gl.glCompressedTexSubImage2D(target, level, xOffset, yOffset, width, height, format, imageSize, data);
+    }
+
+    /**
+     * Uploads compressed 3D (e.g. 2D array) texture data to the OpenGL ES 3.0 / OpenGL 3.0 context.
+     * libGDX's {@link com.badlogic.gdx.graphics.GL30} doesn't expose this function at all,
+     * so it's called directly on the backend's GL bindings (Android's GLES30 or LWJGL's GL13).
+     * basisu-gdx-gwt provides its own implementation for WebGL2.
+     * @throws BasisuGdxException if the running backend has no known bindings for the function.
+     */
+    public static void glCompressedTexImage3D(int target, int level, int internalFormat,
+                                              int width, int height, int depth, int border,
+                                              int imageSize, Buffer data) {
+        Method method = getCompressedTexImage3DMethod();
+        try {
+            if (method.getParameterTypes().length == 9) {
+                // android.opengl.GLES30
+                method.invoke(null, target, level, internalFormat, width, height, depth, border, imageSize, data);
+            } else {
+                // org.lwjgl.opengl.GL13 (both LWJGL 2 and 3), the image size is taken from the buffer.
+                ByteBuffer byteData = (ByteBuffer) data;
+                int limit = byteData.limit();
+                ((Buffer)byteData).limit(byteData.position() + imageSize);
+                try {
+                    method.invoke(null, target, level, internalFormat, width, height, depth, border, byteData);
+                } finally {
+                    ((Buffer)byteData).limit(limit);
+                }
+            }
+        } catch (IllegalAccessException e) {
+            throw new BasisuGdxException("Failed to call glCompressedTexImage3D.", e);
+        } catch (InvocationTargetException e) {
+            throw new BasisuGdxException("Failed to call glCompressedTexImage3D.", e.getCause());
+        }
+    }
+
+    private static Method compressedTexImage3DMethod = null;
+
+    private static Method getCompressedTexImage3DMethod() {
+        if (compressedTexImage3DMethod != null) {
+            return compressedTexImage3DMethod;
+        }
+        try {
+            Method method;
+            if (Gdx.app.getType() == Application.ApplicationType.Android) {
+                method = Class.forName("android.opengl.GLES30").getMethod("glCompressedTexImage3D",
+                        int.class, int.class, int.class, int.class, int.class, int.class, int.class, int.class, Buffer.class);
+            } else {
+                method = Class.forName("org.lwjgl.opengl.GL13").getMethod("glCompressedTexImage3D",
+                        int.class, int.class, int.class, int.class, int.class, int.class, int.class, ByteBuffer.class);
+            }
+            compressedTexImage3DMethod = method;
+            return method;
+        } catch (ClassNotFoundException | NoSuchMethodException e) {
+            throw new BasisuGdxException("glCompressedTexImage3D is not supported on the " + Gdx.app.getType() + " backend.", e);
+        }
+    }
 }
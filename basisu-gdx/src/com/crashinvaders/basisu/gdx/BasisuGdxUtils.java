@@ -4,14 +4,21 @@ import com.badlogic.gdx.Application;
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.files.FileHandle;
 import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.TextureData;
 import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.utils.Array;
 import com.badlogic.gdx.utils.BufferUtils;
+import com.badlogic.gdx.utils.Disposable;
 import com.badlogic.gdx.utils.IntSet;
 import com.badlogic.gdx.utils.StreamUtils;
+import com.badlogic.gdx.utils.async.AsyncExecutor;
+import com.badlogic.gdx.utils.async.AsyncResult;
 import com.crashinvaders.basisu.wrapper.*;
 
 import java.io.BufferedInputStream;
 import java.io.DataInputStream;
+import java.io.InputStream;
 import java.nio.Buffer;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
@@ -74,11 +81,35 @@ public class BasisuGdxUtils {
     public static final int GL_TEX_PVRTC1_4BPP_RGBA = 0x8c02;
     public static final int GL_TEX_PVRTC2_4BPP_RGBA = 0x9138;
 
+    /** The number of leading file bytes read to parse the header. Covers the whole header for most of the files. */
+    private static final int HEADER_READ_SIZE = 1024 * 4;
+
     /** Default texture format selector to be used by all the BasisuTextureData/KTX2TextureData instances. */
     public static BasisuTextureFormatSelector defaultFormatSelector = new BasisuTextureFormatSelector.Default();
 
-    private static final IntSet supportedGlTextureFormats = new IntSet();
-    private static boolean supportedGlTextureFormatsInitialized = false;
+    /**
+     * Default in-memory cache of the transcoded textures to be used by all the BasisuTextureData/KTX2TextureData instances.
+     * Disabled (null) by default.
+     */
+    public static TranscodedTextureCache defaultTranscodedTextureCache = null;
+
+    /**
+     * Default buffer pool for the encoded and the transcoded data to be used by all the BasisuTextureData/KTX2TextureData instances.
+     * Disabled (null) by default.
+     */
+    public static BasisuBufferPool defaultBufferPool = null;
+
+    /**
+     * Default reload policy of the managed textures to be used by all the BasisuTextureData/KTX2TextureData instances.
+     * The textures are read from their files again after the GL context loss by default.
+     */
+    public static BasisuReloadPolicy defaultReloadPolicy = BasisuReloadPolicy.RELOAD_FROM_FILE;
+
+    /**
+     * The GL texture formats supported by the GPU. Filled completely before being published
+     * and never modified afterwards, so the lookups need no locking.
+     */
+    private static volatile IntSet supportedGlTextureFormats = null;
 
     /**
      * Checks if the transcoder texture format is compatible with the current platform.
@@ -182,30 +213,41 @@ public class BasisuGdxUtils {
 
     /**
      * @return the list of GL texture formats supported by the GPU on the runtime.
+     * The set is shared and must not be modified.
      */
     public static IntSet getSupportedGlTextureFormats() {
-        initSupportedGlTextureFormats();
-        return supportedGlTextureFormats;
+        return obtainSupportedGlTextureFormats();
     }
 
     /**
      * Fetches and prepares the supported GL texture format list.
-     * Must be called from the main LibGDX thread.
+     * Must be called from the main LibGDX thread (the texture loaders do it on creation),
+     * after that the supported format checks are safe to call from any thread.
      */
-    public static synchronized void initSupportedGlTextureFormats() {
-        if (supportedGlTextureFormatsInitialized) return;
-        supportedGlTextureFormatsInitialized = true;
+    public static void initSupportedGlTextureFormats() {
+        obtainSupportedGlTextureFormats();
+    }
+
+    private static IntSet obtainSupportedGlTextureFormats() {
+        IntSet formats = supportedGlTextureFormats;
+        if (formats != null) return formats;
 
-        int[] formats = BasisuGdxGl.getSupportedTextureFormats();
-        supportedGlTextureFormats.addAll(formats);
+        synchronized (BasisuGdxUtils.class) {
+            formats = supportedGlTextureFormats;
+            if (formats == null) {
+                formats = new IntSet();
+                formats.addAll(BasisuGdxGl.getSupportedTextureFormats());
+                supportedGlTextureFormats = formats;
+            }
+            return formats;
+        }
     }
 
     /**
      * Checks if the GL texture format is supported by the GPU on the runtime.
      */
     public static boolean isGlTextureFormatSupported(int glTextureFormat) {
-        initSupportedGlTextureFormats();
-        return supportedGlTextureFormats.contains(glTextureFormat);
+        return obtainSupportedGlTextureFormats().contains(glTextureFormat);
     }
 
     /**
@@ -222,12 +264,46 @@ public class BasisuGdxUtils {
         return width % 4 == 0 && height % 4 == 0;
     }
 
+    /**
+     * Same as {@link #readFileIntoBuffer(FileHandle)}, but optionally maps the file into memory instead of reading it.
+     * The mapped buffer is backed directly by the OS page cache, so there is no copying and no extra allocation.
+     * The files that cannot be mapped (classpath, Android assets, internal files packed into a jar and all the files on GWT)
+     * are read the regular way.
+     * <p/>
+     * Check the result with {@link BasisuBufferUtils#isMappedByteBuffer(ByteBuffer)} and free it
+     * using {@link BasisuBufferUtils#disposeMappedByteBuffer(ByteBuffer)} or {@link BufferUtils#disposeUnsafeByteBuffer(ByteBuffer)} accordingly.
+     * @param memoryMapped whether to try to map the file into memory
+     */
+    public static ByteBuffer readFileIntoBuffer(FileHandle file, boolean memoryMapped) {
+        return readFileIntoBuffer(file, memoryMapped, null);
+    }
+
+    /**
+     * Same as {@link #readFileIntoBuffer(FileHandle, boolean)}, but the files that are read (not mapped)
+     * land in a buffer obtained from the pool. Check the result with {@link BasisuBufferPool#owns(ByteBuffer)}
+     * and return it using {@link BasisuBufferPool#free(ByteBuffer)} accordingly.
+     * @param bufferPool the pool to obtain the buffer from, or null to allocate a new one
+     */
+    public static ByteBuffer readFileIntoBuffer(FileHandle file, boolean memoryMapped, BasisuBufferPool bufferPool) {
+        if (memoryMapped && Gdx.app.getType() != Application.ApplicationType.WebGL) {
+            ByteBuffer mappedBuffer = BasisuBufferUtils.mapFile(file);
+            if (mappedBuffer != null) {
+                return mappedBuffer;
+            }
+        }
+        return readFileIntoBuffer(file, bufferPool);
+    }
+
     /**
      * Reads the file content into the {@link ByteBuffer}.
      * It uses unsafe (direct) byte buffer for all the platforms except for GWT,
      * so don't forget to free it using {@link BufferUtils#disposeUnsafeByteBuffer(ByteBuffer)}.
      */
     public static ByteBuffer readFileIntoBuffer(FileHandle file) {
+        return readFileIntoBuffer(file, null);
+    }
+
+    private static ByteBuffer readFileIntoBuffer(FileHandle file, BasisuBufferPool bufferPool) {
         byte[] buffer = new byte[1024 * 10];
         DataInputStream in = null;
         try {
@@ -236,7 +312,9 @@ public class BasisuGdxUtils {
 
             // We use unsafe (direct) byte buffer everywhere but not on GWT as it doesn't support it.
             final ByteBuffer byteBuffer;
-            if (Gdx.app.getType() == Application.ApplicationType.WebGL) {
+            if (bufferPool != null) {
+                byteBuffer = bufferPool.obtain(fileSize);
+            } else if (Gdx.app.getType() == Application.ApplicationType.WebGL) {
                 byteBuffer = BufferUtils.newByteBuffer(fileSize);
             } else {
                 //TODO Replace with BufferUtils.newUnsafeByteBuffer(fileSize) once it's compatible with GWT compiler.
@@ -257,6 +335,163 @@ public class BasisuGdxUtils {
         }
     }
 
+    /**
+     * Reads the .basis file description from the file header only, with no native library calls involved.
+     * Only the first few kilobytes of the file are read.
+     * @see BasisuHeaderParser#basisDescribe(ByteBuffer)
+     */
+    public static BasisuFileDescription readBasisFileDescription(FileHandle file) {
+        try {
+            ByteBuffer header = readFileHeader(file, HEADER_READ_SIZE);
+            int requiredSize = BasisuHeaderParser.basisGetRequiredHeaderSize(header);
+            if (requiredSize > header.remaining()) {
+                header = readFileHeader(file, requiredSize);
+            }
+            return BasisuHeaderParser.basisDescribe(header);
+        } catch (BasisuWrapperException e) {
+            throw new BasisuGdxException("Couldn't read the Basis header of '" + file + "'", e);
+        }
+    }
+
+    /**
+     * Reads the KTX2 file description from the file header only, with no native library calls involved.
+     * Only the first few kilobytes of the file are read.
+     * @see BasisuHeaderParser#ktx2Describe(ByteBuffer)
+     */
+    public static Ktx2FileDescription readKtx2FileDescription(FileHandle file) {
+        try {
+            ByteBuffer header = readFileHeader(file, HEADER_READ_SIZE);
+            int requiredSize = BasisuHeaderParser.ktx2GetRequiredHeaderSize(header);
+            if (requiredSize > header.remaining()) {
+                header = readFileHeader(file, requiredSize);
+            }
+            return BasisuHeaderParser.ktx2Describe(header);
+        } catch (BasisuWrapperException e) {
+            throw new BasisuGdxException("Couldn't read the KTX2 header of '" + file + "'", e);
+        }
+    }
+
+    /**
+     * Reads up to the specified number of leading file bytes into a heap byte buffer.
+     */
+    private static ByteBuffer readFileHeader(FileHandle file, int size) {
+        byte[] bytes = new byte[size];
+        int totalRead = 0;
+        InputStream in = null;
+        try {
+            in = file.read();
+            int readBytes;
+            while (totalRead < size && (readBytes = in.read(bytes, totalRead, size - totalRead)) != -1) {
+                totalRead += readBytes;
+            }
+        } catch (Exception e) {
+            throw new BasisuGdxException("Couldn't read file '" + file + "'", e);
+        } finally {
+            StreamUtils.closeQuietly(in);
+        }
+        return ByteBuffer.wrap(bytes, 0, totalRead);
+    }
+
+    /**
+     * Transcodes every level of the allocated (but not yet transcoded) mip chain.
+     * All the levels but the base one are submitted to the executor,
+     * the base level (the largest one) is transcoded on the calling thread meanwhile.
+     * The method always waits for all the submitted levels to finish, the first failure is rethrown afterwards.
+     * The mip chain is closed in case of a failure.
+     */
+    static BasisuMipChain transcodeMipChainLevels(final BasisuMipChain mipChain, AsyncExecutor executor, final MipLevelTranscoder levelTranscoder) {
+        try {
+            runIndexedTasks(mipChain.getLevelCount(), executor,
+                    mipmapLevel -> levelTranscoder.transcode(mipmapLevel, mipChain.getLevelData(mipmapLevel)));
+        } catch (RuntimeException e) {
+            mipChain.close();
+            throw e;
+        }
+        return mipChain;
+    }
+
+    /**
+     * Creates the texture that disposes its texture data along with it,
+     * so the data retained for the managed reload (see {@link BasisuReloadPolicy}) is released.
+     */
+    static Texture createManagedTexture(final TextureData data) {
+        return new Texture(data) {
+            @Override
+            public void dispose() {
+                super.dispose();
+                if (data instanceof Disposable) {
+                    ((Disposable) data).dispose();
+                }
+            }
+        };
+    }
+
+    /**
+     * Texture array levels hold the equally sized images of all the layers one after another
+     * (the layout glCompressedTexImage3D/glTexImage3D expect).
+     * @return a view of the layer image within the level buffer, positioned at its start and limited by its end.
+     */
+    static ByteBuffer sliceArrayLayer(ByteBuffer levelData, int layerCount, int layerIndex) {
+        int layerSize = levelData.capacity() / layerCount;
+        ByteBuffer layerData = levelData.duplicate();
+        ((Buffer)layerData).limit(layerSize * (layerIndex + 1));
+        ((Buffer)layerData).position(layerSize * layerIndex);
+        return layerData;
+    }
+
+    /**
+     * Runs the task for every index in [0, taskCount).
+     * All the indices but the first one are submitted to the executor,
+     * the first one is run on the calling thread meanwhile (it's expected to be the heaviest).
+     * The method always waits for all the submitted tasks to finish, the first failure is rethrown afterwards.
+     * @param executor the executor to run the tasks with, or null to run them all sequentially on the calling thread
+     */
+    static void runIndexedTasks(int taskCount, AsyncExecutor executor, final IndexedTask task) {
+        if (executor == null || taskCount <= 1) {
+            for (int i = 0; i < taskCount; i++) {
+                task.run(i);
+            }
+            return;
+        }
+
+        Array<AsyncResult<Void>> results = new Array<>(taskCount - 1);
+        for (int i = 1; i < taskCount; i++) {
+            final int index = i;
+            results.add(executor.submit(() -> {
+                task.run(index);
+                return null;
+            }));
+        }
+
+        RuntimeException failure = null;
+        try {
+            task.run(0);
+        } catch (RuntimeException e) {
+            failure = e;
+        }
+        for (int i = 0; i < results.size; i++) {
+            try {
+                results.get(i).get();
+            } catch (RuntimeException e) {
+                if (failure == null) failure = e;
+            }
+        }
+
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /** Transcodes a single mipmap level into the provided buffer. Must be safe to call from multiple threads. */
+    interface MipLevelTranscoder {
+        void transcode(int mipmapLevel, ByteBuffer outBuffer);
+    }
+
+    /** A unit of work addressed by its index (e.g. a texture layer or a cubemap face). Must be safe to call from multiple threads. */
+    interface IndexedTask {
+        void run(int index);
+    }
+
     public static String reportAvailableTranscoderFormats(BasisuTextureFormat basisTexFormat) {
         StringBuilder sb = new StringBuilder();
         sb.append("===== AVAILABLE TRANSCODER FORMATS | ").append(basisTexFormat.name()).append(" | (\"+\" if supported by the platform)").append(" =====");
@@ -6,12 +6,18 @@ import com.badlogic.gdx.utils.SharedLibraryLoader;
 
 public class BasisuNativeLibLoader {
 
-    private static boolean nativeLibLoaded = false;
+    private static volatile boolean nativeLibLoaded = false;
 
     /**
      * Ensures that the basisu-wrapper native library is loaded and initialized.
+     * Safe to call from any thread, the lock is only taken until the library is loaded.
      */
-    public static synchronized void loadIfNeeded() {
+    public static void loadIfNeeded() {
+        if (nativeLibLoaded) return;
+        loadSync();
+    }
+
+    private static synchronized void loadSync() {
         if (nativeLibLoaded) return;
 
         // No need to load for GWT (native lib is loaded by the "basisu-gdx-gwt" module).
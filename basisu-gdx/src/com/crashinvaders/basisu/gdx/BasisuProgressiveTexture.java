@@ -0,0 +1,587 @@
+package com.crashinvaders.basisu.gdx;
+
+import com.badlogic.gdx.Application;
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.GL30;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.TextureData;
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.utils.BufferUtils;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.async.AsyncExecutor;
+import com.badlogic.gdx.utils.async.AsyncResult;
+import com.crashinvaders.basisu.wrapper.BasisuTranscoderTextureFormat;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+
+/**
+ * A texture that becomes usable right away with only its smallest mipmap levels transcoded and uploaded,
+ * and then progressively refines to the full resolution one level at a time.
+ * <p/>
+ * The texture is created with the levels not larger than the "initialLevelSize" (on both sides)
+ * and GL_TEXTURE_BASE_LEVEL clamped to the largest of them. Each {@link #update()} call
+ * (on the render thread, e.g. once per frame) uploads the next larger level and lowers the base level,
+ * until the whole mip chain is resident. The levels can also be transcoded in the background
+ * using {@link #setTranscodeExecutor(AsyncExecutor)}, then {@link #update()} only uploads the finished ones.
+ * <p/>
+ * The refinement can be stopped at any level with {@link #setTargetLevel(int)}, and the largest levels can be dropped
+ * to free the GPU memory with {@link #evictLevels(int)} (see {@link BasisuTextureStreamer} that manages both under a memory budget).
+ * <p/>
+ * The base level clamping requires GL ES 3.0 (WebGL 2). Without it the whole mip chain is uploaded
+ * on creation just like a regular {@link BasisuTextureData} based texture does.
+ * <p/>
+ * The texture takes the ownership of the provided {@link BasisuData}/{@link Ktx2Data}.
+ * The encoded data is kept for the further levels and the managed texture reloading and gets disposed along with the texture.
+ */
+public class BasisuProgressiveTexture extends Texture {
+    private static final String TAG = BasisuProgressiveTexture.class.getSimpleName();
+
+    /** The default max size of the initially uploaded levels. */
+    public static final int DEFAULT_INITIAL_LEVEL_SIZE = 64;
+
+    private final ProgressiveTextureData progressiveData;
+
+    /** Transcodes the levels in the background when set. */
+    private AsyncExecutor transcodeExecutor = null;
+    /** The level transcoding in progress (only when the executor is set). */
+    private AsyncResult<ByteBuffer> pendingLevel = null;
+    /** The refinement stops at this level. */
+    private int targetLevel = 0;
+
+    /**
+     * @param basisuData the Basis texture data (gets disposed along with the texture)
+     * @param imageIndex the image index in the Basis file
+     */
+    public BasisuProgressiveTexture(BasisuData basisuData, int imageIndex) {
+        this(basisuData, imageIndex, DEFAULT_INITIAL_LEVEL_SIZE, BasisuGdxUtils.defaultFormatSelector);
+    }
+
+    /**
+     * @param basisuData the Basis texture data (gets disposed along with the texture)
+     * @param imageIndex the image index in the Basis file
+     * @param initialLevelSize the max width and height of the levels to upload on creation
+     *                         (at least the smallest level is always uploaded)
+     * @param formatSelector the selector of the GPU compressed texture format to transcode to
+     */
+    public BasisuProgressiveTexture(BasisuData basisuData, int imageIndex, int initialLevelSize, BasisuTextureFormatSelector formatSelector) {
+        this(createTextureData(basisuData, imageIndex, initialLevelSize, formatSelector));
+    }
+
+    /**
+     * @param ktx2Data the KTX2 texture data (gets disposed along with the texture)
+     * @param layerIndex the layer index in the KTX2 file
+     */
+    public BasisuProgressiveTexture(Ktx2Data ktx2Data, int layerIndex) {
+        this(ktx2Data, layerIndex, DEFAULT_INITIAL_LEVEL_SIZE, BasisuGdxUtils.defaultFormatSelector);
+    }
+
+    /**
+     * @param ktx2Data the KTX2 texture data (gets disposed along with the texture)
+     * @param layerIndex the layer index in the KTX2 file
+     * @param initialLevelSize the max width and height of the levels to upload on creation
+     *                         (at least the smallest level is always uploaded)
+     * @param formatSelector the selector of the GPU compressed texture format to transcode to
+     */
+    public BasisuProgressiveTexture(Ktx2Data ktx2Data, int layerIndex, int initialLevelSize, BasisuTextureFormatSelector formatSelector) {
+        this(createTextureData(ktx2Data, layerIndex, initialLevelSize, formatSelector));
+    }
+
+    private BasisuProgressiveTexture(ProgressiveTextureData progressiveData) {
+        super(progressiveData);
+        this.progressiveData = progressiveData;
+    }
+
+    /** The ownership of the data is taken only once the texture data is set up, so it's disposed if that fails. */
+    private static ProgressiveTextureData createTextureData(BasisuData basisuData, int imageIndex, int initialLevelSize, BasisuTextureFormatSelector formatSelector) {
+        try {
+            return new ProgressiveTextureData(new BasisuLevelSource(basisuData, imageIndex, formatSelector), initialLevelSize);
+        } catch (RuntimeException e) {
+            basisuData.dispose();
+            throw e;
+        }
+    }
+
+    /** @see #createTextureData(BasisuData, int, int, BasisuTextureFormatSelector) */
+    private static ProgressiveTextureData createTextureData(Ktx2Data ktx2Data, int layerIndex, int initialLevelSize, BasisuTextureFormatSelector formatSelector) {
+        try {
+            return new ProgressiveTextureData(new Ktx2LevelSource(ktx2Data, layerIndex, formatSelector), initialLevelSize);
+        } catch (RuntimeException e) {
+            ktx2Data.dispose();
+            throw e;
+        }
+    }
+
+    /**
+     * Selects the largest level that fits into the initial level size on both sides.
+     * At least the smallest level is always selected.
+     * @param levelWidths the width of each mipmap level, starting from the largest one
+     * @param levelHeights the height of each mipmap level, starting from the largest one
+     * @param initialLevelSize the max width and height of the levels to upload on creation
+     * @return the index of the largest mipmap level to upload on creation
+     */
+    static int findInitialLevel(int[] levelWidths, int[] levelHeights, int initialLevelSize) {
+        int initialLevel = levelWidths.length - 1;
+        while (initialLevel > 0 &&
+                levelWidths[initialLevel - 1] <= initialLevelSize &&
+                levelHeights[initialLevel - 1] <= initialLevelSize) {
+            initialLevel--;
+        }
+        return initialLevel;
+    }
+
+    /**
+     * @return the executor to transcode the levels with, or null if they are transcoded within {@link #update()}.
+     */
+    public AsyncExecutor getTranscodeExecutor() {
+        return transcodeExecutor;
+    }
+
+    /**
+     * Moves the level transcoding off the render thread.
+     * The executor is not managed by the texture and should be disposed by the owner.
+     * @param transcodeExecutor the executor to use, or null (default) to transcode the levels within {@link #update()}
+     */
+    public void setTranscodeExecutor(AsyncExecutor transcodeExecutor) {
+        this.transcodeExecutor = transcodeExecutor;
+    }
+
+    /**
+     * @return the level {@link #update()} refines the texture up to (0 by default).
+     */
+    public int getTargetLevel() {
+        return targetLevel;
+    }
+
+    /**
+     * Limits the refinement, the levels larger than the target one are not uploaded by {@link #update()}.
+     * The already resident levels stay in place (see {@link #evictLevels(int)}).
+     * @param targetLevel the largest mipmap level to refine the texture up to
+     */
+    public void setTargetLevel(int targetLevel) {
+        this.targetLevel = MathUtils.clamp(targetLevel, 0, getLevelCount() - 1);
+    }
+
+    /**
+     * Drops the mipmap levels larger than the specified one from the GPU memory.
+     * As a level storage can't be released on its own, the GL texture object is recreated
+     * and the remaining levels are transcoded from the encoded data and uploaded again.
+     * The target level gets raised accordingly, so {@link #update()} doesn't bring the levels back right away.
+     * Must be called on the render thread. Has no effect if the level is already not resident
+     * or the texture is not progressive (see {@link #isProgressive()}).
+     * @param level the new largest resident level (at least the smallest level always stays resident)
+     */
+    public void evictLevels(int level) {
+        level = Math.min(level, getLevelCount() - 1);
+        if (!progressiveData.progressive || level <= progressiveData.getResidentLevel()) {
+            return;
+        }
+        // The level being transcoded in the background is no longer the next one.
+        awaitPendingLevel();
+
+        targetLevel = Math.max(targetLevel, level);
+        progressiveData.residentLevel = level;
+        delete();
+        glHandle = Gdx.gl.glGenTexture();
+        load(progressiveData);
+    }
+
+    /**
+     * @return whether the texture levels are uploaded progressively (requires GL ES 3.0 / WebGL 2).
+     * Otherwise, the whole mip chain is resident from the start.
+     */
+    public boolean isProgressive() {
+        return progressiveData.progressive;
+    }
+
+    /**
+     * @return the total number of the mipmap levels of the texture.
+     */
+    public int getLevelCount() {
+        return progressiveData.levelCount;
+    }
+
+    /**
+     * @return the GPU memory size of the mipmap level in bytes.
+     */
+    public int getLevelSize(int level) {
+        return progressiveData.levelSizes[level];
+    }
+
+    /**
+     * @return the width of the mipmap level in pixels.
+     */
+    public int getLevelWidth(int level) {
+        return progressiveData.source.getLevelWidth(level);
+    }
+
+    /**
+     * @return the height of the mipmap level in pixels.
+     */
+    public int getLevelHeight(int level) {
+        return progressiveData.source.getLevelHeight(level);
+    }
+
+    /**
+     * @return the GPU memory size of all the resident mipmap levels in bytes.
+     */
+    public long getResidentSize() {
+        long size = 0;
+        for (int level = progressiveData.getResidentLevel(); level < progressiveData.levelCount; level++) {
+            size += progressiveData.levelSizes[level];
+        }
+        return size;
+    }
+
+    /**
+     * Advances the refinement by at most one mipmap level. Must be called on the render thread.
+     * <p/>
+     * With no executor set, the next level is transcoded and uploaded right away.
+     * Otherwise, the next level transcoding is submitted to the executor and the level is uploaded
+     * by one of the following calls once it's finished.
+     * @return true if all the mipmap levels are resident.
+     */
+    public boolean update() {
+        if (progressiveData.getResidentLevel() <= targetLevel) {
+            return isFullyResident();
+        }
+        final int level = progressiveData.getResidentLevel() - 1;
+
+        ByteBuffer levelData;
+        if (transcodeExecutor == null) {
+            levelData = progressiveData.transcodeNextLevel();
+        } else {
+            if (pendingLevel == null) {
+                pendingLevel = transcodeExecutor.submit(progressiveData::transcodeNextLevel);
+                return false;
+            }
+            if (!pendingLevel.isDone()) {
+                return false;
+            }
+            try {
+                levelData = pendingLevel.get();
+            } finally {
+                // A failed transcoding gets resubmitted by the next call.
+                pendingLevel = null;
+            }
+        }
+
+        bind();
+        progressiveData.uploadLevel(glTarget, level, levelData);
+        progressiveData.setResidentLevel(glTarget, level);
+        Gdx.gl.glBindTexture(glTarget, 0);
+        return isFullyResident();
+    }
+
+    /**
+     * @return the index of the largest mipmap level that is uploaded to the GPU (0 once the texture is fully refined).
+     */
+    public int getResidentLevel() {
+        return progressiveData.getResidentLevel();
+    }
+
+    /**
+     * @return true if all the mipmap levels are uploaded to the GPU.
+     */
+    public boolean isFullyResident() {
+        return progressiveData.getResidentLevel() == 0;
+    }
+
+    @Override
+    public void dispose() {
+        // The background transcoding still uses the encoded data.
+        awaitPendingLevel();
+        progressiveData.disposeSource();
+        super.dispose();
+    }
+
+    private void awaitPendingLevel() {
+        if (pendingLevel != null) {
+            try {
+                pendingLevel.get();
+            } catch (GdxRuntimeException ignored) {
+            }
+            pendingLevel = null;
+        }
+    }
+
+    private static class ProgressiveTextureData implements TextureData {
+
+        private final LevelSource source;
+        private final int levelCount;
+        private final int initialLevel;
+        /** Whether the levels can be uploaded one by one (GL_TEXTURE_BASE_LEVEL is supported). */
+        private final boolean progressive;
+        private final int glFormatCode;
+        /** The transcoded (GPU memory) size of each level. */
+        private final int[] levelSizes;
+
+        /** The largest uploaded level. Only the levels from it to the smallest one are defined on the GPU. */
+        private volatile int residentLevel;
+        /** Reused by the levels transcoded after the texture creation. */
+        private ByteBuffer transcodeBuffer = null;
+
+        private boolean isPrepared = false;
+
+        ProgressiveTextureData(LevelSource source, int initialLevelSize) {
+            this.source = source;
+            this.glFormatCode = BasisuGdxUtils.toGlTextureFormat(source.format);
+            this.progressive = Gdx.gl30 != null;
+
+            int levelCount = source.getLevelCount();
+            // WebGL1 rejects any mip level beyond 0 on a non-power-of-two texture (desktop GL doesn't care).
+            if (levelCount > 1 && !progressive && Gdx.app.getType() == Application.ApplicationType.WebGL) {
+                if (!MathUtils.isPowerOfTwo(source.getLevelWidth(0)) || !MathUtils.isPowerOfTwo(source.getLevelHeight(0))) {
+                    Gdx.app.error(TAG, "Non-power-of-two texture, WebGL1 can't use its mip chain - loading level 0 only.");
+                    levelCount = 1;
+                }
+            }
+            this.levelCount = levelCount;
+
+            this.levelSizes = new int[levelCount];
+            int[] levelWidths = new int[levelCount];
+            int[] levelHeights = new int[levelCount];
+            for (int level = 0; level < levelCount; level++) {
+                levelSizes[level] = source.getTranscodedSize(level);
+                levelWidths[level] = source.getLevelWidth(level);
+                levelHeights[level] = source.getLevelHeight(level);
+            }
+
+            this.initialLevel = progressive ? findInitialLevel(levelWidths, levelHeights, initialLevelSize) : 0;
+            this.residentLevel = levelCount;
+        }
+
+        int getResidentLevel() {
+            return residentLevel;
+        }
+
+        void setResidentLevel(int target, int level) {
+            residentLevel = level;
+            if (progressive) {
+                Gdx.gl.glTexParameteri(target, GL30.GL_TEXTURE_BASE_LEVEL, level);
+            }
+            if (level == 0) {
+                transcodeBuffer = null;
+            }
+        }
+
+        /** Transcodes the level following the resident one. May be called from any thread, but one call at a time. */
+        ByteBuffer transcodeNextLevel() {
+            transcodeBuffer = transcodeLevel(residentLevel - 1, transcodeBuffer);
+            return transcodeBuffer;
+        }
+
+        private ByteBuffer transcodeLevel(int level, ByteBuffer buffer) {
+            int size = source.getTranscodedSize(level);
+            if (buffer == null || buffer.capacity() < size) {
+                buffer = BufferUtils.newByteBuffer(size);
+            }
+            ((Buffer)buffer).position(0);
+            ((Buffer)buffer).limit(size);
+            source.transcode(level, buffer);
+            return buffer;
+        }
+
+        void uploadLevel(int target, int level, ByteBuffer data) {
+            int width = source.getLevelWidth(level);
+            int height = source.getLevelHeight(level);
+            if (source.format.isCompressedFormat()) {
+                BasisuGdxGl.glCompressedTexImage2D(target, level, glFormatCode,
+                        width, height, 0,
+                        data.remaining(), data);
+            } else {
+                int textureType = BasisuGdxUtils.toUncompressedGlTextureType(source.format);
+                Gdx.gl.glTexImage2D(target, level, glFormatCode,
+                        width, height, 0,
+                        glFormatCode, textureType, data);
+            }
+
+            int glError = Gdx.gl.glGetError();
+            if (glError != 0) {
+                Gdx.app.error(TAG, "Failed to upload texture (mimpap: " + level + ") to GPU. GL error: " + glError);
+            }
+        }
+
+        void disposeSource() {
+            source.dispose();
+            transcodeBuffer = null;
+        }
+
+        @Override
+        public TextureDataType getType() {
+            return TextureDataType.Custom;
+        }
+
+        @Override
+        public boolean isPrepared() {
+            return isPrepared;
+        }
+
+        @Override
+        public void prepare() {
+            if (isPrepared) throw new GdxRuntimeException("Already prepared");
+            isPrepared = true;
+        }
+
+        /**
+         * Uploads the initial levels on the texture creation and all the resident levels on the managed texture reload
+         * (or after the eviction).
+         * Uses its own transcode buffer, as the reload may happen while a level is transcoded in the background.
+         */
+        @Override
+        public void consumeCustomData(int target) {
+            if (!isPrepared) throw new GdxRuntimeException("Call prepare() before calling consumeCompressedData()");
+
+            int firstLevel = residentLevel < levelCount ? residentLevel : initialLevel;
+            ByteBuffer buffer = null;
+            for (int level = levelCount - 1; level >= firstLevel; level--) {
+                buffer = transcodeLevel(level, buffer);
+                uploadLevel(target, level, buffer);
+            }
+            if (progressive) {
+                Gdx.gl.glTexParameteri(target, GL30.GL_TEXTURE_MAX_LEVEL, levelCount - 1);
+            }
+            setResidentLevel(target, firstLevel);
+            isPrepared = false;
+        }
+
+        @Override
+        public Pixmap consumePixmap() {
+            throw new GdxRuntimeException("This TextureData implementation does not return a Pixmap.");
+        }
+
+        @Override
+        public boolean disposePixmap() {
+            throw new GdxRuntimeException("This TextureData implementation does not return a Pixmap.");
+        }
+
+        @Override
+        public int getWidth() {
+            return source.getLevelWidth(0);
+        }
+
+        @Override
+        public int getHeight() {
+            return source.getLevelHeight(0);
+        }
+
+        @Override
+        public Pixmap.Format getFormat() {
+            throw new GdxRuntimeException("This TextureData implementation does not return a Pixmap");
+        }
+
+        @Override
+        public boolean useMipMaps() {
+            return levelCount > 1;
+        }
+
+        @Override
+        public boolean isManaged() {
+            return true;
+        }
+    }
+
+    /** Unifies the level access of the Basis and KTX2 data. */
+    private static abstract class LevelSource {
+        final BasisuTranscoderTextureFormat format;
+
+        LevelSource(BasisuTranscoderTextureFormat format) {
+            this.format = format;
+        }
+
+        abstract int getLevelCount();
+
+        abstract int getLevelWidth(int level);
+
+        abstract int getLevelHeight(int level);
+
+        abstract int getTranscodedSize(int level);
+
+        abstract void transcode(int level, ByteBuffer outBuffer);
+
+        abstract void dispose();
+    }
+
+    private static class BasisuLevelSource extends LevelSource {
+        private final BasisuData data;
+        private final int imageIndex;
+
+        BasisuLevelSource(BasisuData data, int imageIndex, BasisuTextureFormatSelector formatSelector) {
+            super(formatSelector.resolveTextureFormat(data, imageIndex));
+            this.data = data;
+            this.imageIndex = imageIndex;
+        }
+
+        @Override
+        int getLevelCount() {
+            return data.getImageInfo(imageIndex).getTotalLevels();
+        }
+
+        @Override
+        int getLevelWidth(int level) {
+            return data.getImageLevelInfo(imageIndex, level).getOrigWidth();
+        }
+
+        @Override
+        int getLevelHeight(int level) {
+            return data.getImageLevelInfo(imageIndex, level).getOrigHeight();
+        }
+
+        @Override
+        int getTranscodedSize(int level) {
+            return data.getTranscodedSize(imageIndex, level, format);
+        }
+
+        @Override
+        void transcode(int level, ByteBuffer outBuffer) {
+            data.transcode(imageIndex, level, format, outBuffer);
+        }
+
+        @Override
+        void dispose() {
+            data.dispose();
+        }
+    }
+
+    private static class Ktx2LevelSource extends LevelSource {
+        private final Ktx2Data data;
+        private final int layerIndex;
+
+        Ktx2LevelSource(Ktx2Data data, int layerIndex, BasisuTextureFormatSelector formatSelector) {
+            super(formatSelector.resolveTextureFormat(data));
+            this.data = data;
+            this.layerIndex = layerIndex;
+        }
+
+        @Override
+        int getLevelCount() {
+            return data.getTotalMipmapLevels();
+        }
+
+        @Override
+        int getLevelWidth(int level) {
+            return data.getImageLevelInfo(layerIndex, level).getOrigWidth();
+        }
+
+        @Override
+        int getLevelHeight(int level) {
+            return data.getImageLevelInfo(layerIndex, level).getOrigHeight();
+        }
+
+        @Override
+        int getTranscodedSize(int level) {
+            return data.getTranscodedSize(layerIndex, level, format);
+        }
+
+        @Override
+        void transcode(int level, ByteBuffer outBuffer) {
+            data.transcode(layerIndex, level, format, outBuffer);
+        }
+
+        @Override
+        void dispose() {
+            data.dispose();
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.crashinvaders.basisu.gdx;
+
+/**
+ * Defines what {@link BasisuTextureData}/{@link Ktx2TextureData} retains after the texture upload
+ * to restore the managed texture once the GL context is lost (e.g. on Android app resume).
+ * <p/>
+ * Any retained data is released with the texture data's dispose() method,
+ * which should be called along with the texture disposal.
+ */
+public enum BasisuReloadPolicy {
+    /**
+     * Nothing is retained, the texture file is read and transcoded again on reload.
+     * The texture data created from a {@link BasisuData}/{@link Ktx2Data} instance can't be reloaded with this policy.
+     */
+    RELOAD_FROM_FILE,
+    /**
+     * The encoded data is retained (the most compact option), the texture is only transcoded again on reload.
+     */
+    KEEP_ENCODED,
+    /**
+     * The transcoded mip chain is retained (the fastest option), the texture is uploaded right away on reload.
+     */
+    KEEP_TRANSCODED,
+}
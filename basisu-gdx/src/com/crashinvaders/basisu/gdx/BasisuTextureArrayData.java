@@ -0,0 +1,87 @@
+package com.crashinvaders.basisu.gdx;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.crashinvaders.basisu.wrapper.*;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Provides support for the {@link BasisuTextureType#REGULAR_2D_ARRAY} and {@link BasisuTextureType#VOLUME}
+ * Basis textures for {@link com.badlogic.gdx.graphics.TextureArray}.
+ * Every image of the file becomes a slice of a single <code>GL_TEXTURE_2D_ARRAY</code> texture
+ * (volume texture slices are not filtered across, unlike with a real 3D texture).
+ * All the images are transcoded from a single {@link BasisuData} instance.
+ * <p/>
+ * Texture arrays require OpenGL ES 3.0 (WebGL2 on the web backend).
+ * <p/>
+ * The texture format is selected the same way as for {@link BasisuTextureData}
+ * (see {@link #setTextureFormatSelector(BasisuTextureFormatSelector)}).
+ */
+public class BasisuTextureArrayData extends TranscodedTextureArrayData<BasisuData> {
+    private static final String TAG = BasisuTextureArrayData.class.getSimpleName();
+
+    /**
+     * @param file the file to load the Basis texture data from
+     */
+    public BasisuTextureArrayData(FileHandle file) {
+        super(TAG, file, null);
+    }
+
+    /**
+     * @param basisuData the Basis texture data to transcode the texture array from
+     */
+    public BasisuTextureArrayData(BasisuData basisuData) {
+        super(TAG, null, basisuData);
+    }
+
+    @Override
+    BasisuData loadData(FileHandle file, boolean memoryMapped) {
+        return new BasisuData(file, memoryMapped);
+    }
+
+    @Override
+    void validateData(BasisuData data) {
+        BasisuTextureType textureType = data.getFileInfo().getTextureType();
+        if (textureType != BasisuTextureType.REGULAR_2D_ARRAY && textureType != BasisuTextureType.VOLUME) {
+            throw new BasisuGdxException("textureType " + textureType + " cannot be loaded as a texture array. " +
+                    "Only BasisuTextureType.REGULAR_2D_ARRAY and BasisuTextureType.VOLUME texture types are allowed.");
+        }
+    }
+
+    // These texture types guarantee every image has the same resolution and the number of mipmap levels.
+
+    @Override
+    int getLayerCount(BasisuData data) {
+        return data.getFileInfo().getTotalImages();
+    }
+
+    @Override
+    int getLevelCount(BasisuData data) {
+        return data.getImageInfo(0).getTotalLevels();
+    }
+
+    @Override
+    int getLevelWidth(BasisuData data, int level) {
+        return data.getImageLevelInfo(0, level).getOrigWidth();
+    }
+
+    @Override
+    int getLevelHeight(BasisuData data, int level) {
+        return data.getImageLevelInfo(0, level).getOrigHeight();
+    }
+
+    @Override
+    BasisuTranscoderTextureFormat resolveTextureFormat(BasisuTextureFormatSelector formatSelector, BasisuData data) {
+        return formatSelector.resolveTextureFormat(data, 0);
+    }
+
+    @Override
+    int getTranscodedSize(BasisuData data, int level, BasisuTranscoderTextureFormat format) {
+        return data.getTranscodedSize(0, level, format);
+    }
+
+    @Override
+    void transcodeLayerLevel(BasisuData data, int layerIndex, int level, BasisuTranscoderTextureFormat format, ByteBuffer outBuffer, int decodeFlags) {
+        data.transcode(layerIndex, level, format, outBuffer, 1, decodeFlags);
+    }
+}
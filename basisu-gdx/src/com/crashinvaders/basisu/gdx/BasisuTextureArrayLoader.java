@@ -0,0 +1,34 @@
+package com.crashinvaders.basisu.gdx;
+
+import com.badlogic.gdx.assets.AssetManager;
+import com.badlogic.gdx.assets.loaders.FileHandleResolver;
+import com.badlogic.gdx.files.FileHandle;
+
+/**
+ * {@link AssetManager} compliant loader for the Basis 2D array and volume textures (see {@link BasisuTextureArrayData}).
+ * <p/>
+ * Here's an example of how to set up the loader, so the {@link AssetManager} can support loading of ".basis" texture arrays:
+ * <br/>
+ * <code>
+ *     assetManager.setLoader(TextureArray.class, ".basis", new BasisuTextureArrayLoader(assetManager.getFileHandleResolver()));
+ * </code>
+ * <br/>
+ * And after that call to <code>assetManager.load("MyImageArray.basis", TextureArray.class);</code> will post the texture array for loading.
+ */
+public class BasisuTextureArrayLoader extends TranscodedTextureArrayLoader<BasisuTextureArrayLoader.BasisuTextureArrayParameter> {
+
+    public BasisuTextureArrayLoader(FileHandleResolver resolver) {
+        super(resolver);
+    }
+
+    @Override
+    TranscodedTextureArrayData<?> createTextureData(FileHandle fileHandle) {
+        return new BasisuTextureArrayData(fileHandle);
+    }
+
+    public static class BasisuTextureArrayParameter extends TranscodedTextureArrayParameter {
+
+        public BasisuTextureArrayParameter() {
+        }
+    }
+}
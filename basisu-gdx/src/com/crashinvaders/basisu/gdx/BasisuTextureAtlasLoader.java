@@ -0,0 +1,223 @@
+package com.crashinvaders.basisu.gdx;
+
+import com.badlogic.gdx.assets.AssetDescriptor;
+import com.badlogic.gdx.assets.AssetManager;
+import com.badlogic.gdx.assets.loaders.AsynchronousAssetLoader;
+import com.badlogic.gdx.assets.loaders.FileHandleResolver;
+import com.badlogic.gdx.assets.loaders.TextureAtlasLoader;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.Texture.TextureFilter;
+import com.badlogic.gdx.graphics.TextureData;
+import com.badlogic.gdx.graphics.g2d.TextureAtlas;
+import com.badlogic.gdx.graphics.g2d.TextureAtlas.TextureAtlasData;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.ObjectMap;
+import com.badlogic.gdx.utils.async.AsyncExecutor;
+import com.crashinvaders.basisu.wrapper.BasisuDecodeFlags;
+
+/**
+ * {@link AssetManager} compliant loader for the texture atlases with the ".basis" and ".ktx2" page textures.
+ * The pages are loaded using {@link BasisuTextureData} and {@link Ktx2TextureData} (any other page file is loaded the regular way),
+ * with the filter and mipmap settings of each page taken from the atlas file.
+ * <p/>
+ * Unlike the standard atlas loader, the pages are not the separate assets (so there's no need to register the texture loaders),
+ * the whole atlas is prepared within a single {@link #loadAsync} call. With the executor set (see {@link #setTranscodeExecutor(AsyncExecutor)})
+ * all the pages are read and transcoded in parallel.
+ * <p/>
+ * Here's an example of how to set up the loader, so the {@link AssetManager} loads the ".atlas" files with it:
+ * <br/>
+ * <code>
+ *     assetManager.setLoader(TextureAtlas.class, ".atlas", new BasisuTextureAtlasLoader(assetManager.getFileHandleResolver()));
+ * </code>
+ */
+public class BasisuTextureAtlasLoader extends AsynchronousAssetLoader<TextureAtlas, TextureAtlasLoader.TextureAtlasParameter> {
+
+    /** The prepared atlases, handed from {@link #loadAsync} to {@link #loadSync} by the asset file name. */
+    final ObjectMap<String, PreparedAtlas> preparedAtlases = new ObjectMap<>();
+
+    private AsyncExecutor transcodeExecutor = null;
+
+    public BasisuTextureAtlasLoader(FileHandleResolver resolver) {
+        super(resolver);
+        // We need to make sure this one is first time called
+        // on the main thread and not during async texture loading.
+        BasisuGdxUtils.initSupportedGlTextureFormats();
+    }
+
+    /**
+     * @return the executor to transcode the atlas pages with, or null if they are transcoded sequentially.
+     */
+    public AsyncExecutor getTranscodeExecutor() {
+        return transcodeExecutor;
+    }
+
+    /**
+     * Enables the concurrent page transcoding.
+     * The first page is still transcoded on the asset manager's thread, the rest of the pages are submitted to the executor.
+     * The executor is not managed by the loader and should be disposed by the owner.
+     * @param transcodeExecutor the executor to use, or null (default) to transcode the pages sequentially
+     */
+    public void setTranscodeExecutor(AsyncExecutor transcodeExecutor) {
+        this.transcodeExecutor = transcodeExecutor;
+    }
+
+    public void loadAsync(AssetManager manager, String fileName, FileHandle fileHandle, TextureAtlasLoader.TextureAtlasParameter parameter) {
+        boolean flip = parameter != null && parameter.flip;
+        TextureAtlasData atlasData = new TextureAtlasData(fileHandle, fileHandle.parent(), flip);
+
+        Array<TextureAtlasData.Page> pages = atlasData.getPages();
+        TextureData[] pageData = new TextureData[pages.size];
+        try {
+            for (int i = 0; i < pages.size; i++) {
+                pageData[i] = createPageData(pages.get(i), parameter);
+            }
+        } catch (RuntimeException e) {
+            disposePageData(pageData);
+            throw e;
+        }
+        preparePages(pageData, transcodeExecutor);
+
+        synchronized (this) {
+            preparedAtlases.put(fileName, new PreparedAtlas(atlasData, pageData));
+        }
+    }
+
+    public TextureAtlas loadSync(AssetManager manager, String fileName, FileHandle fileHandle, TextureAtlasLoader.TextureAtlasParameter parameter) {
+        PreparedAtlas preparedAtlas;
+        synchronized (this) {
+            preparedAtlas = preparedAtlases.remove(fileName);
+        }
+
+        Array<TextureAtlasData.Page> pages = preparedAtlas.atlasData.getPages();
+        for (int i = 0; i < pages.size; i++) {
+            TextureAtlasData.Page page = pages.get(i);
+            TextureData data = preparedAtlas.pageData[i];
+            page.texture = BasisuGdxUtils.createManagedTexture(data);
+            page.minFilter = toSupportedMinFilter(page.minFilter, data.useMipMaps());
+        }
+        // The atlas applies the page filters and takes the ownership of the page textures.
+        return new TextureAtlas(preparedAtlas.atlasData);
+    }
+
+    public Array<AssetDescriptor> getDependencies(String fileName, FileHandle fileHandle, TextureAtlasLoader.TextureAtlasParameter parameter) {
+        return null;
+    }
+
+    /**
+     * Prepares all the pages, in parallel with the executor set.
+     * If any of the pages fails, all of them are released before the failure is rethrown.
+     */
+    static void preparePages(final TextureData[] pageData, AsyncExecutor executor) {
+        try {
+            BasisuGdxUtils.runIndexedTasks(pageData.length, executor, pageIndex -> {
+                if (!pageData[pageIndex].isPrepared()) {
+                    pageData[pageIndex].prepare();
+                }
+            });
+        } catch (RuntimeException e) {
+            // All the tasks are finished by now, none of the pages is still being prepared.
+            disposePageData(pageData);
+            throw e;
+        }
+    }
+
+    /** Releases the page data that is never going to be uploaded. */
+    private static void disposePageData(TextureData[] pageData) {
+        for (TextureData data : pageData) {
+            if (data == null) continue;
+            if (data instanceof Disposable) {
+                ((Disposable) data).dispose();
+            } else if (data.isPrepared() && data.getType() == TextureData.TextureDataType.Pixmap) {
+                Pixmap pixmap = data.consumePixmap();
+                if (data.disposePixmap()) {
+                    pixmap.dispose();
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the min filter to use for a page texture.
+     * Only a single level is uploaded when the mipmaps are not available (e.g. a non-power-of-two page on WebGL1),
+     * a mipmap filter would make the texture GL-incomplete then.
+     */
+    static TextureFilter toSupportedMinFilter(TextureFilter minFilter, boolean useMipMaps) {
+        if (!useMipMaps && minFilter.isMipMap()) {
+            return TextureFilter.Linear;
+        }
+        return minFilter;
+    }
+
+    private static TextureData createPageData(TextureAtlasData.Page page, TextureAtlasLoader.TextureAtlasParameter parameter) {
+        FileHandle pageFile = page.textureFile;
+        String extension = pageFile.extension();
+
+        BasisuTextureAtlasParameter basisParameter = parameter instanceof BasisuTextureAtlasParameter
+                ? (BasisuTextureAtlasParameter) parameter : null;
+
+        if (extension.equalsIgnoreCase("basis")) {
+            BasisuTextureData data = new BasisuTextureData(pageFile);
+            data.setUseMipMaps(page.useMipMaps);
+            if (basisParameter != null) {
+                data.setDecodeFlags(basisParameter.decodeFlags);
+                data.setMemoryMapped(basisParameter.memoryMapped);
+                if (basisParameter.formatSelector != null) {
+                    data.setTextureFormatSelector(basisParameter.formatSelector);
+                }
+                if (basisParameter.reloadPolicy != null) {
+                    data.setReloadPolicy(basisParameter.reloadPolicy);
+                }
+            }
+            return data;
+        }
+        if (extension.equalsIgnoreCase("ktx2")) {
+            Ktx2TextureData data = new Ktx2TextureData(pageFile);
+            data.setUseMipMaps(page.useMipMaps);
+            if (basisParameter != null) {
+                data.setDecodeFlags(basisParameter.decodeFlags);
+                data.setMemoryMapped(basisParameter.memoryMapped);
+                if (basisParameter.formatSelector != null) {
+                    data.setTextureFormatSelector(basisParameter.formatSelector);
+                }
+                if (basisParameter.reloadPolicy != null) {
+                    data.setReloadPolicy(basisParameter.reloadPolicy);
+                }
+            }
+            return data;
+        }
+        // Any regular image page.
+        return TextureData.Factory.loadFromFile(pageFile, page.format, page.useMipMaps);
+    }
+
+    static class PreparedAtlas {
+        final TextureAtlasData atlasData;
+        final TextureData[] pageData;
+
+        PreparedAtlas(TextureAtlasData atlasData, TextureData[] pageData) {
+            this.atlasData = atlasData;
+            this.pageData = pageData;
+        }
+    }
+
+    /**
+     * Parameter class is an optional extension for the standard {@link TextureAtlasLoader.TextureAtlasParameter}.
+     * The mipmap and filter settings come from the atlas file for each page.
+     */
+    public static class BasisuTextureAtlasParameter extends TextureAtlasLoader.TextureAtlasParameter {
+        public BasisuTextureFormatSelector formatSelector = null;
+        /** A combination of the {@link BasisuDecodeFlags} constants. */
+        public int decodeFlags = BasisuDecodeFlags.NONE;
+        /** Maps the page files into memory instead of reading them, where possible. */
+        public boolean memoryMapped = false;
+        /**
+         * What to retain to restore the page textures after the GL context loss, {@link BasisuGdxUtils#defaultReloadPolicy} is used when null.
+         * The retained data is released along with the atlas.
+         */
+        public BasisuReloadPolicy reloadPolicy = null;
+
+        public BasisuTextureAtlasParameter() {
+        }
+    }
+}
@@ -6,7 +6,9 @@ import com.badlogic.gdx.files.FileHandle;
 import com.badlogic.gdx.graphics.Pixmap;
 import com.badlogic.gdx.graphics.TextureData;
 import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.utils.Disposable;
 import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.async.AsyncExecutor;
 import com.crashinvaders.basisu.wrapper.*;
 
 import java.nio.ByteBuffer;
@@ -20,8 +22,11 @@ import java.nio.ByteBuffer;
  * The {@link com.crashinvaders.basisu.gdx.BasisuTextureFormatSelector.Default} selector is used for all the instances
  * unless another one is specified through {@link #setTextureFormatSelector(BasisuTextureFormatSelector)}.
  * You can also override the default selector by updating the value of {@link BasisuGdxUtils#defaultFormatSelector}.
+ * <p/>
+ * The texture is managed, what's retained to restore it after the GL context loss is defined by {@link #setReloadPolicy(BasisuReloadPolicy)}.
+ * With any policy other than {@link BasisuReloadPolicy#RELOAD_FROM_FILE} call {@link #dispose()} along with the texture disposal.
  */
-public class BasisuTextureData implements TextureData {
+public class BasisuTextureData implements TextureData, Disposable {
     private static final String TAG = BasisuTextureData.class.getSimpleName();
 
     private BasisuTextureFormatSelector formatSelector = BasisuGdxUtils.defaultFormatSelector;
@@ -30,13 +35,22 @@ public class BasisuTextureData implements TextureData {
     private final int imageIndex;
 
     private boolean useMipMaps = true;
+    /** Transcodes the mipmap levels concurrently when set. */
+    private AsyncExecutor transcodeExecutor = null;
+    private int decodeFlags = BasisuDecodeFlags.NONE;
+    private boolean memoryMapped = false;
+    private TranscodeDiskCache diskCache = null;
+    private TranscodedTextureCache transcodedCache = BasisuGdxUtils.defaultTranscodedTextureCache;
+    private BasisuBufferPool bufferPool = BasisuGdxUtils.defaultBufferPool;
+    private BasisuReloadPolicy reloadPolicy = BasisuGdxUtils.defaultReloadPolicy;
 
     private BasisuData basisuData;
 
-    /** Holds transcoded data buffer per each mipmap level.
-     * Index of the array corresponds to the index of mipmap level. */
-    private TranscodedLevelData[] transcodedLevels = null;
+    /** Holds the transcoded data of all the mipmap levels in a single buffer. */
+    private BasisuMipChain transcodedLevels = null;
     private BasisuTranscoderTextureFormat transcodeFormat = null;
+    /** The transcoded cache entry that holds the transcoded levels (if any). */
+    private TranscodedTextureCache.Entry transcodedCacheEntry = null;
 
     private int width = 0;
     private int height = 0;
@@ -101,6 +115,124 @@ public class BasisuTextureData implements TextureData {
         this.formatSelector = new BasisuTextureFormatSelector.Fixed(format);
     }
 
+    /**
+     * @return the executor to transcode the mipmap levels with, or null if they are transcoded sequentially.
+     */
+    public AsyncExecutor getTranscodeExecutor() {
+        return transcodeExecutor;
+    }
+
+    /**
+     * Enables the concurrent mipmap level transcoding during {@link #prepare()}.
+     * The base level is still transcoded on the thread that calls {@link #prepare()},
+     * the rest of the levels are submitted to the executor.
+     * The executor is not managed by the texture data and should be disposed by the owner.
+     * <p/>
+     * On the web backend the executor runs the tasks synchronously, so there is no gain.
+     * @param transcodeExecutor the executor to use, or null (default) to transcode the whole mip chain in a single native call
+     */
+    public void setTranscodeExecutor(AsyncExecutor transcodeExecutor) {
+        this.transcodeExecutor = transcodeExecutor;
+    }
+
+    /**
+     * @return the decode flags to transcode the texture with.
+     * @see BasisuDecodeFlags
+     */
+    public int getDecodeFlags() {
+        return decodeFlags;
+    }
+
+    /**
+     * @param decodeFlags a combination of the {@link BasisuDecodeFlags} constants to transcode the texture with
+     *                    (e.g. {@link BasisuDecodeFlags#HIGH_QUALITY} for the hero assets).
+     */
+    public void setDecodeFlags(int decodeFlags) {
+        this.decodeFlags = BasisuDecodeFlags.validate(decodeFlags);
+    }
+
+    /**
+     * @return whether the texture file is memory-mapped instead of being read during {@link #prepare()}.
+     */
+    public boolean isMemoryMapped() {
+        return memoryMapped;
+    }
+
+    /**
+     * @param memoryMapped whether to map the texture file into memory instead of reading it during {@link #prepare()}.
+     *                     Has no effect when the texture data is created from a {@link BasisuData} instance
+     *                     or the file cannot be mapped (see {@link BasisuGdxUtils#readFileIntoBuffer(FileHandle, boolean)}).
+     */
+    public void setMemoryMapped(boolean memoryMapped) {
+        this.memoryMapped = memoryMapped;
+    }
+
+    /**
+     * @return the persistent cache of the transcoded mip chains, or null if it's not used.
+     */
+    public TranscodeDiskCache getDiskCache() {
+        return diskCache;
+    }
+
+    /**
+     * Enables the persistent transcoding cache. On a cache hit the texture data is read from the cache entry
+     * and no transcoding takes place, otherwise the transcoded mip chain is stored into the cache.
+     * The encoded file is still read (it's hashed to make the cache key).
+     * @param diskCache the cache to use, or null (default) to always transcode
+     */
+    public void setDiskCache(TranscodeDiskCache diskCache) {
+        this.diskCache = diskCache;
+    }
+
+    /**
+     * @return the in-memory cache of the transcoded textures, or null if it's not used.
+     */
+    public TranscodedTextureCache getTranscodedCache() {
+        return transcodedCache;
+    }
+
+    /**
+     * Sets the in-memory cache of the transcoded textures. It's consulted before reading the file,
+     * and the transcoded texture is put into it otherwise. Only the texture data created from a file can be cached.
+     * @param transcodedCache the cache to use, or null to always transcode.
+     *                        {@link BasisuGdxUtils#defaultTranscodedTextureCache} is used by default.
+     */
+    public void setTranscodedCache(TranscodedTextureCache transcodedCache) {
+        this.transcodedCache = transcodedCache;
+    }
+
+    /**
+     * @return the pool to obtain the file and the transcoded data buffers from, or null if they're allocated individually.
+     */
+    public BasisuBufferPool getBufferPool() {
+        return bufferPool;
+    }
+
+    /**
+     * @param bufferPool the pool to obtain the file and the transcoded data buffers from, or null to allocate them individually.
+     *                   {@link BasisuGdxUtils#defaultBufferPool} is used by default.
+     */
+    public void setBufferPool(BasisuBufferPool bufferPool) {
+        this.bufferPool = bufferPool;
+    }
+
+    /**
+     * @return what's retained after the texture upload to restore the texture after the GL context loss.
+     */
+    public BasisuReloadPolicy getReloadPolicy() {
+        return reloadPolicy;
+    }
+
+    /**
+     * @param reloadPolicy what to retain after the texture upload to restore the texture after the GL context loss.
+     *                     {@link BasisuGdxUtils#defaultReloadPolicy} is used by default.
+     *                     The texture data created from a {@link BasisuData} instance needs a policy other than
+     *                     {@link BasisuReloadPolicy#RELOAD_FROM_FILE} to survive the context loss.
+     */
+    public void setReloadPolicy(BasisuReloadPolicy reloadPolicy) {
+        this.reloadPolicy = reloadPolicy;
+    }
+
     @Override
     public TextureDataType getType() {
         return TextureDataType.Custom;
@@ -114,12 +246,32 @@ public class BasisuTextureData implements TextureData {
     @Override
     public void prepare() {
         if (isPrepared) throw new GdxRuntimeException("Already prepared");
-        if (file == null && basisuData == null) throw new GdxRuntimeException("Can only load once from BasisuData");
-        if (file != null) {
-            basisuData = new BasisuData(file);
+        if (transcodedLevels != null) {
+            // The transcoded levels are retained from the previous upload (BasisuReloadPolicy.KEEP_TRANSCODED).
+            isPrepared = true;
+            return;
+        }
+        if (file == null && basisuData == null) throw new GdxRuntimeException("Can only load once from BasisuData " +
+                "(use a reload policy other than BasisuReloadPolicy.RELOAD_FROM_FILE for the managed texture to survive the context loss)");
+        boolean requestedMipMaps = useMipMaps;
+        if (file != null && transcodedCache != null) {
+            transcodedCacheEntry = transcodedCache.acquire(file, imageIndex, formatSelector, decodeFlags, requestedMipMaps);
+            if (transcodedCacheEntry != null) {
+                transcodedLevels = transcodedCacheEntry.getMipChain();
+                transcodeFormat = transcodedLevels.getTextureFormat();
+                useMipMaps = transcodedCacheEntry.useMipMaps();
+                width = transcodedLevels.getLevelWidth(0);
+                height = transcodedLevels.getLevelHeight(0);
+                Gdx.app.debug(TAG, "["+file.path()+"] Reusing the " + transcodeFormat + " texture from the transcoded cache");
+                isPrepared = true;
+                return;
+            }
+        }
+        if (basisuData == null) {
+            basisuData = new BasisuData(file, memoryMapped, bufferPool);
         }
 
-        BasisuFileInfo fileInfo = basisuData.getFileInfo();
+        BasisuFileDescription fileInfo = basisuData.getFileInfo();
 
         int totalImages = fileInfo.getTotalImages();
         if (imageIndex < 0 || imageIndex >= totalImages) {
@@ -129,8 +281,9 @@ public class BasisuTextureData implements TextureData {
 
         BasisuTextureType textureType = fileInfo.getTextureType();
         if (textureType != BasisuTextureType.REGULAR_2D) {
-            throw new BasisuGdxException("textureType " + textureType + " is not supported at the moment. " +
-                    "Only BasisuTextureType.REGULAR_2D texture type is allowed.");
+            throw new BasisuGdxException("textureType " + textureType + " is not supported by BasisuTextureData. " +
+                    "Only BasisuTextureType.REGULAR_2D texture type is allowed " +
+                    "(use BasisuCubemapData/BasisuTextureArrayData for the cubemap and array textures).");
         }
 
         transcodeFormat = formatSelector.resolveTextureFormat(basisuData, imageIndex);
@@ -142,7 +295,7 @@ public class BasisuTextureData implements TextureData {
         }
         // WebGL1 rejects any mip level beyond 0 on a non-power-of-two texture (desktop GL doesn't care).
         if (transcodeLevels > 1 && Gdx.app.getType() == Application.ApplicationType.WebGL) {
-            BasisuImageLevelInfo level0Info = basisuData.getImageLevelInfo(imageIndex, 0);
+            BasisuImageLevelDescription level0Info = basisuData.getImageLevelInfo(imageIndex, 0);
             if (!MathUtils.isPowerOfTwo(level0Info.getOrigWidth()) || !MathUtils.isPowerOfTwo(level0Info.getOrigHeight())) {
                 Gdx.app.error(TAG, (file != null ? "["+file.path()+"] " : "") +
                         "Non-power-of-two texture, WebGL1 can't use its mip chain - loading level 0 only.");
@@ -150,21 +303,39 @@ public class BasisuTextureData implements TextureData {
                 useMipMaps = false;
             }
         }
-        transcodedLevels = new TranscodedLevelData[transcodeLevels];
-        for (int level = 0; level < transcodeLevels; level++) {
-            BasisuImageLevelInfo levelInfo = basisuData.getImageLevelInfo(imageIndex, level);
-            int width = levelInfo.getOrigWidth();
-            int height = levelInfo.getOrigHeight();
-            ByteBuffer data = basisuData.transcode(imageIndex, level, transcodeFormat);
-            transcodedLevels[level] = new TranscodedLevelData(level, width, height, data);
-            Gdx.app.debug(TAG, (file != null ? "["+file.path()+"] " : "") + "Transcoded [mipmap:" + level + "] [size:" + width + "x" + height + "] [memory:" + MathUtils.round(data.capacity() / 1024.0f) + "kB]");
+        long contentHash = 0;
+        transcodedLevels = null;
+        if (diskCache != null) {
+            contentHash = TranscodeDiskCache.hashContent(basisuData.getEncodedData());
+            transcodedLevels = diskCache.load(contentHash, imageIndex, transcodeFormat, decodeFlags, transcodeLevels);
+            if (transcodedLevels != null) {
+                Gdx.app.debug(TAG, (file != null ? "["+file.path()+"] " : "") + "Loaded from the transcoding disk cache");
+            }
+        }
+        if (transcodedLevels == null) {
+            transcodedLevels = basisuData.transcodeMipChain(imageIndex, transcodeFormat, transcodeLevels, transcodeExecutor, bufferPool, decodeFlags);
+            if (diskCache != null) {
+                diskCache.store(contentHash, imageIndex, decodeFlags, transcodedLevels);
+            }
         }
+        for (int level = 0; level < transcodedLevels.getLevelCount(); level++) {
+            int width = transcodedLevels.getLevelWidth(level);
+            int height = transcodedLevels.getLevelHeight(level);
+            int size = transcodedLevels.getLevelSize(level);
+            Gdx.app.debug(TAG, (file != null ? "["+file.path()+"] " : "") + "Transcoded [mipmap:" + level + "] [size:" + width + "x" + height + "] [memory:" + MathUtils.round(size / 1024.0f) + "kB]");
+        }
+
+        this.width = transcodedLevels.getLevelWidth(0);
+        this.height = transcodedLevels.getLevelHeight(0);
 
-        this.width = transcodedLevels[0].width;
-        this.height = transcodedLevels[0].height;
+        if (file != null && transcodedCache != null) {
+            transcodedCacheEntry = transcodedCache.put(file, imageIndex, formatSelector, decodeFlags, requestedMipMaps, transcodedLevels, useMipMaps);
+        }
 
-        basisuData.dispose();
-        basisuData = null;
+        if (reloadPolicy != BasisuReloadPolicy.KEEP_ENCODED) {
+            basisuData.dispose();
+            basisuData = null;
+        }
         isPrepared = true;
     }
 
@@ -175,18 +346,19 @@ public class BasisuTextureData implements TextureData {
         final int glFormatCode = BasisuGdxUtils.toGlTextureFormat(transcodeFormat);
         boolean isCompressedFormat = transcodeFormat.isCompressedFormat();
 
-        for (int level = 0; level < transcodedLevels.length; level++) {
-            TranscodedLevelData entry = transcodedLevels[level];
-            ByteBuffer data = entry.data;
+        for (int level = 0; level < transcodedLevels.getLevelCount(); level++) {
+            ByteBuffer data = transcodedLevels.getLevelData(level);
+            int width = transcodedLevels.getLevelWidth(level);
+            int height = transcodedLevels.getLevelHeight(level);
 
             if (isCompressedFormat) {
                 BasisuGdxGl.glCompressedTexImage2D(target, level, glFormatCode,
-                        entry.width, entry.height, 0,
+                        width, height, 0,
                         data.capacity(), data);
             } else {
                 int textureType = BasisuGdxUtils.toUncompressedGlTextureType(transcodeFormat);
                 Gdx.gl.glTexImage2D(target, level, glFormatCode,
-                        entry.width, entry.height, 0,
+                        width, height, 0,
                         glFormatCode, textureType, data);
             }
 
@@ -198,16 +370,40 @@ public class BasisuTextureData implements TextureData {
         }
 
         // Cleanup.
-        for (int i = 0; i < transcodedLevels.length; i++) {
-            ByteBuffer data = transcodedLevels[i].data;
-            BasisuWrapper.disposeNativeBuffer(data);
+        if (reloadPolicy != BasisuReloadPolicy.KEEP_TRANSCODED) {
+            releaseTranscodedLevels();
         }
-        transcodedLevels = null;
-        transcodeFormat = null;
 
         isPrepared = false;
     }
 
+    /**
+     * Releases the data retained for the texture reload (see {@link #setReloadPolicy(BasisuReloadPolicy)}).
+     * The texture data can't be prepared again afterwards, unless it's created from a file.
+     */
+    @Override
+    public void dispose() {
+        if (transcodedLevels != null) {
+            releaseTranscodedLevels();
+        }
+        if (basisuData != null) {
+            basisuData.dispose();
+            basisuData = null;
+        }
+        isPrepared = false;
+    }
+
+    private void releaseTranscodedLevels() {
+        if (transcodedCacheEntry != null) {
+            transcodedCacheEntry.release();
+            transcodedCacheEntry = null;
+        } else {
+            transcodedLevels.close();
+        }
+        transcodedLevels = null;
+        transcodeFormat = null;
+    }
+
     @Override
     public Pixmap consumePixmap() {
         throw new GdxRuntimeException("This TextureData implementation does not return a Pixmap.");
@@ -246,19 +442,4 @@ public class BasisuTextureData implements TextureData {
     public boolean isManaged() {
         return true;
     }
-
-    private static class TranscodedLevelData {
-        public final int levelIndex;
-        public final int width;
-        public final int height;
-        public final ByteBuffer data;
-
-        public TranscodedLevelData(int levelIndex, int width, int height, ByteBuffer data) {
-            this.levelIndex = levelIndex;
-            this.width = width;
-            this.height = height;
-            this.data = data;
-        }
-    }
 }
-
@@ -43,8 +43,8 @@ public interface BasisuTextureFormatSelector {
 
         @Override
         public BasisuTranscoderTextureFormat resolveTextureFormat(BasisuData data, int imageIndex) {
-            BasisuFileInfo fileInfo = data.getFileInfo();
-            BasisuImageInfo imageInfo = data.getImageInfo(imageIndex);
+            BasisuFileDescription fileInfo = data.getFileInfo();
+            BasisuImageDescription imageInfo = data.getImageInfo(imageIndex);
             BasisuTextureFormat textureFormat = fileInfo.getTextureFormat();
             int width = imageInfo.getWidth();
             int height = imageInfo.getHeight();
@@ -226,5 +226,17 @@ public interface BasisuTextureFormatSelector {
         public BasisuTranscoderTextureFormat resolveTextureFormat(Ktx2Data data) {
             return format;
         }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            return format == ((Fixed) o).format;
+        }
+
+        @Override
+        public int hashCode() {
+            return format.hashCode();
+        }
     }
 }
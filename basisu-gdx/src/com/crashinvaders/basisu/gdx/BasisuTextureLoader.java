@@ -11,6 +11,10 @@ import com.badlogic.gdx.graphics.Texture;
 import com.badlogic.gdx.graphics.Texture.TextureFilter;
 import com.badlogic.gdx.graphics.Texture.TextureWrap;
 import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.ObjectMap;
+import com.badlogic.gdx.utils.async.AsyncExecutor;
+import com.badlogic.gdx.utils.async.AsyncResult;
+import com.crashinvaders.basisu.wrapper.BasisuDecodeFlags;
 import com.crashinvaders.basisu.wrapper.BasisuTranscoderTextureFormat;
 
 /**
@@ -23,10 +27,19 @@ import com.crashinvaders.basisu.wrapper.BasisuTranscoderTextureFormat;
  * </code>
  * <br/>
  * And after that call to <code>assetManager.load("MyImage.basis", Texture.class);</code> will post the texture for loading.
+ * <p/>
+ * The loader is safe to use with several textures in flight. To transcode many textures in parallel,
+ * set a multi-thread executor with {@link #setPrefetchExecutor(AsyncExecutor)}
+ * and {@link #prefetch(String, TextureLoader.TextureParameter)} the textures before posting them to the asset manager.
  */
 public class BasisuTextureLoader extends AsynchronousAssetLoader<Texture, TextureLoader.TextureParameter> {
 
-    BasisuTextureData textureData;
+    /** The prepared texture data of the assets, handed from {@link #loadAsync} to {@link #loadSync} by the asset file name. */
+    final ObjectMap<String, BasisuTextureData> preparedData = new ObjectMap<>();
+    /** The texture data being prepared in advance (see {@link #prefetch}) by the asset file name. */
+    final ObjectMap<String, AsyncResult<BasisuTextureData>> prefetchedData = new ObjectMap<>();
+
+    private AsyncExecutor prefetchExecutor = null;
 
     public BasisuTextureLoader(FileHandleResolver resolver) {
         super(resolver);
@@ -36,25 +49,98 @@ public class BasisuTextureLoader extends AsynchronousAssetLoader<Texture, Textur
     }
 
     public void loadAsync(AssetManager manager, String fileName, FileHandle fileHandle, TextureLoader.TextureParameter parameter) {
+        AsyncResult<BasisuTextureData> prefetchResult;
+        synchronized (this) {
+            prefetchResult = prefetchedData.remove(fileName);
+        }
+        BasisuTextureData data;
+        if (prefetchResult != null) {
+            // Rethrows the preparation failure, if any.
+            data = prefetchResult.get();
+        } else {
+            data = createTextureData(fileHandle, parameter);
+            data.prepare();
+        }
+        synchronized (this) {
+            preparedData.put(fileName, data);
+        }
+    }
+
+    /**
+     * Starts reading and transcoding the texture in advance on the prefetch executor (see {@link #setPrefetchExecutor(AsyncExecutor)}).
+     * Prefetch all the textures of a loading screen right before posting them to the {@link AssetManager},
+     * so they're transcoded in parallel and {@link #loadAsync} only picks up the results.
+     * <p/>
+     * The asset must be loaded with the same file name and parameter afterwards,
+     * otherwise the prepared native data is held until the loader is gone.
+     * Does nothing if the texture is already being prefetched.
+     * @param fileName the asset file name (resolved the same way the {@link AssetManager} does)
+     */
+    public void prefetch(String fileName, final TextureLoader.TextureParameter parameter) {
+        if (prefetchExecutor == null) {
+            throw new BasisuGdxException("No prefetch executor is set, use setPrefetchExecutor() first.");
+        }
+        final FileHandle fileHandle = resolve(fileName);
+        synchronized (this) {
+            if (prefetchedData.containsKey(fileName)) return;
+            prefetchedData.put(fileName, prefetchExecutor.submit(() -> {
+                BasisuTextureData data = createTextureData(fileHandle, parameter);
+                data.prepare();
+                return data;
+            }));
+        }
+    }
+
+    /**
+     * @return the executor to prepare the prefetched textures with, or null if the prefetching is disabled.
+     */
+    public AsyncExecutor getPrefetchExecutor() {
+        return prefetchExecutor;
+    }
+
+    /**
+     * Enables {@link #prefetch(String, TextureLoader.TextureParameter)}.
+     * Use a multi-thread executor (e.g. one thread per CPU core) to transcode several textures at once.
+     * The executor is not managed by the loader and should be disposed by the owner (once all the prefetched textures are loaded).
+     * @param prefetchExecutor the executor to use, or null (default) to disable the prefetching
+     */
+    public void setPrefetchExecutor(AsyncExecutor prefetchExecutor) {
+        this.prefetchExecutor = prefetchExecutor;
+    }
+
+    private BasisuTextureData createTextureData(FileHandle fileHandle, TextureLoader.TextureParameter parameter) {
         BasisuTextureData data;
         if (parameter instanceof BasisuTextureParameter) {
             BasisuTextureParameter basisParameter = (BasisuTextureParameter) parameter;
             data = new BasisuTextureData(fileHandle, basisParameter.imageIndex);
             data.setUseMipMaps(basisParameter.useMipmaps);
+            data.setDecodeFlags(basisParameter.decodeFlags);
+            data.setMemoryMapped(basisParameter.memoryMapped);
+            data.setDiskCache(basisParameter.diskCache);
             if (basisParameter.formatSelector != null) {
                 data.setTextureFormatSelector(basisParameter.formatSelector);
             }
+            if (basisParameter.transcodedCache != null) {
+                data.setTranscodedCache(basisParameter.transcodedCache);
+            }
+            if (basisParameter.bufferPool != null) {
+                data.setBufferPool(basisParameter.bufferPool);
+            }
+            if (basisParameter.reloadPolicy != null) {
+                data.setReloadPolicy(basisParameter.reloadPolicy);
+            }
         } else {
             data = new BasisuTextureData(fileHandle);
         }
-        data.prepare();
-        textureData = data;
+        return data;
     }
 
     public Texture loadSync(AssetManager manager, String fileName, FileHandle fileHandle, TextureLoader.TextureParameter parameter) {
-        BasisuTextureData data = this.textureData;
-        Texture texture = new Texture(data);
-        this.textureData = null;
+        BasisuTextureData data;
+        synchronized (this) {
+            data = preparedData.remove(fileName);
+        }
+        Texture texture = BasisuGdxUtils.createManagedTexture(data);
 
         if (parameter != null) {
             // data.useMipMaps() can end up false even if requested true (e.g. a non-power-of-two
@@ -80,6 +166,24 @@ public class BasisuTextureLoader extends AsynchronousAssetLoader<Texture, Textur
         public int imageIndex = 0;
         public boolean useMipmaps = true;
         public BasisuTextureFormatSelector formatSelector = null;
+        /** A combination of the {@link BasisuDecodeFlags} constants. */
+        public int decodeFlags = BasisuDecodeFlags.NONE;
+        /** Maps the texture file into memory instead of reading it, where possible. */
+        public boolean memoryMapped = false;
+        /**
+         * The persistent cache of the transcoded mip chains to read the texture from (or to store it into).
+         * The cache is not managed by the loader and can be shared between the textures.
+         */
+        public TranscodeDiskCache diskCache = null;
+        /** The in-memory cache of the transcoded textures, {@link BasisuGdxUtils#defaultTranscodedTextureCache} is used when null. */
+        public TranscodedTextureCache transcodedCache = null;
+        /** The pool for the file and the transcoded data buffers, {@link BasisuGdxUtils#defaultBufferPool} is used when null. */
+        public BasisuBufferPool bufferPool = null;
+        /**
+         * What to retain to restore the texture after the GL context loss, {@link BasisuGdxUtils#defaultReloadPolicy} is used when null.
+         * The retained data is released along with the texture.
+         */
+        public BasisuReloadPolicy reloadPolicy = null;
 
         public BasisuTextureParameter() {
         }
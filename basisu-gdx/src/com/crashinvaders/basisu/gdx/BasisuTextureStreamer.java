@@ -0,0 +1,249 @@
+package com.crashinvaders.basisu.gdx;
+
+import com.badlogic.gdx.utils.Array;
+
+import java.util.Comparator;
+
+/**
+ * Keeps the mipmap levels of a set of {@link BasisuProgressiveTexture} within a GPU memory budget.
+ * <p/>
+ * Each frame the textures get their priorities (the size they currently take on the screen, see {@link #setPriority})
+ * and {@link #update()} decides which levels should be resident.
+ * A texture is refined up to the smallest level that still covers its screen size, the more visible textures go first.
+ * When the resident levels don't fit the budget, the excess detail is dropped first,
+ * and then the largest levels of the least visible textures, one level at a time.
+ * The dropped levels are transcoded again from the encoded data the texture keeps, once they're needed back.
+ * <p/>
+ * The streamer doesn't own the textures, remove them before disposing.
+ * The textures that are not progressive (no GL ES 3.0 / WebGL 2) are always fully resident,
+ * they count against the budget but are never evicted.
+ * All the methods must be called on the render thread.
+ */
+public class BasisuTextureStreamer {
+
+    private final Array<StreamedTexture> textures = new Array<>();
+    /** The update order buffer, the highest priority first. */
+    private final Array<StreamedTexture> sortedTextures = new Array<>();
+
+    private long budget;
+
+    private final Comparator<StreamedTexture> priorityComparator = (a, b) -> Float.compare(b.priority, a.priority);
+
+    /**
+     * @param budget the GPU memory budget for all the resident levels of the textures in bytes
+     */
+    public BasisuTextureStreamer(long budget) {
+        this.budget = budget;
+    }
+
+    public long getBudget() {
+        return budget;
+    }
+
+    /**
+     * Changes the budget. The excess levels are evicted by the next {@link #update()} call.
+     */
+    public void setBudget(long budget) {
+        this.budget = budget;
+    }
+
+    /**
+     * Starts managing the texture resident levels. The texture gets the zero priority until {@link #setPriority} is called.
+     */
+    public void add(BasisuProgressiveTexture texture) {
+        if (find(texture) != null) return;
+        textures.add(new StreamedTexture(texture));
+    }
+
+    /**
+     * Stops managing the texture. The texture keeps its current resident levels and target level.
+     */
+    public void remove(BasisuProgressiveTexture texture) {
+        StreamedTexture streamed = find(texture);
+        if (streamed != null) {
+            textures.removeValue(streamed, true);
+        }
+    }
+
+    public boolean contains(BasisuProgressiveTexture texture) {
+        return find(texture) != null;
+    }
+
+    public int getTextureCount() {
+        return textures.size;
+    }
+
+    /**
+     * Sets the texture priority for the following {@link #update()} calls.
+     * @param screenSize the largest side of the texture on the screen in pixels (zero or less for a texture that is not visible)
+     */
+    public void setPriority(BasisuProgressiveTexture texture, float screenSize) {
+        StreamedTexture streamed = find(texture);
+        if (streamed == null) {
+            throw new BasisuGdxException("The texture is not managed by the streamer.");
+        }
+        streamed.priority = screenSize;
+    }
+
+    /**
+     * @return the total GPU memory size of the resident levels of all the managed textures in bytes.
+     */
+    public long getResidentSize() {
+        long size = 0;
+        for (int i = 0; i < textures.size; i++) {
+            size += textures.get(i).texture.getResidentSize();
+        }
+        return size;
+    }
+
+    /**
+     * Evicts the levels over the budget, raises the target levels of the textures that have room to refine
+     * and advances their refinement (see {@link BasisuProgressiveTexture#update()}).
+     * Should be called once per frame, after the priorities are set.
+     */
+    public void update() {
+        sortedTextures.clear();
+        sortedTextures.addAll(textures);
+        sortedTextures.sort(priorityComparator);
+
+        for (int i = 0; i < sortedTextures.size; i++) {
+            StreamedTexture streamed = sortedTextures.get(i);
+            streamed.desiredLevel = findDesiredLevel(streamed.texture, streamed.priority);
+            streamed.residentLevel = streamed.texture.getResidentLevel();
+        }
+        planLevels(sortedTextures, budget);
+
+        for (int i = 0; i < sortedTextures.size; i++) {
+            StreamedTexture streamed = sortedTextures.get(i);
+            BasisuProgressiveTexture texture = streamed.texture;
+            // A single eviction per texture, as each one recreates the texture and uploads the remaining levels again.
+            if (streamed.plannedLevel > streamed.residentLevel) {
+                texture.evictLevels(streamed.plannedLevel);
+            }
+            texture.setTargetLevel(streamed.targetLevel);
+        }
+
+        for (int i = 0; i < sortedTextures.size; i++) {
+            sortedTextures.get(i).texture.update();
+        }
+        sortedTextures.clear();
+    }
+
+    /**
+     * Decides the largest resident level and the target level of each texture, with no changes made to the textures.
+     * @param sortedTextures the textures with their resident and desired levels set, the highest priority first.
+     *                       Their {@link StreamedTexture#plannedLevel} and {@link StreamedTexture#targetLevel} get updated.
+     * @return the planned total size of the resident levels, including the ones reserved for the refinement.
+     */
+    static long planLevels(Array<StreamedTexture> sortedTextures, long budget) {
+        long residentSize = 0;
+        for (int i = 0; i < sortedTextures.size; i++) {
+            StreamedTexture streamed = sortedTextures.get(i);
+            streamed.plannedLevel = streamed.residentLevel;
+            residentSize += streamed.getSizeFrom(streamed.residentLevel);
+        }
+
+        // Drop the detail the textures don't need for their current screen size, the least visible first.
+        for (int i = sortedTextures.size - 1; i >= 0 && residentSize > budget; i--) {
+            StreamedTexture streamed = sortedTextures.get(i);
+            if (streamed.progressive && streamed.plannedLevel < streamed.desiredLevel) {
+                residentSize -= streamed.getSizeFrom(streamed.plannedLevel) - streamed.getSizeFrom(streamed.desiredLevel);
+                streamed.plannedLevel = streamed.desiredLevel;
+            }
+        }
+        // Then the largest levels of the least visible textures, one level at a time.
+        for (int i = sortedTextures.size - 1; i >= 0 && residentSize > budget; i--) {
+            StreamedTexture streamed = sortedTextures.get(i);
+            if (!streamed.progressive) continue;
+            int lastLevel = streamed.levelSizes.length - 1;
+            while (residentSize > budget && streamed.plannedLevel < lastLevel) {
+                residentSize -= streamed.levelSizes[streamed.plannedLevel];
+                streamed.plannedLevel++;
+            }
+        }
+
+        // Let the most visible textures refine by one more level while it fits the budget.
+        // The size of a level in progress is reserved until it's uploaded.
+        // The textures that lose levels in this update don't refine, so a level is never evicted and brought back at once.
+        for (int i = 0; i < sortedTextures.size; i++) {
+            StreamedTexture streamed = sortedTextures.get(i);
+            streamed.targetLevel = streamed.plannedLevel;
+            if (!streamed.progressive || streamed.plannedLevel <= streamed.desiredLevel
+                    || streamed.plannedLevel > streamed.residentLevel) {
+                continue;
+            }
+            long nextLevelSize = streamed.levelSizes[streamed.plannedLevel - 1];
+            if (residentSize + nextLevelSize <= budget) {
+                streamed.targetLevel = streamed.plannedLevel - 1;
+                residentSize += nextLevelSize;
+            }
+        }
+        return residentSize;
+    }
+
+    /**
+     * @return the smallest level that still covers the screen size (the lower the screen size, the larger the level index).
+     */
+    static int findDesiredLevel(BasisuProgressiveTexture texture, float screenSize) {
+        int lastLevel = texture.getLevelCount() - 1;
+        for (int level = lastLevel; level > 0; level--) {
+            int levelSize = Math.max(texture.getLevelWidth(level), texture.getLevelHeight(level));
+            if (levelSize >= screenSize) {
+                return level;
+            }
+        }
+        return 0;
+    }
+
+    private StreamedTexture find(BasisuProgressiveTexture texture) {
+        for (int i = 0; i < textures.size; i++) {
+            StreamedTexture streamed = textures.get(i);
+            if (streamed.texture == texture) {
+                return streamed;
+            }
+        }
+        return null;
+    }
+
+    /** The managed texture along with its level plan state. */
+    static class StreamedTexture {
+        final BasisuProgressiveTexture texture;
+        final boolean progressive;
+        /** The GPU memory size of each mipmap level. */
+        final int[] levelSizes;
+        float priority = 0f;
+        int desiredLevel = 0;
+        int residentLevel = 0;
+        /** The largest level to keep resident, set by {@link BasisuTextureStreamer#planLevels}. */
+        int plannedLevel = 0;
+        /** The largest level to refine up to, set by {@link BasisuTextureStreamer#planLevels}. */
+        int targetLevel = 0;
+
+        StreamedTexture(BasisuProgressiveTexture texture) {
+            this(texture, texture.isProgressive(), getLevelSizes(texture));
+        }
+
+        StreamedTexture(BasisuProgressiveTexture texture, boolean progressive, int[] levelSizes) {
+            this.texture = texture;
+            this.progressive = progressive;
+            this.levelSizes = levelSizes;
+        }
+
+        /** @return the total size of the level and all the smaller ones. */
+        long getSizeFrom(int level) {
+            long size = 0;
+            for (int i = level; i < levelSizes.length; i++) {
+                size += levelSizes[i];
+            }
+            return size;
+        }
+
+        private static int[] getLevelSizes(BasisuProgressiveTexture texture) {
+            int[] levelSizes = new int[texture.getLevelCount()];
+            for (int level = 0; level < levelSizes.length; level++) {
+                levelSizes[level] = texture.getLevelSize(level);
+            }
+            return levelSizes;
+        }
+    }
+}
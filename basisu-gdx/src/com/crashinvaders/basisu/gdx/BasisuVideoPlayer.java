@@ -0,0 +1,446 @@
+package com.crashinvaders.basisu.gdx;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.TextureData;
+import com.badlogic.gdx.utils.BufferUtils;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.async.AsyncExecutor;
+import com.badlogic.gdx.utils.async.AsyncResult;
+import com.crashinvaders.basisu.wrapper.*;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Plays back the {@link BasisuTextureType#VIDEO_FRAMES} Basis files into a single reused {@link Texture}.
+ * <p/>
+ * The ETC1S video P-frames are encoded against the previous frame, so the frames are decoded strictly in order
+ * by the persistent {@link BasisuTranscoderSession} of the {@link BasisuData}, which keeps the previous frame state between the calls.
+ * While a frame is displayed, the next one is decoded in the background (see {@link #BasisuVideoPlayer(BasisuData, BasisuTextureFormatSelector, AsyncExecutor)})
+ * and then uploaded into the existing texture with {@link BasisuGdxGl#glCompressedTexSubImage2D}
+ * (or the texture level is redefined for the formats that can't be partially updated).
+ * Only the base mipmap level of the frames is used.
+ * <p/>
+ * The frame rate comes from {@link BasisuFileDescription#getUsPerFrame()}.
+ * Call {@link #update(float)} on the render thread (e.g. once per frame) to advance the playback.
+ * If the updates come less often than the video frames, the skipped frames are still decoded (as the following P-frames depend on them),
+ * but only the latest one is uploaded.
+ * <p/>
+ * The player takes the ownership of the provided {@link BasisuData} and disposes it along with the texture.
+ */
+public class BasisuVideoPlayer implements Disposable {
+    private static final String TAG = BasisuVideoPlayer.class.getSimpleName();
+
+    /** Used when the file doesn't specify the frame duration. */
+    public static final int DEFAULT_US_PER_FRAME = 1000000 / 30;
+
+    private final BasisuData basisuData;
+    private final BasisuTranscoderTextureFormat transcodeFormat;
+    private final int glFormatCode;
+    private final int frameCount;
+    private final int usPerFrame;
+    private final int frameWidth;
+    private final int frameHeight;
+    private final int frameSize;
+    /** Whether the frame is an I-frame, which doesn't depend on the previous frames. */
+    private final boolean[] iFrameFlags;
+
+    private final AsyncExecutor decodeExecutor;
+    private final boolean ownsDecodeExecutor;
+
+    private final Texture texture;
+
+    /** The frame currently displayed (and used for the managed texture reload). Only accessed on the render thread. */
+    private ByteBuffer frameBuffer;
+    /** The frame being decoded in the background. */
+    private ByteBuffer decodeBuffer;
+    /** The background decoding of the next frame to display, null when there's none (the playback has finished). */
+    private AsyncResult<Void> pendingFrame = null;
+    private int pendingFrameIndex = -1;
+
+    private int frameIndex = 0;
+    private long elapsedUs = 0;
+    private boolean playing = true;
+    private boolean looping = true;
+
+    /**
+     * @param file the Basis video file
+     */
+    public BasisuVideoPlayer(FileHandle file) {
+        this(new BasisuData(file));
+    }
+
+    /**
+     * @param basisuData the Basis video data (gets disposed along with the player)
+     */
+    public BasisuVideoPlayer(BasisuData basisuData) {
+        this(basisuData, BasisuGdxUtils.defaultFormatSelector, null);
+    }
+
+    /**
+     * @param basisuData the Basis video data (gets disposed along with the player)
+     * @param formatSelector the selector of the GPU compressed texture format to transcode to
+     * @param decodeExecutor the executor to decode the frames with.
+     *                       It is not managed by the player and should be disposed by the owner.
+     *                       If null, the player creates (and disposes) its own single thread executor.
+     */
+    public BasisuVideoPlayer(BasisuData basisuData, BasisuTextureFormatSelector formatSelector, AsyncExecutor decodeExecutor) {
+        this.basisuData = basisuData;
+
+        BasisuFileDescription fileInfo = basisuData.getFileInfo();
+        if (fileInfo.getTextureType() != BasisuTextureType.VIDEO_FRAMES) {
+            basisuData.dispose();
+            throw new BasisuGdxException("textureType " + fileInfo.getTextureType() + " cannot be played as a video. " +
+                    "Only BasisuTextureType.VIDEO_FRAMES texture type is allowed.");
+        }
+
+        this.frameCount = fileInfo.getTotalImages();
+        this.iFrameFlags = new boolean[frameCount];
+        for (int i = 0; i < frameCount; i++) {
+            iFrameFlags[i] = fileInfo.getImage(i).hasIframeFlag();
+        }
+        this.usPerFrame = fileInfo.getUsPerFrame() > 0 ? fileInfo.getUsPerFrame() : DEFAULT_US_PER_FRAME;
+        // Every video frame has the same resolution.
+        BasisuImageLevelDescription levelInfo = basisuData.getImageLevelInfo(0, 0);
+        this.frameWidth = levelInfo.getOrigWidth();
+        this.frameHeight = levelInfo.getOrigHeight();
+
+        this.transcodeFormat = formatSelector.resolveTextureFormat(basisuData, 0);
+        this.glFormatCode = BasisuGdxUtils.toGlTextureFormat(transcodeFormat);
+        this.frameSize = basisuData.getTranscodedSize(0, 0, transcodeFormat);
+        Gdx.app.debug(TAG, "Playing " + frameCount + " frames [size:" + frameWidth + "x" + frameHeight + "] " +
+                "[frame duration:" + usPerFrame + "us] in the " + transcodeFormat + " format");
+
+        this.ownsDecodeExecutor = decodeExecutor == null;
+        this.decodeExecutor = decodeExecutor != null ? decodeExecutor : new AsyncExecutor(1, TAG);
+
+        this.frameBuffer = BufferUtils.newByteBuffer(frameSize);
+        this.decodeBuffer = BufferUtils.newByteBuffer(frameSize);
+        decodeFrames(0, 1, frameBuffer);
+
+        this.texture = new Texture(new VideoFrameTextureData());
+        this.texture.setFilter(Texture.TextureFilter.Linear, Texture.TextureFilter.Linear);
+
+        scheduleNextFrame(1);
+    }
+
+    /**
+     * @return the texture the frames are played into. It's owned by the player and disposed along with it.
+     */
+    public Texture getTexture() {
+        return texture;
+    }
+
+    public int getFrameCount() {
+        return frameCount;
+    }
+
+    /**
+     * @return the index of the currently displayed frame.
+     */
+    public int getFrameIndex() {
+        return frameIndex;
+    }
+
+    /**
+     * @return the duration of a single frame in microseconds.
+     */
+    public int getUsPerFrame() {
+        return usPerFrame;
+    }
+
+    public boolean isPlaying() {
+        return playing;
+    }
+
+    public void play() {
+        playing = true;
+    }
+
+    public void pause() {
+        playing = false;
+    }
+
+    public boolean isLooping() {
+        return looping;
+    }
+
+    /**
+     * @param looping whether to restart from the first frame after the last one (enabled by default).
+     */
+    public void setLooping(boolean looping) {
+        if (this.looping == looping) return;
+        this.looping = looping;
+        if (looping && pendingFrame == null) {
+            scheduleNextFrame(1);
+        }
+    }
+
+    /**
+     * @return true if the last frame is displayed and the playback is not looping.
+     */
+    public boolean isFinished() {
+        return !looping && frameIndex == frameCount - 1;
+    }
+
+    /**
+     * Advances the playback. Must be called on the render thread.
+     * Uploads the next frame once it's due and decoded, never blocks on the decoding.
+     * @param delta the time passed since the last call in seconds
+     */
+    public void update(float delta) {
+        if (!playing || pendingFrame == null) {
+            return;
+        }
+        elapsedUs += (long)(delta * 1000000.0);
+        if (elapsedUs < usPerFrame || !pendingFrame.isDone()) {
+            return;
+        }
+        presentPendingFrame();
+
+        elapsedUs -= usPerFrame;
+        int frameStep = computeFrameStep(elapsedUs, usPerFrame);
+        elapsedUs %= usPerFrame;
+        scheduleNextFrame(frameStep);
+    }
+
+    /**
+     * Jumps to the specified frame. Blocks until the frame is decoded and uploaded.
+     * As the P-frames depend on the previous ones, the decoding starts from the nearest preceding I-frame.
+     * Must be called on the render thread.
+     */
+    public void seek(int targetFrameIndex) {
+        if (targetFrameIndex < 0 || targetFrameIndex >= frameCount) {
+            throw new BasisuGdxException("frameIndex " + targetFrameIndex + " exceeds " +
+                    "the total number of frames (" + frameCount + ") in the basis file.");
+        }
+        awaitPendingFrame();
+
+        int iFrameIndex = findIFrameIndex(iFrameFlags, targetFrameIndex);
+        decodeFrames(iFrameIndex, targetFrameIndex - iFrameIndex + 1, decodeBuffer);
+        pendingFrameIndex = targetFrameIndex;
+        presentPendingFrame();
+
+        elapsedUs = 0;
+        scheduleNextFrame(1);
+    }
+
+    @Override
+    public void dispose() {
+        // The background decoding still uses the encoded data.
+        awaitPendingFrame();
+        if (ownsDecodeExecutor) {
+            decodeExecutor.dispose();
+        }
+        texture.dispose();
+        basisuData.dispose();
+        frameBuffer = null;
+        decodeBuffer = null;
+    }
+
+    /** Submits the decoding of the frame that is "frameStep" frames ahead of the displayed one. */
+    private void scheduleNextFrame(int frameStep) {
+        final int framesToDecode = clampFrameStep(frameIndex, frameStep, frameCount, looping);
+        if (framesToDecode <= 0) {
+            pendingFrame = null;
+            return;
+        }
+        final int firstFrame = (frameIndex + 1) % frameCount;
+        final ByteBuffer buffer = decodeBuffer;
+        pendingFrameIndex = (frameIndex + framesToDecode) % frameCount;
+        pendingFrame = decodeExecutor.submit(() -> {
+            decodeFrames(firstFrame, framesToDecode, buffer);
+            return null;
+        });
+    }
+
+    /**
+     * @param remainingUs the time elapsed past the due time of the frame just presented
+     * @return the number of frames to advance by for the next update.
+     * The frames that are already late get decoded along with the next one.
+     */
+    static int computeFrameStep(long remainingUs, int usPerFrame) {
+        return 1 + (int)(remainingUs / usPerFrame);
+    }
+
+    /**
+     * @return the number of frames to advance by from the displayed frame,
+     * which is limited by the last frame when not looping (zero or less if the playback has finished).
+     */
+    static int clampFrameStep(int frameIndex, int frameStep, int frameCount, boolean looping) {
+        if (looping) {
+            return frameStep;
+        }
+        return Math.min(frameStep, frameCount - 1 - frameIndex);
+    }
+
+    /**
+     * @return the index of the nearest I-frame the decoding of the target frame has to start from.
+     * The first frame is always decodable on its own.
+     */
+    static int findIFrameIndex(boolean[] iFrameFlags, int targetFrameIndex) {
+        int iFrameIndex = targetFrameIndex;
+        while (iFrameIndex > 0 && !iFrameFlags[iFrameIndex]) {
+            iFrameIndex--;
+        }
+        return iFrameIndex;
+    }
+
+    /**
+     * Decodes the consecutive frames (wrapping around the last one) into the buffer, only the last of them remains in it.
+     * Must not be called concurrently, as the P-frame decoding relies on the session's own transcoder state.
+     */
+    private void decodeFrames(int firstFrameIndex, int count, ByteBuffer outBuffer) {
+        for (int i = 0; i < count; i++) {
+            int imageIndex = (firstFrameIndex + i) % frameCount;
+            basisuData.transcode(imageIndex, 0, transcodeFormat, outBuffer);
+        }
+    }
+
+    private void awaitPendingFrame() {
+        if (pendingFrame == null) return;
+        try {
+            pendingFrame.get();
+        } catch (GdxRuntimeException e) {
+            Gdx.app.error(TAG, "Failed to decode video frame " + pendingFrameIndex, e);
+        }
+        pendingFrame = null;
+    }
+
+    /**
+     * Swaps the decoded frame in and uploads it to the texture.
+     * If the decoding has failed, the exception is rethrown and the playback stops until the next {@link #seek(int)}.
+     */
+    private void presentPendingFrame() {
+        if (pendingFrame != null) {
+            try {
+                pendingFrame.get();
+            } finally {
+                pendingFrame = null;
+            }
+        }
+        ByteBuffer decodedFrame = decodeBuffer;
+        decodeBuffer = frameBuffer;
+        frameBuffer = decodedFrame;
+        frameIndex = pendingFrameIndex;
+
+        texture.bind();
+        uploadFrame(texture.glTarget, false);
+        Gdx.gl.glBindTexture(texture.glTarget, 0);
+    }
+
+    /**
+     * @param define whether to (re)define the texture level storage or just to update its contents
+     */
+    private void uploadFrame(int target, boolean define) {
+        if (transcodeFormat.isCompressedFormat()) {
+            if (define || !supportsCompressedSubImage(glFormatCode)) {
+                BasisuGdxGl.glCompressedTexImage2D(target, 0, glFormatCode,
+                        frameWidth, frameHeight, 0,
+                        frameSize, frameBuffer);
+            } else {
+                BasisuGdxGl.glCompressedTexSubImage2D(target, 0, 0, 0,
+                        frameWidth, frameHeight, glFormatCode,
+                        frameSize, frameBuffer);
+            }
+        } else {
+            int textureType = BasisuGdxUtils.toUncompressedGlTextureType(transcodeFormat);
+            if (define) {
+                Gdx.gl.glTexImage2D(target, 0, glFormatCode,
+                        frameWidth, frameHeight, 0,
+                        glFormatCode, textureType, frameBuffer);
+            } else {
+                Gdx.gl.glTexSubImage2D(target, 0, 0, 0,
+                        frameWidth, frameHeight,
+                        glFormatCode, textureType, frameBuffer);
+            }
+        }
+
+        int glError = Gdx.gl.glGetError();
+        if (glError != 0) {
+            Gdx.app.error(TAG, "Failed to upload video frame " + frameIndex + " to GPU. GL error: " + glError);
+        }
+    }
+
+    /**
+     * PVRTC1 and ETC1 (<code>OES_compressed_ETC1_RGB8_texture</code>) textures can't be partially updated,
+     * the whole level gets redefined instead.
+     * ETC1 is mapped to the compatible ETC2 format on desktop (see {@link BasisuGdxUtils#toGlTextureFormat}), which can.
+     */
+    static boolean supportsCompressedSubImage(int glFormatCode) {
+        switch (glFormatCode) {
+            case BasisuGdxUtils.GL_TEX_PVRTC1_4BPP_RGB:
+            case BasisuGdxUtils.GL_TEX_PVRTC1_4BPP_RGBA:
+            case BasisuGdxUtils.GL_TEX_ETC1_RGB8:
+                return false;
+            default:
+                return true;
+        }
+    }
+
+    /** Defines the texture with the currently displayed frame (on creation and on the managed texture reload). */
+    private class VideoFrameTextureData implements TextureData {
+        private boolean isPrepared = false;
+
+        @Override
+        public TextureDataType getType() {
+            return TextureDataType.Custom;
+        }
+
+        @Override
+        public boolean isPrepared() {
+            return isPrepared;
+        }
+
+        @Override
+        public void prepare() {
+            if (isPrepared) throw new GdxRuntimeException("Already prepared");
+            isPrepared = true;
+        }
+
+        @Override
+        public void consumeCustomData(int target) {
+            if (!isPrepared) throw new GdxRuntimeException("Call prepare() before calling consumeCompressedData()");
+            uploadFrame(target, true);
+            isPrepared = false;
+        }
+
+        @Override
+        public Pixmap consumePixmap() {
+            throw new GdxRuntimeException("This TextureData implementation does not return a Pixmap.");
+        }
+
+        @Override
+        public boolean disposePixmap() {
+            throw new GdxRuntimeException("This TextureData implementation does not return a Pixmap.");
+        }
+
+        @Override
+        public int getWidth() {
+            return frameWidth;
+        }
+
+        @Override
+        public int getHeight() {
+            return frameHeight;
+        }
+
+        @Override
+        public Pixmap.Format getFormat() {
+            throw new GdxRuntimeException("This TextureData implementation does not return a Pixmap");
+        }
+
+        @Override
+        public boolean useMipMaps() {
+            return false;
+        }
+
+        @Override
+        public boolean isManaged() {
+            return true;
+        }
+    }
+}
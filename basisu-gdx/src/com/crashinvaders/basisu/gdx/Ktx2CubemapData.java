@@ -0,0 +1,75 @@
+package com.crashinvaders.basisu.gdx;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.crashinvaders.basisu.wrapper.BasisuMipChain;
+import com.crashinvaders.basisu.wrapper.BasisuTranscoderTextureFormat;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Provides support for the KTX2 cubemap textures for {@link com.badlogic.gdx.graphics.Cubemap}.
+ * All six faces are transcoded (with the whole mipmap chain) and uploaded to the matching cube map targets.
+ * The KTX2 face order is the same as the GL one: +X, -X, +Y, -Y, +Z, -Z.
+ * <p/>
+ * The texture format is selected the same way as for {@link Ktx2TextureData}
+ * (see {@link #setTextureFormatSelector(BasisuTextureFormatSelector)}).
+ */
+public class Ktx2CubemapData extends TranscodedCubemapData<Ktx2Data> {
+    private static final String TAG = Ktx2CubemapData.class.getSimpleName();
+
+    /**
+     * @param file the file to load the KTX2 cubemap data from
+     */
+    public Ktx2CubemapData(FileHandle file) {
+        super(TAG, file, null);
+    }
+
+    /**
+     * @param ktx2Data the KTX2 cubemap data to transcode the faces from
+     */
+    public Ktx2CubemapData(Ktx2Data ktx2Data) {
+        super(TAG, null, ktx2Data);
+    }
+
+    @Override
+    Ktx2Data loadData(FileHandle file, boolean memoryMapped) {
+        return new Ktx2Data(file, memoryMapped);
+    }
+
+    @Override
+    void validateData(Ktx2Data data) {
+        if (!data.isCubemap()) {
+            throw new BasisuGdxException("The KTX2 data is not a cubemap (faces: " + data.getTotalFaces() + ").");
+        }
+    }
+
+    @Override
+    int getFaceWidth(Ktx2Data data) {
+        return data.getImageWidth();
+    }
+
+    @Override
+    int getFaceHeight(Ktx2Data data) {
+        return data.getImageHeight();
+    }
+
+    @Override
+    int getLevelCount(Ktx2Data data) {
+        return data.getTotalMipmapLevels();
+    }
+
+    @Override
+    BasisuTranscoderTextureFormat resolveTextureFormat(BasisuTextureFormatSelector formatSelector, Ktx2Data data) {
+        return formatSelector.resolveTextureFormat(data);
+    }
+
+    @Override
+    BasisuMipChain allocateFaceMipChain(Ktx2Data data, int faceIndex, BasisuTranscoderTextureFormat format, int levelCount) {
+        return data.getTranscoderSession().allocateMipChain(0, format, levelCount);
+    }
+
+    @Override
+    void transcodeFaceLevel(Ktx2Data data, int faceIndex, int level, BasisuTranscoderTextureFormat format, ByteBuffer outBuffer, int decodeFlags) {
+        data.transcodeFace(0, level, faceIndex, format, outBuffer, decodeFlags);
+    }
+}
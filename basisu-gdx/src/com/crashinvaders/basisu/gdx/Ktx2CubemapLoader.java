@@ -0,0 +1,38 @@
+package com.crashinvaders.basisu.gdx;
+
+import com.badlogic.gdx.assets.AssetManager;
+import com.badlogic.gdx.assets.loaders.CubemapLoader;
+import com.badlogic.gdx.assets.loaders.FileHandleResolver;
+import com.badlogic.gdx.files.FileHandle;
+
+/**
+ * {@link AssetManager} compliant loader for KTX2 cubemaps (see {@link Ktx2CubemapData}).
+ * <p/>
+ * Here's an example of how to set up the loader, so the {@link AssetManager} can support loading of ".ktx2" cubemaps:
+ * <br/>
+ * <code>
+ *     assetManager.setLoader(Cubemap.class, ".ktx2", new Ktx2CubemapLoader(assetManager.getFileHandleResolver()));
+ * </code>
+ * <br/>
+ * And after that call to <code>assetManager.load("MySkybox.ktx2", Cubemap.class);</code> will post the cubemap for loading.
+ */
+public class Ktx2CubemapLoader extends TranscodedCubemapLoader {
+
+    public Ktx2CubemapLoader(FileHandleResolver resolver) {
+        super(resolver);
+    }
+
+    @Override
+    TranscodedCubemapData<?> createCubemapData(FileHandle fileHandle, CubemapLoader.CubemapParameter parameter) {
+        return new Ktx2CubemapData(fileHandle);
+    }
+
+    /**
+     * Parameter class is an optional extension for the standard {@link CubemapLoader.CubemapParameter}.
+     */
+    public static class Ktx2CubemapParameter extends TranscodedCubemapParameter {
+
+        public Ktx2CubemapParameter() {
+        }
+    }
+}
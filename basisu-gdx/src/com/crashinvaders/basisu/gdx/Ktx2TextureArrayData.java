@@ -0,0 +1,81 @@
+package com.crashinvaders.basisu.gdx;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.crashinvaders.basisu.wrapper.BasisuTranscoderTextureFormat;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Provides support for the multi-layer (array) KTX2 textures for {@link com.badlogic.gdx.graphics.TextureArray}.
+ * Every layer of the file becomes a slice of a single <code>GL_TEXTURE_2D_ARRAY</code> texture,
+ * so e.g. the sprite animation frames or the terrain materials can be sampled with a single texture bind.
+ * Non-array KTX2 files are loaded as a single layer array.
+ * <p/>
+ * Texture arrays require OpenGL ES 3.0 (WebGL2 on the web backend).
+ * <p/>
+ * The texture format is selected the same way as for {@link Ktx2TextureData}
+ * (see {@link #setTextureFormatSelector(BasisuTextureFormatSelector)}).
+ */
+public class Ktx2TextureArrayData extends TranscodedTextureArrayData<Ktx2Data> {
+    private static final String TAG = Ktx2TextureArrayData.class.getSimpleName();
+
+    /**
+     * @param file the file to load the KTX2 texture data from
+     */
+    public Ktx2TextureArrayData(FileHandle file) {
+        super(TAG, file, null);
+    }
+
+    /**
+     * @param ktx2Data the KTX2 texture data to transcode the texture array from
+     */
+    public Ktx2TextureArrayData(Ktx2Data ktx2Data) {
+        super(TAG, null, ktx2Data);
+    }
+
+    @Override
+    Ktx2Data loadData(FileHandle file, boolean memoryMapped) {
+        return new Ktx2Data(file, memoryMapped);
+    }
+
+    @Override
+    void validateData(Ktx2Data data) {
+        // Any KTX2 texture can be loaded as an array.
+    }
+
+    @Override
+    int getLayerCount(Ktx2Data data) {
+        // Non-array textures report zero layers.
+        return Math.max(1, data.getTotalLayers());
+    }
+
+    @Override
+    int getLevelCount(Ktx2Data data) {
+        return data.getTotalMipmapLevels();
+    }
+
+    @Override
+    int getLevelWidth(Ktx2Data data, int level) {
+        return data.getImageLevelInfo(0, level).getOrigWidth();
+    }
+
+    @Override
+    int getLevelHeight(Ktx2Data data, int level) {
+        return data.getImageLevelInfo(0, level).getOrigHeight();
+    }
+
+    @Override
+    BasisuTranscoderTextureFormat resolveTextureFormat(BasisuTextureFormatSelector formatSelector, Ktx2Data data) {
+        return formatSelector.resolveTextureFormat(data);
+    }
+
+    @Override
+    int getTranscodedSize(Ktx2Data data, int level, BasisuTranscoderTextureFormat format) {
+        return data.getTranscodedSize(0, level, format);
+    }
+
+    @Override
+    void transcodeLayerLevel(Ktx2Data data, int layerIndex, int level, BasisuTranscoderTextureFormat format, ByteBuffer outBuffer, int decodeFlags) {
+        data.transcode(layerIndex, level, format, outBuffer, 1, decodeFlags);
+    }
+}
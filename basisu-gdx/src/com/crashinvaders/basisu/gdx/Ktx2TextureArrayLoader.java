@@ -0,0 +1,34 @@
+package com.crashinvaders.basisu.gdx;
+
+import com.badlogic.gdx.assets.AssetManager;
+import com.badlogic.gdx.assets.loaders.FileHandleResolver;
+import com.badlogic.gdx.files.FileHandle;
+
+/**
+ * {@link AssetManager} compliant loader for the multi-layer KTX2 textures (see {@link Ktx2TextureArrayData}).
+ * <p/>
+ * Here's an example of how to set up the loader, so the {@link AssetManager} can support loading of ".ktx2" texture arrays:
+ * <br/>
+ * <code>
+ *     assetManager.setLoader(TextureArray.class, ".ktx2", new Ktx2TextureArrayLoader(assetManager.getFileHandleResolver()));
+ * </code>
+ * <br/>
+ * And after that call to <code>assetManager.load("MyImageArray.ktx2", TextureArray.class);</code> will post the texture array for loading.
+ */
+public class Ktx2TextureArrayLoader extends TranscodedTextureArrayLoader<Ktx2TextureArrayLoader.Ktx2TextureArrayParameter> {
+
+    public Ktx2TextureArrayLoader(FileHandleResolver resolver) {
+        super(resolver);
+    }
+
+    @Override
+    TranscodedTextureArrayData<?> createTextureData(FileHandle fileHandle) {
+        return new Ktx2TextureArrayData(fileHandle);
+    }
+
+    public static class Ktx2TextureArrayParameter extends TranscodedTextureArrayParameter {
+
+        public Ktx2TextureArrayParameter() {
+        }
+    }
+}
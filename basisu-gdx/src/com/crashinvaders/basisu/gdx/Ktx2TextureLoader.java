@@ -9,6 +9,10 @@ import com.badlogic.gdx.files.FileHandle;
 import com.badlogic.gdx.graphics.Texture;
 import com.badlogic.gdx.graphics.Texture.TextureFilter;
 import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.ObjectMap;
+import com.badlogic.gdx.utils.async.AsyncExecutor;
+import com.badlogic.gdx.utils.async.AsyncResult;
+import com.crashinvaders.basisu.wrapper.BasisuDecodeFlags;
 
 /**
  * {@link AssetManager} compliant loader for KTX2 textures.
@@ -20,10 +24,19 @@ import com.badlogic.gdx.utils.Array;
  * </code>
  * <br/>
  * And after that call to <code>assetManager.load("MyImage.ktx2", Texture.class);</code> will post the texture for loading.
+ * <p/>
+ * The loader is safe to use with several textures in flight. To transcode many textures in parallel,
+ * set a multi-thread executor with {@link #setPrefetchExecutor(AsyncExecutor)}
+ * and {@link #prefetch(String, TextureLoader.TextureParameter)} the textures before posting them to the asset manager.
  */
 public class Ktx2TextureLoader extends AsynchronousAssetLoader<Texture, TextureLoader.TextureParameter> {
 
-    Ktx2TextureData textureData;
+    /** The prepared texture data of the assets, handed from {@link #loadAsync} to {@link #loadSync} by the asset file name. */
+    final ObjectMap<String, Ktx2TextureData> preparedData = new ObjectMap<>();
+    /** The texture data being prepared in advance (see {@link #prefetch}) by the asset file name. */
+    final ObjectMap<String, AsyncResult<Ktx2TextureData>> prefetchedData = new ObjectMap<>();
+
+    private AsyncExecutor prefetchExecutor = null;
 
     public Ktx2TextureLoader(FileHandleResolver resolver) {
         super(resolver);
@@ -33,25 +46,98 @@ public class Ktx2TextureLoader extends AsynchronousAssetLoader<Texture, TextureL
     }
 
     public void loadAsync(AssetManager manager, String fileName, FileHandle fileHandle, TextureLoader.TextureParameter parameter) {
+        AsyncResult<Ktx2TextureData> prefetchResult;
+        synchronized (this) {
+            prefetchResult = prefetchedData.remove(fileName);
+        }
+        Ktx2TextureData data;
+        if (prefetchResult != null) {
+            // Rethrows the preparation failure, if any.
+            data = prefetchResult.get();
+        } else {
+            data = createTextureData(fileHandle, parameter);
+            data.prepare();
+        }
+        synchronized (this) {
+            preparedData.put(fileName, data);
+        }
+    }
+
+    /**
+     * Starts reading and transcoding the texture in advance on the prefetch executor (see {@link #setPrefetchExecutor(AsyncExecutor)}).
+     * Prefetch all the textures of a loading screen right before posting them to the {@link AssetManager},
+     * so they're transcoded in parallel and {@link #loadAsync} only picks up the results.
+     * <p/>
+     * The asset must be loaded with the same file name and parameter afterwards,
+     * otherwise the prepared native data is held until the loader is gone.
+     * Does nothing if the texture is already being prefetched.
+     * @param fileName the asset file name (resolved the same way the {@link AssetManager} does)
+     */
+    public void prefetch(String fileName, final TextureLoader.TextureParameter parameter) {
+        if (prefetchExecutor == null) {
+            throw new BasisuGdxException("No prefetch executor is set, use setPrefetchExecutor() first.");
+        }
+        final FileHandle fileHandle = resolve(fileName);
+        synchronized (this) {
+            if (prefetchedData.containsKey(fileName)) return;
+            prefetchedData.put(fileName, prefetchExecutor.submit(() -> {
+                Ktx2TextureData data = createTextureData(fileHandle, parameter);
+                data.prepare();
+                return data;
+            }));
+        }
+    }
+
+    /**
+     * @return the executor to prepare the prefetched textures with, or null if the prefetching is disabled.
+     */
+    public AsyncExecutor getPrefetchExecutor() {
+        return prefetchExecutor;
+    }
+
+    /**
+     * Enables {@link #prefetch(String, TextureLoader.TextureParameter)}.
+     * Use a multi-thread executor (e.g. one thread per CPU core) to transcode several textures at once.
+     * The executor is not managed by the loader and should be disposed by the owner (once all the prefetched textures are loaded).
+     * @param prefetchExecutor the executor to use, or null (default) to disable the prefetching
+     */
+    public void setPrefetchExecutor(AsyncExecutor prefetchExecutor) {
+        this.prefetchExecutor = prefetchExecutor;
+    }
+
+    private Ktx2TextureData createTextureData(FileHandle fileHandle, TextureLoader.TextureParameter parameter) {
         Ktx2TextureData data;
         if (parameter instanceof Ktx2TextureParameter) {
             Ktx2TextureParameter basisParameter = (Ktx2TextureParameter) parameter;
             data = new Ktx2TextureData(fileHandle);
             data.setUseMipMaps(basisParameter.useMipmaps);
+            data.setDecodeFlags(basisParameter.decodeFlags);
+            data.setMemoryMapped(basisParameter.memoryMapped);
+            data.setDiskCache(basisParameter.diskCache);
             if (basisParameter.formatSelector != null) {
                 data.setTextureFormatSelector(basisParameter.formatSelector);
             }
+            if (basisParameter.transcodedCache != null) {
+                data.setTranscodedCache(basisParameter.transcodedCache);
+            }
+            if (basisParameter.bufferPool != null) {
+                data.setBufferPool(basisParameter.bufferPool);
+            }
+            if (basisParameter.reloadPolicy != null) {
+                data.setReloadPolicy(basisParameter.reloadPolicy);
+            }
         } else {
             data = new Ktx2TextureData(fileHandle);
         }
-        data.prepare();
-        textureData = data;
+        return data;
     }
 
     public Texture loadSync(AssetManager manager, String fileName, FileHandle fileHandle, TextureLoader.TextureParameter parameter) {
-        Ktx2TextureData data = this.textureData;
-        Texture texture = new Texture(data);
-        this.textureData = null;
+        Ktx2TextureData data;
+        synchronized (this) {
+            data = preparedData.remove(fileName);
+        }
+        Texture texture = BasisuGdxUtils.createManagedTexture(data);
 
         if (parameter != null) {
             // data.useMipMaps() can end up false even if requested true (e.g. a non-power-of-two
@@ -77,6 +163,24 @@ public class Ktx2TextureLoader extends AsynchronousAssetLoader<Texture, TextureL
         // public int layerIndex = 0; // Not yet supported.
         public boolean useMipmaps = true;
         public BasisuTextureFormatSelector formatSelector = null;
+        /** A combination of the {@link BasisuDecodeFlags} constants. */
+        public int decodeFlags = BasisuDecodeFlags.NONE;
+        /** Maps the texture file into memory instead of reading it, where possible. */
+        public boolean memoryMapped = false;
+        /**
+         * The persistent cache of the transcoded mip chains to read the texture from (or to store it into).
+         * The cache is not managed by the loader and can be shared between the textures.
+         */
+        public TranscodeDiskCache diskCache = null;
+        /** The in-memory cache of the transcoded textures, {@link BasisuGdxUtils#defaultTranscodedTextureCache} is used when null. */
+        public TranscodedTextureCache transcodedCache = null;
+        /** The pool for the file and the transcoded data buffers, {@link BasisuGdxUtils#defaultBufferPool} is used when null. */
+        public BasisuBufferPool bufferPool = null;
+        /**
+         * What to retain to restore the texture after the GL context loss, {@link BasisuGdxUtils#defaultReloadPolicy} is used when null.
+         * The retained data is released along with the texture.
+         */
+        public BasisuReloadPolicy reloadPolicy = null;
 
         public Ktx2TextureParameter() {
         }
@@ -0,0 +1,514 @@
+package com.crashinvaders.basisu.gdx;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.ObjectMap;
+import com.badlogic.gdx.utils.ObjectSet;
+import com.badlogic.gdx.utils.StreamUtils;
+import com.crashinvaders.basisu.wrapper.BasisuMipChain;
+import com.crashinvaders.basisu.wrapper.BasisuTranscoderTextureFormat;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * An opt-in persistent cache of the transcoded mipmap chains.
+ * The texture format selected for a given device stays the same between the launches,
+ * so once a texture is transcoded, the next loads can read the GPU ready data straight from the disk.
+ * <p/>
+ * The entries are keyed by the encoded file content hash (see {@link #hashContent(ByteBuffer)}),
+ * the image index, the target texture format, the decode flags and the number of the mipmap levels.
+ * Each entry is a single uncompressed file (a small header with the level table followed by the level data),
+ * so the cache hits are memory-mapped (see {@link BasisuGdxUtils#readFileIntoBuffer(FileHandle, boolean)}) with no copying.
+ * <p/>
+ * The total size of the entries is kept under the limit by evicting the least recently used ones.
+ * The usage order is persisted in an index file within the cache directory.
+ * The index is written in batches (every {@link #INDEX_WRITE_INTERVAL} changes) rather than on every call,
+ * call {@link #flush()} to persist the latest order (e.g. from {@link com.badlogic.gdx.ApplicationListener#pause()}).
+ * The entry files missing in the index are still picked up on the next launch, only their usage order is approximated.
+ * <p/>
+ * Use it with {@link BasisuTextureData#setDiskCache(TranscodeDiskCache)} and {@link Ktx2TextureData#setDiskCache(TranscodeDiskCache)}
+ * (or the matching loader parameters). A single instance may be shared between the threads,
+ * the entry file reads and writes take place outside of the lock, so the concurrent loads don't wait for each other.
+ * The cache directory must be writable (e.g. <code>Gdx.files.local("basisu-cache")</code>),
+ * there's no such one on the web backend, so the cache is not supported there.
+ * Any cache I/O failure is logged and treated as a cache miss, it never fails the texture loading.
+ */
+public class TranscodeDiskCache {
+    private static final String TAG = TranscodeDiskCache.class.getSimpleName();
+
+    private static final String ENTRY_EXTENSION = ".mips";
+    private static final String INDEX_FILE_NAME = "index.txt";
+    private static final String TEMP_FILE_SUFFIX = ".tmp";
+
+    /** "BTMC" */
+    private static final int MAGIC = 0x42544D43;
+    private static final int VERSION = 1;
+    /** Magic, version, content hash (long), image index, format ID, decode flags, level count. */
+    private static final int HEADER_SIZE = 4 + 4 + 8 + 4 + 4 + 4 + 4;
+    private static final int LEVEL_ENTRY_SIZE = BasisuMipChain.LEVEL_TABLE_STRIDE * 4;
+
+    /** The number of the entry and usage order changes after which the index file gets rewritten. */
+    public static final int INDEX_WRITE_INTERVAL = 16;
+
+    private final FileHandle directory;
+    private final long maxTotalSize;
+
+    /** The entries in the usage order, the least recently used first. */
+    private final Array<Entry> entries = new Array<>();
+    private final ObjectMap<String, Entry> entriesByKey = new ObjectMap<>();
+    /** The keys of the entries being written by {@link #store}. */
+    private final ObjectSet<String> pendingKeys = new ObjectSet<>();
+    private long totalSize = 0;
+
+    /** The number of the changes since the last index write. */
+    private int indexChangeCount = 0;
+    /** Incremented with every change, so an older index snapshot never overwrites a newer one. */
+    private int indexVersion = 0;
+    /** Guards the index file writes, which take place outside of the cache lock. */
+    private final Object indexWriteLock = new Object();
+    private int writtenIndexVersion = 0;
+
+    private int hitCount = 0;
+    private int missCount = 0;
+
+    /**
+     * @param directory the directory to keep the cache entries in (created if missing)
+     * @param maxTotalSize the total size limit of all the entries in bytes
+     */
+    public TranscodeDiskCache(FileHandle directory, long maxTotalSize) {
+        this.directory = directory;
+        this.maxTotalSize = maxTotalSize;
+        directory.mkdirs();
+        readIndex();
+    }
+
+    /**
+     * Computes the 64-bit FNV-1a hash of the buffer content (from the start to the limit).
+     * It's used as the cache key for the encoded texture data.
+     */
+    public static long hashContent(ByteBuffer data) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0, n = data.limit(); i < n; i++) {
+            hash ^= data.get(i) & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    public FileHandle getDirectory() {
+        return directory;
+    }
+
+    public long getMaxTotalSize() {
+        return maxTotalSize;
+    }
+
+    /**
+     * @return the total size of all the cache entries in bytes.
+     */
+    public synchronized long getTotalSize() {
+        return totalSize;
+    }
+
+    public synchronized int getEntryCount() {
+        return entries.size;
+    }
+
+    /**
+     * @return the number of the {@link #load} calls that found the entry since the cache creation.
+     */
+    public synchronized int getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * @return the number of the {@link #load} calls that didn't find the entry since the cache creation.
+     */
+    public synchronized int getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * Looks up the transcoded mip chain.
+     * @return the cached mip chain backed by the memory-mapped entry file (must be closed when no longer needed)
+     * or null if there's no such entry.
+     */
+    public BasisuMipChain load(long contentHash, int imageIndex, BasisuTranscoderTextureFormat format, int decodeFlags, int levelCount) {
+        String key = toKey(contentHash, imageIndex, format, decodeFlags, levelCount);
+        Entry entry;
+        synchronized (this) {
+            entry = entriesByKey.get(key);
+            if (entry == null) {
+                missCount++;
+                return null;
+            }
+        }
+
+        FileHandle entryFile = directory.child(key + ENTRY_EXTENSION);
+        ByteBuffer fileBuffer = null;
+        BasisuMipChain mipChain = null;
+        try {
+            fileBuffer = BasisuGdxUtils.readFileIntoBuffer(entryFile, true);
+            mipChain = readEntry(fileBuffer, contentHash, imageIndex, format, decodeFlags, levelCount);
+            if (mipChain == null) {
+                throw new BasisuGdxException("Malformed cache entry.");
+            }
+        } catch (RuntimeException e) {
+            Gdx.app.error(TAG, "Failed to read the cache entry " + entryFile.path() + ", dropping it.", e);
+            if (fileBuffer != null) {
+                releaseFileBuffer(fileBuffer);
+            }
+        }
+
+        Array<FileHandle> deletedFiles = null;
+        synchronized (this) {
+            // The entry might have been evicted by another thread in the meantime.
+            boolean isCurrent = entriesByKey.get(key) == entry;
+            if (mipChain != null) {
+                if (isCurrent) {
+                    // Move to the most recently used end.
+                    entries.removeValue(entry, true);
+                    entries.add(entry);
+                    onIndexChanged();
+                }
+                hitCount++;
+            } else {
+                if (isCurrent) {
+                    deletedFiles = new Array<>();
+                    removeEntry(entry, deletedFiles);
+                    onIndexChanged();
+                }
+                missCount++;
+            }
+        }
+        deleteFiles(deletedFiles);
+        writeIndexIfDue();
+        return mipChain;
+    }
+
+    /**
+     * Stores the transcoded mip chain. The mip chain is only read and is not closed.
+     * The least recently used entries get evicted to fit the new one within the size limit.
+     * The mip chains that exceed the limit on their own are not stored.
+     */
+    public void store(long contentHash, int imageIndex, int decodeFlags, BasisuMipChain mipChain) {
+        int levelCount = mipChain.getLevelCount();
+        BasisuTranscoderTextureFormat format = mipChain.getTextureFormat();
+        String key = toKey(contentHash, imageIndex, format, decodeFlags, levelCount);
+        long entrySize = HEADER_SIZE + (long)LEVEL_ENTRY_SIZE * levelCount + mipChain.getTotalSize();
+        synchronized (this) {
+            if (entrySize > maxTotalSize || entriesByKey.containsKey(key) || pendingKeys.contains(key)) {
+                return;
+            }
+            pendingKeys.add(key);
+        }
+
+        FileHandle entryFile = directory.child(key + ENTRY_EXTENSION);
+        FileHandle tempFile = directory.child(key + TEMP_FILE_SUFFIX);
+        boolean written;
+        try {
+            // Written to a temporary file first, so the interrupted writes never leave a partial entry behind.
+            writeEntry(tempFile, contentHash, imageIndex, decodeFlags, mipChain);
+            tempFile.moveTo(entryFile);
+            written = true;
+        } catch (RuntimeException e) {
+            Gdx.app.error(TAG, "Failed to write the cache entry " + entryFile.path(), e);
+            tempFile.delete();
+            written = false;
+        }
+
+        Array<FileHandle> deletedFiles = new Array<>();
+        synchronized (this) {
+            pendingKeys.remove(key);
+            if (written) {
+                while (totalSize + entrySize > maxTotalSize && entries.size > 0) {
+                    removeEntry(entries.first(), deletedFiles);
+                }
+                addEntry(new Entry(key, entrySize));
+                onIndexChanged();
+            }
+        }
+        deleteFiles(deletedFiles);
+        writeIndexIfDue();
+    }
+
+    /**
+     * Deletes all the cache entries.
+     */
+    public void clear() {
+        Array<FileHandle> deletedFiles = new Array<>();
+        synchronized (this) {
+            while (entries.size > 0) {
+                removeEntry(entries.first(), deletedFiles);
+            }
+            onIndexChanged();
+        }
+        deleteFiles(deletedFiles);
+        flush();
+    }
+
+    /**
+     * Writes the pending usage order changes to the index file.
+     */
+    public void flush() {
+        String index;
+        int version;
+        synchronized (this) {
+            if (indexChangeCount == 0) return;
+            index = buildIndex();
+            version = indexVersion;
+            indexChangeCount = 0;
+        }
+        synchronized (indexWriteLock) {
+            if (version <= writtenIndexVersion) return;
+            writeIndex(index);
+            writtenIndexVersion = version;
+        }
+    }
+
+    private static String toKey(long contentHash, int imageIndex, BasisuTranscoderTextureFormat format, int decodeFlags, int levelCount) {
+        return Long.toHexString(contentHash) + "_" + imageIndex + "_" + format.getId() + "_" + decodeFlags + "_" + levelCount;
+    }
+
+    /**
+     * @param deletedFiles collects the entry file to delete once the lock is released
+     */
+    private void removeEntry(Entry entry, Array<FileHandle> deletedFiles) {
+        entries.removeValue(entry, true);
+        entriesByKey.remove(entry.key);
+        totalSize -= entry.size;
+        deletedFiles.add(directory.child(entry.key + ENTRY_EXTENSION));
+    }
+
+    private static void deleteFiles(Array<FileHandle> files) {
+        if (files == null) return;
+        for (FileHandle file : files) {
+            file.delete();
+        }
+    }
+
+    /** Must be called under the lock. */
+    private void onIndexChanged() {
+        indexChangeCount++;
+        indexVersion++;
+    }
+
+    private void writeIndexIfDue() {
+        boolean isDue;
+        synchronized (this) {
+            isDue = indexChangeCount >= INDEX_WRITE_INTERVAL;
+        }
+        if (isDue) {
+            flush();
+        }
+    }
+
+    /**
+     * Restores the usage order from the index file.
+     * The entry files that are missing in the index (e.g. the index write failed) go first, in the modification order.
+     */
+    private void readIndex() {
+        // Leftovers of the interrupted writes.
+        for (FileHandle tempFile : directory.list(TEMP_FILE_SUFFIX)) {
+            tempFile.delete();
+        }
+
+        FileHandle[] entryFiles = directory.list(ENTRY_EXTENSION);
+        ObjectMap<String, FileHandle> filesByKey = new ObjectMap<>();
+        Array<FileHandle> unindexedFiles = new Array<>();
+        for (FileHandle entryFile : entryFiles) {
+            filesByKey.put(entryFile.nameWithoutExtension(), entryFile);
+            unindexedFiles.add(entryFile);
+        }
+
+        Array<Entry> indexedEntries = new Array<>();
+        FileHandle indexFile = directory.child(INDEX_FILE_NAME);
+        if (indexFile.exists()) {
+            try {
+                for (String key : indexFile.readString().split("\n")) {
+                    FileHandle entryFile = filesByKey.remove(key.trim());
+                    if (entryFile != null) {
+                        unindexedFiles.removeValue(entryFile, true);
+                        indexedEntries.add(new Entry(entryFile.nameWithoutExtension(), entryFile.length()));
+                    }
+                }
+            } catch (RuntimeException e) {
+                Gdx.app.error(TAG, "Failed to read the cache index " + indexFile.path(), e);
+            }
+        }
+
+        unindexedFiles.sort((a, b) -> Long.compare(a.lastModified(), b.lastModified()));
+        for (FileHandle entryFile : unindexedFiles) {
+            addEntry(new Entry(entryFile.nameWithoutExtension(), entryFile.length()));
+        }
+        for (Entry entry : indexedEntries) {
+            addEntry(entry);
+        }
+
+        // The size limit might have been lowered since the last run.
+        Array<FileHandle> deletedFiles = new Array<>();
+        while (totalSize > maxTotalSize && entries.size > 0) {
+            removeEntry(entries.first(), deletedFiles);
+        }
+        deleteFiles(deletedFiles);
+        if (deletedFiles.size > 0 || unindexedFiles.size > 0) {
+            writeIndex(buildIndex());
+        }
+    }
+
+    private void addEntry(Entry entry) {
+        entries.add(entry);
+        entriesByKey.put(entry.key, entry);
+        totalSize += entry.size;
+    }
+
+    private String buildIndex() {
+        StringBuilder sb = new StringBuilder();
+        for (Entry entry : entries) {
+            sb.append(entry.key).append('\n');
+        }
+        return sb.toString();
+    }
+
+    private void writeIndex(String index) {
+        FileHandle indexFile = directory.child(INDEX_FILE_NAME);
+        try {
+            indexFile.writeString(index, false);
+        } catch (RuntimeException e) {
+            Gdx.app.error(TAG, "Failed to write the cache index " + indexFile.path(), e);
+        }
+    }
+
+    private static void writeEntry(FileHandle file, long contentHash, int imageIndex, int decodeFlags, BasisuMipChain mipChain) {
+        int levelCount = mipChain.getLevelCount();
+        DataOutputStream out = null;
+        try {
+            out = new DataOutputStream(new BufferedOutputStream(file.write(false)));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(contentHash);
+            out.writeInt(imageIndex);
+            out.writeInt(mipChain.getTextureFormat().getId());
+            out.writeInt(decodeFlags);
+            out.writeInt(levelCount);
+            for (int level = 0; level < levelCount; level++) {
+                out.writeInt(mipChain.getLevelOffset(level));
+                out.writeInt(mipChain.getLevelSize(level));
+                out.writeInt(mipChain.getLevelWidth(level));
+                out.writeInt(mipChain.getLevelHeight(level));
+            }
+
+            ByteBuffer data = mipChain.getData().duplicate();
+            ((Buffer)data).position(0);
+            ((Buffer)data).limit(mipChain.getTotalSize());
+            byte[] chunk = new byte[1024 * 64];
+            while (data.hasRemaining()) {
+                int length = Math.min(chunk.length, data.remaining());
+                data.get(chunk, 0, length);
+                out.write(chunk, 0, length);
+            }
+            out.flush();
+        } catch (IOException e) {
+            throw new BasisuGdxException("Couldn't write file '" + file + "'", e);
+        } finally {
+            StreamUtils.closeQuietly(out);
+        }
+    }
+
+    /**
+     * @return the mip chain over the entry data or null if the entry doesn't match the key.
+     */
+    private static BasisuMipChain readEntry(ByteBuffer fileBuffer, long contentHash, int imageIndex,
+                                            BasisuTranscoderTextureFormat format, int decodeFlags, int levelCount) {
+        // The unsafe buffers are created with the native byte order.
+        fileBuffer.order(ByteOrder.BIG_ENDIAN);
+        if (fileBuffer.limit() < HEADER_SIZE ||
+                fileBuffer.getInt(0) != MAGIC ||
+                fileBuffer.getInt(4) != VERSION ||
+                fileBuffer.getLong(8) != contentHash ||
+                fileBuffer.getInt(16) != imageIndex ||
+                fileBuffer.getInt(20) != format.getId() ||
+                fileBuffer.getInt(24) != decodeFlags ||
+                fileBuffer.getInt(28) != levelCount) {
+            return null;
+        }
+
+        int dataOffset = HEADER_SIZE + LEVEL_ENTRY_SIZE * levelCount;
+        if (fileBuffer.limit() < dataOffset) {
+            return null;
+        }
+        int[] levelTable = new int[levelCount * BasisuMipChain.LEVEL_TABLE_STRIDE];
+        for (int i = 0; i < levelTable.length; i++) {
+            levelTable[i] = fileBuffer.getInt(HEADER_SIZE + i * 4);
+        }
+        if (!isLevelTableValid(levelTable, levelCount, fileBuffer.limit() - dataOffset)) {
+            return null;
+        }
+
+        ByteBuffer data = fileBuffer.duplicate();
+        ((Buffer)data).position(dataOffset);
+        return new CachedMipChain(format, data.slice(), levelTable, fileBuffer);
+    }
+
+    /**
+     * Checks that every level (offset, size, width, height) lies within the data, the levels go in order with no overlaps,
+     * and the last one ends exactly at the end of the data.
+     */
+    static boolean isLevelTableValid(int[] levelTable, int levelCount, int dataSize) {
+        long levelEnd = 0;
+        for (int level = 0; level < levelCount; level++) {
+            int index = level * BasisuMipChain.LEVEL_TABLE_STRIDE;
+            int offset = levelTable[index + BasisuMipChain.LEVEL_OFFSET];
+            int size = levelTable[index + BasisuMipChain.LEVEL_SIZE];
+            int width = levelTable[index + BasisuMipChain.LEVEL_WIDTH];
+            int height = levelTable[index + BasisuMipChain.LEVEL_HEIGHT];
+            if (offset < levelEnd || size <= 0 || width <= 0 || height <= 0) {
+                return false;
+            }
+            levelEnd = (long)offset + size;
+            if (levelEnd > dataSize) {
+                return false;
+            }
+        }
+        return levelEnd == dataSize;
+    }
+
+    private static void releaseFileBuffer(ByteBuffer fileBuffer) {
+        if (BasisuBufferUtils.isUnsafeByteBuffer(fileBuffer)) {
+            BasisuBufferUtils.disposeUnsafeByteBuffer(fileBuffer);
+        } else if (BasisuBufferUtils.isMappedByteBuffer(fileBuffer)) {
+            BasisuBufferUtils.disposeMappedByteBuffer(fileBuffer);
+        }
+    }
+
+    private static class Entry {
+        final String key;
+        final long size;
+
+        Entry(String key, long size) {
+            this.key = key;
+            this.size = size;
+        }
+    }
+
+    /** A mip chain that views the data portion of a cache entry file buffer. */
+    private static class CachedMipChain extends BasisuMipChain {
+        private final ByteBuffer fileBuffer;
+
+        CachedMipChain(BasisuTranscoderTextureFormat textureFormat, ByteBuffer data, int[] levelTable, ByteBuffer fileBuffer) {
+            super(textureFormat, data, levelTable);
+            this.fileBuffer = fileBuffer;
+        }
+
+        @Override
+        protected void releaseData(ByteBuffer data) {
+            releaseFileBuffer(fileBuffer);
+        }
+    }
+}
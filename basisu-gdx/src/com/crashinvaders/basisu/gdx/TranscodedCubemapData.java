@@ -0,0 +1,316 @@
+package com.crashinvaders.basisu.gdx;
+
+import com.badlogic.gdx.Application;
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.graphics.CubemapData;
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.async.AsyncExecutor;
+import com.crashinvaders.basisu.wrapper.BasisuDecodeFlags;
+import com.crashinvaders.basisu.wrapper.BasisuMipChain;
+import com.crashinvaders.basisu.wrapper.BasisuTranscoderTextureFormat;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The common part of the Basis and KTX2 cubemap data ({@link BasisuCubemapData} and {@link Ktx2CubemapData}).
+ * All six faces are transcoded (with the whole mipmap chain) from a single encoded data instance,
+ * optionally in parallel, and uploaded to the matching cube map targets in the GL order: +X, -X, +Y, -Y, +Z, -Z.
+ * The subclasses only describe where the faces are located within the file.
+ * @param <D> the encoded data type
+ */
+public abstract class TranscodedCubemapData<D extends Disposable> implements CubemapData, Disposable {
+
+    static final int FACE_COUNT = 6;
+
+    private final String tag;
+    private final FileHandle file;  // May be null.
+
+    private BasisuTextureFormatSelector formatSelector = BasisuGdxUtils.defaultFormatSelector;
+    private boolean useMipMaps = true;
+    /** Transcodes the faces concurrently when set. */
+    private AsyncExecutor transcodeExecutor = null;
+    private int decodeFlags = BasisuDecodeFlags.NONE;
+    private boolean memoryMapped = false;
+
+    private D data;
+
+    /** The transcoded mipmap chain of each face. */
+    private BasisuMipChain[] transcodedFaces = null;
+    private BasisuTranscoderTextureFormat transcodeFormat = null;
+
+    private int width = 0;
+    private int height = 0;
+    private boolean isPrepared = false;
+
+    TranscodedCubemapData(String tag, FileHandle file, D data) {
+        this.tag = tag;
+        this.file = file;
+        this.data = data;
+    }
+
+    /** Reads the encoded data from the file on {@link #prepare()}. */
+    abstract D loadData(FileHandle file, boolean memoryMapped);
+
+    /**
+     * Checks the encoded data holds the cubemap.
+     * @throws BasisuGdxException if the data cannot be loaded as a cubemap
+     */
+    abstract void validateData(D data);
+
+    abstract int getFaceWidth(D data);
+
+    abstract int getFaceHeight(D data);
+
+    /** @return the total number of the mipmap levels of a face. */
+    abstract int getLevelCount(D data);
+
+    abstract BasisuTranscoderTextureFormat resolveTextureFormat(BasisuTextureFormatSelector formatSelector, D data);
+
+    abstract BasisuMipChain allocateFaceMipChain(D data, int faceIndex, BasisuTranscoderTextureFormat format, int levelCount);
+
+    /** Must be safe to call from multiple threads. */
+    abstract void transcodeFaceLevel(D data, int faceIndex, int level, BasisuTranscoderTextureFormat format, ByteBuffer outBuffer, int decodeFlags);
+
+    /**
+     * @return the GPU compressed texture format selector to be used to select the format to transcode to
+     */
+    public BasisuTextureFormatSelector getTextureFormatSelector() {
+        return formatSelector;
+    }
+
+    /**
+     * @param formatSelector  the GPU compressed texture format selector to be used to select the format to transcode to
+     */
+    public void setTextureFormatSelector(BasisuTextureFormatSelector formatSelector) {
+        this.formatSelector = formatSelector;
+    }
+
+    /**
+     * Shortcut method to lock the transcoder to the specific texture format.
+     * @see BasisuTextureData#setTextureFormatSelector(BasisuTranscoderTextureFormat)
+     */
+    public void setTextureFormatSelector(BasisuTranscoderTextureFormat format) {
+        this.formatSelector = new BasisuTextureFormatSelector.Fixed(format);
+    }
+
+    /**
+     * @return the executor to transcode the faces with, or null if they are transcoded sequentially.
+     */
+    public AsyncExecutor getTranscodeExecutor() {
+        return transcodeExecutor;
+    }
+
+    /**
+     * Enables the concurrent face transcoding during {@link #prepare()}.
+     * The first face is still transcoded on the thread that calls {@link #prepare()},
+     * the rest of the faces are submitted to the executor.
+     * The executor is not managed by the cubemap data and should be disposed by the owner.
+     * @param transcodeExecutor the executor to use, or null (default) to transcode the faces sequentially
+     */
+    public void setTranscodeExecutor(AsyncExecutor transcodeExecutor) {
+        this.transcodeExecutor = transcodeExecutor;
+    }
+
+    /**
+     * @return the decode flags to transcode the cubemap with.
+     * @see BasisuDecodeFlags
+     */
+    public int getDecodeFlags() {
+        return decodeFlags;
+    }
+
+    /**
+     * @param decodeFlags a combination of the {@link BasisuDecodeFlags} constants to transcode the cubemap with.
+     */
+    public void setDecodeFlags(int decodeFlags) {
+        this.decodeFlags = BasisuDecodeFlags.validate(decodeFlags);
+    }
+
+    /**
+     * @return whether the cubemap file is memory-mapped instead of being read during {@link #prepare()}.
+     */
+    public boolean isMemoryMapped() {
+        return memoryMapped;
+    }
+
+    /**
+     * @param memoryMapped whether to map the cubemap file into memory instead of reading it during {@link #prepare()}.
+     * @see BasisuTextureData#setMemoryMapped(boolean)
+     */
+    public void setMemoryMapped(boolean memoryMapped) {
+        this.memoryMapped = memoryMapped;
+    }
+
+    /**
+     * @param useMipMaps whether to transcode and upload the whole mip chain of the faces (true by default),
+     *                   or only the base level otherwise. Takes effect on the next {@link #prepare()}.
+     */
+    public void setUseMipMaps(boolean useMipMaps) {
+        this.useMipMaps = useMipMaps;
+    }
+
+    /**
+     * @return whether the whole mip chain of the faces is transcoded and uploaded
+     * (may get reset by {@link #prepare()} where the platform can't use the mip chain, e.g. a non-power-of-two cubemap on WebGL1).
+     */
+    public boolean useMipMaps() {
+        return useMipMaps;
+    }
+
+    @Override
+    public boolean isPrepared() {
+        return isPrepared;
+    }
+
+    @Override
+    public void prepare() {
+        if (isPrepared) throw new GdxRuntimeException("Already prepared");
+        if (file == null && data == null) throw new GdxRuntimeException("Can only load once from the encoded data");
+        if (file != null) {
+            data = loadData(file, memoryMapped);
+        }
+
+        try {
+            validateData(data);
+
+            width = getFaceWidth(data);
+            height = getFaceHeight(data);
+
+            transcodeFormat = resolveTextureFormat(formatSelector, data);
+            Gdx.app.debug(tag, getLogPrefix() + "Transcoding cubemap faces to the " + transcodeFormat + " format");
+
+            int transcodeLevels = 1;
+            if (useMipMaps) {
+                transcodeLevels = getLevelCount(data);
+            }
+            // WebGL1 rejects any mip level beyond 0 on a non-power-of-two texture (desktop GL doesn't care).
+            if (transcodeLevels > 1 && Gdx.app.getType() == Application.ApplicationType.WebGL) {
+                if (!MathUtils.isPowerOfTwo(width) || !MathUtils.isPowerOfTwo(height)) {
+                    Gdx.app.error(tag, getLogPrefix() +
+                            "Non-power-of-two cubemap, WebGL1 can't use its mip chain - loading level 0 only.");
+                    transcodeLevels = 1;
+                    useMipMaps = false;
+                }
+            }
+
+            // The faces of the same level are of the same size, so every face gets the same mip chain layout.
+            transcodedFaces = new BasisuMipChain[FACE_COUNT];
+            for (int face = 0; face < FACE_COUNT; face++) {
+                transcodedFaces[face] = allocateFaceMipChain(data, face, transcodeFormat, transcodeLevels);
+            }
+            BasisuGdxUtils.runIndexedTasks(FACE_COUNT, transcodeExecutor, this::transcodeFace);
+
+            BasisuMipChain mipChain = transcodedFaces[0];
+            for (int level = 0; level < mipChain.getLevelCount(); level++) {
+                Gdx.app.debug(tag, getLogPrefix() + "Transcoded [mipmap:" + level + "] " +
+                        "[size:" + mipChain.getLevelWidth(level) + "x" + mipChain.getLevelHeight(level) + "x" + FACE_COUNT + "] " +
+                        "[memory:" + MathUtils.round(mipChain.getLevelSize(level) * FACE_COUNT / 1024.0f) + "kB]");
+            }
+        } catch (RuntimeException e) {
+            releaseFaces();
+            transcodeFormat = null;
+            throw e;
+        } finally {
+            data.dispose();
+            data = null;
+        }
+        isPrepared = true;
+    }
+
+    private void transcodeFace(int faceIndex) {
+        BasisuMipChain mipChain = transcodedFaces[faceIndex];
+        for (int level = 0; level < mipChain.getLevelCount(); level++) {
+            transcodeFaceLevel(data, faceIndex, level, transcodeFormat, mipChain.getLevelData(level), decodeFlags);
+        }
+    }
+
+    private void releaseFaces() {
+        if (transcodedFaces == null) return;
+        for (BasisuMipChain mipChain : transcodedFaces) {
+            if (mipChain != null) {
+                mipChain.close();
+            }
+        }
+        transcodedFaces = null;
+    }
+
+    @Override
+    public void consumeCubemapData() {
+        if (!isPrepared) throw new GdxRuntimeException("Call prepare() before calling consumeCubemapData()");
+
+        final int glFormatCode = BasisuGdxUtils.toGlTextureFormat(transcodeFormat);
+        boolean isCompressedFormat = transcodeFormat.isCompressedFormat();
+
+        for (int face = 0; face < FACE_COUNT; face++) {
+            int target = GL20.GL_TEXTURE_CUBE_MAP_POSITIVE_X + face;
+            BasisuMipChain mipChain = transcodedFaces[face];
+
+            for (int level = 0; level < mipChain.getLevelCount(); level++) {
+                ByteBuffer data = mipChain.getLevelData(level);
+                int width = mipChain.getLevelWidth(level);
+                int height = mipChain.getLevelHeight(level);
+
+                if (isCompressedFormat) {
+                    BasisuGdxGl.glCompressedTexImage2D(target, level, glFormatCode,
+                            width, height, 0,
+                            data.capacity(), data);
+                } else {
+                    int textureType = BasisuGdxUtils.toUncompressedGlTextureType(transcodeFormat);
+                    Gdx.gl.glTexImage2D(target, level, glFormatCode,
+                            width, height, 0,
+                            glFormatCode, textureType, data);
+                }
+
+                int glError = Gdx.gl.glGetError();
+                if (glError != 0) {
+                    Gdx.app.error(tag, getLogPrefix() +
+                            "Failed to upload cubemap face " + face + " (mimpap: " + level + ") to GPU. GL error: " + glError);
+                }
+            }
+        }
+
+        // Cleanup.
+        releaseFaces();
+        transcodeFormat = null;
+
+        isPrepared = false;
+    }
+
+    /**
+     * Releases the transcoded faces if the data was prepared but never consumed (e.g. the loading was cancelled),
+     * or the encoded data the cubemap data was created with if it was never prepared.
+     */
+    @Override
+    public void dispose() {
+        releaseFaces();
+        transcodeFormat = null;
+        if (data != null) {
+            data.dispose();
+            data = null;
+        }
+        isPrepared = false;
+    }
+
+    private String getLogPrefix() {
+        return file != null ? "["+file.path()+"] " : "";
+    }
+
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    @Override
+    public int getHeight() {
+        return height;
+    }
+
+    @Override
+    public boolean isManaged() {
+        return file != null;
+    }
+}
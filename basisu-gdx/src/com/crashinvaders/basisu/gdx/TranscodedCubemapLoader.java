@@ -0,0 +1,96 @@
+package com.crashinvaders.basisu.gdx;
+
+import com.badlogic.gdx.assets.AssetDescriptor;
+import com.badlogic.gdx.assets.AssetManager;
+import com.badlogic.gdx.assets.loaders.AsynchronousAssetLoader;
+import com.badlogic.gdx.assets.loaders.CubemapLoader;
+import com.badlogic.gdx.assets.loaders.FileHandleResolver;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.graphics.Cubemap;
+import com.badlogic.gdx.graphics.Texture.TextureFilter;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.ObjectMap;
+import com.badlogic.gdx.utils.async.AsyncExecutor;
+import com.crashinvaders.basisu.wrapper.BasisuDecodeFlags;
+
+/**
+ * The common part of the {@link AssetManager} compliant Basis and KTX2 cubemap loaders
+ * ({@link BasisuCubemapLoader} and {@link Ktx2CubemapLoader}).
+ * The loaders are safe to use with several cubemaps in flight.
+ */
+public abstract class TranscodedCubemapLoader extends AsynchronousAssetLoader<Cubemap, CubemapLoader.CubemapParameter> {
+
+    /** The prepared data of the assets, handed from {@link #loadAsync} to {@link #loadSync} by the asset file name. */
+    final ObjectMap<String, TranscodedCubemapData<?>> preparedData = new ObjectMap<>();
+
+    TranscodedCubemapLoader(FileHandleResolver resolver) {
+        super(resolver);
+        // We need to make sure this one is first time called
+        // on the main thread and not during async texture loading.
+        BasisuGdxUtils.initSupportedGlTextureFormats();
+    }
+
+    abstract TranscodedCubemapData<?> createCubemapData(FileHandle fileHandle, CubemapLoader.CubemapParameter parameter);
+
+    public void loadAsync(AssetManager manager, String fileName, FileHandle fileHandle, CubemapLoader.CubemapParameter parameter) {
+        TranscodedCubemapData<?> data = createCubemapData(fileHandle, parameter);
+        if (parameter instanceof TranscodedCubemapParameter) {
+            TranscodedCubemapParameter transcodedParameter = (TranscodedCubemapParameter) parameter;
+            data.setUseMipMaps(transcodedParameter.useMipmaps);
+            data.setDecodeFlags(transcodedParameter.decodeFlags);
+            data.setMemoryMapped(transcodedParameter.memoryMapped);
+            data.setTranscodeExecutor(transcodedParameter.transcodeExecutor);
+            if (transcodedParameter.formatSelector != null) {
+                data.setTextureFormatSelector(transcodedParameter.formatSelector);
+            }
+        }
+        data.prepare();
+        synchronized (this) {
+            preparedData.put(fileName, data);
+        }
+    }
+
+    public Cubemap loadSync(AssetManager manager, String fileName, FileHandle fileHandle, CubemapLoader.CubemapParameter parameter) {
+        TranscodedCubemapData<?> data;
+        synchronized (this) {
+            data = preparedData.remove(fileName);
+        }
+        boolean useMipMaps = data.useMipMaps();
+        Cubemap cubemap = new Cubemap(data);
+
+        if (parameter != null) {
+            // Only a single level is uploaded when the mipmaps are disabled (or not available on WebGL1),
+            // a mipmap filter would make the cubemap GL-incomplete then.
+            TextureFilter minFilter = (!useMipMaps && parameter.minFilter.isMipMap())
+                    ? TextureFilter.Linear : parameter.minFilter;
+            cubemap.setFilter(minFilter, parameter.magFilter);
+            cubemap.setWrap(parameter.wrapU, parameter.wrapV);
+        }
+
+        return cubemap;
+    }
+
+    public Array<AssetDescriptor> getDependencies(String fileName, FileHandle fileHandle, CubemapLoader.CubemapParameter parameter) {
+        return null;
+    }
+
+    /**
+     * The transcoding options shared by the Basis and KTX2 cubemap loader parameters.
+     */
+    public static class TranscodedCubemapParameter extends CubemapLoader.CubemapParameter {
+        public boolean useMipmaps = true;
+        public BasisuTextureFormatSelector formatSelector = null;
+        /** A combination of the {@link BasisuDecodeFlags} constants. */
+        public int decodeFlags = BasisuDecodeFlags.NONE;
+        /** Maps the cubemap file into memory instead of reading it, where possible. */
+        public boolean memoryMapped = false;
+        /**
+         * Transcodes the faces concurrently using the executor when set.
+         * The executor is not managed by the loader and should be disposed by the owner.
+         */
+        public AsyncExecutor transcodeExecutor = null;
+
+        public TranscodedCubemapParameter() {
+        }
+    }
+}
@@ -0,0 +1,357 @@
+package com.crashinvaders.basisu.gdx;
+
+import com.badlogic.gdx.Application;
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.GL30;
+import com.badlogic.gdx.graphics.TextureArrayData;
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.utils.BufferUtils;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.async.AsyncExecutor;
+import com.crashinvaders.basisu.wrapper.BasisuDecodeFlags;
+import com.crashinvaders.basisu.wrapper.BasisuTranscoderTextureFormat;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The common part of the Basis and KTX2 texture array data ({@link BasisuTextureArrayData} and {@link Ktx2TextureArrayData}).
+ * Every layer is transcoded from a single encoded data instance, optionally in parallel,
+ * right into its place within a single buffer per mipmap level, which is then uploaded with one call per level.
+ * The subclasses only describe where the layers are located within the file.
+ * <p/>
+ * Texture arrays require OpenGL ES 3.0 (WebGL2 on the web backend).
+ * The compressed formats are uploaded using {@link BasisuGdxGl#glCompressedTexImage3D}.
+ * @param <D> the encoded data type
+ */
+public abstract class TranscodedTextureArrayData<D extends Disposable> implements TextureArrayData, Disposable {
+
+    private final String tag;
+    private final FileHandle file;  // May be null.
+
+    private BasisuTextureFormatSelector formatSelector = BasisuGdxUtils.defaultFormatSelector;
+    private boolean useMipMaps = true;
+    /** Transcodes the layers concurrently when set. */
+    private AsyncExecutor transcodeExecutor = null;
+    private int decodeFlags = BasisuDecodeFlags.NONE;
+    private boolean memoryMapped = false;
+
+    private D data;
+
+    /**
+     * The transcoded data, a single buffer per mipmap level.
+     * Each buffer holds the level images of all the layers one after another, just as glCompressedTexImage3D expects them
+     * (see {@link BasisuGdxUtils#sliceArrayLayer(ByteBuffer, int, int)}).
+     */
+    private ByteBuffer[] transcodedLevels = null;
+    private int[] levelWidths = null;
+    private int[] levelHeights = null;
+    private BasisuTranscoderTextureFormat transcodeFormat = null;
+
+    private int width = 0;
+    private int height = 0;
+    private int depth = 0;
+    private int glInternalFormat = 0;
+    private int glType = GL20.GL_UNSIGNED_BYTE;
+    private boolean isPrepared = false;
+
+    TranscodedTextureArrayData(String tag, FileHandle file, D data) {
+        this.tag = tag;
+        this.file = file;
+        this.data = data;
+    }
+
+    /** Reads the encoded data from the file on {@link #prepare()}. */
+    abstract D loadData(FileHandle file, boolean memoryMapped);
+
+    /**
+     * Checks the encoded data can be loaded as a texture array.
+     * @throws BasisuGdxException otherwise
+     */
+    abstract void validateData(D data);
+
+    abstract int getLayerCount(D data);
+
+    /** @return the total number of the mipmap levels of a layer. */
+    abstract int getLevelCount(D data);
+
+    abstract int getLevelWidth(D data, int level);
+
+    abstract int getLevelHeight(D data, int level);
+
+    abstract BasisuTranscoderTextureFormat resolveTextureFormat(BasisuTextureFormatSelector formatSelector, D data);
+
+    /** @return the transcoded size of a single layer level in bytes. */
+    abstract int getTranscodedSize(D data, int level, BasisuTranscoderTextureFormat format);
+
+    /** Must be safe to call from multiple threads. */
+    abstract void transcodeLayerLevel(D data, int layerIndex, int level, BasisuTranscoderTextureFormat format, ByteBuffer outBuffer, int decodeFlags);
+
+    /**
+     * @return the GPU compressed texture format selector to be used to select the format to transcode to
+     */
+    public BasisuTextureFormatSelector getTextureFormatSelector() {
+        return formatSelector;
+    }
+
+    /**
+     * @param formatSelector  the GPU compressed texture format selector to be used to select the format to transcode to
+     */
+    public void setTextureFormatSelector(BasisuTextureFormatSelector formatSelector) {
+        this.formatSelector = formatSelector;
+    }
+
+    /**
+     * Shortcut method to lock the transcoder to the specific texture format.
+     * @see BasisuTextureData#setTextureFormatSelector(BasisuTranscoderTextureFormat)
+     */
+    public void setTextureFormatSelector(BasisuTranscoderTextureFormat format) {
+        this.formatSelector = new BasisuTextureFormatSelector.Fixed(format);
+    }
+
+    /**
+     * @return the executor to transcode the layers with, or null if they are transcoded sequentially.
+     */
+    public AsyncExecutor getTranscodeExecutor() {
+        return transcodeExecutor;
+    }
+
+    /**
+     * Enables the concurrent layer transcoding during {@link #prepare()}.
+     * The first layer is still transcoded on the thread that calls {@link #prepare()},
+     * the rest of the layers are submitted to the executor.
+     * The executor is not managed by the texture data and should be disposed by the owner.
+     * @param transcodeExecutor the executor to use, or null (default) to transcode the layers sequentially
+     */
+    public void setTranscodeExecutor(AsyncExecutor transcodeExecutor) {
+        this.transcodeExecutor = transcodeExecutor;
+    }
+
+    /**
+     * @return the decode flags to transcode the texture with.
+     * @see BasisuDecodeFlags
+     */
+    public int getDecodeFlags() {
+        return decodeFlags;
+    }
+
+    /**
+     * @param decodeFlags a combination of the {@link BasisuDecodeFlags} constants to transcode the texture with.
+     */
+    public void setDecodeFlags(int decodeFlags) {
+        this.decodeFlags = BasisuDecodeFlags.validate(decodeFlags);
+    }
+
+    /**
+     * @return whether the texture file is memory-mapped instead of being read during {@link #prepare()}.
+     */
+    public boolean isMemoryMapped() {
+        return memoryMapped;
+    }
+
+    /**
+     * @param memoryMapped whether to map the texture file into memory instead of reading it during {@link #prepare()}.
+     * @see BasisuTextureData#setMemoryMapped(boolean)
+     */
+    public void setMemoryMapped(boolean memoryMapped) {
+        this.memoryMapped = memoryMapped;
+    }
+
+    /**
+     * @param useMipMaps whether to transcode and upload the whole mip chain of the layers (true by default),
+     *                   or only the base level otherwise. Takes effect on the next {@link #prepare()}.
+     */
+    public void setUseMipMaps(boolean useMipMaps) {
+        this.useMipMaps = useMipMaps;
+    }
+
+    /**
+     * @return whether the whole mip chain of the layers is transcoded and uploaded.
+     */
+    public boolean useMipMaps() {
+        return useMipMaps;
+    }
+
+    @Override
+    public boolean isPrepared() {
+        return isPrepared;
+    }
+
+    @Override
+    public void prepare() {
+        if (isPrepared) throw new GdxRuntimeException("Already prepared");
+        if (file == null && data == null) throw new GdxRuntimeException("Can only load once from the encoded data");
+        if (file != null) {
+            data = loadData(file, memoryMapped);
+        }
+
+        try {
+            validateData(data);
+
+            width = getLevelWidth(data, 0);
+            height = getLevelHeight(data, 0);
+            depth = getLayerCount(data);
+
+            transcodeFormat = resolveTextureFormat(formatSelector, data);
+            glInternalFormat = BasisuGdxUtils.toGlTextureFormat(transcodeFormat);
+            glType = transcodeFormat.isCompressedFormat()
+                    ? GL20.GL_UNSIGNED_BYTE
+                    : BasisuGdxUtils.toUncompressedGlTextureType(transcodeFormat);
+            Gdx.app.debug(tag, getLogPrefix() + "Transcoding " + depth + " layer(s) to the " + transcodeFormat + " format");
+
+            int levelCount = useMipMaps ? getLevelCount(data) : 1;
+            allocateLevels(levelCount);
+            BasisuGdxUtils.runIndexedTasks(depth, transcodeExecutor, this::transcodeLayer);
+
+            for (int level = 0; level < levelCount; level++) {
+                Gdx.app.debug(tag, getLogPrefix() + "Transcoded [mipmap:" + level + "] " +
+                        "[size:" + levelWidths[level] + "x" + levelHeights[level] + "x" + depth + "] " +
+                        "[memory:" + MathUtils.round(transcodedLevels[level].capacity() / 1024.0f) + "kB]");
+            }
+        } catch (RuntimeException e) {
+            releaseLevels();
+            transcodeFormat = null;
+            throw e;
+        } finally {
+            data.dispose();
+            data = null;
+        }
+        isPrepared = true;
+    }
+
+    private void allocateLevels(int levelCount) {
+        transcodedLevels = new ByteBuffer[levelCount];
+        levelWidths = new int[levelCount];
+        levelHeights = new int[levelCount];
+        for (int level = 0; level < levelCount; level++) {
+            levelWidths[level] = getLevelWidth(data, level);
+            levelHeights[level] = getLevelHeight(data, level);
+            int layerSize = getTranscodedSize(data, level, transcodeFormat);
+            transcodedLevels[level] = allocateLevel(layerSize * depth);
+        }
+    }
+
+    private static ByteBuffer allocateLevel(int size) {
+        // GWT doesn't support unsafe byte buffers.
+        if (Gdx.app.getType() == Application.ApplicationType.WebGL) {
+            return BufferUtils.newByteBuffer(size);
+        }
+        return BasisuBufferUtils.newUnsafeByteBuffer(size);
+    }
+
+    /** Transcodes every level of the layer right into its place within the level buffers. */
+    private void transcodeLayer(int layerIndex) {
+        for (int level = 0; level < transcodedLevels.length; level++) {
+            ByteBuffer layerData = BasisuGdxUtils.sliceArrayLayer(transcodedLevels[level], depth, layerIndex);
+            transcodeLayerLevel(data, layerIndex, level, transcodeFormat, layerData, decodeFlags);
+        }
+    }
+
+    private void releaseLevels() {
+        if (transcodedLevels == null) return;
+        for (ByteBuffer levelData : transcodedLevels) {
+            if (levelData != null && BasisuBufferUtils.isUnsafeByteBuffer(levelData)) {
+                BasisuBufferUtils.disposeUnsafeByteBuffer(levelData);
+            }
+        }
+        transcodedLevels = null;
+        levelWidths = null;
+        levelHeights = null;
+    }
+
+    @Override
+    public void consumeTextureArrayData() {
+        if (!isPrepared) throw new GdxRuntimeException("Call prepare() before calling consumeTextureArrayData()");
+
+        // TextureArray allocates the storage with glTexImage3D() prior to this call,
+        // which is an invalid operation for the compressed formats. That error is expected, the levels are redefined below anyway.
+        boolean isCompressedFormat = transcodeFormat.isCompressedFormat();
+        int allocationError = Gdx.gl.glGetError();
+        if (allocationError != 0) {
+            if (isCompressedFormat) {
+                Gdx.app.debug(tag, getLogPrefix() +
+                        "Skipped the expected GL error of the uncompressed texture array storage allocation: " + allocationError);
+            } else {
+                Gdx.app.error(tag, getLogPrefix() +
+                        "Failed to allocate texture array storage. GL error: " + allocationError);
+            }
+        }
+
+        for (int level = 0; level < transcodedLevels.length; level++) {
+            ByteBuffer data = transcodedLevels[level];
+            if (isCompressedFormat) {
+                BasisuGdxGl.glCompressedTexImage3D(GL30.GL_TEXTURE_2D_ARRAY, level, glInternalFormat,
+                        levelWidths[level], levelHeights[level], depth, 0,
+                        data.capacity(), data);
+            } else {
+                Gdx.gl30.glTexImage3D(GL30.GL_TEXTURE_2D_ARRAY, level, glInternalFormat,
+                        levelWidths[level], levelHeights[level], depth, 0,
+                        glInternalFormat, glType, data);
+            }
+
+            int glError = Gdx.gl.glGetError();
+            if (glError != 0) {
+                Gdx.app.error(tag, getLogPrefix() +
+                        "Failed to upload texture array (mimpap: " + level + ") to GPU. GL error: " + glError);
+            }
+        }
+        Gdx.gl.glTexParameteri(GL30.GL_TEXTURE_2D_ARRAY, GL30.GL_TEXTURE_MAX_LEVEL, transcodedLevels.length - 1);
+
+        // Cleanup.
+        releaseLevels();
+        transcodeFormat = null;
+
+        isPrepared = false;
+    }
+
+    /**
+     * Releases the transcoded layers if the data was prepared but never consumed (e.g. the loading was cancelled),
+     * or the encoded data the texture data was created with if it was never prepared.
+     */
+    @Override
+    public void dispose() {
+        releaseLevels();
+        transcodeFormat = null;
+        if (data != null) {
+            data.dispose();
+            data = null;
+        }
+        isPrepared = false;
+    }
+
+    private String getLogPrefix() {
+        return file != null ? "["+file.path()+"] " : "";
+    }
+
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    @Override
+    public int getHeight() {
+        return height;
+    }
+
+    @Override
+    public int getDepth() {
+        return depth;
+    }
+
+    @Override
+    public boolean isManaged() {
+        return file != null;
+    }
+
+    @Override
+    public int getInternalFormat() {
+        return glInternalFormat;
+    }
+
+    @Override
+    public int getGLType() {
+        return glType;
+    }
+}
@@ -0,0 +1,103 @@
+package com.crashinvaders.basisu.gdx;
+
+import com.badlogic.gdx.assets.AssetDescriptor;
+import com.badlogic.gdx.assets.AssetLoaderParameters;
+import com.badlogic.gdx.assets.AssetManager;
+import com.badlogic.gdx.assets.loaders.AsynchronousAssetLoader;
+import com.badlogic.gdx.assets.loaders.FileHandleResolver;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.graphics.Texture.TextureFilter;
+import com.badlogic.gdx.graphics.Texture.TextureWrap;
+import com.badlogic.gdx.graphics.TextureArray;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.ObjectMap;
+import com.badlogic.gdx.utils.async.AsyncExecutor;
+import com.crashinvaders.basisu.wrapper.BasisuDecodeFlags;
+
+/**
+ * The common part of the {@link AssetManager} compliant Basis and KTX2 texture array loaders
+ * ({@link BasisuTextureArrayLoader} and {@link Ktx2TextureArrayLoader}).
+ * The loaders are safe to use with several texture arrays in flight.
+ * @param <P> the loader parameter type
+ */
+public abstract class TranscodedTextureArrayLoader<P extends TranscodedTextureArrayLoader.TranscodedTextureArrayParameter>
+        extends AsynchronousAssetLoader<TextureArray, P> {
+
+    /** The prepared data of the assets, handed from {@link #loadAsync} to {@link #loadSync} by the asset file name. */
+    final ObjectMap<String, TranscodedTextureArrayData<?>> preparedData = new ObjectMap<>();
+
+    TranscodedTextureArrayLoader(FileHandleResolver resolver) {
+        super(resolver);
+        // We need to make sure this one is first time called
+        // on the main thread and not during async texture loading.
+        BasisuGdxUtils.initSupportedGlTextureFormats();
+    }
+
+    abstract TranscodedTextureArrayData<?> createTextureData(FileHandle fileHandle);
+
+    public void loadAsync(AssetManager manager, String fileName, FileHandle fileHandle, P parameter) {
+        TranscodedTextureArrayData<?> data = createTextureData(fileHandle);
+        if (parameter != null) {
+            data.setUseMipMaps(parameter.useMipmaps);
+            data.setDecodeFlags(parameter.decodeFlags);
+            data.setMemoryMapped(parameter.memoryMapped);
+            data.setTranscodeExecutor(parameter.transcodeExecutor);
+            if (parameter.formatSelector != null) {
+                data.setTextureFormatSelector(parameter.formatSelector);
+            }
+        }
+        data.prepare();
+        synchronized (this) {
+            preparedData.put(fileName, data);
+        }
+    }
+
+    public TextureArray loadSync(AssetManager manager, String fileName, FileHandle fileHandle, P parameter) {
+        TranscodedTextureArrayData<?> data;
+        synchronized (this) {
+            data = preparedData.remove(fileName);
+        }
+        boolean useMipMaps = data.useMipMaps();
+        TextureArray textureArray = new TextureArray(data);
+
+        if (parameter != null) {
+            // Only a single level is uploaded when the mipmaps are disabled,
+            // a mipmap filter would make the texture GL-incomplete then.
+            TextureFilter minFilter = (!useMipMaps && parameter.minFilter.isMipMap())
+                    ? TextureFilter.Linear : parameter.minFilter;
+            textureArray.setFilter(minFilter, parameter.magFilter);
+            textureArray.setWrap(parameter.wrapU, parameter.wrapV);
+        }
+
+        return textureArray;
+    }
+
+    public Array<AssetDescriptor> getDependencies(String fileName, FileHandle fileHandle, P parameter) {
+        return null;
+    }
+
+    /**
+     * The options shared by the Basis and KTX2 texture array loader parameters.
+     */
+    public static class TranscodedTextureArrayParameter extends AssetLoaderParameters<TextureArray> {
+        public TextureFilter minFilter = TextureFilter.Nearest;
+        public TextureFilter magFilter = TextureFilter.Nearest;
+        public TextureWrap wrapU = TextureWrap.ClampToEdge;
+        public TextureWrap wrapV = TextureWrap.ClampToEdge;
+
+        public boolean useMipmaps = true;
+        public BasisuTextureFormatSelector formatSelector = null;
+        /** A combination of the {@link BasisuDecodeFlags} constants. */
+        public int decodeFlags = BasisuDecodeFlags.NONE;
+        /** Maps the texture file into memory instead of reading it, where possible. */
+        public boolean memoryMapped = false;
+        /**
+         * Transcodes the layers concurrently using the executor when set.
+         * The executor is not managed by the loader and should be disposed by the owner.
+         */
+        public AsyncExecutor transcodeExecutor = null;
+
+        public TranscodedTextureArrayParameter() {
+        }
+    }
+}
@@ -0,0 +1,236 @@
+package com.crashinvaders.basisu.gdx;
+
+import com.badlogic.gdx.Files;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.ObjectMap;
+import com.crashinvaders.basisu.wrapper.BasisuMipChain;
+
+/**
+ * An optional in-memory cache of the recently transcoded textures.
+ * The screens that unload and load the same textures again (e.g. level restarts) get them with no file reading or transcoding.
+ * <p/>
+ * The transcoded mip chains are kept in the native memory while their total size fits the budget,
+ * the least recently used ones are evicted first.
+ * The entries are keyed by the texture file, the image index, the format selector, the decode flags and whether the mipmaps are requested.
+ * The texture format selector takes part in the key by {@link Object#equals(Object)},
+ * so reuse the same selector instance (or implement equals()) for the textures to share the entries.
+ * <p/>
+ * {@link BasisuTextureData} and {@link Ktx2TextureData} consult the cache before reading the file
+ * (see {@link BasisuGdxUtils#defaultTranscodedTextureCache} to enable it for all the instances).
+ * A single instance may be shared between the threads.
+ */
+public class TranscodedTextureCache {
+
+    private final long maxTotalSize;
+
+    /** The entries in the usage order, the least recently used first. */
+    private final Array<Entry> entries = new Array<>();
+    private final ObjectMap<Key, Entry> entriesByKey = new ObjectMap<>();
+    private long totalSize = 0;
+
+    private int hitCount = 0;
+    private int missCount = 0;
+    private int evictionCount = 0;
+
+    /**
+     * @param maxTotalSize the total size budget of all the cached mip chains in bytes
+     */
+    public TranscodedTextureCache(long maxTotalSize) {
+        this.maxTotalSize = maxTotalSize;
+    }
+
+    public long getMaxTotalSize() {
+        return maxTotalSize;
+    }
+
+    /**
+     * @return the total size of all the cached mip chains in bytes.
+     */
+    public synchronized long getTotalSize() {
+        return totalSize;
+    }
+
+    public synchronized int getEntryCount() {
+        return entries.size;
+    }
+
+    /**
+     * @return the number of the {@link #acquire} calls that found the entry since the cache creation.
+     */
+    public synchronized int getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * @return the number of the {@link #acquire} calls that didn't find the entry since the cache creation.
+     */
+    public synchronized int getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * @return the number of the entries evicted to fit the budget (or by {@link #clear()}) since the cache creation.
+     */
+    public synchronized int getEvictionCount() {
+        return evictionCount;
+    }
+
+    /**
+     * Looks up the transcoded texture. The found entry is locked in memory until {@link Entry#release()} is called.
+     * @return the cache entry or null if there's no such one.
+     */
+    public synchronized Entry acquire(FileHandle file, int imageIndex, BasisuTextureFormatSelector formatSelector, int decodeFlags, boolean useMipMaps) {
+        Entry entry = entriesByKey.get(new Key(file, imageIndex, formatSelector, decodeFlags, useMipMaps));
+        if (entry == null) {
+            missCount++;
+            return null;
+        }
+        // Move to the most recently used end.
+        entries.removeValue(entry, true);
+        entries.add(entry);
+        entry.refCount++;
+        hitCount++;
+        return entry;
+    }
+
+    /**
+     * Puts the transcoded texture into the cache. The least recently used entries get evicted to fit the new one within the budget.
+     * @param useMipMaps whether the mipmaps were requested (the key part)
+     * @param mipChain the transcoded mip chain. The cache takes the ownership of it, unless null is returned.
+     * @param mipMapsResolved whether the mipmaps are actually used by the texture (may be disabled regardless of the request, e.g. on WebGL1)
+     * @return the cache entry for the texture, already acquired (call {@link Entry#release()} once done),
+     * or null if the mip chain was not cached (it exceeds the budget or there's already such an entry).
+     */
+    public synchronized Entry put(FileHandle file, int imageIndex, BasisuTextureFormatSelector formatSelector, int decodeFlags, boolean useMipMaps,
+                                  BasisuMipChain mipChain, boolean mipMapsResolved) {
+        Key key = new Key(file, imageIndex, formatSelector, decodeFlags, useMipMaps);
+        long size = mipChain.getTotalSize();
+        if (size > maxTotalSize || entriesByKey.containsKey(key)) {
+            return null;
+        }
+        while (totalSize + size > maxTotalSize && entries.size > 0) {
+            evict(entries.first());
+        }
+
+        Entry entry = new Entry(this, key, mipChain, mipMapsResolved);
+        entry.refCount = 1;
+        entries.add(entry);
+        entriesByKey.put(key, entry);
+        totalSize += size;
+        return entry;
+    }
+
+    /**
+     * Evicts all the entries. The entries that are still acquired get released once the last user is done with them.
+     */
+    public synchronized void clear() {
+        while (entries.size > 0) {
+            evict(entries.first());
+        }
+    }
+
+    private void evict(Entry entry) {
+        entries.removeValue(entry, true);
+        entriesByKey.remove(entry.key);
+        totalSize -= entry.mipChain.getTotalSize();
+        evictionCount++;
+        entry.evicted = true;
+        if (entry.refCount == 0) {
+            entry.mipChain.close();
+        }
+    }
+
+    private synchronized void release(Entry entry) {
+        if (entry.refCount <= 0) {
+            throw new IllegalStateException("The cache entry is not acquired.");
+        }
+        entry.refCount--;
+        if (entry.refCount == 0 && entry.evicted) {
+            entry.mipChain.close();
+        }
+    }
+
+    /**
+     * A cached transcoded texture. The mip chain stays valid until the entry is released.
+     */
+    public static class Entry {
+        private final TranscodedTextureCache cache;
+        private final Key key;
+        private final BasisuMipChain mipChain;
+        private final boolean useMipMaps;
+        /** Guarded by the cache. */
+        private int refCount = 0;
+        private boolean evicted = false;
+
+        private Entry(TranscodedTextureCache cache, Key key, BasisuMipChain mipChain, boolean useMipMaps) {
+            this.cache = cache;
+            this.key = key;
+            this.mipChain = mipChain;
+            this.useMipMaps = useMipMaps;
+        }
+
+        /**
+         * @return the transcoded mip chain. It's owned by the cache and must not be closed.
+         */
+        public BasisuMipChain getMipChain() {
+            return mipChain;
+        }
+
+        /**
+         * @return whether the texture uses the mipmaps.
+         */
+        public boolean useMipMaps() {
+            return useMipMaps;
+        }
+
+        /**
+         * Unlocks the entry, the mip chain must not be accessed afterwards.
+         */
+        public void release() {
+            cache.release(this);
+        }
+    }
+
+    private static class Key {
+        final Files.FileType fileType;
+        final String path;
+        final int imageIndex;
+        final BasisuTextureFormatSelector formatSelector;
+        final int decodeFlags;
+        final boolean useMipMaps;
+
+        Key(FileHandle file, int imageIndex, BasisuTextureFormatSelector formatSelector, int decodeFlags, boolean useMipMaps) {
+            this.fileType = file.type();
+            this.path = file.path();
+            this.imageIndex = imageIndex;
+            this.formatSelector = formatSelector;
+            this.decodeFlags = decodeFlags;
+            this.useMipMaps = useMipMaps;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Key key = (Key) o;
+            return imageIndex == key.imageIndex &&
+                    decodeFlags == key.decodeFlags &&
+                    useMipMaps == key.useMipMaps &&
+                    fileType == key.fileType &&
+                    path.equals(key.path) &&
+                    formatSelector.equals(key.formatSelector);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = fileType.hashCode();
+            result = 31 * result + path.hashCode();
+            result = 31 * result + imageIndex;
+            result = 31 * result + formatSelector.hashCode();
+            result = 31 * result + decodeFlags;
+            result = 31 * result + (useMipMaps ? 1 : 0);
+            return result;
+        }
+    }
+}
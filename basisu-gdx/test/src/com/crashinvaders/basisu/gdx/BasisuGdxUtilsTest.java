@@ -4,10 +4,27 @@ import com.badlogic.gdx.ApplicationAdapter;
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.backends.headless.HeadlessApplication;
 import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.graphics.GL20;
 import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.TextureData;
+import com.badlogic.gdx.graphics.g2d.TextureAtlas;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.async.AsyncExecutor;
+import com.badlogic.gdx.utils.async.AsyncResult;
+import com.crashinvaders.basisu.wrapper.BasisuFileDescription;
+import com.crashinvaders.basisu.wrapper.BasisuMipChain;
+import com.crashinvaders.basisu.wrapper.BasisuTextureFormat;
 import com.crashinvaders.basisu.wrapper.BasisuTranscoderTextureFormat;
+import com.crashinvaders.basisu.wrapper.BasisuWrapperException;
+import com.crashinvaders.basisu.wrapper.Ktx2FileDescription;
 import org.junit.*;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.*;
+
 public class BasisuGdxUtilsTest {
 
     private static TestAppListener appListener;
@@ -52,4 +69,562 @@ public class BasisuGdxUtilsTest {
         textureData.setTextureFormatSelector(BasisuTranscoderTextureFormat.ETC2_RGBA);
         textureData.prepare();
     }
+
+    /** Only the matching texture types can be prepared as cubemaps and texture arrays (kodim3 is a regular 2D texture). */
+    @Test
+    public void testTextureTypeRejection() {
+        assertPrepareFails(new BasisuCubemapData(Gdx.files.classpath("kodim3.basis")));
+        assertPrepareFails(new BasisuTextureArrayData(Gdx.files.classpath("kodim3.basis")));
+        assertPrepareFails(new Ktx2CubemapData(Gdx.files.classpath("screen_stuff.uastc.ktx2")));
+    }
+
+    private static void assertPrepareFails(TranscodedCubemapData<?> data) {
+        try {
+            data.prepare();
+            fail("The texture type is expected to be rejected.");
+        } catch (BasisuGdxException expected) {
+            assertFalse(data.isPrepared());
+        }
+    }
+
+    private static void assertPrepareFails(TranscodedTextureArrayData<?> data) {
+        try {
+            data.prepare();
+            fail("The texture type is expected to be rejected.");
+        } catch (BasisuGdxException expected) {
+            assertFalse(data.isPrepared());
+        }
+    }
+
+    @Test
+    public void testCubemapIndexBounds() {
+        BasisuCubemapData.checkCubemapIndex(0, 6);
+        BasisuCubemapData.checkCubemapIndex(1, 12);
+        assertCubemapIndexFails(1, 6);
+        assertCubemapIndexFails(-1, 6);
+        // An incomplete trailing cubemap doesn't count.
+        assertCubemapIndexFails(0, 5);
+        assertCubemapIndexFails(1, 11);
+
+        try {
+            new BasisuCubemapData(Gdx.files.classpath("kodim3.basis"), -1);
+            fail("A negative cubemap index is expected to be rejected.");
+        } catch (BasisuGdxException expected) {
+        }
+    }
+
+    private static void assertCubemapIndexFails(int cubemapIndex, int totalImages) {
+        try {
+            BasisuCubemapData.checkCubemapIndex(cubemapIndex, totalImages);
+            fail("The cubemap index " + cubemapIndex + " is expected to be out of bounds for " + totalImages + " images.");
+        } catch (BasisuGdxException expected) {
+        }
+    }
+
+    /** The file header is parsed in Java, no native calls or full file reads are involved. */
+    @Test
+    public void testReadBasisFileDescription() {
+        FileHandle textureFile = Gdx.files.classpath("kodim3.basis");
+        BasisuFileDescription fileInfo = BasisuGdxUtils.readBasisFileDescription(textureFile);
+        assertEquals(BasisuTextureFormat.ETC1S, fileInfo.getTextureFormat());
+        assertEquals(1, fileInfo.getTotalImages());
+        assertEquals(768, fileInfo.getImage(0).getOrigWidth());
+        assertEquals(512, fileInfo.getImage(0).getOrigHeight());
+    }
+
+    /** With no GL ES 3.0 available (the headless backend), the whole mip chain is uploaded on creation. */
+    @Test
+    public void testProgressiveTextureFallback() {
+        BasisuData basisuData = new BasisuData(Gdx.files.classpath("kodim3.basis"));
+        BasisuProgressiveTexture texture = new BasisuProgressiveTexture(basisuData, 0,
+                BasisuProgressiveTexture.DEFAULT_INITIAL_LEVEL_SIZE,
+                new BasisuTextureFormatSelector.Fixed(BasisuTranscoderTextureFormat.ETC2_RGBA));
+        assertTrue(texture.isFullyResident());
+        assertTrue(texture.update());
+        assertEquals(768, texture.getWidth());
+        texture.dispose();
+    }
+
+    @Test
+    public void testProgressiveTextureInitialLevel() {
+        int[] squareSizes = {256, 128, 64, 32, 16, 8, 4, 2, 1};
+        assertEquals(2, BasisuProgressiveTexture.findInitialLevel(squareSizes, squareSizes, 64));
+        assertEquals(3, BasisuProgressiveTexture.findInitialLevel(squareSizes, squareSizes, 63));
+        assertEquals(0, BasisuProgressiveTexture.findInitialLevel(squareSizes, squareSizes, 1024));
+        // At least the smallest level is always uploaded.
+        assertEquals(8, BasisuProgressiveTexture.findInitialLevel(squareSizes, squareSizes, 0));
+
+        // Both sides must fit.
+        int[] widths = {512, 256, 128, 64, 32};
+        int[] heights = {64, 32, 16, 8, 4};
+        assertEquals(3, BasisuProgressiveTexture.findInitialLevel(widths, heights, 64));
+        assertEquals(0, BasisuProgressiveTexture.findInitialLevel(new int[]{16}, new int[]{16}, 8));
+    }
+
+    /** The texture takes the data ownership, so the data is disposed if the texture cannot be created. */
+    @Test
+    public void testProgressiveTextureCreationFailure() {
+        final boolean[] disposed = {false};
+        BasisuData basisuData = new BasisuData(Gdx.files.classpath("kodim3.basis")) {
+            @Override
+            public void dispose() {
+                disposed[0] = true;
+                super.dispose();
+            }
+        };
+        BasisuTextureFormatSelector failingSelector = new BasisuTextureFormatSelector() {
+            @Override
+            public BasisuTranscoderTextureFormat resolveTextureFormat(BasisuData data, int imageIndex) {
+                throw new BasisuGdxException("No supported format.");
+            }
+
+            @Override
+            public BasisuTranscoderTextureFormat resolveTextureFormat(Ktx2Data data) {
+                throw new BasisuGdxException("No supported format.");
+            }
+        };
+        try {
+            new BasisuProgressiveTexture(basisuData, 0, BasisuProgressiveTexture.DEFAULT_INITIAL_LEVEL_SIZE, failingSelector);
+            fail("The format selector failure must be propagated");
+        } catch (BasisuGdxException expected) {
+            // Expected.
+        }
+        assertTrue(disposed[0]);
+    }
+
+    /** Local files are mapped into memory, classpath ones fall back to the regular reading. */
+    @Test
+    public void testMemoryMappedData() throws IOException {
+        FileHandle classpathFile = Gdx.files.classpath("kodim3.basis");
+        File tempFile = File.createTempFile("kodim3", ".basis");
+        tempFile.deleteOnExit();
+        FileHandle localFile = Gdx.files.absolute(tempFile.getAbsolutePath());
+        classpathFile.copyTo(localFile);
+
+        BasisuData mappedData = new BasisuData(localFile, true);
+        assertTrue(mappedData.isMemoryMapped());
+        assertEquals(localFile.length(), mappedData.getEncodedData().capacity());
+        assertEquals(768, mappedData.getImageInfo(0).getOrigWidth());
+        // Mapped buffers are tracked by identity, an equal copy of the content is not one of them.
+        ByteBuffer contentCopy = ByteBuffer.allocateDirect(mappedData.getEncodedData().capacity());
+        contentCopy.put(mappedData.getEncodedData().duplicate()).flip();
+        assertEquals(mappedData.getEncodedData(), contentCopy);
+        assertTrue(BasisuBufferUtils.isMappedByteBuffer(mappedData.getEncodedData()));
+        assertFalse(BasisuBufferUtils.isMappedByteBuffer(contentCopy));
+        mappedData.dispose();
+        assertFalse(BasisuBufferUtils.isMappedByteBuffer(mappedData.getEncodedData()));
+
+        BasisuData readData = new BasisuData(classpathFile, true);
+        assertFalse(readData.isMemoryMapped());
+        readData.dispose();
+    }
+
+    /** The second load of the same texture is served by the cache, no transcoding involved. */
+    @Test
+    public void testTranscodeDiskCache() throws IOException {
+        File tempDir = File.createTempFile("basisu-cache", "");
+        tempDir.delete();
+        FileHandle cacheDir = Gdx.files.absolute(tempDir.getAbsolutePath());
+        TranscodeDiskCache diskCache = new TranscodeDiskCache(cacheDir, 16 * 1024 * 1024);
+
+        FileHandle textureFile = Gdx.files.classpath("kodim3.basis");
+        for (int i = 0; i < 2; i++) {
+            BasisuTextureData textureData = new BasisuTextureData(textureFile, 0);
+            textureData.setTextureFormatSelector(BasisuTranscoderTextureFormat.ETC2_RGBA);
+            textureData.setDiskCache(diskCache);
+            textureData.prepare();
+            assertEquals(768, textureData.getWidth());
+        }
+        assertEquals(1, diskCache.getMissCount());
+        assertEquals(1, diskCache.getHitCount());
+        assertEquals(1, diskCache.getEntryCount());
+
+        // The usage order and the entries survive the restart.
+        diskCache.flush();
+        assertTrue(cacheDir.child("index.txt").exists());
+        TranscodeDiskCache reopenedCache = new TranscodeDiskCache(cacheDir, 16 * 1024 * 1024);
+        assertEquals(diskCache.getTotalSize(), reopenedCache.getTotalSize());
+        reopenedCache.clear();
+        assertEquals(0, reopenedCache.getEntryCount());
+        cacheDir.deleteDirectory();
+    }
+
+    @Test
+    public void testTranscodeDiskCacheLevelTable() {
+        // Offset, size, width, height per level.
+        assertTrue(TranscodeDiskCache.isLevelTableValid(new int[]{0, 64, 8, 8, 64, 16, 4, 4}, 2, 80));
+        // Padding between the levels is fine.
+        assertTrue(TranscodeDiskCache.isLevelTableValid(new int[]{0, 64, 8, 8, 80, 16, 4, 4}, 2, 96));
+        // The data is truncated or has a tail.
+        assertFalse(TranscodeDiskCache.isLevelTableValid(new int[]{0, 64, 8, 8, 64, 16, 4, 4}, 2, 79));
+        assertFalse(TranscodeDiskCache.isLevelTableValid(new int[]{0, 64, 8, 8, 64, 16, 4, 4}, 2, 81));
+        // The last level is fine, but the first one is out of the data or overlaps.
+        assertFalse(TranscodeDiskCache.isLevelTableValid(new int[]{-16, 64, 8, 8, 64, 16, 4, 4}, 2, 80));
+        assertFalse(TranscodeDiskCache.isLevelTableValid(new int[]{0, 96, 8, 8, 64, 16, 4, 4}, 2, 80));
+        assertFalse(TranscodeDiskCache.isLevelTableValid(new int[]{0, Integer.MAX_VALUE, 8, 8, 64, 16, 4, 4}, 2, 80));
+        // Empty levels.
+        assertFalse(TranscodeDiskCache.isLevelTableValid(new int[]{0, 0, 8, 8, 0, 80, 4, 4}, 2, 80));
+        assertFalse(TranscodeDiskCache.isLevelTableValid(new int[]{0, 64, 0, 8, 64, 16, 4, 4}, 2, 80));
+    }
+
+    /** The same texture is served from the memory on the next load, no file reading or transcoding involved. */
+    @Test
+    public void testTranscodedTextureCache() {
+        TranscodedTextureCache transcodedCache = new TranscodedTextureCache(4 * 1024 * 1024);
+        FileHandle textureFile = Gdx.files.classpath("kodim3.basis");
+        BasisuTextureFormatSelector formatSelector = new BasisuTextureFormatSelector.Fixed(BasisuTranscoderTextureFormat.ETC2_RGBA);
+
+        BasisuTextureData textureData = null;
+        for (int i = 0; i < 2; i++) {
+            textureData = new BasisuTextureData(textureFile, 0);
+            textureData.setTextureFormatSelector(formatSelector);
+            textureData.setTranscodedCache(transcodedCache);
+            textureData.prepare();
+            assertEquals(768, textureData.getWidth());
+        }
+        assertEquals(1, transcodedCache.getMissCount());
+        assertEquals(1, transcodedCache.getHitCount());
+        assertEquals(1, transcodedCache.getEntryCount());
+        assertTrue(transcodedCache.getTotalSize() > 0);
+
+        // A different format is a different entry.
+        BasisuTextureData rgbaData = new BasisuTextureData(textureFile, 0);
+        rgbaData.setTextureFormatSelector(BasisuTranscoderTextureFormat.RGBA32);
+        rgbaData.setTranscodedCache(transcodedCache);
+        rgbaData.prepare();
+        assertEquals(2, transcodedCache.getMissCount());
+
+        transcodedCache.clear();
+        assertEquals(0, transcodedCache.getEntryCount());
+        assertEquals(0, transcodedCache.getTotalSize());
+        assertTrue(transcodedCache.getEvictionCount() > 0);
+    }
+
+    /** The second load gets both the file and the mip chain buffers from the pool. */
+    @Test
+    public void testBufferPool() {
+        BasisuBufferPool bufferPool = new BasisuBufferPool(16 * 1024 * 1024);
+        FileHandle textureFile = Gdx.files.classpath("kodim3.basis");
+        for (int i = 0; i < 2; i++) {
+            BasisuData basisuData = new BasisuData(textureFile, false, bufferPool);
+            assertEquals(textureFile.length(), basisuData.getEncodedData().capacity());
+            BasisuMipChain mipChain = basisuData.transcodeMipChain(0, BasisuTranscoderTextureFormat.ETC2_RGBA, Integer.MAX_VALUE, null, bufferPool);
+            assertEquals(768, mipChain.getLevelWidth(0));
+            assertEquals(basisuData.getTranscodedMipChainSize(0, BasisuTranscoderTextureFormat.ETC2_RGBA), mipChain.getData().capacity());
+            mipChain.close();
+            basisuData.dispose();
+        }
+        assertEquals(4, bufferPool.getObtainCount());
+        assertEquals(2, bufferPool.getReuseCount());
+        assertEquals(0, bufferPool.getUsedSize());
+        assertTrue(bufferPool.getHighWaterMark() > 0);
+        bufferPool.dispose();
+        assertEquals(0, bufferPool.getIdleSize());
+    }
+
+    @Test
+    public void testBufferPoolSizeClasses() {
+        assertEquals(BasisuBufferPool.MIN_SIZE_CLASS, BasisuBufferPool.toSizeClass(0));
+        assertEquals(BasisuBufferPool.MIN_SIZE_CLASS, BasisuBufferPool.toSizeClass(1 << BasisuBufferPool.MIN_SIZE_CLASS));
+        assertEquals(BasisuBufferPool.MIN_SIZE_CLASS + 1, BasisuBufferPool.toSizeClass((1 << BasisuBufferPool.MIN_SIZE_CLASS) + 1));
+        assertEquals(BasisuBufferPool.MAX_SIZE_CLASS, BasisuBufferPool.toSizeClass(1 << BasisuBufferPool.MAX_SIZE_CLASS));
+        // The sizes over 1GB would need the (negative) 1 << 31 size class.
+        try {
+            BasisuBufferPool.toSizeClass((1 << BasisuBufferPool.MAX_SIZE_CLASS) + 1);
+            fail("The size is expected to exceed the largest size class.");
+        } catch (IllegalArgumentException expected) {
+        }
+
+        BasisuBufferPool bufferPool = new BasisuBufferPool(1024 * 1024);
+        try {
+            bufferPool.obtain(-1);
+            fail("A negative size is expected to be rejected.");
+        } catch (IllegalArgumentException expected) {
+        }
+        assertEquals(0, bufferPool.getObtainCount());
+        bufferPool.dispose();
+    }
+
+    /** Each layer image occupies its own part of the level buffer, one after another. */
+    @Test
+    public void testTextureArrayLayerPacking() {
+        int layerCount = 3;
+        int layerSize = 16;
+        ByteBuffer levelData = ByteBuffer.allocate(layerSize * layerCount);
+        for (int layer = 0; layer < layerCount; layer++) {
+            ByteBuffer layerData = BasisuGdxUtils.sliceArrayLayer(levelData, layerCount, layer);
+            assertEquals(layerSize * layer, layerData.position());
+            assertEquals(layerSize, layerData.remaining());
+            while (layerData.hasRemaining()) {
+                layerData.put((byte) layer);
+            }
+        }
+        for (int i = 0; i < levelData.capacity(); i++) {
+            assertEquals(i / layerSize, levelData.get(i));
+        }
+    }
+
+    /** Non-array KTX2 files are loaded as a single layer array. */
+    @Test
+    public void testKtx2TextureArrayLoader() {
+        Ktx2TextureArrayLoader loader = new Ktx2TextureArrayLoader(fileName -> Gdx.files.classpath(fileName));
+        Ktx2TextureArrayLoader.Ktx2TextureArrayParameter parameter = new Ktx2TextureArrayLoader.Ktx2TextureArrayParameter();
+        parameter.formatSelector = new BasisuTextureFormatSelector.Fixed(BasisuTranscoderTextureFormat.ETC2_RGBA);
+        parameter.useMipmaps = false;
+        parameter.transcodeExecutor = new AsyncExecutor(2, "BasisuTranscode");
+        FileHandle file = Gdx.files.classpath("screen_stuff.uastc.ktx2");
+        Ktx2FileDescription fileInfo = BasisuGdxUtils.readKtx2FileDescription(file);
+
+        loader.loadAsync(null, file.path(), file, parameter);
+        TranscodedTextureArrayData<?> data = loader.preparedData.get(file.path());
+        assertTrue(data.isPrepared());
+        assertFalse(data.useMipMaps());
+        assertEquals(1, data.getDepth());
+        assertEquals(fileInfo.getImageWidth(), data.getWidth());
+        assertEquals(fileInfo.getImageHeight(), data.getHeight());
+        assertEquals(BasisuGdxUtils.GL_TEX_ETC2_RGBA8, data.getInternalFormat());
+        data.dispose();
+        assertFalse(data.isPrepared());
+        parameter.transcodeExecutor.dispose();
+    }
+
+    /** The prefetched textures are prepared on the executor and picked up by the loader. */
+    @Test
+    public void testLoaderPrefetch() {
+        AsyncExecutor prefetchExecutor = new AsyncExecutor(2, "BasisuPrefetch");
+        BasisuTextureLoader loader = new BasisuTextureLoader(fileName -> Gdx.files.classpath(fileName));
+        loader.setPrefetchExecutor(prefetchExecutor);
+
+        BasisuTextureLoader.BasisuTextureParameter parameter = new BasisuTextureLoader.BasisuTextureParameter();
+        parameter.formatSelector = new BasisuTextureFormatSelector.Fixed(BasisuTranscoderTextureFormat.ETC2_RGBA);
+        loader.prefetch("kodim3.basis", parameter);
+        AsyncResult<BasisuTextureData> prefetchResult = loader.prefetchedData.get("kodim3.basis");
+        assertNotNull(prefetchResult);
+        // The repeated prefetch is ignored.
+        loader.prefetch("kodim3.basis", parameter);
+        assertSame(prefetchResult, loader.prefetchedData.get("kodim3.basis"));
+        BasisuTextureData prefetchedData = prefetchResult.get();
+        assertTrue(prefetchedData.isPrepared());
+
+        // No preparation takes place, loadAsync() hands the prefetched data over to loadSync().
+        loader.loadAsync(null, "kodim3.basis", Gdx.files.classpath("kodim3.basis"), parameter);
+        assertFalse(loader.prefetchedData.containsKey("kodim3.basis"));
+        assertSame(prefetchedData, loader.preparedData.get("kodim3.basis"));
+
+        Texture texture = loader.loadSync(null, "kodim3.basis", Gdx.files.classpath("kodim3.basis"), parameter);
+        assertSame(prefetchedData, texture.getTextureData());
+        assertEquals(0, loader.preparedData.size);
+        // The loaded textures dispose their data.
+        texture.dispose();
+        prefetchExecutor.dispose();
+    }
+
+    /** The atlas pages are prepared within loadAsync() and follow the page mipmap settings. */
+    @Test
+    public void testTextureAtlasLoader() {
+        BasisuTextureAtlasLoader loader = new BasisuTextureAtlasLoader(fileName -> Gdx.files.classpath(fileName));
+        loader.setTranscodeExecutor(new AsyncExecutor(2, "BasisuTranscode"));
+        BasisuTextureAtlasLoader.BasisuTextureAtlasParameter parameter = new BasisuTextureAtlasLoader.BasisuTextureAtlasParameter();
+        parameter.formatSelector = new BasisuTextureFormatSelector.Fixed(BasisuTranscoderTextureFormat.ETC2_RGBA);
+        FileHandle atlasFile = Gdx.files.classpath("kodim3.atlas");
+
+        loader.loadAsync(null, atlasFile.path(), atlasFile, parameter);
+        BasisuTextureAtlasLoader.PreparedAtlas preparedAtlas = loader.preparedAtlases.get(atlasFile.path());
+        assertEquals(2, preparedAtlas.pageData.length);
+        for (TextureData pageData : preparedAtlas.pageData) {
+            assertTrue(pageData instanceof BasisuTextureData);
+            assertTrue(pageData.isPrepared());
+        }
+        // Only the page with a mipmap filter requests the mipmaps.
+        assertFalse(preparedAtlas.pageData[0].useMipMaps());
+        assertTrue(preparedAtlas.pageData[1].useMipMaps());
+
+        TextureAtlas atlas = loader.loadSync(null, atlasFile.path(), atlasFile, parameter);
+        assertEquals(0, loader.preparedAtlases.size);
+        assertEquals(2, atlas.getTextures().size);
+        assertEquals(2, atlas.getRegions().size);
+        Array<TextureAtlas.TextureAtlasData.Page> pages = preparedAtlas.atlasData.getPages();
+        assertEquals(Texture.TextureFilter.Linear, pages.get(0).texture.getMinFilter());
+        assertEquals(Texture.TextureFilter.MipMapLinearLinear, pages.get(1).texture.getMinFilter());
+        atlas.dispose();
+        loader.getTranscodeExecutor().dispose();
+
+        // The mipmap filters fall back when only the base level is uploaded.
+        assertEquals(Texture.TextureFilter.Linear,
+                BasisuTextureAtlasLoader.toSupportedMinFilter(Texture.TextureFilter.MipMapLinearLinear, false));
+        assertEquals(Texture.TextureFilter.MipMapLinearLinear,
+                BasisuTextureAtlasLoader.toSupportedMinFilter(Texture.TextureFilter.MipMapLinearLinear, true));
+        assertEquals(Texture.TextureFilter.Nearest,
+                BasisuTextureAtlasLoader.toSupportedMinFilter(Texture.TextureFilter.Nearest, false));
+    }
+
+    /** The pages prepared before the failure are released. */
+    @Test
+    public void testTextureAtlasPageFailure() {
+        BasisuTextureData validPage = new BasisuTextureData(Gdx.files.classpath("kodim3.basis"));
+        BasisuTextureData missingPage = new BasisuTextureData(Gdx.files.classpath("missing.basis"));
+        try {
+            BasisuTextureAtlasLoader.preparePages(new TextureData[]{validPage, missingPage}, null);
+            fail("The missing page is expected to fail the atlas loading.");
+        } catch (RuntimeException expected) {
+        }
+        assertFalse(validPage.isPrepared());
+        assertFalse(missingPage.isPrepared());
+    }
+
+    /** The non-progressive textures (the headless backend) stay fully resident and are only accounted against the budget. */
+    @Test
+    public void testTextureStreamer() {
+        BasisuData basisuData = new BasisuData(Gdx.files.classpath("kodim3.basis"));
+        BasisuProgressiveTexture texture = new BasisuProgressiveTexture(basisuData, 0,
+                BasisuProgressiveTexture.DEFAULT_INITIAL_LEVEL_SIZE,
+                new BasisuTextureFormatSelector.Fixed(BasisuTranscoderTextureFormat.ETC2_RGBA));
+        assertEquals(768, texture.getLevelWidth(0));
+        assertEquals(0, BasisuTextureStreamer.findDesiredLevel(texture, 1000f));
+        assertEquals(texture.getLevelCount() - 1, BasisuTextureStreamer.findDesiredLevel(texture, 0f));
+
+        BasisuTextureStreamer streamer = new BasisuTextureStreamer(1024);
+        streamer.add(texture);
+        streamer.setPriority(texture, 16f);
+        streamer.update();
+        assertTrue(texture.isFullyResident());
+        assertEquals(texture.getResidentSize(), streamer.getResidentSize());
+        streamer.remove(texture);
+        assertEquals(0, streamer.getTextureCount());
+        texture.dispose();
+    }
+
+    /** The level plan is computed with no GL or texture involved. */
+    @Test
+    public void testTextureStreamerPlan() {
+        int[] levelSizes = {64, 16, 4, 1};
+        // The highest priority first.
+        BasisuTextureStreamer.StreamedTexture a = createStreamedTexture(levelSizes, 0, 0);
+        BasisuTextureStreamer.StreamedTexture b = createStreamedTexture(levelSizes, 0, 1);
+        BasisuTextureStreamer.StreamedTexture c = createStreamedTexture(levelSizes, 0, 2);
+        Array<BasisuTextureStreamer.StreamedTexture> sortedTextures = new Array<>();
+        sortedTextures.add(a);
+        sortedTextures.add(b);
+        sortedTextures.add(c);
+
+        // Everything fits, nothing changes.
+        assertEquals(255, BasisuTextureStreamer.planLevels(sortedTextures, 255));
+        assertPlannedLevels(sortedTextures, 0, 0, 0);
+
+        // The excess detail of the least visible texture goes first.
+        assertEquals(175, BasisuTextureStreamer.planLevels(sortedTextures, 200));
+        assertPlannedLevels(sortedTextures, 0, 0, 2);
+
+        // Then of the next one, and then the levels of the least visible textures down to the last one.
+        assertEquals(91, BasisuTextureStreamer.planLevels(sortedTextures, 100));
+        assertPlannedLevels(sortedTextures, 0, 2, 3);
+        // The plan evicts straight to the final level (a single eviction per texture).
+        assertEquals(0, b.residentLevel);
+        // The textures that lose levels don't refine within the same update, even if the room is left.
+        assertEquals(3, c.targetLevel);
+
+        // The non-progressive textures count against the budget but are never evicted.
+        BasisuTextureStreamer.StreamedTexture fixed = new BasisuTextureStreamer.StreamedTexture(null, false, levelSizes);
+        sortedTextures.add(fixed);
+        BasisuTextureStreamer.planLevels(sortedTextures, 0);
+        assertPlannedLevels(sortedTextures, 3, 3, 3, 0);
+    }
+
+    @Test
+    public void testTextureStreamerRefinement() {
+        int[] levelSizes = {64, 16, 4, 1};
+        BasisuTextureStreamer.StreamedTexture a = createStreamedTexture(levelSizes, 3, 0);
+        BasisuTextureStreamer.StreamedTexture b = createStreamedTexture(levelSizes, 3, 0);
+        Array<BasisuTextureStreamer.StreamedTexture> sortedTextures = new Array<>();
+        sortedTextures.add(a);
+        sortedTextures.add(b);
+
+        // Only the most visible texture gets the room for its next level.
+        assertEquals(6, BasisuTextureStreamer.planLevels(sortedTextures, 6));
+        assertPlannedLevels(sortedTextures, 3, 3);
+        assertEquals(2, a.targetLevel);
+        assertEquals(3, b.targetLevel);
+
+        // Both refine by a single level per update.
+        assertEquals(10, BasisuTextureStreamer.planLevels(sortedTextures, 1000));
+        assertEquals(2, a.targetLevel);
+        assertEquals(2, b.targetLevel);
+
+        // No refinement beyond the level that covers the screen size.
+        a.residentLevel = 1;
+        a.desiredLevel = 1;
+        BasisuTextureStreamer.planLevels(sortedTextures, 1000);
+        assertEquals(1, a.targetLevel);
+    }
+
+    private static BasisuTextureStreamer.StreamedTexture createStreamedTexture(int[] levelSizes, int residentLevel, int desiredLevel) {
+        BasisuTextureStreamer.StreamedTexture streamed = new BasisuTextureStreamer.StreamedTexture(null, true, levelSizes);
+        streamed.residentLevel = residentLevel;
+        streamed.desiredLevel = desiredLevel;
+        return streamed;
+    }
+
+    private static void assertPlannedLevels(Array<BasisuTextureStreamer.StreamedTexture> sortedTextures, int... plannedLevels) {
+        for (int i = 0; i < plannedLevels.length; i++) {
+            assertEquals("Texture " + i, plannedLevels[i], sortedTextures.get(i).plannedLevel);
+        }
+    }
+
+    /** The retained data lets the texture data be prepared again (as on the managed texture reload). */
+    @Test
+    public void testReloadPolicy() {
+        BasisuTextureData encodedData = new BasisuTextureData(new BasisuData(Gdx.files.classpath("kodim3.basis")));
+        encodedData.setTextureFormatSelector(BasisuTranscoderTextureFormat.ETC2_RGBA);
+        encodedData.setReloadPolicy(BasisuReloadPolicy.KEEP_ENCODED);
+        for (int i = 0; i < 2; i++) {
+            encodedData.prepare();
+            encodedData.consumeCustomData(GL20.GL_TEXTURE_2D);
+        }
+        encodedData.dispose();
+
+        BasisuTextureData transcodedData = new BasisuTextureData(Gdx.files.classpath("kodim3.basis"));
+        transcodedData.setTextureFormatSelector(BasisuTranscoderTextureFormat.ETC2_RGBA);
+        transcodedData.setReloadPolicy(BasisuReloadPolicy.KEEP_TRANSCODED);
+        for (int i = 0; i < 2; i++) {
+            transcodedData.prepare();
+            assertEquals(768, transcodedData.getWidth());
+            transcodedData.consumeCustomData(GL20.GL_TEXTURE_2D);
+        }
+        transcodedData.dispose();
+    }
+
+    /** The decode flags are checked as soon as they're configured. */
+    /** The video frame scheduling needs no GL or video file. */
+    @Test
+    public void testVideoPlayerFrameStep() {
+        int usPerFrame = 1000;
+        assertEquals(1, BasisuVideoPlayer.computeFrameStep(0, usPerFrame));
+        assertEquals(1, BasisuVideoPlayer.computeFrameStep(999, usPerFrame));
+        // The late frames are skipped over.
+        assertEquals(3, BasisuVideoPlayer.computeFrameStep(2500, usPerFrame));
+
+        // Looping wraps around, so the step is never limited.
+        assertEquals(3, BasisuVideoPlayer.clampFrameStep(9, 3, 10, true));
+        // Otherwise the playback stops at the last frame.
+        assertEquals(2, BasisuVideoPlayer.clampFrameStep(7, 3, 10, false));
+        assertEquals(1, BasisuVideoPlayer.clampFrameStep(8, 3, 10, false));
+        assertTrue(BasisuVideoPlayer.clampFrameStep(9, 1, 10, false) <= 0);
+
+        boolean[] iFrameFlags = {true, false, false, true, false};
+        assertEquals(0, BasisuVideoPlayer.findIFrameIndex(iFrameFlags, 0));
+        assertEquals(0, BasisuVideoPlayer.findIFrameIndex(iFrameFlags, 2));
+        assertEquals(3, BasisuVideoPlayer.findIFrameIndex(iFrameFlags, 3));
+        assertEquals(3, BasisuVideoPlayer.findIFrameIndex(iFrameFlags, 4));
+        // The first frame is always a starting point.
+        assertEquals(0, BasisuVideoPlayer.findIFrameIndex(new boolean[]{false, false}, 1));
+
+        assertTrue(BasisuVideoPlayer.supportsCompressedSubImage(BasisuGdxUtils.GL_TEX_ETC2_RGBA8));
+        assertFalse(BasisuVideoPlayer.supportsCompressedSubImage(BasisuGdxUtils.GL_TEX_ETC1_RGB8));
+        assertFalse(BasisuVideoPlayer.supportsCompressedSubImage(BasisuGdxUtils.GL_TEX_PVRTC1_4BPP_RGBA));
+    }
+
+    @Test(expected = BasisuWrapperException.class)
+    public void testTextureDataUnsupportedDecodeFlags() {
+        new BasisuTextureData(Gdx.files.classpath("kodim3.basis")).setDecodeFlags(0x10000);
+    }
 }
@@ -1,32 +1,257 @@
 #include <cstdio>
 #include <cstring>
+#include <memory>
+#include <mutex>
+#include <thread>
 
 #include "basisu_wrapper.h"
 #include "basisu_native_utils.h"
 
+#if BASISD_SUPPORT_KTX2_ZSTD
+#include "zstd.h"
+#endif
+
 using namespace basist;
 
 namespace basisuWrapper {
 
 #define LOG_TAG "basisu_wrapper.cpp"
 
-    void initBasisu() {
-        static bool basisuInitialized;
-        if (basisuInitialized)
-            return;
-
-        basisuUtils::logInfo(LOG_TAG, (std::string("Basis Universal ") + BASISD_VERSION_STRING).c_str());
-        basisuUtils::logInfo(LOG_TAG, "Initializing global basisu parser.");
+    static std::once_flag basisuInitFlag;
 
-        basisuInitialized = true;
+    // Safe to call from any thread, concurrent callers wait until the global tables are fully initialized.
+    void initBasisu() {
+        std::call_once(basisuInitFlag, []() {
+            basisuUtils::logInfo(LOG_TAG, (std::string("Basis Universal ") + BASISD_VERSION_STRING).c_str());
+            basisuUtils::logInfo(LOG_TAG, "Initializing global basisu parser.");
 
-        basisu_transcoder_init();
+            basisu_transcoder_init();
+        });
     }
 
     bool isTranscoderTexFormatSupported(transcoder_texture_format transcoderTexFormat, basis_tex_format basisTexFormat) {
         return basis_is_format_supported(transcoderTexFormat, basisTexFormat);
     }
 
+    uint32_t getTranscodedSize(uint32_t origWidth, uint32_t origHeight, uint32_t totalBlocks, transcoder_texture_format format) {
+        if (basis_transcoder_format_is_uncompressed(format)) {
+            return origWidth * origHeight * basis_get_uncompressed_bytes_per_pixel(format);
+        }
+
+        uint32_t bytesPerBlock = basis_get_bytes_per_block_or_pixel(format);
+        uint32_t requiredSize = totalBlocks * bytesPerBlock;
+
+        if (format == transcoder_texture_format::cTFPVRTC1_4_RGB || format == transcoder_texture_format::cTFPVRTC1_4_RGBA) {
+            // For PVRTC1, Basis only writes (or requires) total_blocks * bytes_per_block. But GL requires extra padding for very small textures:
+            // https://www.khronos.org/registry/OpenGL/extensions/IMG/IMG_texture_compression_pvrtc.txt
+            // The transcoder will clear the extra bytes followed the used blocks to 0.
+            const uint32_t width = (origWidth + 3) & ~3;
+            const uint32_t height = (origHeight + 3) & ~3;
+            requiredSize = (std::max(8U, width) * std::max(8U, height) * 4 + 7) / 8;
+            assert(requiredSize >= totalBlocks * bytesPerBlock);
+        }
+        return requiredSize;
+    }
+
+    /**
+     * Drops the decode flags that would change the transcoded level size (or are meant for the transcoder's internal use),
+     * so the output always matches getTranscodedSize().
+     */
+    static uint32_t sanitizeDecodeFlags(uint32_t decodeFlags) {
+        return decodeFlags & ~((uint32_t)cDecodeFlagsPVRTCDecodeToNextPow2 | (uint32_t)cDecodeFlagsOutputHasAlphaIndices);
+    }
+
+    // Splitting a level that has fewer block rows per worker isn't worth spawning a thread.
+    static const uint32_t MIN_BLOCK_ROWS_PER_WORKER = 16;
+    static const uint32_t UASTC_BLOCK_SIZE = 16;
+
+    /**
+     * @return the number of workers a level with the specified number of block rows can be efficiently split between.
+     * UASTC blocks are independent of each other, but the PVRTC1 blocks are not (and PVRTC2 is ETC1S only),
+     * so such levels are always transcoded at once.
+     */
+    static uint32_t getRowSplitWorkerCount(uint32_t workerCount, uint32_t numBlocksY, transcoder_texture_format format) {
+#ifdef __EMSCRIPTEN__
+        // No threads on the web.
+        return 1;
+#else
+        switch (format) {
+            case transcoder_texture_format::cTFPVRTC1_4_RGB:
+            case transcoder_texture_format::cTFPVRTC1_4_RGBA:
+            case transcoder_texture_format::cTFPVRTC2_4_RGB:
+            case transcoder_texture_format::cTFPVRTC2_4_RGBA:
+                return 1;
+            default:
+                return std::max(1u, std::min(workerCount, numBlocksY / MIN_BLOCK_ROWS_PER_WORKER));
+        }
+#endif
+    }
+
+    /** Transcodes a range of UASTC block rows into the matching part of the level output memory. */
+    static bool transcodeUastcRows(uint8_t *out, const uint8_t *blocks, uint32_t numBlocksX,
+                                   uint32_t origWidth, uint32_t origHeight, uint32_t levelIndex,
+                                   uint32_t firstRow, uint32_t rowCount, bool hasAlpha, bool isVideo,
+                                   transcoder_texture_format format, uint32_t decodeFlags) {
+        const uint8_t *rowBlocks = blocks + firstRow * numBlocksX * UASTC_BLOCK_SIZE;
+        uint32_t rowBlocksSize = rowCount * numBlocksX * UASTC_BLOCK_SIZE;
+        // The last row range may be clipped by the original image height.
+        uint32_t rangeHeight = std::min(origHeight, (firstRow + rowCount) * 4) - firstRow * 4;
+
+        uint8_t *rowOut;
+        uint32_t outBlocksOrPixels;
+        uint32_t outRowPitch;
+        if (basis_transcoder_format_is_uncompressed(format)) {
+            rowOut = out + firstRow * 4 * origWidth * basis_get_uncompressed_bytes_per_pixel(format);
+            outBlocksOrPixels = origWidth * rangeHeight;
+            outRowPitch = origWidth;
+        } else {
+            rowOut = out + firstRow * numBlocksX * basis_get_bytes_per_block_or_pixel(format);
+            outBlocksOrPixels = rowCount * numBlocksX;
+            outRowPitch = numBlocksX;
+        }
+
+        basisu_lowlevel_uastc_transcoder transcoder;
+        return transcoder.transcode_image(format,
+                rowOut, outBlocksOrPixels,
+                rowBlocks, rowBlocksSize,
+                numBlocksX, rowCount, origWidth, rangeHeight, levelIndex,
+                0, rowBlocksSize,
+                decodeFlags, hasAlpha, isVideo,
+                outRowPitch, nullptr, rangeHeight);
+    }
+
+    /**
+     * Transcodes a whole UASTC image level (raw, not supercompressed blocks),
+     * splitting the block rows between the worker threads. The calling thread processes the first range.
+     * Every worker writes to its own part of the output memory, so no synchronization is required besides the final join.
+     */
+    static bool transcodeUastcParallel(uint8_t *out, const uint8_t *blocks, uint32_t numBlocksX, uint32_t numBlocksY,
+                                       uint32_t origWidth, uint32_t origHeight, uint32_t levelIndex,
+                                       bool hasAlpha, bool isVideo, transcoder_texture_format format, uint32_t workerCount,
+                                       uint32_t decodeFlags) {
+        uint32_t rowsPerWorker = (numBlocksY + workerCount - 1) / workerCount;
+        basisu::vector<uint8_t> results(workerCount);
+        for (uint32_t worker = 0; worker < workerCount; worker++) {
+            results[worker] = 1;
+        }
+        // std::thread is move-only, so the threads are kept in a plain array rather than in a basisu::vector.
+        std::unique_ptr<std::thread[]> threads(new std::thread[workerCount]);
+        uint32_t threadCount = 0;
+
+        for (uint32_t worker = 1; worker < workerCount; worker++) {
+            uint32_t firstRow = worker * rowsPerWorker;
+            if (firstRow >= numBlocksY) break;
+            uint32_t rowCount = std::min(rowsPerWorker, numBlocksY - firstRow);
+            uint8_t *result = &results[worker];
+            threads[threadCount++] = std::thread([=]() {
+                *result = transcodeUastcRows(out, blocks, numBlocksX, origWidth, origHeight, levelIndex,
+                                             firstRow, rowCount, hasAlpha, isVideo, format, decodeFlags) ? 1 : 0;
+            });
+        }
+
+        results[0] = transcodeUastcRows(out, blocks, numBlocksX, origWidth, origHeight, levelIndex,
+                                        0, std::min(rowsPerWorker, numBlocksY), hasAlpha, isVideo, format, decodeFlags) ? 1 : 0;
+
+        for (uint32_t i = 0; i < threadCount; i++) {
+            threads[i].join();
+        }
+
+        for (uint32_t worker = 0; worker < workerCount; worker++) {
+            if (!results[worker]) {
+                basisuUtils::logError(LOG_TAG, "Failed to transcode UASTC block rows.");
+                return false;
+            }
+        }
+        return true;
+    }
+
+    uint32_t getTranscodedRegionSize(uint32_t origWidth, uint32_t origHeight, const block_region &region, transcoder_texture_format format) {
+        if (basis_transcoder_format_is_uncompressed(format)) {
+            uint32_t pixelWidth = std::min(region.width * 4, origWidth - region.x * 4);
+            uint32_t pixelHeight = std::min(region.height * 4, origHeight - region.y * 4);
+            return pixelWidth * pixelHeight * basis_get_uncompressed_bytes_per_pixel(format);
+        }
+        return region.width * region.height * basis_get_bytes_per_block_or_pixel(format);
+    }
+
+    /** Checks that the region is not empty, lies within the level and the output format can be transcoded partially. */
+    static bool validateRegion(const block_region &region, uint32_t numBlocksX, uint32_t numBlocksY, transcoder_texture_format format) {
+        if (region.width == 0 || region.height == 0 ||
+                region.x >= numBlocksX || region.y >= numBlocksY ||
+                region.width > numBlocksX - region.x || region.height > numBlocksY - region.y) {
+            basisuUtils::logError(LOG_TAG, "The block region is out of the image level bounds.");
+            return false;
+        }
+        switch (format) {
+            case transcoder_texture_format::cTFPVRTC1_4_RGB:
+            case transcoder_texture_format::cTFPVRTC1_4_RGBA:
+            case transcoder_texture_format::cTFPVRTC2_4_RGB:
+            case transcoder_texture_format::cTFPVRTC2_4_RGBA:
+                basisuUtils::logError(LOG_TAG, "PVRTC formats cannot be transcoded by regions.");
+                return false;
+            default:
+                return true;
+        }
+    }
+
+    /**
+     * Transcodes a block region of a UASTC image level (raw, not supercompressed blocks).
+     * The region rows are not contiguous within the level data, so they are transcoded one by one.
+     */
+    static bool transcodeUastcRegion(uint8_t *out, const uint8_t *blocks, uint32_t numBlocksX,
+                                     uint32_t origWidth, uint32_t origHeight, uint32_t levelIndex, const block_region &region,
+                                     bool hasAlpha, bool isVideo, transcoder_texture_format format, uint32_t decodeFlags) {
+        bool uncompressed = basis_transcoder_format_is_uncompressed(format);
+        uint32_t regionWidth = std::min(region.width * 4, origWidth - region.x * 4);
+        uint32_t rowBlocksSize = region.width * UASTC_BLOCK_SIZE;
+        uint32_t outRowPitch = uncompressed ? regionWidth : region.width;
+        uint32_t outRowSize = uncompressed
+                ? regionWidth * 4 * basis_get_uncompressed_bytes_per_pixel(format)
+                : region.width * basis_get_bytes_per_block_or_pixel(format);
+
+        basisu_lowlevel_uastc_transcoder transcoder;
+        for (uint32_t row = 0; row < region.height; row++) {
+            uint32_t blockY = region.y + row;
+            // The bottom row may be clipped by the original image height.
+            uint32_t rowHeight = std::min(4u, origHeight - blockY * 4);
+            const uint8_t *rowBlocks = blocks + (blockY * numBlocksX + region.x) * UASTC_BLOCK_SIZE;
+
+            if (!transcoder.transcode_image(format,
+                    out + row * outRowSize, uncompressed ? regionWidth * rowHeight : region.width,
+                    rowBlocks, rowBlocksSize,
+                    region.width, 1, regionWidth, rowHeight, levelIndex,
+                    0, rowBlocksSize,
+                    decodeFlags, hasAlpha, isVideo,
+                    outRowPitch, nullptr, rowHeight)) {
+                basisuUtils::logError(LOG_TAG, "Failed to transcode UASTC block region.");
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Copies a block region out of a whole transcoded (non PVRTC) image level. */
+    static void copyRegion(uint8_t *out, const uint8_t *level, uint32_t origWidth, uint32_t origHeight, uint32_t numBlocksX,
+                           const block_region &region, transcoder_texture_format format) {
+        if (basis_transcoder_format_is_uncompressed(format)) {
+            uint32_t bytesPerPixel = basis_get_uncompressed_bytes_per_pixel(format);
+            uint32_t pixelWidth = std::min(region.width * 4, origWidth - region.x * 4);
+            uint32_t pixelHeight = std::min(region.height * 4, origHeight - region.y * 4);
+            for (uint32_t y = 0; y < pixelHeight; y++) {
+                memcpy(out + y * pixelWidth * bytesPerPixel,
+                       level + ((region.y * 4 + y) * origWidth + region.x * 4) * bytesPerPixel,
+                       pixelWidth * bytesPerPixel);
+            }
+        } else {
+            uint32_t bytesPerBlock = basis_get_bytes_per_block_or_pixel(format);
+            for (uint32_t row = 0; row < region.height; row++) {
+                memcpy(out + row * region.width * bytesPerBlock,
+                       level + ((region.y + row) * numBlocksX + region.x) * bytesPerBlock,
+                       region.width * bytesPerBlock);
+            }
+        }
+    }
+
     namespace basis {
 
         bool validateHeader(uint8_t *data, uint32_t dataSize) {
@@ -71,74 +296,353 @@ namespace basisuWrapper {
             return successful;
         }
 
-        // Based on https://github.com/BinomialLLC/basis_universal/blob/master/webgl/transcoder/basis_wrappers.cpp
-        bool transcode(basisu::vector<uint8_t> &out, uint8_t *data, uint32_t dataSize,
-                       uint32_t imageIndex, uint32_t levelIndex, transcoder_texture_format format) {
-            initBasisu();
-            basisu_transcoder transcoder = {};
-
+        static bool getLevelTranscodedSize(uint32_t &outSize, basisu_transcoder &transcoder, uint8_t *data, uint32_t dataSize,
+                                           uint32_t imageIndex, uint32_t levelIndex, transcoder_texture_format format) {
             uint32_t origWidth, origHeight, totalBlocks;
             if (!transcoder.get_image_level_desc(data, dataSize, imageIndex, levelIndex, origWidth, origHeight, totalBlocks)) {
                 basisuUtils::logError(LOG_TAG, "Failed to retrieve image level description.");
                 return false;
             }
+            outSize = basisuWrapper::getTranscodedSize(origWidth, origHeight, totalBlocks, format);
+            return true;
+        }
 
-            uint32_t flags = 0;
-
-            bool status;
+        // Based on https://github.com/BinomialLLC/basis_universal/blob/master/webgl/transcoder/basis_wrappers.cpp
+        // The transcoder must be started (basisu_transcoder::start_transcoding()) prior to the call.
+        static bool transcodeLevel(uint8_t *out, uint32_t outCapacity, uint32_t &outSize,
+                                   basisu_transcoder &transcoder, uint8_t *data, uint32_t dataSize,
+                                   uint32_t imageIndex, uint32_t levelIndex, transcoder_texture_format format,
+                                   uint32_t workerCount, uint32_t decodeFlags) {
+            uint32_t origWidth, origHeight, totalBlocks;
+            if (!transcoder.get_image_level_desc(data, dataSize, imageIndex, levelIndex, origWidth, origHeight, totalBlocks)) {
+                basisuUtils::logError(LOG_TAG, "Failed to retrieve image level description.");
+                return false;
+            }
 
-            if (!transcoder.start_transcoding(data, dataSize)) {
-                basisuUtils::logError(LOG_TAG, "Failed to init transcoding for Basis data.");
+            outSize = basisuWrapper::getTranscodedSize(origWidth, origHeight, totalBlocks, format);
+            if (outSize > outCapacity) {
+                basisuUtils::logError(LOG_TAG, "The output buffer is too small for the transcoded image level.");
                 return false;
             }
 
-            if (basis_transcoder_format_is_uncompressed(format)) {
+            uint32_t flags = sanitizeDecodeFlags(decodeFlags);
 
-                const uint32_t bytesPerPixel = basis_get_uncompressed_bytes_per_pixel(format);
-                const uint32_t bytesPerLine = origWidth * bytesPerPixel;
-                const uint32_t bytesPerSlice = bytesPerLine * origHeight;
+            const basis_file_header *header = reinterpret_cast<const basis_file_header*>(data);
+            if (workerCount > 1 && (uint32_t)header->m_tex_format == (uint32_t)basis_tex_format::cUASTC4x4) {
+                basisu_image_level_info levelInfo;
+                if (!transcoder.get_image_level_info(data, dataSize, levelInfo, imageIndex, levelIndex)) {
+                    basisuUtils::logError(LOG_TAG, "Failed to obtain image level info.");
+                    return false;
+                }
+                workerCount = getRowSplitWorkerCount(workerCount, levelInfo.m_num_blocks_y, format);
+                if (workerCount > 1) {
+                    if (levelInfo.m_rgb_file_len < levelInfo.m_total_blocks * UASTC_BLOCK_SIZE ||
+                            levelInfo.m_rgb_file_ofs + levelInfo.m_rgb_file_len > dataSize) {
+                        basisuUtils::logError(LOG_TAG, "Invalid UASTC slice data.");
+                        return false;
+                    }
+                    // The same alpha and video flags the transcoder uses for the whole level transcoding.
+                    bool hasAlpha = ((uint32_t)header->m_flags & cBASISHeaderFlagHasAlphaSlices) != 0;
+                    bool isVideo = (uint32_t)header->m_tex_type == cBASISTexTypeVideoFrames;
+                    return transcodeUastcParallel(out, data + levelInfo.m_rgb_file_ofs,
+                            levelInfo.m_num_blocks_x, levelInfo.m_num_blocks_y, origWidth, origHeight, levelIndex,
+                            hasAlpha, isVideo, format, workerCount, flags);
+                }
+            }
 
-                out.resize(bytesPerSlice);
+            // A dedicated transcoder state makes the call safe to run concurrently with the other ones on the same transcoder.
+            // Video frames are the exception, as the P-frames are decoded against the previous frame kept in the transcoder's own state.
+            basisu_transcoder_state state;
+            basisu_transcoder_state *pState = (uint32_t)header->m_tex_type == cBASISTexTypeVideoFrames ? nullptr : &state;
 
-                status = transcoder.transcode_image_level(
+            if (basis_transcoder_format_is_uncompressed(format)) {
+                return transcoder.transcode_image_level(
                     data, dataSize, imageIndex, levelIndex,
-                    out.data(), origWidth * origHeight,
-//                    format,
-                    static_cast<basist::transcoder_texture_format>(format),
+                    out, origWidth * origHeight,
+                    format,
                     flags,
                     origWidth,
-                    nullptr,
+                    pState,
                     origHeight);
-
             } else {
+                return transcoder.transcode_image_level(
+                    data, dataSize, imageIndex, levelIndex,
+                    out, outSize / basis_get_bytes_per_block_or_pixel(format),
+                    format,
+                    flags,
+                    0,
+                    pState);
+            }
+        }
 
-                uint32_t bytesPerBlock = basis_get_bytes_per_block_or_pixel(format);
-                uint32_t requiredSize = totalBlocks * bytesPerBlock;
-
-                if (format == transcoder_texture_format::cTFPVRTC1_4_RGB || format == transcoder_texture_format::cTFPVRTC1_4_RGBA) {
-                    // For PVRTC1, Basis only writes (or requires) total_blocks * bytes_per_block. But GL requires extra padding for very small textures:
-                    // https://www.khronos.org/registry/OpenGL/extensions/IMG/IMG_texture_compression_pvrtc.txt
-                    // The transcoder will clear the extra bytes followed the used blocks to 0.
-                    const uint32_t width = (origWidth + 3) & ~3;
-                    const uint32_t height = (origHeight + 3) & ~3;
-                    requiredSize = (std::max(8U, width) * std::max(8U, height) * 4 + 7) / 8;
-                    assert(requiredSize >= totalBlocks * bytesPerBlock);
-                }
+        bool getTranscodedSize(uint32_t &outSize, uint8_t *data, uint32_t dataSize,
+                               uint32_t imageIndex, uint32_t levelIndex, transcoder_texture_format format) {
+            initBasisu();
+            basisu_transcoder transcoder = {};
+            return getLevelTranscodedSize(outSize, transcoder, data, dataSize, imageIndex, levelIndex, format);
+        }
+
+        bool transcode(basisu::vector<uint8_t> &out, uint8_t *data, uint32_t dataSize,
+                       uint32_t imageIndex, uint32_t levelIndex, transcoder_texture_format format, uint32_t decodeFlags) {
+            uint32_t size;
+            if (!getTranscodedSize(size, data, dataSize, imageIndex, levelIndex, format)) {
+                return false;
+            }
+            out.resize(size);
+            return transcodeInto(out.data(), size, size, data, dataSize, imageIndex, levelIndex, format, 1, decodeFlags);
+        }
 
-                out.resize(requiredSize);
+        bool transcodeInto(uint8_t *out, uint32_t outCapacity, uint32_t &outSize, uint8_t *data, uint32_t dataSize,
+                           uint32_t imageIndex, uint32_t levelIndex, transcoder_texture_format format, uint32_t workerCount,
+                           uint32_t decodeFlags) {
+            initBasisu();
+            basisu_transcoder transcoder = {};
 
-                status = transcoder.transcode_image_level(
-                    data, dataSize, imageIndex, levelIndex,
-                    out.data(), out.size() / bytesPerBlock,
-                    static_cast<basist::transcoder_texture_format>(format),
-                    flags);
+            if (!transcoder.start_transcoding(data, dataSize)) {
+                basisuUtils::logError(LOG_TAG, "Failed to init transcoding for Basis data.");
+                return false;
             }
 
+            bool status = transcodeLevel(out, outCapacity, outSize, transcoder, data, dataSize, imageIndex, levelIndex, format, workerCount, decodeFlags);
+
             transcoder.stop_transcoding();
 
             return status;
         }
 
+        basis_session* createSession(uint8_t *data, uint32_t dataSize) {
+            initBasisu();
+            basis_session *session = new basis_session();
+            session->data = data;
+            session->dataSize = dataSize;
+
+            if (!session->transcoder.validate_header(data, dataSize)) {
+                basisuUtils::logError(LOG_TAG, "Failed to validate Basis data header.");
+                delete session;
+                return nullptr;
+            }
+
+            // For ETC1S this decodes the endpoint/selector codebooks, which is the expensive part
+            // we only want to pay once per file.
+            if (!session->transcoder.start_transcoding(data, dataSize)) {
+                basisuUtils::logError(LOG_TAG, "Failed to init transcoding for Basis data.");
+                delete session;
+                return nullptr;
+            }
+            return session;
+        }
+
+        void disposeSession(basis_session *session) {
+            session->transcoder.stop_transcoding();
+            delete session;
+        }
+
+        bool getImageInfo(basisu_image_info &imageInfo, basis_session &session, uint32_t imageIndex) {
+            bool successful = session.transcoder.get_image_info(session.data, session.dataSize, imageInfo, imageIndex);
+            if (!successful) {
+                basisuUtils::logError(LOG_TAG, "Failed to obtain image info.");
+            }
+            return successful;
+        }
+
+        bool getImageLevelInfo(basisu_image_level_info &imageInfo, basis_session &session, uint32_t imageIndex, uint32_t imageLevel) {
+            bool successful = session.transcoder.get_image_level_info(session.data, session.dataSize, imageInfo, imageIndex, imageLevel);
+            if (!successful) {
+                basisuUtils::logError(LOG_TAG, "Failed to obtain image level info.");
+            }
+            return successful;
+        }
+
+        bool getTranscodedSize(uint32_t &outSize, basis_session &session,
+                               uint32_t imageIndex, uint32_t levelIndex, transcoder_texture_format format) {
+            return getLevelTranscodedSize(outSize, session.transcoder, session.data, session.dataSize, imageIndex, levelIndex, format);
+        }
+
+        bool transcode(basisu::vector<uint8_t> &out, basis_session &session,
+                       uint32_t imageIndex, uint32_t levelIndex, transcoder_texture_format format, uint32_t decodeFlags) {
+            uint32_t size;
+            if (!getTranscodedSize(size, session, imageIndex, levelIndex, format)) {
+                return false;
+            }
+            out.resize(size);
+            return transcodeInto(out.data(), size, size, session, imageIndex, levelIndex, format, 1, decodeFlags);
+        }
+
+        bool transcodeInto(uint8_t *out, uint32_t outCapacity, uint32_t &outSize, basis_session &session,
+                           uint32_t imageIndex, uint32_t levelIndex, transcoder_texture_format format, uint32_t workerCount,
+                           uint32_t decodeFlags) {
+            return transcodeLevel(out, outCapacity, outSize, session.transcoder, session.data, session.dataSize, imageIndex, levelIndex, format, workerCount, decodeFlags);
+        }
+
+        bool transcodeRegionInto(uint8_t *out, uint32_t outCapacity, uint32_t &outSize, basis_session &session,
+                                 uint32_t imageIndex, uint32_t levelIndex, const block_region &region,
+                                 transcoder_texture_format format, uint32_t decodeFlags) {
+            basisu_image_level_info levelInfo;
+            if (!session.transcoder.get_image_level_info(session.data, session.dataSize, levelInfo, imageIndex, levelIndex)) {
+                basisuUtils::logError(LOG_TAG, "Failed to obtain image level info.");
+                return false;
+            }
+            if (!basisuWrapper::validateRegion(region, levelInfo.m_num_blocks_x, levelInfo.m_num_blocks_y, format)) {
+                return false;
+            }
+
+            outSize = basisuWrapper::getTranscodedRegionSize(levelInfo.m_orig_width, levelInfo.m_orig_height, region, format);
+            if (outSize > outCapacity) {
+                basisuUtils::logError(LOG_TAG, "The output buffer is too small for the transcoded block region.");
+                return false;
+            }
+
+            const basis_file_header *header = reinterpret_cast<const basis_file_header*>(session.data);
+            if ((uint32_t)header->m_tex_format == (uint32_t)basis_tex_format::cUASTC4x4) {
+                if (levelInfo.m_rgb_file_len < levelInfo.m_total_blocks * UASTC_BLOCK_SIZE ||
+                        levelInfo.m_rgb_file_ofs + levelInfo.m_rgb_file_len > session.dataSize) {
+                    basisuUtils::logError(LOG_TAG, "Invalid UASTC slice data.");
+                    return false;
+                }
+                bool hasAlpha = ((uint32_t)header->m_flags & cBASISHeaderFlagHasAlphaSlices) != 0;
+                bool isVideo = (uint32_t)header->m_tex_type == cBASISTexTypeVideoFrames;
+                return basisuWrapper::transcodeUastcRegion(out, session.data + levelInfo.m_rgb_file_ofs, levelInfo.m_num_blocks_x,
+                        levelInfo.m_orig_width, levelInfo.m_orig_height, levelIndex, region,
+                        hasAlpha, isVideo, format, sanitizeDecodeFlags(decodeFlags));
+            }
+
+            // ETC1S slices can only be decoded as a whole.
+            basisu::vector<uint8_t> levelData;
+            if (!transcode(levelData, session, imageIndex, levelIndex, format, decodeFlags)) {
+                return false;
+            }
+            basisuWrapper::copyRegion(out, levelData.data(), levelInfo.m_orig_width, levelInfo.m_orig_height,
+                    levelInfo.m_num_blocks_x, region, format);
+            return true;
+        }
+
+        bool transcodeRegionInto(uint8_t *out, uint32_t outCapacity, uint32_t &outSize, uint8_t *data, uint32_t dataSize,
+                                 uint32_t imageIndex, uint32_t levelIndex, const block_region &region,
+                                 transcoder_texture_format format, uint32_t decodeFlags) {
+            basis_session *session = createSession(data, dataSize);
+            if (session == nullptr) {
+                return false;
+            }
+
+            bool status = transcodeRegionInto(out, outCapacity, outSize, *session, imageIndex, levelIndex, region, format, decodeFlags);
+
+            disposeSession(session);
+
+            return status;
+        }
+
+        static bool describe(basisu::vector<uint32_t> &out, basisu_transcoder &transcoder, uint8_t *data, uint32_t dataSize) {
+            basisu_file_info fileInfo;
+            if (!transcoder.get_file_info(data, dataSize, fileInfo)) {
+                basisuUtils::logError(LOG_TAG, "Failed to obtain file info.");
+                return false;
+            }
+
+            out.clear();
+            out.push_back(fileInfo.m_version);
+            out.push_back(fileInfo.m_total_header_size);
+            out.push_back(fileInfo.m_total_selectors);
+            out.push_back(fileInfo.m_selector_codebook_size);
+            out.push_back(fileInfo.m_total_endpoints);
+            out.push_back(fileInfo.m_endpoint_codebook_size);
+            out.push_back(fileInfo.m_tables_size);
+            out.push_back(fileInfo.m_slices_size);
+            out.push_back((uint32_t)fileInfo.m_tex_type);
+            out.push_back(fileInfo.m_us_per_frame);
+            out.push_back(fileInfo.m_total_images);
+            out.push_back(fileInfo.m_userdata0);
+            out.push_back(fileInfo.m_userdata1);
+            out.push_back((uint32_t)fileInfo.m_tex_format);
+            out.push_back((fileInfo.m_y_flipped ? 1u : 0u) | (fileInfo.m_etc1s ? 2u : 0u) | (fileInfo.m_has_alpha_slices ? 4u : 0u));
+
+            for (uint32_t imageIndex = 0; imageIndex < fileInfo.m_total_images; imageIndex++) {
+                basisu_image_info imageInfo;
+                if (!transcoder.get_image_info(data, dataSize, imageInfo, imageIndex)) {
+                    basisuUtils::logError(LOG_TAG, "Failed to obtain image info.");
+                    return false;
+                }
+                out.push_back(imageInfo.m_image_index);
+                out.push_back(imageInfo.m_total_levels);
+                out.push_back(imageInfo.m_orig_width);
+                out.push_back(imageInfo.m_orig_height);
+                out.push_back(imageInfo.m_width);
+                out.push_back(imageInfo.m_height);
+                out.push_back(imageInfo.m_num_blocks_x);
+                out.push_back(imageInfo.m_num_blocks_y);
+                out.push_back(imageInfo.m_total_blocks);
+                out.push_back(imageInfo.m_first_slice_index);
+                out.push_back((imageInfo.m_alpha_flag ? 1u : 0u) | (imageInfo.m_iframe_flag ? 2u : 0u));
+
+                for (uint32_t levelIndex = 0; levelIndex < imageInfo.m_total_levels; levelIndex++) {
+                    basisu_image_level_info levelInfo;
+                    if (!transcoder.get_image_level_info(data, dataSize, levelInfo, imageIndex, levelIndex)) {
+                        basisuUtils::logError(LOG_TAG, "Failed to obtain image level info.");
+                        return false;
+                    }
+                    out.push_back(levelInfo.m_image_index);
+                    out.push_back(levelInfo.m_level_index);
+                    out.push_back(levelInfo.m_orig_width);
+                    out.push_back(levelInfo.m_orig_height);
+                    out.push_back(levelInfo.m_width);
+                    out.push_back(levelInfo.m_height);
+                    out.push_back(levelInfo.m_num_blocks_x);
+                    out.push_back(levelInfo.m_num_blocks_y);
+                    out.push_back(levelInfo.m_total_blocks);
+                    out.push_back(levelInfo.m_first_slice_index);
+                    out.push_back((levelInfo.m_alpha_flag ? 1u : 0u) | (levelInfo.m_iframe_flag ? 2u : 0u));
+                }
+            }
+            return true;
+        }
+
+        bool describe(basisu::vector<uint32_t> &out, uint8_t *data, uint32_t dataSize) {
+            initBasisu();
+            basisu_transcoder transcoder = {};
+            return describe(out, transcoder, data, dataSize);
+        }
+
+        bool describe(basisu::vector<uint32_t> &out, basis_session &session) {
+            return describe(out, session.transcoder, session.data, session.dataSize);
+        }
+
+        bool getMipChainLayout(basisu::vector<transcoded_level> &levels, uint32_t &totalSize, basis_session &session,
+                               uint32_t imageIndex, uint32_t maxLevels, transcoder_texture_format format) {
+            uint32_t levelCount = std::min(maxLevels, session.transcoder.get_total_image_levels(session.data, session.dataSize, imageIndex));
+            if (levelCount == 0) {
+                basisuUtils::logError(LOG_TAG, "The image has no levels to transcode.");
+                return false;
+            }
+
+            levels.resize(levelCount);
+            totalSize = 0;
+            for (uint32_t level = 0; level < levelCount; level++) {
+                uint32_t origWidth, origHeight, totalBlocks;
+                if (!session.transcoder.get_image_level_desc(session.data, session.dataSize, imageIndex, level, origWidth, origHeight, totalBlocks)) {
+                    basisuUtils::logError(LOG_TAG, "Failed to retrieve image level description.");
+                    return false;
+                }
+                transcoded_level &levelDesc = levels[level];
+                levelDesc.offset = totalSize;
+                levelDesc.size = basisuWrapper::getTranscodedSize(origWidth, origHeight, totalBlocks, format);
+                levelDesc.width = origWidth;
+                levelDesc.height = origHeight;
+                totalSize += levelDesc.size;
+            }
+            return true;
+        }
+
+        bool transcodeMipChain(uint8_t *out, const basisu::vector<transcoded_level> &levels, basis_session &session,
+                               uint32_t imageIndex, transcoder_texture_format format, uint32_t decodeFlags) {
+            for (uint32_t level = 0; level < levels.size(); level++) {
+                const transcoded_level &levelDesc = levels[level];
+                uint32_t outSize;
+                if (!transcodeInto(out + levelDesc.offset, levelDesc.size, outSize, session, imageIndex, level, format, 1, decodeFlags)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
     } // namespace basis
 
     namespace ktx2 {
@@ -164,99 +668,562 @@ namespace basisuWrapper {
             return true;
         }
 
+        static bool getLevelInfo(ktx2_image_level_info &levelInfo, ktx2_transcoder &transcoder,
+                                 uint32_t layerIndex, uint32_t levelIndex, uint32_t faceIndex) {
+            if (!transcoder.get_image_level_info(levelInfo, levelIndex, layerIndex, faceIndex)) {
+                basisuUtils::logError(LOG_TAG, "Failed to read image level info from KTX2 data.");
+                return false;
+            }
+            return true;
+        }
+
         bool getImageLevelInfo(ktx2_image_level_info& imageInfo, uint8_t *data, uint32_t dataSize, uint32_t layerIndex, uint32_t levelIndex) {
             initBasisu();
 
-            // This value is hardcoded for now as cube-textures aren't support ATM.
-            int faceIndex = 0;
-
             ktx2_transcoder transcoder = {};
             if (!transcoder.init(data, dataSize)) {
                 basisuUtils::logError(LOG_TAG, "Failed to read KTX2 data.");
                 return false;
             }
 
-            transcoder.get_image_level_info(imageInfo, levelIndex, layerIndex, faceIndex);
+            bool status = getLevelInfo(imageInfo, transcoder, layerIndex, levelIndex, 0);
             transcoder.clear();
+            return status;
+        }
+
+        bool getTranscodedSize(uint32_t &outSize, uint8_t *data, uint32_t dataSize,
+                               uint32_t layerIndex, uint32_t levelIndex, transcoder_texture_format format) {
+            ktx2_image_level_info levelInfo = {};
+            if (!getImageLevelInfo(levelInfo, data, dataSize, layerIndex, levelIndex)) {
+                return false;
+            }
+            outSize = basisuWrapper::getTranscodedSize(levelInfo.m_orig_width, levelInfo.m_orig_height, levelInfo.m_total_blocks, format);
             return true;
         }
 
         bool transcode(basisu::vector<uint8_t> &out, uint8_t *data, uint32_t dataSize,
-                       uint32_t layerIndex, uint32_t levelIndex, transcoder_texture_format format) {
+                       uint32_t layerIndex, uint32_t levelIndex, transcoder_texture_format format, uint32_t decodeFlags) {
+            uint32_t size;
+            if (!getTranscodedSize(size, data, dataSize, layerIndex, levelIndex, format)) {
+                return false;
+            }
+            out.resize(size);
+            return transcodeInto(out.data(), size, size, data, dataSize, layerIndex, levelIndex, format, 1, decodeFlags);
+        }
+
+        /** Inflates the whole ZSTD supercompressed level data (all the layer and face images). */
+        static bool inflateLevel(basisu::vector<uint8_t> &inflatedData, ktx2_transcoder &transcoder, uint32_t levelIndex,
+                                 uint8_t *data, uint32_t dataSize) {
+#if BASISD_SUPPORT_KTX2_ZSTD
+            const ktx2_level_index &level = transcoder.get_level_index()[levelIndex];
+            uint64_t levelOffset = level.m_byte_offset.get_uint64();
+            uint64_t levelLength = level.m_byte_length.get_uint64();
+            uint64_t inflatedSize = level.m_uncompressed_byte_length.get_uint64();
+            if (levelOffset + levelLength > dataSize) {
+                basisuUtils::logError(LOG_TAG, "Invalid KTX2 level index.");
+                return false;
+            }
+
+            inflatedData.resize((size_t)inflatedSize);
+            size_t result = ZSTD_decompress(inflatedData.data(), inflatedData.size(), data + levelOffset, (size_t)levelLength);
+            if (ZSTD_isError(result) || result != inflatedSize) {
+                basisuUtils::logError(LOG_TAG, "Failed to inflate ZSTD supercompressed KTX2 level data.");
+                return false;
+            }
+            return true;
+#else
+            basisuUtils::logError(LOG_TAG, "ZSTD supercompressed KTX2 data is not supported.");
+            return false;
+#endif
+        }
+
+        /**
+         * @return the inflated level data, served from the session level cache when possible.
+         * The freshly inflated data is put to the cache if it fits the capacity, evicting the least recently used levels.
+         * The shared pointer keeps the data alive for the caller even if the level gets evicted meanwhile.
+         */
+        static std::shared_ptr<const basisu::vector<uint8_t>> obtainInflatedLevel(ktx2_session &session, uint32_t levelIndex) {
+            {
+                std::lock_guard<std::mutex> lock(session.levelCacheMutex);
+                for (size_t i = 0; i < session.cachedLevels.size(); i++) {
+                    if (session.cachedLevels[i].first == levelIndex) {
+                        ktx2_session::cached_level entry = session.cachedLevels[i];
+                        session.cachedLevels.erase(session.cachedLevels.begin() + i);
+                        session.cachedLevels.push_back(entry);
+                        return entry.second;
+                    }
+                }
+            }
+
+            // Inflate outside the lock, so the other levels can be served meanwhile.
+            std::shared_ptr<basisu::vector<uint8_t>> inflatedData = std::make_shared<basisu::vector<uint8_t>>();
+            if (!inflateLevel(*inflatedData, session.transcoder, levelIndex, session.data, session.dataSize)) {
+                return nullptr;
+            }
+
+            std::lock_guard<std::mutex> lock(session.levelCacheMutex);
+            uint32_t size = (uint32_t)inflatedData->size();
+            if (size > session.levelCacheCapacity) {
+                return inflatedData;
+            }
+            for (const ktx2_session::cached_level &entry : session.cachedLevels) {
+                if (entry.first == levelIndex) {
+                    // Another thread has inflated the same level at the same time.
+                    return entry.second;
+                }
+            }
+            session.cachedLevels.push_back(ktx2_session::cached_level(levelIndex, inflatedData));
+            session.levelCacheSize += size;
+            while (session.levelCacheSize > session.levelCacheCapacity) {
+                session.levelCacheSize -= (uint32_t)session.cachedLevels.front().second->size();
+                session.cachedLevels.erase(session.cachedLevels.begin());
+            }
+            return inflatedData;
+        }
+
+        /**
+         * Locates the raw UASTC blocks of a level image.
+         * ZSTD supercompressed level data is inflated (on the calling thread) or taken from the session level cache,
+         * "inflatedData" keeps it alive while the blocks are in use.
+         * @param session the session to cache the inflated levels within, may be nullptr.
+         */
+        static bool getUastcImageBlocks(const uint8_t *&blocks, std::shared_ptr<const basisu::vector<uint8_t>> &inflatedData,
+                                        ktx2_transcoder &transcoder, ktx2_session *session, const ktx2_image_level_info &levelInfo,
+                                        uint8_t *data, uint32_t dataSize) {
+            const ktx2_level_index &levelIndex = transcoder.get_level_index()[levelInfo.m_level_index];
+            uint64_t levelOffset = levelIndex.m_byte_offset.get_uint64();
+            uint64_t levelLength = levelIndex.m_byte_length.get_uint64();
+            if (levelOffset + levelLength > dataSize) {
+                basisuUtils::logError(LOG_TAG, "Invalid KTX2 level index.");
+                return false;
+            }
+
+            const uint8_t *levelData = data + levelOffset;
+            uint64_t levelDataSize = levelLength;
+
+            uint32_t supercompression = transcoder.get_header().m_supercompression_scheme;
+            if (supercompression == KTX2_SS_ZSTANDARD) {
+                if (session != nullptr) {
+                    inflatedData = obtainInflatedLevel(*session, levelInfo.m_level_index);
+                } else {
+                    std::shared_ptr<basisu::vector<uint8_t>> levelInflatedData = std::make_shared<basisu::vector<uint8_t>>();
+                    if (inflateLevel(*levelInflatedData, transcoder, levelInfo.m_level_index, data, dataSize)) {
+                        inflatedData = levelInflatedData;
+                    }
+                }
+                if (!inflatedData) {
+                    return false;
+                }
+                levelData = inflatedData->data();
+                levelDataSize = inflatedData->size();
+            } else if (supercompression != KTX2_SS_NONE) {
+                basisuUtils::logError(LOG_TAG, "Unsupported KTX2 supercompression scheme for UASTC data.");
+                return false;
+            }
+
+            // The level data holds all the layer and face images one after another.
+            uint64_t imageSize = (uint64_t)levelInfo.m_total_blocks * UASTC_BLOCK_SIZE;
+            uint64_t imageOffset = ((uint64_t)levelInfo.m_layer_index * transcoder.get_faces() + levelInfo.m_face_index) * imageSize;
+            if (imageOffset + imageSize > levelDataSize) {
+                basisuUtils::logError(LOG_TAG, "Invalid UASTC level data size.");
+                return false;
+            }
+
+            blocks = levelData + imageOffset;
+            return true;
+        }
+
+        /** @return true if the session has a level cache and the level would be inflated from ZSTD supercompressed data. */
+        static bool isLevelCacheable(ktx2_session *session, ktx2_transcoder &transcoder, transcoder_texture_format format) {
+            if (session == nullptr || !transcoder.is_uastc()) {
+                return false;
+            }
+            uint32_t supercompression = transcoder.get_header().m_supercompression_scheme;
+            if (supercompression != KTX2_SS_ZSTANDARD) {
+                return false;
+            }
+            // PVRTC1 output can only be produced for the whole level by the KTX2 transcoder itself.
+            if (format == transcoder_texture_format::cTFPVRTC1_4_RGB || format == transcoder_texture_format::cTFPVRTC1_4_RGBA) {
+                return false;
+            }
+            std::lock_guard<std::mutex> lock(session->levelCacheMutex);
+            return session->levelCacheCapacity > 0;
+        }
+
+        /**
+         * The transcoder must be started (ktx2_transcoder::start_transcoding()) prior to the call.
+         * @param session the session to cache the inflated levels within, may be nullptr.
+         */
+        static bool transcodeLevel(uint8_t *out, uint32_t outCapacity, uint32_t &outSize,
+                                   ktx2_transcoder &transcoder, ktx2_session *session, uint8_t *data, uint32_t dataSize,
+                                   uint32_t layerIndex, uint32_t levelIndex, uint32_t faceIndex, transcoder_texture_format format,
+                                   uint32_t workerCount, uint32_t decodeFlags) {
+            ktx2_image_level_info levelInfo = {};
+            if (!getLevelInfo(levelInfo, transcoder, layerIndex, levelIndex, faceIndex)) {
+                return false;
+            }
+
+            uint32_t origWidth = levelInfo.m_orig_width;
+            uint32_t origHeight = levelInfo.m_orig_height;
+            decodeFlags = sanitizeDecodeFlags(decodeFlags);
+
+            outSize = basisuWrapper::getTranscodedSize(origWidth, origHeight, levelInfo.m_total_blocks, format);
+            if (outSize > outCapacity) {
+                basisuUtils::logError(LOG_TAG, "The output buffer is too small for the transcoded image level.");
+                return false;
+            }
+
+            if (transcoder.is_uastc()) {
+                workerCount = getRowSplitWorkerCount(workerCount, levelInfo.m_num_blocks_y, format);
+                if (workerCount > 1 || isLevelCacheable(session, transcoder, format)) {
+                    const uint8_t *blocks;
+                    std::shared_ptr<const basisu::vector<uint8_t>> inflatedData;
+                    if (!getUastcImageBlocks(blocks, inflatedData, transcoder, session, levelInfo, data, dataSize)) {
+                        return false;
+                    }
+                    return basisuWrapper::transcodeUastcParallel(out, blocks,
+                            levelInfo.m_num_blocks_x, levelInfo.m_num_blocks_y, origWidth, origHeight,
+                            levelIndex, transcoder.get_has_alpha(), transcoder.is_video(), format, workerCount, decodeFlags);
+                }
+            }
+
+            uint32_t outBlocks = basis_transcoder_format_is_uncompressed(format)
+                    ? origWidth * origHeight
+                    : outSize / basis_get_bytes_per_block_or_pixel(format);
+
+            // A dedicated transcoder state makes the call safe to run concurrently with the other ones on the same transcoder.
+            // Video frames are the exception, as the P-frames are decoded against the previous frame kept in the transcoder's own state.
+            ktx2_transcoder_state state;
+            ktx2_transcoder_state *pState = transcoder.is_video() ? nullptr : &state;
+
+            return transcoder.transcode_image_level(
+                levelIndex, layerIndex, faceIndex,
+                out, outBlocks,
+                format,
+                decodeFlags,
+                0, 0, -1, -1,
+                pState);
+        }
+
+        bool transcodeInto(uint8_t *out, uint32_t outCapacity, uint32_t &outSize, uint8_t *data, uint32_t dataSize,
+                           uint32_t layerIndex, uint32_t levelIndex, transcoder_texture_format format, uint32_t workerCount,
+                           uint32_t decodeFlags) {
+
+            initBasisu();
+            ktx2_transcoder transcoder = {};
+
+            if (!transcoder.init(data, dataSize)) {
+               basisuUtils::logError(LOG_TAG, "Failed to read KTX2 data.");
+               return false;
+            }
+
+            if (!transcoder.start_transcoding()) {
+                basisuUtils::logError(LOG_TAG, "Failed to init transcoding for KTX2 data.");
+                return false;
+            }
+
+            bool status = transcodeLevel(out, outCapacity, outSize, transcoder, nullptr, data, dataSize,
+                    layerIndex, levelIndex, 0, format, workerCount, decodeFlags);
+
+            transcoder.clear();
+
+            return status;
+        }
+
+        static bool describe(basisu::vector<uint32_t> &out, ktx2_transcoder &transcoder) {
+            // Non-array textures report zero layers, but still have a single one to address.
+            uint32_t layers = transcoder.get_layers();
+            uint32_t levels = transcoder.get_levels();
+            uint32_t faces = transcoder.get_faces();
+
+            out.clear();
+            out.push_back(transcoder.get_width());
+            out.push_back(transcoder.get_height());
+            out.push_back(layers);
+            out.push_back(levels);
+            out.push_back(faces);
+            out.push_back((uint32_t)transcoder.get_format());
+            out.push_back(transcoder.get_has_alpha() ? 1u : 0u);
+
+            for (uint32_t layerIndex = 0; layerIndex < std::max(1u, layers); layerIndex++) {
+                for (uint32_t faceIndex = 0; faceIndex < faces; faceIndex++) {
+                    for (uint32_t levelIndex = 0; levelIndex < levels; levelIndex++) {
+                        ktx2_image_level_info levelInfo = {};
+                        if (!transcoder.get_image_level_info(levelInfo, levelIndex, layerIndex, faceIndex)) {
+                            basisuUtils::logError(LOG_TAG, "Failed to read image level info from KTX2 data.");
+                            return false;
+                        }
+                        out.push_back(levelInfo.m_level_index);
+                        out.push_back(levelInfo.m_layer_index);
+                        out.push_back(levelInfo.m_face_index);
+                        out.push_back(levelInfo.m_orig_width);
+                        out.push_back(levelInfo.m_orig_height);
+                        out.push_back(levelInfo.m_width);
+                        out.push_back(levelInfo.m_height);
+                        out.push_back(levelInfo.m_num_blocks_x);
+                        out.push_back(levelInfo.m_num_blocks_y);
+                        out.push_back(levelInfo.m_total_blocks);
+                        out.push_back((levelInfo.m_alpha_flag ? 1u : 0u) | (levelInfo.m_iframe_flag ? 2u : 0u));
+                    }
+                }
+            }
+            return true;
+        }
+
+        bool describe(basisu::vector<uint32_t> &out, uint8_t *data, uint32_t dataSize) {
+            initBasisu();
+
+            ktx2_transcoder transcoder = {};
+            if (!transcoder.init(data, dataSize)) {
+                basisuUtils::logError(LOG_TAG, "Failed to read KTX2 data.");
+                return false;
+            }
+
+            bool status = describe(out, transcoder);
+            transcoder.clear();
+            return status;
+        }
+
+        static bool getMipChainLayout(basisu::vector<transcoded_level> &levels, uint32_t &totalSize, ktx2_transcoder &transcoder,
+                                      uint32_t layerIndex, uint32_t maxLevels, transcoder_texture_format format) {
+            uint32_t levelCount = std::min(maxLevels, transcoder.get_levels());
+            levels.resize(levelCount);
+            totalSize = 0;
+            for (uint32_t level = 0; level < levelCount; level++) {
+                ktx2_image_level_info levelInfo = {};
+                if (!getLevelInfo(levelInfo, transcoder, layerIndex, level, 0)) {
+                    return false;
+                }
+                transcoded_level &levelDesc = levels[level];
+                levelDesc.offset = totalSize;
+                levelDesc.size = basisuWrapper::getTranscodedSize(levelInfo.m_orig_width, levelInfo.m_orig_height, levelInfo.m_total_blocks, format);
+                levelDesc.width = levelInfo.m_orig_width;
+                levelDesc.height = levelInfo.m_orig_height;
+                totalSize += levelDesc.size;
+            }
+            return true;
+        }
 
+        bool getMipChainLayout(basisu::vector<transcoded_level> &levels, uint32_t &totalSize, uint8_t *data, uint32_t dataSize,
+                               uint32_t layerIndex, uint32_t maxLevels, transcoder_texture_format format) {
             initBasisu();
+
             ktx2_transcoder transcoder = {};
+            if (!transcoder.init(data, dataSize)) {
+                basisuUtils::logError(LOG_TAG, "Failed to read KTX2 data.");
+                return false;
+            }
+
+            bool status = getMipChainLayout(levels, totalSize, transcoder, layerIndex, maxLevels, format);
+            transcoder.clear();
+            return status;
+        }
+
+        static bool transcodeMipChain(uint8_t *out, const basisu::vector<transcoded_level> &levels,
+                                      ktx2_transcoder &transcoder, ktx2_session *session, uint8_t *data, uint32_t dataSize,
+                                      uint32_t layerIndex, transcoder_texture_format format, uint32_t decodeFlags) {
+            for (uint32_t level = 0; level < levels.size(); level++) {
+                const transcoded_level &levelDesc = levels[level];
+                uint32_t outSize;
+                if (!transcodeLevel(out + levelDesc.offset, levelDesc.size, outSize, transcoder, session, data, dataSize,
+                        layerIndex, level, 0, format, 1, decodeFlags)) {
+                    basisuUtils::logError(LOG_TAG, "Failed to transcode KTX2 image level.");
+                    return false;
+                }
+            }
+            return true;
+        }
 
-            // This value is hardcoded for now as cube-textures aren't support ATM.
-            int faceIndex = 0;
+        bool transcodeMipChain(uint8_t *out, const basisu::vector<transcoded_level> &levels, uint8_t *data, uint32_t dataSize,
+                               uint32_t layerIndex, transcoder_texture_format format, uint32_t decodeFlags) {
+            initBasisu();
+            ktx2_transcoder transcoder = {};
 
             if (!transcoder.init(data, dataSize)) {
                basisuUtils::logError(LOG_TAG, "Failed to read KTX2 data.");
                return false;
             }
 
+            // Start once for the whole chain, so the ETC1S codebooks are not decoded per level.
             if (!transcoder.start_transcoding()) {
                 basisuUtils::logError(LOG_TAG, "Failed to init transcoding for KTX2 data.");
                 return false;
             }
 
+            bool status = transcodeMipChain(out, levels, transcoder, nullptr, data, dataSize, layerIndex, format, decodeFlags);
+
+            transcoder.clear();
+
+            return status;
+        }
+
+        /**
+         * The transcoder must be started (ktx2_transcoder::start_transcoding()) prior to the call.
+         * @param session the session to cache the inflated levels within, may be nullptr.
+         */
+        static bool transcodeRegionInto(uint8_t *out, uint32_t outCapacity, uint32_t &outSize,
+                                        ktx2_transcoder &transcoder, ktx2_session *session, uint8_t *data, uint32_t dataSize,
+                                        uint32_t layerIndex, uint32_t levelIndex, const block_region &region,
+                                        transcoder_texture_format format, uint32_t decodeFlags) {
             ktx2_image_level_info levelInfo = {};
-            if (!transcoder.get_image_level_info(levelInfo, levelIndex, layerIndex, faceIndex)) {
-                basisuUtils::logError(LOG_TAG, "Failed to read image level info from KTX2 data.");
+            if (!getLevelInfo(levelInfo, transcoder, layerIndex, levelIndex, 0)) {
+                return false;
+            }
+            if (!basisuWrapper::validateRegion(region, levelInfo.m_num_blocks_x, levelInfo.m_num_blocks_y, format)) {
                 return false;
             }
 
             uint32_t origWidth = levelInfo.m_orig_width;
             uint32_t origHeight = levelInfo.m_orig_height;
-            uint32_t totalBlocks = levelInfo.m_total_blocks;
-            uint32_t outBufSize = 0;
-            uint32_t outBufBlocks = 0;
-            uint32_t decodeFlags = 0;
-            bool status;
-
-            // Compute the output buffer size and total block/pixel amount.
-            if (basis_transcoder_format_is_uncompressed(format)) {
 
-                const uint32_t bytesPerPixel = basis_get_uncompressed_bytes_per_pixel(format);
-                const uint32_t bytesPerLine = origWidth * bytesPerPixel;
-                const uint32_t bytesPerSlice = bytesPerLine * origHeight;
+            outSize = basisuWrapper::getTranscodedRegionSize(origWidth, origHeight, region, format);
+            if (outSize > outCapacity) {
+                basisuUtils::logError(LOG_TAG, "The output buffer is too small for the transcoded block region.");
+                return false;
+            }
 
-                outBufSize = bytesPerSlice;
-                outBufBlocks = origWidth * origHeight;
+            if (transcoder.is_uastc()) {
+                const uint8_t *blocks;
+                std::shared_ptr<const basisu::vector<uint8_t>> inflatedData;
+                return getUastcImageBlocks(blocks, inflatedData, transcoder, session, levelInfo, data, dataSize) &&
+                        basisuWrapper::transcodeUastcRegion(out, blocks, levelInfo.m_num_blocks_x, origWidth, origHeight,
+                                levelIndex, region, transcoder.get_has_alpha(), transcoder.is_video(), format,
+                                sanitizeDecodeFlags(decodeFlags));
+            }
 
-            } else {
+            // ETC1S slices can only be decoded as a whole.
+            basisu::vector<uint8_t> levelData;
+            levelData.resize(basisuWrapper::getTranscodedSize(origWidth, origHeight, levelInfo.m_total_blocks, format));
+            uint32_t levelSize;
+            if (!transcodeLevel(levelData.data(), levelData.size(), levelSize, transcoder, session, data, dataSize,
+                    layerIndex, levelIndex, 0, format, 1, decodeFlags)) {
+                return false;
+            }
+            basisuWrapper::copyRegion(out, levelData.data(), origWidth, origHeight, levelInfo.m_num_blocks_x, region, format);
+            return true;
+        }
 
-                uint32_t bytesPerBlock = basis_get_bytes_per_block_or_pixel(format);
-                uint32_t requiredSize = totalBlocks * bytesPerBlock;
-
-                if (format == transcoder_texture_format::cTFPVRTC1_4_RGB ||
-                    format == transcoder_texture_format::cTFPVRTC1_4_RGBA) {
-                   // For PVRTC1, Basis only writes (or requires) total_blocks * bytes_per_block. But GL requires extra padding for very small textures:
-                   // https://www.khronos.org/registry/OpenGL/extensions/IMG/IMG_texture_compression_pvrtc.txt
-                   // The transcoder will clear the extra bytes followed the used blocks to 0.
-                   const uint32_t width = (origWidth + 3) & ~3;
-                   const uint32_t height = (origHeight + 3) & ~3;
-                   requiredSize = (std::max(8U, width) * std::max(8U, height) * 4 + 7) / 8;
-                   assert(requiredSize >= totalBlocks * bytesPerBlock);
-                }
+        bool transcodeRegionInto(uint8_t *out, uint32_t outCapacity, uint32_t &outSize, uint8_t *data, uint32_t dataSize,
+                                 uint32_t layerIndex, uint32_t levelIndex, const block_region &region,
+                                 transcoder_texture_format format, uint32_t decodeFlags) {
+            initBasisu();
+            ktx2_transcoder transcoder = {};
 
-                outBufSize = requiredSize;
-                outBufBlocks = requiredSize / bytesPerBlock;
+            if (!transcoder.init(data, dataSize)) {
+               basisuUtils::logError(LOG_TAG, "Failed to read KTX2 data.");
+               return false;
             }
 
-            out.resize(outBufSize);
+            if (!transcoder.start_transcoding()) {
+                basisuUtils::logError(LOG_TAG, "Failed to init transcoding for KTX2 data.");
+                return false;
+            }
 
-            status = transcoder.transcode_image_level(
-                levelIndex, layerIndex, 0,
-                out.data(), outBufBlocks,
-                static_cast<basist::transcoder_texture_format>(format),
-                decodeFlags);
+            bool status = transcodeRegionInto(out, outCapacity, outSize, transcoder, nullptr, data, dataSize,
+                    layerIndex, levelIndex, region, format, decodeFlags);
 
             transcoder.clear();
 
             return status;
         }
 
+        ktx2_session* createSession(uint8_t *data, uint32_t dataSize, uint32_t levelCacheCapacity) {
+            initBasisu();
+            ktx2_session *session = new ktx2_session();
+            session->data = data;
+            session->dataSize = dataSize;
+            session->levelCacheCapacity = levelCacheCapacity;
+
+            if (!session->transcoder.init(data, dataSize)) {
+                basisuUtils::logError(LOG_TAG, "Failed to read KTX2 data.");
+                delete session;
+                return nullptr;
+            }
+
+            // For ETC1S this decodes the global codebooks, which is the expensive part
+            // we only want to pay once per file.
+            if (!session->transcoder.start_transcoding()) {
+                basisuUtils::logError(LOG_TAG, "Failed to init transcoding for KTX2 data.");
+                delete session;
+                return nullptr;
+            }
+            return session;
+        }
+
+        void disposeSession(ktx2_session *session) {
+            session->transcoder.clear();
+            delete session;
+        }
+
+        void setLevelCacheCapacity(ktx2_session &session, uint32_t capacity) {
+            std::lock_guard<std::mutex> lock(session.levelCacheMutex);
+            session.levelCacheCapacity = capacity;
+            while (session.levelCacheSize > capacity) {
+                session.levelCacheSize -= (uint32_t)session.cachedLevels.front().second->size();
+                session.cachedLevels.erase(session.cachedLevels.begin());
+            }
+        }
+
+        uint32_t getLevelCacheSize(ktx2_session &session) {
+            std::lock_guard<std::mutex> lock(session.levelCacheMutex);
+            return session.levelCacheSize;
+        }
+
+        bool getImageLevelInfo(ktx2_image_level_info& imageInfo, ktx2_session &session, uint32_t layerIndex, uint32_t levelIndex,
+                               uint32_t faceIndex) {
+            return getLevelInfo(imageInfo, session.transcoder, layerIndex, levelIndex, faceIndex);
+        }
+
+        bool getTranscodedSize(uint32_t &outSize, ktx2_session &session,
+                               uint32_t layerIndex, uint32_t levelIndex, uint32_t faceIndex, transcoder_texture_format format) {
+            ktx2_image_level_info levelInfo = {};
+            if (!getLevelInfo(levelInfo, session.transcoder, layerIndex, levelIndex, faceIndex)) {
+                return false;
+            }
+            outSize = basisuWrapper::getTranscodedSize(levelInfo.m_orig_width, levelInfo.m_orig_height, levelInfo.m_total_blocks, format);
+            return true;
+        }
+
+        bool transcode(basisu::vector<uint8_t> &out, ktx2_session &session,
+                       uint32_t layerIndex, uint32_t levelIndex, uint32_t faceIndex, transcoder_texture_format format,
+                       uint32_t decodeFlags) {
+            uint32_t size;
+            if (!getTranscodedSize(size, session, layerIndex, levelIndex, faceIndex, format)) {
+                return false;
+            }
+            out.resize(size);
+            return transcodeInto(out.data(), size, size, session, layerIndex, levelIndex, faceIndex, format, 1, decodeFlags);
+        }
+
+        bool transcodeInto(uint8_t *out, uint32_t outCapacity, uint32_t &outSize, ktx2_session &session,
+                           uint32_t layerIndex, uint32_t levelIndex, uint32_t faceIndex, transcoder_texture_format format,
+                           uint32_t workerCount, uint32_t decodeFlags) {
+            return transcodeLevel(out, outCapacity, outSize, session.transcoder, &session, session.data, session.dataSize,
+                    layerIndex, levelIndex, faceIndex, format, workerCount, decodeFlags);
+        }
+
+        bool describe(basisu::vector<uint32_t> &out, ktx2_session &session) {
+            return describe(out, session.transcoder);
+        }
+
+        bool getMipChainLayout(basisu::vector<transcoded_level> &levels, uint32_t &totalSize, ktx2_session &session,
+                               uint32_t layerIndex, uint32_t maxLevels, transcoder_texture_format format) {
+            return getMipChainLayout(levels, totalSize, session.transcoder, layerIndex, maxLevels, format);
+        }
+
+        bool transcodeMipChain(uint8_t *out, const basisu::vector<transcoded_level> &levels, ktx2_session &session,
+                               uint32_t layerIndex, transcoder_texture_format format, uint32_t decodeFlags) {
+            return transcodeMipChain(out, levels, session.transcoder, &session, session.data, session.dataSize,
+                    layerIndex, format, decodeFlags);
+        }
+
+        bool transcodeRegionInto(uint8_t *out, uint32_t outCapacity, uint32_t &outSize, ktx2_session &session,
+                                 uint32_t layerIndex, uint32_t levelIndex, const block_region &region,
+                                 transcoder_texture_format format, uint32_t decodeFlags) {
+            return transcodeRegionInto(out, outCapacity, outSize, session.transcoder, &session, session.data, session.dataSize,
+                    layerIndex, levelIndex, region, format, decodeFlags);
+        }
+
     } // namespace ktx2
 
 } // namespace basisuWrapper
@@ -1,6 +1,10 @@
 #pragma once
 
 #include <stdint.h>
+#include <memory>
+#include <mutex>
+#include <utility>
+#include <vector>
 
 #include "basisu_transcoder.h"
 #include "basisu_containers.h"
@@ -22,8 +26,73 @@ namespace basisuWrapper {
         basist::basis_tex_format textureFormat;
     };
 
+    /**
+     * Keeps a started transcoder for a single .basis file data,
+     * so the header is parsed and the ETC1S codebooks are decoded only once
+     * and not on every info/transcode call.
+     * The data must remain valid for the whole lifetime of the session.
+     */
+    struct basis_session {
+        basisu_transcoder transcoder;
+        uint8_t *data;
+        uint32_t dataSize;
+    };
+
+    /**
+     * Keeps an initialized and started transcoder for a single .ktx2 file data,
+     * so the header and level index are parsed and the ETC1S global codebooks are decoded only once.
+     * ZSTD supercompressed UASTC levels may additionally be kept inflated in a bounded LRU cache,
+     * so transcoding the same level again (e.g. to another format) doesn't inflate it once more.
+     * The data must remain valid for the whole lifetime of the session.
+     */
+    struct ktx2_session {
+        typedef std::pair<uint32_t, std::shared_ptr<const basisu::vector<uint8_t>>> cached_level;
+
+        ktx2_transcoder transcoder;
+        uint8_t *data;
+        uint32_t dataSize;
+
+        std::mutex levelCacheMutex;
+        /** The max total size in bytes of the inflated levels to keep (zero disables the cache). */
+        uint32_t levelCacheCapacity = 0;
+        uint32_t levelCacheSize = 0;
+        /** The inflated levels by level index, the least recently used first. */
+        std::vector<cached_level> cachedLevels;
+    };
+
+    /** Placement of a single transcoded level within a mipmap chain buffer. */
+    struct transcoded_level {
+        uint32_t offset;
+        uint32_t size;
+        uint32_t width;
+        uint32_t height;
+    };
+    // The level table is copied to Java as a plain int array.
+    static_assert(sizeof(transcoded_level) == 4 * sizeof(uint32_t), "transcoded_level must be tightly packed.");
+
+    /** A rectangular range of 4x4 blocks within an image level. */
+    struct block_region {
+        uint32_t x;
+        uint32_t y;
+        uint32_t width;
+        uint32_t height;
+    };
+
     bool isTranscoderTexFormatSupported(transcoder_texture_format transcoderTexFormat, basis_tex_format basisTexFormat);
 
+    /**
+     * @return the size in bytes of an image level transcoded to the specified format
+     * (includes the PVRTC1 minimum size padding).
+     */
+    uint32_t getTranscodedSize(uint32_t origWidth, uint32_t origHeight, uint32_t totalBlocks, transcoder_texture_format format);
+
+    /**
+     * @return the size in bytes of a block region transcoded to the specified format.
+     * The compressed regions are tightly packed block rows ("region.width" blocks each),
+     * the uncompressed ones are tightly packed pixel rows clipped by the original level size.
+     */
+    uint32_t getTranscodedRegionSize(uint32_t origWidth, uint32_t origHeight, const block_region &region, transcoder_texture_format format);
+
     namespace basis {
 
         bool validateHeader(uint8_t *data, uint32_t dataSize);
@@ -36,8 +105,91 @@ namespace basisuWrapper {
 
         bool getImageLevelInfo(basisu_image_level_info &imageInfo, uint8_t *data, uint32_t dataSize, uint32_t imageIndex, uint32_t imageLevel);
 
+        bool getTranscodedSize(uint32_t &outSize, uint8_t *data, uint32_t dataSize,
+                               uint32_t imageIndex, uint32_t levelIndex, transcoder_texture_format format);
+
+        /**
+         * @param decodeFlags a combination of basist::basisu_decode_flags.
+         * The flags that would change the transcoded level size (cDecodeFlagsPVRTCDecodeToNextPow2) are ignored.
+         */
         bool transcode(basisu::vector<uint8_t> &out, uint8_t *data, uint32_t dataSize,
-                       uint32_t imageIndex, uint32_t levelIndex, transcoder_texture_format format);
+                       uint32_t imageIndex, uint32_t levelIndex, transcoder_texture_format format, uint32_t decodeFlags = 0);
+
+        /**
+         * Transcodes directly into the provided memory.
+         * @param outSize receives the transcoded level size (also when the capacity is insufficient).
+         * @param workerCount the max number of threads to transcode UASTC data with (the block rows are split between them).
+         * ETC1S data, PVRTC1/PVRTC2 output and small levels are always transcoded on the calling thread.
+         * @return false if the transcoding failed or "outCapacity" is smaller than the transcoded level size.
+         */
+        bool transcodeInto(uint8_t *out, uint32_t outCapacity, uint32_t &outSize, uint8_t *data, uint32_t dataSize,
+                           uint32_t imageIndex, uint32_t levelIndex, transcoder_texture_format format, uint32_t workerCount = 1,
+                           uint32_t decodeFlags = 0);
+
+        /** @return a new started session or nullptr if the data cannot be transcoded. */
+        basis_session* createSession(uint8_t *data, uint32_t dataSize);
+
+        void disposeSession(basis_session *session);
+
+        bool getImageInfo(basisu_image_info &imageInfo, basis_session &session, uint32_t imageIndex);
+
+        bool getImageLevelInfo(basisu_image_level_info &imageInfo, basis_session &session, uint32_t imageIndex, uint32_t imageLevel);
+
+        bool getTranscodedSize(uint32_t &outSize, basis_session &session,
+                               uint32_t imageIndex, uint32_t levelIndex, transcoder_texture_format format);
+
+        bool transcode(basisu::vector<uint8_t> &out, basis_session &session,
+                       uint32_t imageIndex, uint32_t levelIndex, transcoder_texture_format format, uint32_t decodeFlags = 0);
+
+        bool transcodeInto(uint8_t *out, uint32_t outCapacity, uint32_t &outSize, basis_session &session,
+                           uint32_t imageIndex, uint32_t levelIndex, transcoder_texture_format format, uint32_t workerCount = 1,
+                           uint32_t decodeFlags = 0);
+
+        /**
+         * Packs the whole file description (file info, every image and every image level) into a flat int array.
+         * The layout must match the decoding in com.crashinvaders.basisu.wrapper.BasisuFileDescription:
+         * <ul>
+         * <li>file: version, totalHeaderSize, totalSelectors, selectorCodebookSize, totalEndpoints, endpointCodebookSize,
+         * tablesSize, slicesSize, textureType, usPerFrame, totalImages, userdata0, userdata1, textureFormat, flags
+         * (bit 0 - y flipped, bit 1 - ETC1S, bit 2 - has alpha slices);</li>
+         * <li>followed by each image: imageIndex, totalLevels, origWidth, origHeight, width, height,
+         * numBlocksX, numBlocksY, totalBlocks, firstSliceIndex, flags (bit 0 - alpha, bit 1 - I-frame);</li>
+         * <li>followed by each of the image's levels: the same layout with levelIndex in place of totalLevels.</li>
+         * </ul>
+         */
+        bool describe(basisu::vector<uint32_t> &out, uint8_t *data, uint32_t dataSize);
+
+        /** @see describe() */
+        bool describe(basisu::vector<uint32_t> &out, basis_session &session);
+
+        /**
+         * Evaluates the layout of the transcoded mipmap chain, where all the levels are tightly packed one after another.
+         * @param maxLevels the max number of levels to include (the actual number is clamped to the image's total levels).
+         * @param totalSize receives the size of the whole chain in bytes.
+         */
+        bool getMipChainLayout(basisu::vector<transcoded_level> &levels, uint32_t &totalSize, basis_session &session,
+                               uint32_t imageIndex, uint32_t maxLevels, transcoder_texture_format format);
+
+        /** Transcodes all the levels into the memory block laid out by getMipChainLayout(). */
+        bool transcodeMipChain(uint8_t *out, const basisu::vector<transcoded_level> &levels, basis_session &session,
+                               uint32_t imageIndex, transcoder_texture_format format, uint32_t decodeFlags = 0);
+
+        /**
+         * Transcodes only the specified block region of an image level (see getTranscodedRegionSize() for the output layout).
+         * UASTC blocks are decoded independently, so only the region blocks are processed.
+         * ETC1S slices can only be decoded as a whole, so the level is transcoded into temporary memory and the region is copied out.
+         * PVRTC1/PVRTC2 output is not supported, as the blocks of these formats depend on their neighbors.
+         * @param outSize receives the transcoded region size (also when the capacity is insufficient).
+         * @return false if the region is out of the level bounds, the transcoding failed or "outCapacity" is insufficient.
+         */
+        bool transcodeRegionInto(uint8_t *out, uint32_t outCapacity, uint32_t &outSize, basis_session &session,
+                                 uint32_t imageIndex, uint32_t levelIndex, const block_region &region,
+                                 transcoder_texture_format format, uint32_t decodeFlags = 0);
+
+        /** @see basis::transcodeRegionInto() */
+        bool transcodeRegionInto(uint8_t *out, uint32_t outCapacity, uint32_t &outSize, uint8_t *data, uint32_t dataSize,
+                                 uint32_t imageIndex, uint32_t levelIndex, const block_region &region,
+                                 transcoder_texture_format format, uint32_t decodeFlags = 0);
 
     } // namespace basis
 
@@ -47,8 +199,85 @@ namespace basisuWrapper {
 
         bool getImageLevelInfo(ktx2_image_level_info& imageInfo, uint8_t *data, uint32_t dataSize, uint32_t layerIndex, uint32_t levelIndex);
 
+        bool getTranscodedSize(uint32_t &outSize, uint8_t *data, uint32_t dataSize,
+                               uint32_t layerIndex, uint32_t levelIndex, transcoder_texture_format format);
+
+        /** @see basis::transcode() */
         bool transcode(basisu::vector<uint8_t> &out, uint8_t *data, uint32_t dataSize,
-                       uint32_t layerIndex, uint32_t levelIndex, transcoder_texture_format format);
+                       uint32_t layerIndex, uint32_t levelIndex, transcoder_texture_format format, uint32_t decodeFlags = 0);
+
+        /** @see basis::transcodeInto() */
+        bool transcodeInto(uint8_t *out, uint32_t outCapacity, uint32_t &outSize, uint8_t *data, uint32_t dataSize,
+                           uint32_t layerIndex, uint32_t levelIndex, transcoder_texture_format format, uint32_t workerCount = 1,
+                           uint32_t decodeFlags = 0);
+
+        /**
+         * Packs the whole file description (file info and every layer/face/level) into a flat int array.
+         * The layout must match the decoding in com.crashinvaders.basisu.wrapper.Ktx2FileDescription:
+         * <ul>
+         * <li>file: width, height, layers, levels, faces, textureFormat, flags (bit 0 - has alpha);</li>
+         * <li>followed by each level of each face of each layer: levelIndex, layerIndex, faceIndex, origWidth, origHeight, width, height,
+         * numBlocksX, numBlocksY, totalBlocks, flags (bit 0 - alpha, bit 1 - I-frame).</li>
+         * </ul>
+         */
+        bool describe(basisu::vector<uint32_t> &out, uint8_t *data, uint32_t dataSize);
+
+        /** @see basis::getMipChainLayout() */
+        bool getMipChainLayout(basisu::vector<transcoded_level> &levels, uint32_t &totalSize, uint8_t *data, uint32_t dataSize,
+                               uint32_t layerIndex, uint32_t maxLevels, transcoder_texture_format format);
+
+        /** @see basis::transcodeMipChain() */
+        bool transcodeMipChain(uint8_t *out, const basisu::vector<transcoded_level> &levels, uint8_t *data, uint32_t dataSize,
+                               uint32_t layerIndex, transcoder_texture_format format, uint32_t decodeFlags = 0);
+
+        /** @see basis::transcodeRegionInto() */
+        bool transcodeRegionInto(uint8_t *out, uint32_t outCapacity, uint32_t &outSize, uint8_t *data, uint32_t dataSize,
+                                 uint32_t layerIndex, uint32_t levelIndex, const block_region &region,
+                                 transcoder_texture_format format, uint32_t decodeFlags = 0);
+
+        /**
+         * @param levelCacheCapacity the max total size in bytes of the inflated ZSTD supercompressed levels
+         * the session keeps in memory (zero disables the cache).
+         * @return a new started session or nullptr if the data cannot be transcoded.
+         */
+        ktx2_session* createSession(uint8_t *data, uint32_t dataSize, uint32_t levelCacheCapacity = 0);
+
+        void disposeSession(ktx2_session *session);
+
+        /** Changes the level cache capacity, evicting the least recently used levels that don't fit it anymore. */
+        void setLevelCacheCapacity(ktx2_session &session, uint32_t capacity);
+
+        /** @return the total size in bytes of the currently cached inflated levels. */
+        uint32_t getLevelCacheSize(ktx2_session &session);
+
+        // The session functions below take a "faceIndex" to address the cubemap faces (0..5).
+        // It should be zero for the regular (non-cubemap) textures.
+
+        bool getImageLevelInfo(ktx2_image_level_info& imageInfo, ktx2_session &session, uint32_t layerIndex, uint32_t levelIndex,
+                               uint32_t faceIndex);
+
+        bool getTranscodedSize(uint32_t &outSize, ktx2_session &session,
+                               uint32_t layerIndex, uint32_t levelIndex, uint32_t faceIndex, transcoder_texture_format format);
+
+        bool transcode(basisu::vector<uint8_t> &out, ktx2_session &session,
+                       uint32_t layerIndex, uint32_t levelIndex, uint32_t faceIndex, transcoder_texture_format format,
+                       uint32_t decodeFlags = 0);
+
+        bool transcodeInto(uint8_t *out, uint32_t outCapacity, uint32_t &outSize, ktx2_session &session,
+                           uint32_t layerIndex, uint32_t levelIndex, uint32_t faceIndex, transcoder_texture_format format,
+                           uint32_t workerCount = 1, uint32_t decodeFlags = 0);
+
+        bool describe(basisu::vector<uint32_t> &out, ktx2_session &session);
+
+        bool getMipChainLayout(basisu::vector<transcoded_level> &levels, uint32_t &totalSize, ktx2_session &session,
+                               uint32_t layerIndex, uint32_t maxLevels, transcoder_texture_format format);
+
+        bool transcodeMipChain(uint8_t *out, const basisu::vector<transcoded_level> &levels, ktx2_session &session,
+                               uint32_t layerIndex, transcoder_texture_format format, uint32_t decodeFlags = 0);
+
+        bool transcodeRegionInto(uint8_t *out, uint32_t outCapacity, uint32_t &outSize, ktx2_session &session,
+                                 uint32_t layerIndex, uint32_t levelIndex, const block_region &region,
+                                 transcoder_texture_format format, uint32_t decodeFlags = 0);
 
     } // namespace ktx
 
@@ -28,6 +28,13 @@ val vecToTypedArray(basisu::vector<uint8_t> &vec) {
     return jsValue;
 }
 
+val vecToIntArray(basisu::vector<uint32_t> &vec) {
+    val jsValue = val::global("Int32Array").new_(vec.size());
+    val memoryView{typed_memory_view(vec.size(), (int32_t*)vec.data())};
+    jsValue.call<void>("set", memoryView);
+    return jsValue;
+}
+
 int main(int, char**) {
     basisuUtils::logInfo(LOG_TAG, "libGDX Basis Universal native library is ready.");
     return 0;
@@ -40,11 +47,29 @@ bool isTranscoderTexFormatSupported_wrap(uint32_t transcoderTexFormatId, uint32_
     return basisuWrapper::isTranscoderTexFormatSupported(transcoderTexFormat, basisTexFormat);
 }
 
+// The output for an out of bounds region is left empty, transcodeRegionInto() reports the actual error.
+static uint32_t regionSize(uint32_t origWidth, uint32_t origHeight, uint32_t numBlocksX, uint32_t numBlocksY,
+                           const basisuWrapper::block_region &region, basist::transcoder_texture_format format) {
+    if (region.x >= numBlocksX || region.y >= numBlocksY ||
+            region.width > numBlocksX - region.x || region.height > numBlocksY - region.y) {
+        return 0;
+    }
+    return basisuWrapper::getTranscodedRegionSize(origWidth, origHeight, region, format);
+}
+
 // Holds the encoded file bytes in Wasm memory once (copied in on construction) so repeated
 // info/transcode calls reuse the same buffer instead of re-uploading it from JS every time.
+// The transcoder session is started lazily on the first image/transcode call and kept for the file's lifetime.
 class BasisFile {
 public:
-    explicit BasisFile(const val &jsData) : data(vecFromTypedArray(jsData)) {}
+    explicit BasisFile(const val &jsData) : data(vecFromTypedArray(jsData)), session(nullptr) {}
+
+    ~BasisFile() {
+        if (session != nullptr) {
+            basisuWrapper::basis::disposeSession(session);
+            session = nullptr;
+        }
+    }
 
     bool validateHeader() {
         return basisuWrapper::basis::validateHeader(data.data(), data.size());
@@ -62,9 +87,17 @@ public:
         return fileInfo;
     }
 
+    val describe() {
+        basisu::vector<uint32_t> description;
+        if (!basisuWrapper::basis::describe(description, getSession())) {
+            basisuUtils::throwException(nullptr, "Failed to obtain Basis file description.");
+        }
+        return vecToIntArray(description);
+    }
+
     basist::basisu_image_info getImageInfo(uint32_t imageIndex) {
         basist::basisu_image_info imageInfo;
-        if (!basisuWrapper::basis::getImageInfo(imageInfo, data.data(), data.size(), imageIndex)) {
+        if (!basisuWrapper::basis::getImageInfo(imageInfo, getSession(), imageIndex)) {
             basisuUtils::throwException(nullptr, "Failed to obtain Basis image info.");
         }
         return imageInfo;
@@ -72,17 +105,17 @@ public:
 
     basist::basisu_image_level_info getImageLevelInfo(uint32_t imageIndex, uint32_t imageLevel) {
         basist::basisu_image_level_info levelInfo;
-        if (!basisuWrapper::basis::getImageLevelInfo(levelInfo, data.data(), data.size(), imageIndex, imageLevel)) {
+        if (!basisuWrapper::basis::getImageLevelInfo(levelInfo, getSession(), imageIndex, imageLevel)) {
             basisuUtils::throwException(nullptr, "Failed to obtain Basis image level info.");
         }
         return levelInfo;
     }
 
-    val transcode(uint32_t imageIndex, uint32_t levelIndex, uint32_t textureFormatId) {
+    val transcode(uint32_t imageIndex, uint32_t levelIndex, uint32_t textureFormatId, uint32_t decodeFlags) {
         basisu::vector<uint8_t> output;
         basist::transcoder_texture_format format = static_cast<basist::transcoder_texture_format>(textureFormatId);
 
-        if (!basisuWrapper::basis::transcode(output, data.data(), data.size(), imageIndex, levelIndex, format)) {
+        if (!basisuWrapper::basis::transcode(output, getSession(), imageIndex, levelIndex, format, decodeFlags)) {
             basisuUtils::logError(LOG_TAG, "Error during Basis image transcoding!");
             basisuUtils::throwException(nullptr, "Error during basis image transcoding!");
         }
@@ -90,14 +123,51 @@ public:
         return vecToTypedArray(output);
     }
 
+    val transcodeRegion(uint32_t imageIndex, uint32_t levelIndex, uint32_t blockX, uint32_t blockY, uint32_t blocksWidth, uint32_t blocksHeight,
+                        uint32_t textureFormatId, uint32_t decodeFlags) {
+        basist::transcoder_texture_format format = static_cast<basist::transcoder_texture_format>(textureFormatId);
+        basisuWrapper::block_region region = { blockX, blockY, blocksWidth, blocksHeight };
+
+        basist::basisu_image_level_info levelInfo = getImageLevelInfo(imageIndex, levelIndex);
+        basisu::vector<uint8_t> output;
+        output.resize(regionSize(levelInfo.m_orig_width, levelInfo.m_orig_height, levelInfo.m_num_blocks_x, levelInfo.m_num_blocks_y, region, format));
+
+        uint32_t outSize = 0;
+        if (!basisuWrapper::basis::transcodeRegionInto(output.data(), output.size(), outSize, getSession(), imageIndex, levelIndex, region, format, decodeFlags)) {
+            basisuUtils::logError(LOG_TAG, "Error during Basis image region transcoding!");
+            basisuUtils::throwException(nullptr, "Error during basis image region transcoding!");
+        }
+
+        return vecToTypedArray(output);
+    }
+
 private:
     basisu::vector<uint8_t> data;
+    basisuWrapper::basis_session* session;
+
+    basisuWrapper::basis_session& getSession() {
+        if (session == nullptr) {
+            session = basisuWrapper::basis::createSession(data.data(), data.size());
+            if (session == nullptr) {
+                basisuUtils::throwException(nullptr, "Failed to start transcoding for the Basis data.");
+            }
+        }
+        return *session;
+    }
 };
 
 // Same idea as BasisFile, but for KTX2 containers.
+// The level cache of the session is disabled unless requested with setLevelCacheCapacity().
 class Ktx2File {
 public:
-    explicit Ktx2File(const val &jsData) : data(vecFromTypedArray(jsData)) {}
+    explicit Ktx2File(const val &jsData) : data(vecFromTypedArray(jsData)), session(nullptr) {}
+
+    ~Ktx2File() {
+        if (session != nullptr) {
+            basisuWrapper::ktx2::disposeSession(session);
+            session = nullptr;
+        }
+    }
 
     basisuWrapper::ktx2_file_info getFileInfo() {
         basisuWrapper::ktx2_file_info fileInfo;
@@ -107,19 +177,27 @@ public:
         return fileInfo;
     }
 
-    basist::ktx2_image_level_info getImageLevelInfo(uint32_t layerIndex, uint32_t levelIndex) {
+    val describe() {
+        basisu::vector<uint32_t> description;
+        if (!basisuWrapper::ktx2::describe(description, getSession())) {
+            basisuUtils::throwException(nullptr, "Failed to obtain KTX2 file description.");
+        }
+        return vecToIntArray(description);
+    }
+
+    basist::ktx2_image_level_info getImageLevelInfo(uint32_t layerIndex, uint32_t levelIndex, uint32_t faceIndex) {
         basist::ktx2_image_level_info imageInfo;
-        if (!basisuWrapper::ktx2::getImageLevelInfo(imageInfo, data.data(), data.size(), layerIndex, levelIndex)) {
+        if (!basisuWrapper::ktx2::getImageLevelInfo(imageInfo, getSession(), layerIndex, levelIndex, faceIndex)) {
             basisuUtils::throwException(nullptr, "Failed to obtain KTX2 image level info.");
         }
         return imageInfo;
     }
 
-    val transcode(uint32_t layerIndex, uint32_t levelIndex, uint32_t textureFormatId) {
+    val transcode(uint32_t layerIndex, uint32_t levelIndex, uint32_t faceIndex, uint32_t textureFormatId, uint32_t decodeFlags) {
         basisu::vector<uint8_t> output;
         basist::transcoder_texture_format format = static_cast<basist::transcoder_texture_format>(textureFormatId);
 
-        if (!basisuWrapper::ktx2::transcode(output, data.data(), data.size(), layerIndex, levelIndex, format)) {
+        if (!basisuWrapper::ktx2::transcode(output, getSession(), layerIndex, levelIndex, faceIndex, format, decodeFlags)) {
             basisuUtils::logError(LOG_TAG, "Error during KTX2 image transcoding!");
             basisuUtils::throwException(nullptr, "Error during KTX2 image transcoding!");
         }
@@ -127,8 +205,45 @@ public:
         return vecToTypedArray(output);
     }
 
+    val transcodeRegion(uint32_t layerIndex, uint32_t levelIndex, uint32_t blockX, uint32_t blockY, uint32_t blocksWidth, uint32_t blocksHeight,
+                        uint32_t textureFormatId, uint32_t decodeFlags) {
+        basist::transcoder_texture_format format = static_cast<basist::transcoder_texture_format>(textureFormatId);
+        basisuWrapper::block_region region = { blockX, blockY, blocksWidth, blocksHeight };
+
+        basist::ktx2_image_level_info levelInfo = getImageLevelInfo(layerIndex, levelIndex, 0);
+        basisu::vector<uint8_t> output;
+        output.resize(regionSize(levelInfo.m_orig_width, levelInfo.m_orig_height, levelInfo.m_num_blocks_x, levelInfo.m_num_blocks_y, region, format));
+
+        uint32_t outSize = 0;
+        if (!basisuWrapper::ktx2::transcodeRegionInto(output.data(), output.size(), outSize, getSession(), layerIndex, levelIndex, region, format, decodeFlags)) {
+            basisuUtils::logError(LOG_TAG, "Error during KTX2 image region transcoding!");
+            basisuUtils::throwException(nullptr, "Error during KTX2 image region transcoding!");
+        }
+
+        return vecToTypedArray(output);
+    }
+
+    void setLevelCacheCapacity(uint32_t capacity) {
+        basisuWrapper::ktx2::setLevelCacheCapacity(getSession(), capacity);
+    }
+
+    uint32_t getLevelCacheSize() {
+        return basisuWrapper::ktx2::getLevelCacheSize(getSession());
+    }
+
 private:
     basisu::vector<uint8_t> data;
+    basisuWrapper::ktx2_session* session;
+
+    basisuWrapper::ktx2_session& getSession() {
+        if (session == nullptr) {
+            session = basisuWrapper::ktx2::createSession(data.data(), data.size());
+            if (session == nullptr) {
+                basisuUtils::throwException(nullptr, "Failed to start transcoding for the KTX2 data.");
+            }
+        }
+        return *session;
+    }
 };
 
 //uint8_t basisFileInfo_texFormat(basist::basisu_file_info &fileInfo) {
@@ -245,16 +360,22 @@ EMSCRIPTEN_BINDINGS(my_module) {
         .function("validateHeader", &BasisFile::validateHeader)
         .function("validateChecksum", &BasisFile::validateChecksum)
         .function("getFileInfo", &BasisFile::getFileInfo)
+        .function("describe", &BasisFile::describe)
         .function("getImageInfo", &BasisFile::getImageInfo)
         .function("getImageLevelInfo", &BasisFile::getImageLevelInfo)
         .function("transcode", &BasisFile::transcode)
+        .function("transcodeRegion", &BasisFile::transcodeRegion)
         ;
 
     class_<Ktx2File>("Ktx2File")
         .constructor<const val&>()
         .function("getFileInfo", &Ktx2File::getFileInfo)
+        .function("describe", &Ktx2File::describe)
         .function("getImageLevelInfo", &Ktx2File::getImageLevelInfo)
         .function("transcode", &Ktx2File::transcode)
+        .function("transcodeRegion", &Ktx2File::transcodeRegion)
+        .function("setLevelCacheCapacity", &Ktx2File::setLevelCacheCapacity)
+        .function("getLevelCacheSize", &Ktx2File::getLevelCacheSize)
         ;
 }
 
@@ -0,0 +1,62 @@
+package com.crashinvaders.basisu.wrapper;
+
+/**
+ * Direct mapping of <code>basist::basisu_decode_flags</code> constants.
+ * The flags are bits that can be combined with the bitwise OR operator and passed to any of the transcode methods
+ * that take the "decodeFlags" parameter, e.g.
+ * <code>BasisuDecodeFlags.HIGH_QUALITY | BasisuDecodeFlags.BC1_FORBID_THREE_COLOR_BLOCKS</code>.
+ * <p/>
+ * Only the flags that don't affect the transcoded level size are exposed
+ * (<code>cDecodeFlagsPVRTCDecodeToNextPow2</code> is ignored by the transcode methods).
+ */
+public final class BasisuDecodeFlags {
+
+    /** The default transcoding mode (the fast one). */
+    public static final int NONE = 0;
+
+    /**
+     * Transcodes the alpha data to the opaque formats (e.g. ETC1_RGB, BC1_RGB) instead of the color data.
+     * Useful to store the alpha channel in a separate texture.
+     */
+    public static final int TRANSCODE_ALPHA_DATA_TO_OPAQUE_FORMATS = 4;
+
+    /**
+     * Forbids the BC1 3-color blocks with the transparent black texels.
+     * Required on some hardware that treats BC1 as BC1 with alpha.
+     */
+    public static final int BC1_FORBID_THREE_COLOR_BLOCKS = 8;
+
+    /**
+     * Uses the slower, higher quality transcoding paths where available
+     * (currently UASTC to ETC1/ETC2/BC1/BC3).
+     */
+    public static final int HIGH_QUALITY = 32;
+
+    /** Disables the chroma filtering of ETC1S data transcoded to the uncompressed formats, which is faster. */
+    public static final int NO_ETC1S_CHROMA_FILTERING = 64;
+
+    private static final int SUPPORTED_FLAGS = TRANSCODE_ALPHA_DATA_TO_OPAQUE_FORMATS |
+            BC1_FORBID_THREE_COLOR_BLOCKS | HIGH_QUALITY | NO_ETC1S_CHROMA_FILTERING;
+
+    private BasisuDecodeFlags() {
+    }
+
+    /**
+     * @return true if all the bits of the "flag" are set in the "decodeFlags".
+     */
+    public static boolean isSet(int decodeFlags, int flag) {
+        return (decodeFlags & flag) == flag;
+    }
+
+    /**
+     * Checks the flags ahead of the transcoding (e.g. when they're configured).
+     * @return the same flags value.
+     * @throws BasisuWrapperException if the value contains any unknown bits.
+     */
+    public static int validate(int decodeFlags) {
+        if ((decodeFlags & ~SUPPORTED_FLAGS) != 0) {
+            throw new BasisuWrapperException("Unsupported decode flags: 0x" + Integer.toHexString(decodeFlags));
+        }
+        return decodeFlags;
+    }
+}
@@ -0,0 +1,123 @@
+package com.crashinvaders.basisu.wrapper;
+
+import static com.crashinvaders.basisu.wrapper.UniqueIdUtils.findOrThrow;
+
+/**
+ * Immutable description of the whole .basis file: the general file info, every image and every image level.
+ * Holds the same data as {@link BasisuFileInfo}, {@link BasisuImageInfo} and {@link BasisuImageLevelInfo} combined,
+ * but is obtained with a single native call and requires no native resources (no need to close it).
+ * <p/>
+ * Use {@link BasisuWrapper#basisDescribe(java.nio.Buffer)} or {@link BasisuTranscoderSession#describe()} to obtain an instance.
+ */
+public class BasisuFileDescription {
+
+    static final int PACKED_SIZE = 15;
+
+    private final int version;
+    private final int totalHeaderSize;
+    private final int totalSelectors;
+    private final int selectorCodebookSize;
+    private final int totalEndpoints;
+    private final int endpointCodebookSize;
+    private final int tablesSize;
+    private final int slicesSize;
+    private final BasisuTextureType textureType;
+    private final int usPerFrame;
+    private final int userdata0;
+    private final int userdata1;
+    private final BasisuTextureFormat textureFormat;
+    private final boolean flippedY;
+    private final boolean etc1s;
+    private final boolean alphaSlices;
+    private final BasisuImageDescription[] images;
+
+    /**
+     * @param packed the description packed by the native <code>basisuWrapper::basis::describe()</code> function
+     */
+    BasisuFileDescription(int[] packed) {
+        this.version = packed[0];
+        this.totalHeaderSize = packed[1];
+        this.totalSelectors = packed[2];
+        this.selectorCodebookSize = packed[3];
+        this.totalEndpoints = packed[4];
+        this.endpointCodebookSize = packed[5];
+        this.tablesSize = packed[6];
+        this.slicesSize = packed[7];
+        this.textureType = findOrThrow(BasisuTextureType.values(), packed[8]);
+        this.usPerFrame = packed[9];
+        int totalImages = packed[10];
+        this.userdata0 = packed[11];
+        this.userdata1 = packed[12];
+        this.textureFormat = findOrThrow(BasisuTextureFormat.values(), packed[13]);
+        int flags = packed[14];
+        this.flippedY = (flags & 1) != 0;
+        this.etc1s = (flags & 2) != 0;
+        this.alphaSlices = (flags & 4) != 0;
+
+        this.images = new BasisuImageDescription[totalImages];
+        int offset = PACKED_SIZE;
+        for (int i = 0; i < totalImages; i++) {
+            BasisuImageDescription image = new BasisuImageDescription(packed, offset);
+            images[i] = image;
+            offset += image.getPackedSize();
+        }
+    }
+
+    public BasisuTextureType getTextureType() { return textureType; }
+
+    public BasisuTextureFormat getTextureFormat() { return textureFormat; }
+
+    public int getVersion() { return version; }
+
+    public int getTotalHeaderSize() { return totalHeaderSize; }
+
+    public int getTotalSelectors() { return totalSelectors; }
+
+    public int getSelectorCodebookSize() { return selectorCodebookSize; }
+
+    public int getTotalEndpoints() { return totalEndpoints; }
+
+    public int getEndpointCodebookSize() { return endpointCodebookSize; }
+
+    public int getTablesSize() { return tablesSize; }
+
+    public int getSlicesSize() { return slicesSize; }
+
+    public int getUsPerFrame() { return usPerFrame; }
+
+    /** Total number of images. */
+    public int getTotalImages() { return images.length; }
+
+    /** The number of mipmap levels for each image. */
+    public int[] getImageMipmapLevels() {
+        int[] levels = new int[images.length];
+        for (int i = 0; i < images.length; i++) {
+            levels[i] = images[i].getTotalLevels();
+        }
+        return levels;
+    }
+
+    public int getUserdata0() { return userdata0; }
+
+    public int getUserdata1() { return userdata1; }
+
+    /** True if the image was Y flipped. */
+    public boolean isFlippedY() { return flippedY; }
+
+    /** True if the file is ETC1. */
+    public boolean isEtc1s() { return etc1s; }
+
+    /** True if the texture has alpha slices (for ETC1S: even slices RGB, odd slices alpha). */
+    public boolean hasAlphaSlices() { return alphaSlices; }
+
+    public BasisuImageDescription getImage(int imageIndex) {
+        if (imageIndex < 0 || imageIndex >= images.length) {
+            throw new BasisuWrapperException("imageIndex " + imageIndex + " exceeds the total number of images (" + images.length + ") in the basis file.");
+        }
+        return images[imageIndex];
+    }
+
+    public BasisuImageLevelDescription getImageLevel(int imageIndex, int levelIndex) {
+        return getImage(imageIndex).getLevel(levelIndex);
+    }
+}
@@ -0,0 +1,378 @@
+package com.crashinvaders.basisu.wrapper;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Pure Java reader of the .basis and KTX2 file headers.
+ * <p/>
+ * Produces the same {@link BasisuFileDescription}/{@link Ktx2FileDescription} as
+ * {@link BasisuWrapper#basisDescribe(java.nio.Buffer)} and {@link BasisuWrapper#ktx2Describe(java.nio.Buffer)} do,
+ * but doesn't require the native library to be loaded, nor the whole file to be copied into a direct buffer.
+ * Only the header part of the file is required
+ * (see {@link #basisGetRequiredHeaderSize(ByteBuffer)} and {@link #ktx2GetRequiredHeaderSize(ByteBuffer)}),
+ * which is normally just the first few kilobytes.
+ * <p/>
+ * The data is read from the buffer's current position to its limit (any byte order, heap or direct).
+ * The buffer's position, limit and byte order are left untouched.
+ * <p/>
+ * Only the header structures are validated, the texture data itself is not checked in any way.
+ */
+public class BasisuHeaderParser {
+
+    // .basis file header (basis_file_header) layout.
+    private static final int BASIS_SIGNATURE = 0x4273; // "sB"
+    private static final int BASIS_VERSION = 0x13;
+    private static final int BASIS_HEADER_SIZE = 77;
+    private static final int BASIS_SLICE_DESC_SIZE = 23;
+    private static final int BASIS_FLAG_Y_FLIPPED = 2;
+    private static final int BASIS_FLAG_HAS_ALPHA_SLICES = 4;
+    private static final int BASIS_SLICE_FLAG_HAS_ALPHA = 1;
+    private static final int BASIS_SLICE_FLAG_IFRAME = 2;
+
+    // KTX2 file header layout.
+    private static final byte[] KTX2_IDENTIFIER = {
+            (byte)0xAB, 'K', 'T', 'X', ' ', '2', '0', (byte)0xBB, '\r', '\n', 0x1A, '\n'};
+    private static final int KTX2_HEADER_SIZE = 80;
+    private static final int KTX2_LEVEL_INDEX_ENTRY_SIZE = 24;
+    private static final int KTX2_SS_BASISLZ = 1;
+    private static final int KTX2_SS_ZSTANDARD = 2;
+    private static final int KTX2_DFD_MODEL_ETC1S = 163;
+    private static final int KTX2_DFD_MODEL_UASTC = 166;
+    private static final int KTX2_DFD_CHANNEL_ETC1S_AAA = 15;
+    private static final int KTX2_DFD_CHANNEL_UASTC_RGBA = 3;
+    private static final int KTX2_DFD_CHANNEL_UASTC_RRRG = 5;
+    private static final int KTX2_ETC1S_SGD_HEADER_SIZE = 20;
+    private static final int KTX2_ETC1S_IMAGE_DESC_SIZE = 20;
+    private static final int KTX2_ETC1S_IMAGE_IS_P_FRAME = 2;
+
+    /**
+     * @param data the beginning of a .basis file (at least 77 bytes)
+     * @return the number of bytes from the beginning of the file
+     * required by {@link #basisDescribe(ByteBuffer)} to read the whole header.
+     */
+    public static int basisGetRequiredHeaderSize(ByteBuffer data) {
+        validateBasisHeader(data);
+        int base = data.position();
+        int totalSlices = u24(data, base + 14);
+        long sliceDescOffset = u32(data, base + 65);
+        return toIntSize(Math.max(BASIS_HEADER_SIZE, sliceDescOffset + (long)totalSlices * BASIS_SLICE_DESC_SIZE));
+    }
+
+    /**
+     * Reads the .basis file header and all the slice descriptors.
+     * @param data the .basis file data, of which at least {@link #basisGetRequiredHeaderSize(ByteBuffer)} bytes are present
+     * @return the same description as {@link BasisuWrapper#basisDescribe(java.nio.Buffer)} would return
+     */
+    public static BasisuFileDescription basisDescribe(ByteBuffer data) {
+        int requiredSize = basisGetRequiredHeaderSize(data);
+        requireSize(data, requiredSize, "Basis");
+
+        int base = data.position();
+        int totalSlices = u24(data, base + 14);
+        int totalImages = u24(data, base + 17);
+        int texFormat = u8(data, base + 20);
+        int flags = u16(data, base + 21);
+        int sliceDescOffset = base + (int)u32(data, base + 65);
+
+        boolean etc1s = texFormat == BasisuTextureFormat.ETC1S.getId();
+        boolean alphaSlices = (flags & BASIS_FLAG_HAS_ALPHA_SLICES) != 0;
+
+        long slicesSize = 0;
+        for (int i = 0; i < totalSlices; i++) {
+            slicesSize += u32(data, sliceDescOffset + i * BASIS_SLICE_DESC_SIZE + 17);
+        }
+
+        IntArrayBuilder packed = new IntArrayBuilder(BasisuFileDescription.PACKED_SIZE +
+                totalSlices * (BasisuImageDescription.PACKED_SIZE + BasisuImageLevelDescription.PACKED_SIZE));
+        packed.add(u16(data, base + 2));                                        // Version
+        packed.add(BASIS_HEADER_SIZE + totalSlices * BASIS_SLICE_DESC_SIZE);    // Total header size
+        packed.add(u16(data, base + 48));                                       // Total selectors
+        packed.add(u24(data, base + 54));                                       // Selector codebook size
+        packed.add(u16(data, base + 39));                                       // Total endpoints
+        packed.add(u24(data, base + 45));                                       // Endpoint codebook size
+        packed.add((int)u32(data, base + 61));                                  // Tables size
+        packed.add((int)slicesSize);
+        packed.add(u8(data, base + 23));                                        // Texture type
+        packed.add(u24(data, base + 24));                                       // Microseconds per frame
+        packed.add(totalImages);
+        packed.add((int)u32(data, base + 31));                                  // Userdata 0
+        packed.add((int)u32(data, base + 35));                                  // Userdata 1
+        packed.add(texFormat);
+        packed.add(((flags & BASIS_FLAG_Y_FLIPPED) != 0 ? 1 : 0) | (etc1s ? 2 : 0) | (alphaSlices ? 4 : 0));
+
+        for (int imageIndex = 0; imageIndex < totalImages; imageIndex++) {
+            int totalLevels = 0;
+            for (int i = 0; i < totalSlices; i++) {
+                int sliceOffset = sliceDescOffset + i * BASIS_SLICE_DESC_SIZE;
+                if (u24(data, sliceOffset) == imageIndex) {
+                    totalLevels = Math.max(totalLevels, u8(data, sliceOffset + 3) + 1);
+                }
+            }
+
+            int firstSliceIndex = findBasisSlice(data, sliceDescOffset, totalSlices, imageIndex, 0);
+            packBasisSlice(packed, data, sliceDescOffset, firstSliceIndex, imageIndex, totalLevels, etc1s, alphaSlices);
+
+            for (int levelIndex = 0; levelIndex < totalLevels; levelIndex++) {
+                int sliceIndex = findBasisSlice(data, sliceDescOffset, totalSlices, imageIndex, levelIndex);
+                packBasisSlice(packed, data, sliceDescOffset, sliceIndex, imageIndex, levelIndex, etc1s, alphaSlices);
+            }
+        }
+
+        return new BasisuFileDescription(packed.toArray());
+    }
+
+    /**
+     * @param data the beginning of a KTX2 file (at least 80 bytes)
+     * @return the number of bytes from the beginning of the file
+     * required by {@link #ktx2Describe(ByteBuffer)} to read the header, the level index, the DFD
+     * and (for ETC1S textures) the image descriptors of the supercompression global data.
+     */
+    public static int ktx2GetRequiredHeaderSize(ByteBuffer data) {
+        validateKtx2Header(data);
+        int base = data.position();
+        long levels = Math.max(1, u32(data, base + 40));
+        long required = KTX2_HEADER_SIZE + levels * KTX2_LEVEL_INDEX_ENTRY_SIZE;
+        required = Math.max(required, u32(data, base + 48) + u32(data, base + 52));   // DFD
+        if (u32(data, base + 44) == KTX2_SS_BASISLZ) {
+            long layers = Math.max(1, u32(data, base + 32));
+            long faces = u32(data, base + 36);
+            long sgdOffset = u64(data, base + 64);
+            required = Math.max(required, sgdOffset + KTX2_ETC1S_SGD_HEADER_SIZE +
+                    levels * layers * faces * KTX2_ETC1S_IMAGE_DESC_SIZE);
+        }
+        return toIntSize(required);
+    }
+
+    /**
+     * Reads the KTX2 file header, the level index and the data format descriptor.
+     * @param data the KTX2 file data, of which at least {@link #ktx2GetRequiredHeaderSize(ByteBuffer)} bytes are present
+     * @return the same description as {@link BasisuWrapper#ktx2Describe(java.nio.Buffer)} would return
+     */
+    public static Ktx2FileDescription ktx2Describe(ByteBuffer data) {
+        int requiredSize = ktx2GetRequiredHeaderSize(data);
+        requireSize(data, requiredSize, "KTX2");
+
+        int base = data.position();
+        int width = (int)u32(data, base + 20);
+        int height = (int)u32(data, base + 24);
+        int layers = (int)u32(data, base + 32);
+        int faces = (int)u32(data, base + 36);
+        int levels = (int)u32(data, base + 40);
+        int supercompression = (int)u32(data, base + 44);
+
+        for (int level = 0; level < Math.max(1, levels); level++) {
+            int entryOffset = base + KTX2_HEADER_SIZE + level * KTX2_LEVEL_INDEX_ENTRY_SIZE;
+            if (u64(data, entryOffset + 8) == 0) {
+                throw new BasisuWrapperException("KTX2 level " + level + " has no data.");
+            }
+        }
+
+        // The basic DFD block: 4 bytes of the total DFD size, 24 bytes of the block header, 16 bytes per sample.
+        int dfdOffset = base + (int)u32(data, base + 48);
+        if (u32(data, base + 52) < 4 + 24 + 16) {
+            throw new BasisuWrapperException("KTX2 data format descriptor is too small.");
+        }
+        int colorModel = u8(data, dfdOffset + 12);
+        int totalSamples = (u16(data, dfdOffset + 10) - 24) / 16;
+        int channel0 = u8(data, dfdOffset + 28 + 3) & 0x0F;
+        int channel1 = totalSamples > 1 ? u8(data, dfdOffset + 28 + 16 + 3) & 0x0F : -1;
+
+        BasisuTextureFormat textureFormat;
+        boolean alpha;
+        if (colorModel == KTX2_DFD_MODEL_ETC1S) {
+            if (supercompression != KTX2_SS_BASISLZ) {
+                throw new BasisuWrapperException("KTX2 ETC1S data must use BasisLZ supercompression.");
+            }
+            textureFormat = BasisuTextureFormat.ETC1S;
+            alpha = totalSamples == 2 && channel1 == KTX2_DFD_CHANNEL_ETC1S_AAA;
+        } else if (colorModel == KTX2_DFD_MODEL_UASTC) {
+            if (supercompression != 0 && supercompression != KTX2_SS_ZSTANDARD) {
+                throw new BasisuWrapperException("Unsupported KTX2 UASTC supercompression scheme: " + supercompression);
+            }
+            textureFormat = BasisuTextureFormat.UASTC4x4;
+            alpha = channel0 == KTX2_DFD_CHANNEL_UASTC_RGBA || channel0 == KTX2_DFD_CHANNEL_UASTC_RRRG;
+        } else {
+            throw new BasisuWrapperException("Unsupported KTX2 DFD color model: " + colorModel + " (only ETC1S and UASTC are supported).");
+        }
+
+        int imageDescOffset = supercompression == KTX2_SS_BASISLZ
+                ? base + (int)u64(data, base + 64) + KTX2_ETC1S_SGD_HEADER_SIZE
+                : -1;
+
+        IntArrayBuilder packed = new IntArrayBuilder(Ktx2FileDescription.PACKED_SIZE +
+                Math.max(1, layers) * faces * levels * Ktx2ImageLevelDescription.PACKED_SIZE);
+        packed.add(width);
+        packed.add(height);
+        packed.add(layers);
+        packed.add(levels);
+        packed.add(faces);
+        packed.add(textureFormat.getId());
+        packed.add(alpha ? 1 : 0);
+
+        for (int layerIndex = 0; layerIndex < Math.max(1, layers); layerIndex++) {
+            for (int faceIndex = 0; faceIndex < faces; faceIndex++) {
+                for (int levelIndex = 0; levelIndex < levels; levelIndex++) {
+                    int origWidth = Math.max(1, width >>> levelIndex);
+                    int origHeight = Math.max(1, height >>> levelIndex);
+                    int numBlocksX = (origWidth + 3) >>> 2;
+                    int numBlocksY = (origHeight + 3) >>> 2;
+
+                    boolean iframe = false;
+                    if (imageDescOffset >= 0) {
+                        // ETC1S image descriptors are ordered by level, then by layer, then by face.
+                        int imageIndex = (levelIndex * Math.max(1, layers) + layerIndex) * faces + faceIndex;
+                        int imageFlags = (int)u32(data, imageDescOffset + imageIndex * KTX2_ETC1S_IMAGE_DESC_SIZE);
+                        iframe = (imageFlags & KTX2_ETC1S_IMAGE_IS_P_FRAME) == 0;
+                    }
+
+                    packed.add(levelIndex);
+                    packed.add(layerIndex);
+                    packed.add(faceIndex);
+                    packed.add(origWidth);
+                    packed.add(origHeight);
+                    packed.add(numBlocksX * 4);
+                    packed.add(numBlocksY * 4);
+                    packed.add(numBlocksX);
+                    packed.add(numBlocksY);
+                    packed.add(numBlocksX * numBlocksY);
+                    packed.add((alpha ? 1 : 0) | (iframe ? 2 : 0));
+                }
+            }
+        }
+
+        return new Ktx2FileDescription(packed.toArray());
+    }
+
+    private static void validateBasisHeader(ByteBuffer data) {
+        requireSize(data, BASIS_HEADER_SIZE, "Basis");
+        int base = data.position();
+        if (u16(data, base) != BASIS_SIGNATURE) {
+            throw new BasisuWrapperException("The data is not a Basis file (signature mismatch).");
+        }
+        int version = u16(data, base + 2);
+        if (version != BASIS_VERSION) {
+            throw new BasisuWrapperException("Unsupported Basis file version: " + version);
+        }
+        if (u16(data, base + 4) != BASIS_HEADER_SIZE) {
+            throw new BasisuWrapperException("Unexpected Basis file header size: " + u16(data, base + 4));
+        }
+        if (u24(data, base + 14) == 0 || u24(data, base + 17) == 0) {
+            throw new BasisuWrapperException("The Basis file has no images.");
+        }
+    }
+
+    private static void validateKtx2Header(ByteBuffer data) {
+        requireSize(data, KTX2_HEADER_SIZE, "KTX2");
+        int base = data.position();
+        for (int i = 0; i < KTX2_IDENTIFIER.length; i++) {
+            if (data.get(base + i) != KTX2_IDENTIFIER[i]) {
+                throw new BasisuWrapperException("The data is not a KTX2 file (identifier mismatch).");
+            }
+        }
+        if (u32(data, base + 12) != 0) {
+            throw new BasisuWrapperException("Only KTX2 files with an undefined VkFormat (Basis Universal) are supported.");
+        }
+        if (u32(data, base + 20) == 0 || u32(data, base + 24) == 0 || u32(data, base + 28) != 0) {
+            throw new BasisuWrapperException("Unsupported KTX2 image dimensions (only non-empty 2D images are supported).");
+        }
+        long faces = u32(data, base + 36);
+        if (faces != 1 && faces != 6) {
+            throw new BasisuWrapperException("Invalid KTX2 face count: " + faces);
+        }
+    }
+
+    private static int findBasisSlice(ByteBuffer data, int sliceDescOffset, int totalSlices, int imageIndex, int levelIndex) {
+        for (int i = 0; i < totalSlices; i++) {
+            int sliceOffset = sliceDescOffset + i * BASIS_SLICE_DESC_SIZE;
+            if (u24(data, sliceOffset) == imageIndex && u8(data, sliceOffset + 3) == levelIndex) {
+                return i;
+            }
+        }
+        throw new BasisuWrapperException("The Basis file has no slice for image " + imageIndex + ", level " + levelIndex + ".");
+    }
+
+    /** Packs an image or image level description (they share the same layout) from the slice descriptor. */
+    private static void packBasisSlice(IntArrayBuilder packed, ByteBuffer data, int sliceDescOffset, int sliceIndex,
+                                       int imageIndex, int levelsOrLevelIndex, boolean etc1s, boolean alphaSlices) {
+        int sliceOffset = sliceDescOffset + sliceIndex * BASIS_SLICE_DESC_SIZE;
+        int sliceFlags = u8(data, sliceOffset + 4);
+        int numBlocksX = u16(data, sliceOffset + 9);
+        int numBlocksY = u16(data, sliceOffset + 11);
+        boolean alpha = etc1s ? alphaSlices : (sliceFlags & BASIS_SLICE_FLAG_HAS_ALPHA) != 0;
+        boolean iframe = (sliceFlags & BASIS_SLICE_FLAG_IFRAME) != 0;
+
+        packed.add(imageIndex);
+        packed.add(levelsOrLevelIndex);
+        packed.add(u16(data, sliceOffset + 5));    // Original width
+        packed.add(u16(data, sliceOffset + 7));    // Original height
+        packed.add(numBlocksX * 4);
+        packed.add(numBlocksY * 4);
+        packed.add(numBlocksX);
+        packed.add(numBlocksY);
+        packed.add(numBlocksX * numBlocksY);
+        packed.add(sliceIndex);
+        packed.add((alpha ? 1 : 0) | (iframe ? 2 : 0));
+    }
+
+    private static void requireSize(ByteBuffer data, long size, String fileType) {
+        if (data.remaining() < size) {
+            throw new BasisuWrapperException("Not enough " + fileType + " header data: " + size + " bytes required, but only " + data.remaining() + " available.");
+        }
+    }
+
+    private static int toIntSize(long size) {
+        if (size > Integer.MAX_VALUE) {
+            throw new BasisuWrapperException("The header size is out of range: " + size);
+        }
+        return (int)size;
+    }
+
+    private static int u8(ByteBuffer data, int index) {
+        return data.get(index) & 0xFF;
+    }
+
+    private static int u16(ByteBuffer data, int index) {
+        return u8(data, index) | (u8(data, index + 1) << 8);
+    }
+
+    private static int u24(ByteBuffer data, int index) {
+        return u16(data, index) | (u8(data, index + 2) << 16);
+    }
+
+    private static long u32(ByteBuffer data, int index) {
+        return (u24(data, index) | ((long)u8(data, index + 3) << 24)) & 0xFFFFFFFFL;
+    }
+
+    private static long u64(ByteBuffer data, int index) {
+        long high = u32(data, index + 4);
+        if (high != 0) {
+            throw new BasisuWrapperException("The 64-bit offset is out of range.");
+        }
+        return u32(data, index);
+    }
+
+    /** A minimal growable int array (java.util collections of boxed values aren't worth it here). */
+    private static class IntArrayBuilder {
+        private int[] items;
+        private int size;
+
+        IntArrayBuilder(int capacity) {
+            items = new int[Math.max(16, capacity)];
+        }
+
+        void add(int value) {
+            if (size == items.length) {
+                int[] newItems = new int[items.length * 2];
+                System.arraycopy(items, 0, newItems, 0, size);
+                items = newItems;
+            }
+            items[size++] = value;
+        }
+
+        int[] toArray() {
+            int[] result = new int[size];
+            System.arraycopy(items, 0, result, 0, size);
+            return result;
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.crashinvaders.basisu.wrapper;
+
+/**
+ * Immutable description of a single .basis image and all of its mipmap levels.
+ * Holds the same data as {@link BasisuImageInfo}, but requires no native resources.
+ * @see BasisuFileDescription
+ */
+public class BasisuImageDescription {
+
+    static final int PACKED_SIZE = 11;
+
+    private final int imageIndex;
+    private final int totalLevels;
+    private final int origWidth;
+    private final int origHeight;
+    private final int width;
+    private final int height;
+    private final int numBlocksX;
+    private final int numBlocksY;
+    private final int totalBlocks;
+    private final int firstSliceIndex;
+    private final boolean alphaFlag;
+    private final boolean iframeFlag;
+    private final BasisuImageLevelDescription[] levels;
+
+    BasisuImageDescription(int[] packed, int offset) {
+        this.imageIndex = packed[offset];
+        this.totalLevels = packed[offset + 1];
+        this.origWidth = packed[offset + 2];
+        this.origHeight = packed[offset + 3];
+        this.width = packed[offset + 4];
+        this.height = packed[offset + 5];
+        this.numBlocksX = packed[offset + 6];
+        this.numBlocksY = packed[offset + 7];
+        this.totalBlocks = packed[offset + 8];
+        this.firstSliceIndex = packed[offset + 9];
+        int flags = packed[offset + 10];
+        this.alphaFlag = (flags & 1) != 0;
+        this.iframeFlag = (flags & 2) != 0;
+
+        this.levels = new BasisuImageLevelDescription[totalLevels];
+        int levelOffset = offset + PACKED_SIZE;
+        for (int i = 0; i < totalLevels; i++) {
+            levels[i] = new BasisuImageLevelDescription(packed, levelOffset);
+            levelOffset += BasisuImageLevelDescription.PACKED_SIZE;
+        }
+    }
+
+    /** @return the number of packed ints the image (including its levels) occupies. */
+    int getPackedSize() {
+        return PACKED_SIZE + totalLevels * BasisuImageLevelDescription.PACKED_SIZE;
+    }
+
+    public int getImageIndex() { return imageIndex; }
+
+    public int getTotalLevels() { return totalLevels; }
+
+    public int getOrigWidth() { return origWidth; }
+
+    public int getOrigHeight() { return origHeight; }
+
+    public int getWidth() { return width; }
+
+    public int getHeight() { return height; }
+
+    public int getNumBlocksX() { return numBlocksX; }
+
+    public int getNumBlocksY() { return numBlocksY; }
+
+    public int getTotalBlocks() { return totalBlocks; }
+
+    public int getFirstSliceIndex() { return firstSliceIndex; }
+
+    /** True if the image has alpha data. */
+    public boolean hasAlphaFlag() { return alphaFlag; }
+
+    /** True if the image is an I-Frame. */
+    public boolean hasIframeFlag() { return iframeFlag; }
+
+    public BasisuImageLevelDescription getLevel(int levelIndex) {
+        if (levelIndex < 0 || levelIndex >= levels.length) {
+            throw new BasisuWrapperException("levelIndex " + levelIndex + " exceeds the total number of levels (" + levels.length + ") of the image.");
+        }
+        return levels[levelIndex];
+    }
+}
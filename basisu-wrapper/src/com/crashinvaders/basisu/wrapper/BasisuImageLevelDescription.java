@@ -0,0 +1,66 @@
+package com.crashinvaders.basisu.wrapper;
+
+/**
+ * Immutable description of a single .basis image mipmap level.
+ * Holds the same data as {@link BasisuImageLevelInfo}, but requires no native resources.
+ * @see BasisuFileDescription
+ */
+public class BasisuImageLevelDescription {
+
+    static final int PACKED_SIZE = 11;
+
+    private final int imageIndex;
+    private final int levelIndex;
+    private final int origWidth;
+    private final int origHeight;
+    private final int width;
+    private final int height;
+    private final int numBlocksX;
+    private final int numBlocksY;
+    private final int totalBlocks;
+    private final int firstSliceIndex;
+    private final boolean alphaFlag;
+    private final boolean iframeFlag;
+
+    BasisuImageLevelDescription(int[] packed, int offset) {
+        this.imageIndex = packed[offset];
+        this.levelIndex = packed[offset + 1];
+        this.origWidth = packed[offset + 2];
+        this.origHeight = packed[offset + 3];
+        this.width = packed[offset + 4];
+        this.height = packed[offset + 5];
+        this.numBlocksX = packed[offset + 6];
+        this.numBlocksY = packed[offset + 7];
+        this.totalBlocks = packed[offset + 8];
+        this.firstSliceIndex = packed[offset + 9];
+        int flags = packed[offset + 10];
+        this.alphaFlag = (flags & 1) != 0;
+        this.iframeFlag = (flags & 2) != 0;
+    }
+
+    public int getImageIndex() { return imageIndex; }
+
+    public int getLevelIndex() { return levelIndex; }
+
+    public int getOrigWidth() { return origWidth; }
+
+    public int getOrigHeight() { return origHeight; }
+
+    public int getWidth() { return width; }
+
+    public int getHeight() { return height; }
+
+    public int getNumBlocksX() { return numBlocksX; }
+
+    public int getNumBlocksY() { return numBlocksY; }
+
+    public int getTotalBlocks() { return totalBlocks; }
+
+    public int getFirstSliceIndex() { return firstSliceIndex; }
+
+    /** True if the image has alpha data. */
+    public boolean hasAlphaFlag() { return alphaFlag; }
+
+    /** True if the image is an I-Frame. */
+    public boolean hasIframeFlag() { return iframeFlag; }
+}
@@ -0,0 +1,114 @@
+package com.crashinvaders.basisu.wrapper;
+
+import java.io.Closeable;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+
+/**
+ * The result of a whole mipmap chain transcoding.
+ * All the levels are packed one after another (starting from the base level) into a single data buffer
+ * and the level table describes where each level is located within the buffer.
+ * <p/>
+ * CLOSEABLE: The data buffer is allocated on the native side
+ * and needs to be released using {@link #close()} when no longer needed.
+ * <p/>
+ * The subclasses may hold the data in a buffer of another origin (e.g. a memory-mapped file)
+ * and release it their own way by overriding {@link #releaseData(ByteBuffer)}.
+ */
+public class BasisuMipChain implements Closeable {
+
+    /** The number of the level table entries per level. */
+    public static final int LEVEL_TABLE_STRIDE = 4;
+    /** The level table entry indices, relative to the level's first entry. */
+    public static final int LEVEL_OFFSET = 0;
+    public static final int LEVEL_SIZE = 1;
+    public static final int LEVEL_WIDTH = 2;
+    public static final int LEVEL_HEIGHT = 3;
+
+    private final BasisuTranscoderTextureFormat textureFormat;
+    private final int levelCount;
+    /** Packed (offset, size, width, height) quadruplets, one per level. */
+    private final int[] levelTable;
+    private ByteBuffer data;
+
+    /**
+     * @param levelTable packed (offset, size, width, height) quadruplets, one per level
+     */
+    protected BasisuMipChain(BasisuTranscoderTextureFormat textureFormat, ByteBuffer data, int[] levelTable) {
+        this.textureFormat = textureFormat;
+        this.data = data;
+        this.levelTable = levelTable;
+        this.levelCount = levelTable.length / LEVEL_TABLE_STRIDE;
+    }
+
+    @Override
+    public void close() {
+        if (data == null) {
+            throw new IllegalStateException("Object was already closed!");
+        }
+        releaseData(data);
+        data = null;
+    }
+
+    /**
+     * Frees the data buffer on {@link #close()}.
+     * The default implementation releases the natively allocated buffer.
+     */
+    protected void releaseData(ByteBuffer data) {
+        BasisuWrapper.disposeNativeBuffer(data);
+    }
+
+    public BasisuTranscoderTextureFormat getTextureFormat() {
+        return textureFormat;
+    }
+
+    public int getLevelCount() {
+        return levelCount;
+    }
+
+    /**
+     * @return the single buffer that holds all the transcoded levels.
+     */
+    public ByteBuffer getData() {
+        return data;
+    }
+
+    /**
+     * @return the total size of all the transcoded levels in bytes.
+     */
+    public int getTotalSize() {
+        return levelCount == 0 ? 0 : getLevelOffset(levelCount - 1) + getLevelSize(levelCount - 1);
+    }
+
+    /** @return the byte offset of the level data within the {@link #getData()} buffer. */
+    public int getLevelOffset(int level) {
+        return levelTable[level * LEVEL_TABLE_STRIDE + LEVEL_OFFSET];
+    }
+
+    /** @return the size of the transcoded level in bytes. */
+    public int getLevelSize(int level) {
+        return levelTable[level * LEVEL_TABLE_STRIDE + LEVEL_SIZE];
+    }
+
+    /** @return the original (unpadded) level width in pixels. */
+    public int getLevelWidth(int level) {
+        return levelTable[level * LEVEL_TABLE_STRIDE + LEVEL_WIDTH];
+    }
+
+    /** @return the original (unpadded) level height in pixels. */
+    public int getLevelHeight(int level) {
+        return levelTable[level * LEVEL_TABLE_STRIDE + LEVEL_HEIGHT];
+    }
+
+    /**
+     * @return a view over the level's portion of the data buffer (no data is copied).
+     * The view is valid only until the mip chain is closed.
+     */
+    public ByteBuffer getLevelData(int level) {
+        ByteBuffer view = data.duplicate();
+        int offset = getLevelOffset(level);
+        ((Buffer)view).limit(offset + getLevelSize(level));
+        ((Buffer)view).position(offset);
+        return view.slice();
+    }
+}
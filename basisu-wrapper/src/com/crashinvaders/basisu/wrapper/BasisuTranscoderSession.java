@@ -0,0 +1,218 @@
+package com.crashinvaders.basisu.wrapper;
+
+import java.io.Closeable;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+
+/**
+ * A persistent transcoding session over a single .basis file data.
+ * <p/>
+ * The stateless {@link BasisuWrapper} methods create a new transcoder, re-parse the header and
+ * (for ETC1S files) re-decode the endpoint/selector codebooks on every call.
+ * The session does all of that only once upon creation and then serves every image, level and format from that state.
+ * <p/>
+ * The encoded data buffer must remain valid (not disposed) for the whole lifetime of the session.
+ * <p/>
+ * Use {@link BasisuWrapper#basisCreateTranscoderSession(Buffer)} to create a new instance.
+ * <p/>
+ * THREAD SAFETY: All the info and transcode calls may be done from multiple threads at the same time,
+ * each transcode call uses its own transcoder state. Video frame textures are the exception:
+ * their frames depend on the previously transcoded ones, so they must be transcoded from a single thread.
+ * {@link #close()} must not be called concurrently with any other call.
+ * <p/>
+ * CLOSEABLE: Instances of this class internally manage native resources
+ * and need to be closed using {@link #close()} when no longer needed.
+ */
+public class BasisuTranscoderSession implements Closeable {
+	/*JNI
+        #include "basisu_wrapper.h"
+	 */
+
+    long addr;
+    final Buffer dataBuffer;
+
+    BasisuTranscoderSession(Buffer dataBuffer) {
+        this.dataBuffer = dataBuffer;
+        this.addr = jniCreate(dataBuffer, dataBuffer.capacity());
+        if (addr == 0) {
+            throw new BasisuWrapperException("Failed to start transcoding for the Basis data.");
+        }
+    }
+
+    BasisuTranscoderSession(Object ignored) {
+        throw new UnsupportedOperationException("This constructor exists solely for GWT compilation compatibility.");
+    }
+
+    @Override
+    public void close() {
+        if (addr == 0) {
+            throw new IllegalStateException("Object was already closed!");
+        }
+        jniDispose(addr);
+        addr = 0;
+    }
+
+    /**
+     * @return the encoded Basis data the session was created for.
+     */
+    public Buffer getDataBuffer() {
+        return dataBuffer;
+    }
+
+    /**
+     * @return the whole file description obtained with a single native call.
+     * @see BasisuWrapper#basisDescribe(Buffer)
+     */
+    public BasisuFileDescription describe() {
+        return BasisuWrapper.basisSessionDescribe(this);
+    }
+
+    /**
+     * @return information about the specified image.
+     * @see BasisuWrapper#basisGetImageInfo(Buffer, int)
+     */
+    public BasisuImageInfo getImageInfo(int imageIndex) {
+        return BasisuWrapper.basisSessionGetImageInfo(this, imageIndex);
+    }
+
+    /**
+     * @return information about the specified image level.
+     * @see BasisuWrapper#basisGetImageLevelInfo(Buffer, int, int)
+     */
+    public BasisuImageLevelInfo getImageLevelInfo(int imageIndex, int imageLevel) {
+        return BasisuWrapper.basisSessionGetImageLevelInfo(this, imageIndex, imageLevel);
+    }
+
+    /**
+     * @return the transcoded image level size in bytes.
+     * @see BasisuWrapper#basisGetTranscodedSize(Buffer, int, int, BasisuTranscoderTextureFormat)
+     */
+    public int getTranscodedSize(int imageIndex, int levelIndex, BasisuTranscoderTextureFormat textureFormat) {
+        try (BasisuImageLevelInfo levelInfo = getImageLevelInfo(imageIndex, levelIndex)) {
+            return BasisuWrapper.getTranscodedSize(levelInfo.getOrigWidth(), levelInfo.getOrigHeight(), levelInfo.getTotalBlocks(), textureFormat);
+        }
+    }
+
+    /**
+     * Decodes a single mipmap level to any of the supported output texture formats.
+     * @return the transcoded texture bytes
+     * (must be disposed using {@link BasisuWrapper#disposeNativeBuffer(ByteBuffer)})
+     * @see BasisuWrapper#basisTranscode(Buffer, int, int, BasisuTranscoderTextureFormat)
+     */
+    public ByteBuffer transcode(int imageIndex, int levelIndex, BasisuTranscoderTextureFormat textureFormat) {
+        return BasisuWrapper.basisSessionTranscode(this, imageIndex, levelIndex, textureFormat, BasisuDecodeFlags.NONE);
+    }
+
+    /**
+     * Decodes a single mipmap level using the custom decode flags.
+     * @param decodeFlags a combination of the {@link BasisuDecodeFlags} constants
+     * @see BasisuWrapper#basisTranscode(Buffer, int, int, BasisuTranscoderTextureFormat, int)
+     */
+    public ByteBuffer transcode(int imageIndex, int levelIndex, BasisuTranscoderTextureFormat textureFormat, int decodeFlags) {
+        return BasisuWrapper.basisSessionTranscode(this, imageIndex, levelIndex, textureFormat, decodeFlags);
+    }
+
+    /**
+     * Decodes a single mipmap level directly into the provided buffer.
+     * @return the number of bytes written
+     * @see BasisuWrapper#basisTranscodeInto(Buffer, int, int, BasisuTranscoderTextureFormat, ByteBuffer)
+     */
+    public int transcodeInto(int imageIndex, int levelIndex, BasisuTranscoderTextureFormat textureFormat, ByteBuffer outBuffer) {
+        return BasisuWrapper.basisSessionTranscodeInto(this, imageIndex, levelIndex, textureFormat, outBuffer, 1, BasisuDecodeFlags.NONE);
+    }
+
+    /**
+     * Decodes a single mipmap level directly into the provided buffer,
+     * splitting UASTC image levels between up to "workerCount" native threads.
+     * @return the number of bytes written
+     * @see BasisuWrapper#basisTranscodeInto(Buffer, int, int, BasisuTranscoderTextureFormat, ByteBuffer, int)
+     */
+    public int transcodeInto(int imageIndex, int levelIndex, BasisuTranscoderTextureFormat textureFormat, ByteBuffer outBuffer, int workerCount) {
+        return BasisuWrapper.basisSessionTranscodeInto(this, imageIndex, levelIndex, textureFormat, outBuffer, workerCount, BasisuDecodeFlags.NONE);
+    }
+
+    /**
+     * Decodes a single mipmap level directly into the provided buffer using the custom decode flags.
+     * @param decodeFlags a combination of the {@link BasisuDecodeFlags} constants
+     * @return the number of bytes written
+     * @see BasisuWrapper#basisTranscodeInto(Buffer, int, int, BasisuTranscoderTextureFormat, ByteBuffer, int, int)
+     */
+    public int transcodeInto(int imageIndex, int levelIndex, BasisuTranscoderTextureFormat textureFormat, ByteBuffer outBuffer, int workerCount, int decodeFlags) {
+        return BasisuWrapper.basisSessionTranscodeInto(this, imageIndex, levelIndex, textureFormat, outBuffer, workerCount, decodeFlags);
+    }
+
+    /**
+     * Transcodes the whole mipmap chain (starting from the base level) of the image
+     * in a single native call into a single buffer.
+     * @param maxLevels the maximum number of levels to transcode (clamped to the total number of the image levels)
+     * @return the transcoded mipmap chain (must be closed when no longer needed)
+     */
+    public BasisuMipChain transcodeMipChain(int imageIndex, BasisuTranscoderTextureFormat textureFormat, int maxLevels) {
+        return BasisuWrapper.basisSessionTranscodeMipChain(this, imageIndex, textureFormat, maxLevels, BasisuDecodeFlags.NONE, true);
+    }
+
+    /**
+     * Transcodes the whole mipmap chain using the custom decode flags.
+     * @param decodeFlags a combination of the {@link BasisuDecodeFlags} constants
+     * @return the transcoded mipmap chain (must be closed when no longer needed)
+     * @see #transcodeMipChain(int, BasisuTranscoderTextureFormat, int)
+     */
+    public BasisuMipChain transcodeMipChain(int imageIndex, BasisuTranscoderTextureFormat textureFormat, int maxLevels, int decodeFlags) {
+        return BasisuWrapper.basisSessionTranscodeMipChain(this, imageIndex, textureFormat, maxLevels, decodeFlags, true);
+    }
+
+    /**
+     * Allocates and lays out the memory for the mipmap chain just like {@link #transcodeMipChain(int, BasisuTranscoderTextureFormat, int)} does,
+     * but doesn't transcode anything.
+     * The levels are meant to be transcoded individually using {@link #transcodeInto(int, int, BasisuTranscoderTextureFormat, ByteBuffer)}
+     * into {@link BasisuMipChain#getLevelData(int)}.
+     * <p/>
+     * The session may transcode different levels from multiple threads at the same time
+     * (except for the video frame textures, whose frames depend on the previously transcoded ones).
+     * @return the mip chain with no level data transcoded yet (must be closed when no longer needed)
+     */
+    public BasisuMipChain allocateMipChain(int imageIndex, BasisuTranscoderTextureFormat textureFormat, int maxLevels) {
+        return BasisuWrapper.basisSessionTranscodeMipChain(this, imageIndex, textureFormat, maxLevels, BasisuDecodeFlags.NONE, false);
+    }
+
+    /**
+     * @return the size in bytes of the image level block region transcoded to the specified format.
+     * @see BasisuTranscoderTextureFormat#getTranscodedRegionSize(int, int, int, int, int, int)
+     */
+    public int getTranscodedRegionSize(int imageIndex, int levelIndex, int blockX, int blockY, int blocksWidth, int blocksHeight, BasisuTranscoderTextureFormat textureFormat) {
+        try (BasisuImageLevelInfo levelInfo = getImageLevelInfo(imageIndex, levelIndex)) {
+            return textureFormat.getTranscodedRegionSize(levelInfo.getOrigWidth(), levelInfo.getOrigHeight(), blockX, blockY, blocksWidth, blocksHeight);
+        }
+    }
+
+    /**
+     * Transcodes only a rectangular range of 4x4 blocks of the image level directly into the provided buffer.
+     * For ETC1S files the whole level is decoded to the temporary memory, so the region transcoding
+     * pays off mostly for the UASTC ones.
+     * @return the number of bytes written
+     * @see BasisuWrapper#basisTranscodeRegionInto(Buffer, int, int, int, int, int, int, BasisuTranscoderTextureFormat, ByteBuffer)
+     */
+    public int transcodeRegionInto(int imageIndex, int levelIndex, int blockX, int blockY, int blocksWidth, int blocksHeight, BasisuTranscoderTextureFormat textureFormat, ByteBuffer outBuffer) {
+        return BasisuWrapper.basisSessionTranscodeRegionInto(this, imageIndex, levelIndex, blockX, blockY, blocksWidth, blocksHeight, textureFormat, outBuffer, BasisuDecodeFlags.NONE);
+    }
+
+    /**
+     * Transcodes an image level block region using the custom decode flags.
+     * @param decodeFlags a combination of the {@link BasisuDecodeFlags} constants
+     * @return the number of bytes written
+     * @see #transcodeRegionInto(int, int, int, int, int, int, BasisuTranscoderTextureFormat, ByteBuffer)
+     */
+    public int transcodeRegionInto(int imageIndex, int levelIndex, int blockX, int blockY, int blocksWidth, int blocksHeight, BasisuTranscoderTextureFormat textureFormat, ByteBuffer outBuffer, int decodeFlags) {
+        return BasisuWrapper.basisSessionTranscodeRegionInto(this, imageIndex, levelIndex, blockX, blockY, blocksWidth, blocksHeight, textureFormat, outBuffer, decodeFlags);
+    }
+
+    private static native long jniCreate(Buffer dataBuffer, int dataSize); /*
+        basisuWrapper::basis_session* session = basisuWrapper::basis::createSession((uint8_t*)dataBuffer, dataSize);
+        return reinterpret_cast<intptr_t>(session);
+    */
+
+    private static native void jniDispose(long addr); /*
+        basisuWrapper::basis_session* session = (basisuWrapper::basis_session*)addr;
+        basisuWrapper::basis::disposeSession(session);
+    */
+}
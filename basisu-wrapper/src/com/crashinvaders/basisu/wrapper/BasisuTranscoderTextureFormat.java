@@ -5,45 +5,45 @@ public enum BasisuTranscoderTextureFormat implements UniqueIdUtils.UniqueIdValue
 
 // ETC1-2
     /** Opaque only, returns RGB or alpha data if cDecodeFlagsTranscodeAlphaDataToOpaqueFormats flag is specified. */
-    ETC1_RGB(0),
+    ETC1_RGB(0, 8),
     /** Opaque+alpha, ETC2_EAC_A8 block followed by a ETC1 block, alpha channel will be opaque for opaque .basis files. */
-    ETC2_RGBA(1),
+    ETC2_RGBA(1, 16),
     /** R only (ETC2 EAC R11 unsigned). */
-    ETC2_EAC_R11(20),
+    ETC2_EAC_R11(20, 8),
     /** RG only (ETC2 EAC RG11 unsigned), R=opaque.r, G=alpha - for tangent space normal maps. */
-    ETC2_EAC_RG11(21),
+    ETC2_EAC_RG11(21, 16),
 
 // BC1-5, BC7 (desktop, some mobile devices)
     /** Aka DXT1. Opaque only, no punchthrough alpha support yet, transcodes alpha slice if cDecodeFlagsTranscodeAlphaDataToOpaqueFormats flag is specified. */
-    BC1_RGB(2),
+    BC1_RGB(2, 8),
     /** aka DXT5. Opaque+alpha, BC4 followed by a BC1 block, alpha channel will be opaque for opaque .basis files. */
-    BC3_RGBA(3),
+    BC3_RGBA(3, 16),
     /** Red only, alpha slice is transcoded to output if cDecodeFlagsTranscodeAlphaDataToOpaqueFormats flag is specified. */
-    BC4_R(4),
+    BC4_R(4, 8),
     /** XY: Two BC4 blocks, X=R and Y=Alpha, .basis file should have alpha data (if not Y will be all 255's). */
-    BC5_RG(5),
+    BC5_RG(5, 16),
     /** RGB or RGBA, mode 5 for ETC1S, modes (1,2,3,5,6,7) for UASTC. */
-    BC7_RGBA(6),
+    BC7_RGBA(6, 16),
 
 // PVRTC1-2 4bpp (mobile, PowerVR devices)
     /** Opaque only, RGB or alpha if cDecodeFlagsTranscodeAlphaDataToOpaqueFormats flag is specified, nearly lowest quality of any texture format. */
-    PVRTC1_4_RGB(8),
+    PVRTC1_4_RGB(8, 8),
     /** Opaque+alpha, most useful for simple opacity maps. If .basis file doesn't have alpha PVRTC1_4_RGB(ll) be used instead. Lowest quality of any supported texture format. */
-    PVRTC1_4_RGBA(9),
+    PVRTC1_4_RGBA(9, 8),
     /** Opaque-only, almost BC1 quality, much faster to transcode and supports arbitrary texture dimensions (unlike PVRTC1 RGB). */
-    PVRTC2_4_RGB(18),
+    PVRTC2_4_RGB(18, 8),
     /** Opaque+alpha, slower to encode than cTFPVRTC2_4_RGB. Premultiplied alpha is highly recommended, otherwise the color channel can leak into the alpha channel on transparent blocks. */
-    PVRTC2_4_RGBA(19),
+    PVRTC2_4_RGBA(19, 8),
 
 // ASTC (mobile, Intel devices, hopefully all desktop GPU's one day)
     /** Opaque+alpha, ASTC 4x4, alpha channel will be opaque for opaque .basis files. Transcoder uses RGB/RGBA/L/LA modes, void extent, and up to two ([0,47] and [0,255]) endpoint precisions. */
-    ASTC_4x4_RGBA(10),
+    ASTC_4x4_RGBA(10, 16),
 
 // ATC (mobile, Adreno devices, this is a niche format)
     /** Opaque, RGB or alpha if cDecodeFlagsTranscodeAlphaDataToOpaqueFormats flag is specified. ATI ATC (GL_ATC_RGB_AMD). */
-    ATC_RGB(11),
+    ATC_RGB(11, 8),
     /** Opaque+alpha, alpha channel will be opaque for opaque .basis files. ATI ATC (GL_ATC_RGBA_INTERPOLATED_ALPHA_AMD). */
-    ATC_RGBA(12),
+    ATC_RGBA(12, 16),
 
 //// FXT1 (desktop, Intel devices, this is a super obscure format)
 //    /**
@@ -55,17 +55,19 @@ public enum BasisuTranscoderTextureFormat implements UniqueIdUtils.UniqueIdValue
 
 // Uncompressed (raw pixel) formats
     /** 32bpp RGBA image stored in raster (not block) order in memory, R is first byte, A is last byte. */
-    RGBA32(13),
+    RGBA32(13, 4),
     /** 166pp RGB image stored in raster (not block) order in memory, R at bit position 11 */
-    RGB565(14),
+    RGB565(14, 2),
     /** 16bpp RGBA image stored in raster (not block) order in memory, R at bit position 12, A at bit position 0 */
-    RGBA4444(16),
+    RGBA4444(16, 2),
     ;
 
     private final int id;
+    private final int bytesPerBlockOrPixel;
 
-    BasisuTranscoderTextureFormat(int id) {
+    BasisuTranscoderTextureFormat(int id, int bytesPerBlockOrPixel) {
         this.id = id;
+        this.bytesPerBlockOrPixel = bytesPerBlockOrPixel;
     }
 
     @Override
@@ -76,4 +78,63 @@ public enum BasisuTranscoderTextureFormat implements UniqueIdUtils.UniqueIdValue
     public boolean isCompressedFormat() {
         return this != RGBA32 && this != RGB565 && this != RGBA4444;
     }
+
+    /**
+     * @return the size of a single 4x4 block in bytes for the compressed formats
+     * or the size of a single pixel for the uncompressed ones.
+     */
+    public int getBytesPerBlockOrPixel() {
+        return bytesPerBlockOrPixel;
+    }
+
+    /**
+     * Evaluates the size of an image level transcoded to this format.
+     * Mirrors the native transcoder output buffer sizing, including the PVRTC1 minimum size padding.
+     * @param origWidth the original (unpadded) level width in pixels
+     * @param origHeight the original (unpadded) level height in pixels
+     * @param totalBlocks the total number of 4x4 blocks in the level
+     * @return the transcoded level size in bytes
+     */
+    public int getTranscodedSize(int origWidth, int origHeight, int totalBlocks) {
+        if (!isCompressedFormat()) {
+            return origWidth * origHeight * bytesPerBlockOrPixel;
+        }
+        if (this == PVRTC1_4_RGB || this == PVRTC1_4_RGBA) {
+            // GL requires extra padding for very small PVRTC1 textures:
+            // https://www.khronos.org/registry/OpenGL/extensions/IMG/IMG_texture_compression_pvrtc.txt
+            int width = (origWidth + 3) & ~3;
+            int height = (origHeight + 3) & ~3;
+            return (Math.max(8, width) * Math.max(8, height) * 4 + 7) / 8;
+        }
+        return totalBlocks * bytesPerBlockOrPixel;
+    }
+
+    /**
+     * Evaluates the size of a block region of an image level transcoded to this format.
+     * Compressed regions are tightly packed rows of "blocksWidth" blocks,
+     * uncompressed ones are tightly packed pixel rows clipped by the original level size.
+     * @param origWidth the original (unpadded) level width in pixels
+     * @param origHeight the original (unpadded) level height in pixels
+     * @param blockX the region's left block column
+     * @param blockY the region's top block row
+     * @param blocksWidth the region width in blocks
+     * @param blocksHeight the region height in blocks
+     * @return the transcoded region size in bytes
+     * @throws BasisuWrapperException if the region is empty or doesn't fit into the level blocks
+     */
+    public int getTranscodedRegionSize(int origWidth, int origHeight, int blockX, int blockY, int blocksWidth, int blocksHeight) {
+        int numBlocksX = (origWidth + 3) / 4;
+        int numBlocksY = (origHeight + 3) / 4;
+        if (blockX < 0 || blockY < 0 || blocksWidth <= 0 || blocksHeight <= 0 ||
+                blocksWidth > numBlocksX - blockX || blocksHeight > numBlocksY - blockY) {
+            throw new BasisuWrapperException("Block region [" + blockX + ", " + blockY + ", " + blocksWidth + "x" + blocksHeight + "] " +
+                    "is out of the level bounds (" + numBlocksX + "x" + numBlocksY + " blocks).");
+        }
+        if (!isCompressedFormat()) {
+            int pixelWidth = Math.min(blocksWidth * 4, origWidth - blockX * 4);
+            int pixelHeight = Math.min(blocksHeight * 4, origHeight - blockY * 4);
+            return pixelWidth * pixelHeight * bytesPerBlockOrPixel;
+        }
+        return blocksWidth * blocksHeight * bytesPerBlockOrPixel;
+    }
 }
@@ -8,30 +8,50 @@ import java.util.*;
  * The sole purpose of this class is to cache the index of supported formats and avoid frequent calls to the native based
  * {@link BasisuWrapper#isTranscoderTexFormatSupported(BasisuTranscoderTextureFormat, BasisuTextureFormat)} method
  * everytime we need to check if the transcoder texture is supported.
+ * <p/>
+ * THREAD SAFETY: The lookups are lock-free and may be done from any thread.
+ * The index is built once for all the Basis texture formats and is immutable afterwards.
  */
 public class BasisuTranscoderTextureFormatSupportIndex {
 
-    static final HashMap<BasisuTextureFormat, Set<BasisuTranscoderTextureFormat>> supportMap = new HashMap<>();
+    /**
+     * Unmodifiable sets of the supported formats, indexed by the {@link BasisuTextureFormat} ordinal.
+     * Concurrent first calls may build the index more than once, but every build yields the same result
+     * and the list is published with a single volatile write.
+     */
+    private static volatile List<Set<BasisuTranscoderTextureFormat>> supportIndex = null;
 
     /**
      * Checks weather the transcoder can transcode to the specified texture format.
      */
-    public synchronized static boolean isTextureFormatSupported(BasisuTranscoderTextureFormat textureFormat, BasisuTextureFormat basisTexFormat) {
+    public static boolean isTextureFormatSupported(BasisuTranscoderTextureFormat textureFormat, BasisuTextureFormat basisTexFormat) {
         return getSupportedTextureFormats(basisTexFormat).contains(textureFormat);
     }
 
     /**
      * Returns a list of the texture formats that the transcoder can transcode to.
      * Basis Universal library is compiled with some transcode tables excluded per platform to save up space.
+     * @return an unmodifiable set of the supported formats.
      */
-    public synchronized static Set<BasisuTranscoderTextureFormat> getSupportedTextureFormats(BasisuTextureFormat basisTexFormat) {
-        Set<BasisuTranscoderTextureFormat> supportIndex = supportMap.get(basisTexFormat);
-        if (supportIndex == null) {
-            supportIndex = new HashSet<>();
-            collectSupportedTextureFormats(basisTexFormat, supportIndex);
-            supportMap.put(basisTexFormat, supportIndex);
+    public static Set<BasisuTranscoderTextureFormat> getSupportedTextureFormats(BasisuTextureFormat basisTexFormat) {
+        List<Set<BasisuTranscoderTextureFormat>> index = supportIndex;
+        if (index == null) {
+            index = buildSupportIndex();
+            supportIndex = index;
+        }
+        return index.get(basisTexFormat.ordinal());
+    }
+
+    private static List<Set<BasisuTranscoderTextureFormat>> buildSupportIndex() {
+        BasisuTextureFormat[] basisTexFormats = BasisuTextureFormat.values();
+        List<Set<BasisuTranscoderTextureFormat>> index = new ArrayList<>(basisTexFormats.length);
+        // The values are in the ordinal order.
+        for (BasisuTextureFormat basisTexFormat : basisTexFormats) {
+            Set<BasisuTranscoderTextureFormat> formats = EnumSet.noneOf(BasisuTranscoderTextureFormat.class);
+            collectSupportedTextureFormats(basisTexFormat, formats);
+            index.add(Collections.unmodifiableSet(formats));
         }
-        return supportIndex;
+        return Collections.unmodifiableList(index);
     }
 
     private static void collectSupportedTextureFormats(BasisuTextureFormat basisTexFormat, Set<BasisuTranscoderTextureFormat> result) {
@@ -8,11 +8,17 @@ import static com.crashinvaders.basisu.wrapper.UniqueIdUtils.findOrThrow;
 
 /**
  * The wrapper over the native Basis Universal transcoder functionality.
+ * <p/>
+ * THREAD SAFETY: All the static methods are safe to call from any number of threads at once.
+ * The global transcoder tables are initialized exactly once by whichever call comes first
+ * and every stateless call creates its own native transcoder.
+ * See {@link BasisuTranscoderSession} for the session rules.
  */
 public class BasisuWrapper {
 
     /*JNI
 
+    #include <cstdio>
     #include <cstring>
 
     #include "basisu_transcoder.h"
@@ -22,11 +28,26 @@ public class BasisuWrapper {
     #define LOG_TAG "BasisuWrapper.java"
     #define BASE_PACKAGE com/crashinvaders/basisu/wrapper
 
-    jobject wrapIntoBuffer(JNIEnv* env, basisu::vector<uint8_t> imageData) {
-        uint32_t imageDataSize = imageData.size_in_bytes();
-        uint8_t* nativeBuffer = (uint8_t*)malloc(imageDataSize);
-        memcpy(nativeBuffer, imageData.data(), imageDataSize);
-        return env->NewDirectByteBuffer(nativeBuffer, imageDataSize);
+    void throwTranscodeIntoException(JNIEnv* env, uint32_t requiredSize, uint32_t outCapacity, const char* message) {
+        if (requiredSize <= outCapacity) {
+            basisuUtils::throwException(env, message);
+            return;
+        }
+        char sizeMessage[128];
+        snprintf(sizeMessage, sizeof(sizeMessage), "The output buffer is too small: %u bytes required, but only %u remaining.", requiredSize, outCapacity);
+        basisuUtils::throwException(env, sizeMessage);
+    }
+
+    void throwAllocationException(JNIEnv* env, uint32_t size) {
+        char message[64];
+        snprintf(message, sizeof(message), "Failed to allocate %u bytes.", size);
+        basisuUtils::throwException(env, message);
+    }
+
+    jintArray wrapIntoIntArray(JNIEnv* env, basisu::vector<uint32_t> &values) {
+        jintArray array = env->NewIntArray(values.size());
+        env->SetIntArrayRegion(array, 0, values.size(), (const jint*)values.data());
+        return array;
     }
 
     */
@@ -76,20 +97,201 @@ public class BasisuWrapper {
      * @return the transcoded texture bytes
      */
     public static ByteBuffer basisTranscode(Buffer dataBuffer, int imageIndex, int levelIndex, BasisuTranscoderTextureFormat textureFormat) {
+        return basisTranscode(dataBuffer, imageIndex, levelIndex, textureFormat, BasisuDecodeFlags.NONE);
+    }
+
+    /**
+     * Same as {@link #basisTranscode(Buffer, int, int, BasisuTranscoderTextureFormat)},
+     * but with the custom decode flags to trade the transcoding speed for quality.
+     * @param decodeFlags a combination of the {@link BasisuDecodeFlags} constants
+     * @return the transcoded texture bytes
+     */
+    public static ByteBuffer basisTranscode(Buffer dataBuffer, int imageIndex, int levelIndex, BasisuTranscoderTextureFormat textureFormat, int decodeFlags) {
         int format = textureFormat.getId();
-        return basisTranscodeNative(dataBuffer, dataBuffer.capacity(), imageIndex, levelIndex, format);
+        return basisTranscodeNative(dataBuffer, dataBuffer.capacity(), imageIndex, levelIndex, format, BasisuDecodeFlags.validate(decodeFlags));
     }
-    private static native ByteBuffer basisTranscodeNative(Buffer dataBuffer, int dataSize, int imageIndex, int levelIndex, int textureFormatId); /*MANUAL
+    private static native ByteBuffer basisTranscodeNative(Buffer dataBuffer, int dataSize, int imageIndex, int levelIndex, int textureFormatId, int decodeFlags); /*MANUAL
         basist::transcoder_texture_format format = static_cast<basist::transcoder_texture_format>(textureFormatId);
         uint8_t* data = (uint8_t*)env->GetDirectBufferAddress(dataBuffer);
-        basisu::vector<uint8_t> transcodedData;
 
-        if (!basisuWrapper::basis::transcode(transcodedData, data, dataSize, imageIndex, levelIndex, format)) {
+        uint32_t size;
+        if (!basisuWrapper::basis::getTranscodedSize(size, data, dataSize, imageIndex, levelIndex, format)) {
+            basisuUtils::throwException(env, "Error during Basis image transcoding.");
+            return 0;
+        }
+
+        // Transcode straight into the memory that backs the returned buffer.
+        uint8_t* nativeBuffer = (uint8_t*)malloc(size);
+        if (nativeBuffer == nullptr) {
+            throwAllocationException(env, size);
+            return 0;
+        }
+        if (!basisuWrapper::basis::transcodeInto(nativeBuffer, size, size, data, dataSize, imageIndex, levelIndex, format, 1, decodeFlags)) {
+            free(nativeBuffer);
             basisuUtils::throwException(env, "Error during Basis image transcoding.");
             return 0;
         };
 
-        return wrapIntoBuffer(env, transcodedData);
+        return env->NewDirectByteBuffer(nativeBuffer, size);
+    */
+
+    /**
+     * Same as {@link #basisTranscode(Buffer, int, int, BasisuTranscoderTextureFormat)},
+     * but writes the transcoded texture bytes directly into the provided buffer
+     * with no intermediate native memory allocations.
+     * <p/>
+     * The data is written starting from the buffer's current position.
+     * Neither the position nor the limit of the buffer are changed.
+     * @param outBuffer a direct buffer with enough space remaining to hold the transcoded image level
+     * @return the number of bytes written
+     * @throws BasisuWrapperException if the transcoding fails or the output buffer has not enough space remaining
+     */
+    public static int basisTranscodeInto(Buffer dataBuffer, int imageIndex, int levelIndex, BasisuTranscoderTextureFormat textureFormat, ByteBuffer outBuffer) {
+        return basisTranscodeInto(dataBuffer, imageIndex, levelIndex, textureFormat, outBuffer, 1);
+    }
+
+    /**
+     * Same as {@link #basisTranscodeInto(Buffer, int, int, BasisuTranscoderTextureFormat, ByteBuffer)},
+     * but UASTC image levels are split into block row ranges, which are transcoded concurrently by native worker threads.
+     * <p/>
+     * The parallel mode only applies to UASTC data. ETC1S data, PVRTC1/PVRTC2 output formats
+     * and small image levels are always transcoded on the calling thread. There are no worker threads on the web backend.
+     * @param workerCount the max number of threads to transcode with (including the calling one),
+     *                    e.g. <code>Runtime.getRuntime().availableProcessors()</code>
+     * @return the number of bytes written
+     */
+    public static int basisTranscodeInto(Buffer dataBuffer, int imageIndex, int levelIndex, BasisuTranscoderTextureFormat textureFormat, ByteBuffer outBuffer, int workerCount) {
+        return basisTranscodeInto(dataBuffer, imageIndex, levelIndex, textureFormat, outBuffer, workerCount, BasisuDecodeFlags.NONE);
+    }
+
+    /**
+     * Same as {@link #basisTranscodeInto(Buffer, int, int, BasisuTranscoderTextureFormat, ByteBuffer, int)},
+     * but with the custom decode flags.
+     * @param decodeFlags a combination of the {@link BasisuDecodeFlags} constants
+     * @return the number of bytes written
+     */
+    public static int basisTranscodeInto(Buffer dataBuffer, int imageIndex, int levelIndex, BasisuTranscoderTextureFormat textureFormat, ByteBuffer outBuffer, int workerCount, int decodeFlags) {
+        validateOutputBuffer(outBuffer);
+        int format = textureFormat.getId();
+        return basisTranscodeIntoNative(dataBuffer, dataBuffer.capacity(), imageIndex, levelIndex, format, outBuffer, outBuffer.position(), outBuffer.remaining(), workerCount, BasisuDecodeFlags.validate(decodeFlags));
+    }
+    private static native int basisTranscodeIntoNative(Buffer dataBuffer, int dataSize, int imageIndex, int levelIndex, int textureFormatId, ByteBuffer outBuffer, int outOffset, int outCapacity, int workerCount, int decodeFlags); /*MANUAL
+        basist::transcoder_texture_format format = static_cast<basist::transcoder_texture_format>(textureFormatId);
+        uint8_t* data = (uint8_t*)env->GetDirectBufferAddress(dataBuffer);
+        uint8_t* out = (uint8_t*)env->GetDirectBufferAddress(outBuffer) + outOffset;
+
+        uint32_t outSize = 0;
+        if (!basisuWrapper::basis::transcodeInto(out, outCapacity, outSize, data, dataSize, imageIndex, levelIndex, format, workerCount > 1 ? (uint32_t)workerCount : 1u, decodeFlags)) {
+            throwTranscodeIntoException(env, outSize, outCapacity, "Error during Basis image transcoding.");
+            return 0;
+        }
+        return outSize;
+    */
+
+    /**
+     * Transcodes only a rectangular range of 4x4 blocks of the image level directly into the provided buffer.
+     * Prefer {@link BasisuTranscoderSession#transcodeRegionInto(int, int, int, int, int, int, BasisuTranscoderTextureFormat, ByteBuffer)}
+     * when multiple regions of the same file are transcoded, as this method sets up the transcoder for every call.
+     * <p/>
+     * The output layout is described in {@link BasisuTranscoderTextureFormat#getTranscodedRegionSize(int, int, int, int, int, int)}.
+     * @param blockX the region's left block column
+     * @param blockY the region's top block row
+     * @param blocksWidth the region width in blocks
+     * @param blocksHeight the region height in blocks
+     * @return the number of bytes written
+     * @throws BasisuWrapperException if the region is out of the level bounds, the transcoding fails
+     * or the output buffer has not enough space remaining
+     * @see #ktx2TranscodeRegionInto(Buffer, int, int, int, int, int, int, BasisuTranscoderTextureFormat, ByteBuffer)
+     */
+    public static int basisTranscodeRegionInto(Buffer dataBuffer, int imageIndex, int levelIndex, int blockX, int blockY, int blocksWidth, int blocksHeight, BasisuTranscoderTextureFormat textureFormat, ByteBuffer outBuffer) {
+        return basisTranscodeRegionInto(dataBuffer, imageIndex, levelIndex, blockX, blockY, blocksWidth, blocksHeight, textureFormat, outBuffer, BasisuDecodeFlags.NONE);
+    }
+
+    /**
+     * @param decodeFlags a combination of the {@link BasisuDecodeFlags} constants
+     * @return the number of bytes written
+     * @see #basisTranscodeRegionInto(Buffer, int, int, int, int, int, int, BasisuTranscoderTextureFormat, ByteBuffer)
+     */
+    public static int basisTranscodeRegionInto(Buffer dataBuffer, int imageIndex, int levelIndex, int blockX, int blockY, int blocksWidth, int blocksHeight, BasisuTranscoderTextureFormat textureFormat, ByteBuffer outBuffer, int decodeFlags) {
+        validateOutputBuffer(outBuffer);
+        int format = textureFormat.getId();
+        return basisTranscodeRegionIntoNative(dataBuffer, dataBuffer.capacity(), imageIndex, levelIndex, blockX, blockY, blocksWidth, blocksHeight, format, outBuffer, outBuffer.position(), outBuffer.remaining(), BasisuDecodeFlags.validate(decodeFlags));
+    }
+    private static native int basisTranscodeRegionIntoNative(Buffer dataBuffer, int dataSize, int imageIndex, int levelIndex, int blockX, int blockY, int blocksWidth, int blocksHeight, int textureFormatId, ByteBuffer outBuffer, int outOffset, int outCapacity, int decodeFlags); /*MANUAL
+        basist::transcoder_texture_format format = static_cast<basist::transcoder_texture_format>(textureFormatId);
+        uint8_t* data = (uint8_t*)env->GetDirectBufferAddress(dataBuffer);
+        uint8_t* out = (uint8_t*)env->GetDirectBufferAddress(outBuffer) + outOffset;
+
+        if (blockX < 0 || blockY < 0 || blocksWidth <= 0 || blocksHeight <= 0) {
+            basisuUtils::throwException(env, "Invalid block region.");
+            return 0;
+        }
+        basisuWrapper::block_region region = { (uint32_t)blockX, (uint32_t)blockY, (uint32_t)blocksWidth, (uint32_t)blocksHeight };
+
+        uint32_t outSize = 0;
+        if (!basisuWrapper::basis::transcodeRegionInto(out, outCapacity, outSize, data, dataSize, imageIndex, levelIndex, region, format, decodeFlags)) {
+            throwTranscodeIntoException(env, outSize, outCapacity, "Error during Basis image region transcoding.");
+            return 0;
+        }
+        return outSize;
+    */
+
+    /**
+     * Evaluates the size of the transcoded image level without doing the actual transcoding.
+     * Useful to preallocate the output buffers for {@link #basisTranscodeInto(Buffer, int, int, BasisuTranscoderTextureFormat, ByteBuffer)}.
+     * @return the transcoded image level size in bytes
+     */
+    public static int basisGetTranscodedSize(Buffer dataBuffer, int imageIndex, int levelIndex, BasisuTranscoderTextureFormat textureFormat) {
+        try (BasisuImageLevelInfo levelInfo = basisGetImageLevelInfo(dataBuffer, imageIndex, levelIndex)) {
+            return getTranscodedSize(levelInfo.getOrigWidth(), levelInfo.getOrigHeight(), levelInfo.getTotalBlocks(), textureFormat);
+        }
+    }
+
+    /**
+     * @return the size in bytes of an image level with the specified dimensions transcoded to the texture format.
+     * @see BasisuTranscoderTextureFormat#getTranscodedSize(int, int, int)
+     */
+    public static int getTranscodedSize(int origWidth, int origHeight, int totalBlocks, BasisuTranscoderTextureFormat textureFormat) {
+        return textureFormat.getTranscodedSize(origWidth, origHeight, totalBlocks);
+    }
+
+    /**
+     * @return the size in bytes of a block region of an image level with the specified dimensions transcoded to the texture format.
+     * @see BasisuTranscoderTextureFormat#getTranscodedRegionSize(int, int, int, int, int, int)
+     */
+    public static int getTranscodedRegionSize(int origWidth, int origHeight, int blockX, int blockY, int blocksWidth, int blocksHeight, BasisuTranscoderTextureFormat textureFormat) {
+        return textureFormat.getTranscodedRegionSize(origWidth, origHeight, blockX, blockY, blocksWidth, blocksHeight);
+    }
+
+    /**
+     * Obtains the whole .basis file description (the file info, every image and every image level) with a single native call.
+     * Prefer this over the individual info getters when multiple values have to be inspected.
+     * @return an immutable description that doesn't hold any native resources.
+     */
+    public static BasisuFileDescription basisDescribe(Buffer dataBuffer) {
+        return new BasisuFileDescription(basisDescribeNative(dataBuffer, dataBuffer.capacity()));
+    }
+    private static native int[] basisDescribeNative(Buffer dataBuffer, int dataSize); /*MANUAL
+        uint8_t* data = (uint8_t*)env->GetDirectBufferAddress(dataBuffer);
+        basisu::vector<uint32_t> description;
+        if (!basisuWrapper::basis::describe(description, data, dataSize)) {
+            basisuUtils::throwException(env, "Failed to obtain Basis file description.");
+            return 0;
+        }
+        return wrapIntoIntArray(env, description);
+    */
+
+    static BasisuFileDescription basisSessionDescribe(BasisuTranscoderSession session) {
+        return new BasisuFileDescription(basisSessionDescribeNative(session.addr));
+    }
+    private static native int[] basisSessionDescribeNative(long sessionAddr); /*MANUAL
+        basisuWrapper::basis_session* session = (basisuWrapper::basis_session*)sessionAddr;
+        basisu::vector<uint32_t> description;
+        if (!basisuWrapper::basis::describe(description, *session)) {
+            basisuUtils::throwException(env, "Failed to obtain Basis file description.");
+            return 0;
+        }
+        return wrapIntoIntArray(env, description);
     */
 
     /**
@@ -134,6 +336,173 @@ public class BasisuWrapper {
         }
     */
 
+    /**
+     * Creates a persistent transcoding session for the .basis file data.
+     * The header gets parsed and the transcoding tables get prepared only once for the whole session,
+     * which makes it the preferred way to transcode multiple images/levels of the same file.
+     * <p/>
+     * The data buffer must remain valid for the whole lifetime of the session.
+     * @return a new session instance (must be closed when no longer needed)
+     */
+    public static BasisuTranscoderSession basisCreateTranscoderSession(Buffer dataBuffer) {
+        return new BasisuTranscoderSession(dataBuffer);
+    }
+
+    static BasisuImageInfo basisSessionGetImageInfo(BasisuTranscoderSession session, int imageIndex) {
+        BasisuImageInfo imageInfo = new BasisuImageInfo();
+        basisSessionGetImageInfoNative(session.addr, imageInfo.addr, imageIndex);
+        return imageInfo;
+    }
+    private static native void basisSessionGetImageInfoNative(long sessionAddr, long imageInfoAddr, int imageIndex); /*
+        basisuWrapper::basis_session* session = (basisuWrapper::basis_session*)sessionAddr;
+        basist::basisu_image_info* imageInfo = (basist::basisu_image_info*)imageInfoAddr;
+        if (!basisuWrapper::basis::getImageInfo(*imageInfo, *session, imageIndex)) {
+            basisuUtils::throwException(env, "Failed to obtain Basis image info.");
+        }
+    */
+
+    static BasisuImageLevelInfo basisSessionGetImageLevelInfo(BasisuTranscoderSession session, int imageIndex, int imageLevel) {
+        BasisuImageLevelInfo imageInfo = new BasisuImageLevelInfo();
+        basisSessionGetImageLevelInfoNative(session.addr, imageInfo.addr, imageIndex, imageLevel);
+        return imageInfo;
+    }
+    private static native void basisSessionGetImageLevelInfoNative(long sessionAddr, long imageInfoAddr, int imageIndex, int imageLevel); /*
+        basisuWrapper::basis_session* session = (basisuWrapper::basis_session*)sessionAddr;
+        basist::basisu_image_level_info* imageInfo = (basist::basisu_image_level_info*)imageInfoAddr;
+        if (!basisuWrapper::basis::getImageLevelInfo(*imageInfo, *session, imageIndex, imageLevel)) {
+            basisuUtils::throwException(env, "Failed to obtain Basis image level info.");
+        }
+    */
+
+    static ByteBuffer basisSessionTranscode(BasisuTranscoderSession session, int imageIndex, int levelIndex, BasisuTranscoderTextureFormat textureFormat, int decodeFlags) {
+        int format = textureFormat.getId();
+        return basisSessionTranscodeNative(session.addr, imageIndex, levelIndex, format, BasisuDecodeFlags.validate(decodeFlags));
+    }
+    private static native ByteBuffer basisSessionTranscodeNative(long sessionAddr, int imageIndex, int levelIndex, int textureFormatId, int decodeFlags); /*
+        basist::transcoder_texture_format format = static_cast<basist::transcoder_texture_format>(textureFormatId);
+        basisuWrapper::basis_session* session = (basisuWrapper::basis_session*)sessionAddr;
+
+        uint32_t size;
+        if (!basisuWrapper::basis::getTranscodedSize(size, *session, imageIndex, levelIndex, format)) {
+            basisuUtils::throwException(env, "Error during Basis image transcoding.");
+            return 0;
+        }
+
+        uint8_t* nativeBuffer = (uint8_t*)malloc(size);
+        if (nativeBuffer == nullptr) {
+            throwAllocationException(env, size);
+            return 0;
+        }
+        if (!basisuWrapper::basis::transcodeInto(nativeBuffer, size, size, *session, imageIndex, levelIndex, format, 1, decodeFlags)) {
+            free(nativeBuffer);
+            basisuUtils::throwException(env, "Error during Basis image transcoding.");
+            return 0;
+        };
+
+        return env->NewDirectByteBuffer(nativeBuffer, size);
+    */
+
+    static int basisSessionTranscodeInto(BasisuTranscoderSession session, int imageIndex, int levelIndex, BasisuTranscoderTextureFormat textureFormat, ByteBuffer outBuffer, int workerCount, int decodeFlags) {
+        validateOutputBuffer(outBuffer);
+        int format = textureFormat.getId();
+        return basisSessionTranscodeIntoNative(session.addr, imageIndex, levelIndex, format, outBuffer, outBuffer.position(), outBuffer.remaining(), workerCount, BasisuDecodeFlags.validate(decodeFlags));
+    }
+    private static native int basisSessionTranscodeIntoNative(long sessionAddr, int imageIndex, int levelIndex, int textureFormatId, ByteBuffer outBuffer, int outOffset, int outCapacity, int workerCount, int decodeFlags); /*MANUAL
+        basist::transcoder_texture_format format = static_cast<basist::transcoder_texture_format>(textureFormatId);
+        basisuWrapper::basis_session* session = (basisuWrapper::basis_session*)sessionAddr;
+        uint8_t* out = (uint8_t*)env->GetDirectBufferAddress(outBuffer) + outOffset;
+
+        uint32_t outSize = 0;
+        if (!basisuWrapper::basis::transcodeInto(out, outCapacity, outSize, *session, imageIndex, levelIndex, format, workerCount > 1 ? (uint32_t)workerCount : 1u, decodeFlags)) {
+            throwTranscodeIntoException(env, outSize, outCapacity, "Error during Basis image transcoding.");
+            return 0;
+        }
+        return outSize;
+    */
+
+    static int basisSessionTranscodeRegionInto(BasisuTranscoderSession session, int imageIndex, int levelIndex, int blockX, int blockY, int blocksWidth, int blocksHeight, BasisuTranscoderTextureFormat textureFormat, ByteBuffer outBuffer, int decodeFlags) {
+        validateOutputBuffer(outBuffer);
+        int format = textureFormat.getId();
+        return basisSessionTranscodeRegionIntoNative(session.addr, imageIndex, levelIndex, blockX, blockY, blocksWidth, blocksHeight, format, outBuffer, outBuffer.position(), outBuffer.remaining(), BasisuDecodeFlags.validate(decodeFlags));
+    }
+    private static native int basisSessionTranscodeRegionIntoNative(long sessionAddr, int imageIndex, int levelIndex, int blockX, int blockY, int blocksWidth, int blocksHeight, int textureFormatId, ByteBuffer outBuffer, int outOffset, int outCapacity, int decodeFlags); /*MANUAL
+        basist::transcoder_texture_format format = static_cast<basist::transcoder_texture_format>(textureFormatId);
+        basisuWrapper::basis_session* session = (basisuWrapper::basis_session*)sessionAddr;
+        uint8_t* out = (uint8_t*)env->GetDirectBufferAddress(outBuffer) + outOffset;
+
+        if (blockX < 0 || blockY < 0 || blocksWidth <= 0 || blocksHeight <= 0) {
+            basisuUtils::throwException(env, "Invalid block region.");
+            return 0;
+        }
+        basisuWrapper::block_region region = { (uint32_t)blockX, (uint32_t)blockY, (uint32_t)blocksWidth, (uint32_t)blocksHeight };
+
+        uint32_t outSize = 0;
+        if (!basisuWrapper::basis::transcodeRegionInto(out, outCapacity, outSize, *session, imageIndex, levelIndex, region, format, decodeFlags)) {
+            throwTranscodeIntoException(env, outSize, outCapacity, "Error during Basis image region transcoding.");
+            return 0;
+        }
+        return outSize;
+    */
+
+    /**
+     * @param transcodeLevels if false, the chain memory is only allocated and laid out, but the levels are not transcoded
+     */
+    static BasisuMipChain basisSessionTranscodeMipChain(BasisuTranscoderSession session, int imageIndex, BasisuTranscoderTextureFormat textureFormat, int maxLevels, int decodeFlags, boolean transcodeLevels) {
+        int levelCount;
+        try (BasisuImageInfo imageInfo = basisSessionGetImageInfo(session, imageIndex)) {
+            levelCount = Math.min(maxLevels, imageInfo.getTotalLevels());
+        }
+        if (levelCount <= 0) {
+            throw new BasisuWrapperException("At least one mipmap level must be transcoded.");
+        }
+        int[] levelTable = new int[levelCount * BasisuMipChain.LEVEL_TABLE_STRIDE];
+        ByteBuffer data = basisSessionTranscodeMipChainNative(session.addr, imageIndex, textureFormat.getId(), levelCount, levelTable, BasisuDecodeFlags.validate(decodeFlags), transcodeLevels);
+        return new BasisuMipChain(textureFormat, data, levelTable);
+    }
+    private static native ByteBuffer basisSessionTranscodeMipChainNative(long sessionAddr, int imageIndex, int textureFormatId, int levelCount, int[] levelTable, int decodeFlags, boolean transcodeLevels); /*MANUAL
+        basist::transcoder_texture_format format = static_cast<basist::transcoder_texture_format>(textureFormatId);
+        basisuWrapper::basis_session* session = (basisuWrapper::basis_session*)sessionAddr;
+
+        basisu::vector<basisuWrapper::transcoded_level> levels;
+        uint32_t totalSize;
+        if (!basisuWrapper::basis::getMipChainLayout(levels, totalSize, *session, imageIndex, levelCount, format)) {
+            basisuUtils::throwException(env, "Error during Basis image transcoding.");
+            return 0;
+        }
+
+        uint8_t* nativeBuffer = (uint8_t*)malloc(totalSize);
+        if (nativeBuffer == nullptr) {
+            throwAllocationException(env, totalSize);
+            return 0;
+        }
+        if (transcodeLevels && !basisuWrapper::basis::transcodeMipChain(nativeBuffer, levels, *session, imageIndex, format, decodeFlags)) {
+            free(nativeBuffer);
+            basisuUtils::throwException(env, "Error during Basis image transcoding.");
+            return 0;
+        }
+
+        env->SetIntArrayRegion(levelTable, 0, levels.size() * 4, (const jint*)levels.data());
+        return env->NewDirectByteBuffer(nativeBuffer, totalSize);
+    */
+
+    /**
+     * Obtains the whole KTX2 file description (the file info and every image level) with a single native call.
+     * @return an immutable description that doesn't hold any native resources.
+     * @see #basisDescribe(Buffer)
+     */
+    public static Ktx2FileDescription ktx2Describe(Buffer dataBuffer) {
+        return new Ktx2FileDescription(ktx2DescribeNative(dataBuffer, dataBuffer.capacity()));
+    }
+    private static native int[] ktx2DescribeNative(Buffer dataBuffer, int dataSize); /*MANUAL
+        uint8_t* data = (uint8_t*)env->GetDirectBufferAddress(dataBuffer);
+        basisu::vector<uint32_t> description;
+        if (!basisuWrapper::ktx2::describe(description, data, dataSize)) {
+            basisuUtils::throwException(env, "Failed to obtain KTX2 file description.");
+            return 0;
+        }
+        return wrapIntoIntArray(env, description);
+    */
+
     /** @return information about the KTX2 file. */
     public static Ktx2FileInfo ktx2GetFileInfo(Buffer dataBuffer) {
         Ktx2FileInfo fileInfo = new Ktx2FileInfo();
@@ -161,20 +530,398 @@ public class BasisuWrapper {
     */
 
     public static ByteBuffer ktx2Transcode(Buffer dataBuffer, int layerIndex, int levelIndex, BasisuTranscoderTextureFormat textureFormat) {
+        return ktx2Transcode(dataBuffer, layerIndex, levelIndex, textureFormat, BasisuDecodeFlags.NONE);
+    }
+
+    /**
+     * @param decodeFlags a combination of the {@link BasisuDecodeFlags} constants
+     * @see #basisTranscode(Buffer, int, int, BasisuTranscoderTextureFormat, int)
+     */
+    public static ByteBuffer ktx2Transcode(Buffer dataBuffer, int layerIndex, int levelIndex, BasisuTranscoderTextureFormat textureFormat, int decodeFlags) {
         int format = textureFormat.getId();
-        return ktx2TranscodeNative(dataBuffer, dataBuffer.capacity(), layerIndex, levelIndex, format);
+        return ktx2TranscodeNative(dataBuffer, dataBuffer.capacity(), layerIndex, levelIndex, format, BasisuDecodeFlags.validate(decodeFlags));
     }
-    private static native ByteBuffer ktx2TranscodeNative(Buffer dataBuffer, int dataSize, int layerIndex, int levelIndex, int textureFormatId); /*MANUAL
+    private static native ByteBuffer ktx2TranscodeNative(Buffer dataBuffer, int dataSize, int layerIndex, int levelIndex, int textureFormatId, int decodeFlags); /*MANUAL
         basist::transcoder_texture_format format = static_cast<basist::transcoder_texture_format>(textureFormatId);
         uint8_t* data = (uint8_t*)env->GetDirectBufferAddress(dataBuffer);
-        basisu::vector<uint8_t> transcodedData;
 
-        if (!basisuWrapper::ktx2::transcode(transcodedData, data, dataSize, layerIndex, levelIndex, format)) {
+        uint32_t size;
+        if (!basisuWrapper::ktx2::getTranscodedSize(size, data, dataSize, layerIndex, levelIndex, format)) {
+            basisuUtils::throwException(env, "Error during KTX2 image transcoding.");
+            return 0;
+        }
+
+        uint8_t* nativeBuffer = (uint8_t*)malloc(size);
+        if (nativeBuffer == nullptr) {
+            throwAllocationException(env, size);
+            return 0;
+        }
+        if (!basisuWrapper::ktx2::transcodeInto(nativeBuffer, size, size, data, dataSize, layerIndex, levelIndex, format, 1, decodeFlags)) {
+            free(nativeBuffer);
             basisuUtils::throwException(env, "Error during KTX2 image transcoding.");
             return 0;
         };
 
-        return wrapIntoBuffer(env, transcodedData);
+        return env->NewDirectByteBuffer(nativeBuffer, size);
+    */
+
+    /**
+     * Evaluates the size of the transcoded image level without doing the actual transcoding.
+     * @return the transcoded image level size in bytes
+     * @see #basisGetTranscodedSize(Buffer, int, int, BasisuTranscoderTextureFormat)
+     */
+    public static int ktx2GetTranscodedSize(Buffer dataBuffer, int layerIndex, int levelIndex, BasisuTranscoderTextureFormat textureFormat) {
+        try (Ktx2ImageLevelInfo levelInfo = ktx2GetImageLevelInfo(dataBuffer, layerIndex, levelIndex)) {
+            return getTranscodedSize(levelInfo.getOrigWidth(), levelInfo.getOrigHeight(), levelInfo.getTotalBlocks(), textureFormat);
+        }
+    }
+
+    /**
+     * Transcodes the whole mipmap chain (starting from the base level) of the layer
+     * in a single call into a single native buffer.
+     * @param maxLevels the maximum number of levels to transcode (clamped to the total number of levels)
+     * @return the transcoded mipmap chain (must be closed when no longer needed)
+     */
+    public static BasisuMipChain ktx2TranscodeMipChain(Buffer dataBuffer, int layerIndex, BasisuTranscoderTextureFormat textureFormat, int maxLevels) {
+        return ktx2TranscodeMipChain(dataBuffer, layerIndex, textureFormat, maxLevels, BasisuDecodeFlags.NONE, true);
+    }
+
+    /**
+     * Same as {@link #ktx2TranscodeMipChain(Buffer, int, BasisuTranscoderTextureFormat, int)}, but with the custom decode flags.
+     * @param decodeFlags a combination of the {@link BasisuDecodeFlags} constants
+     * @return the transcoded mipmap chain (must be closed when no longer needed)
+     */
+    public static BasisuMipChain ktx2TranscodeMipChain(Buffer dataBuffer, int layerIndex, BasisuTranscoderTextureFormat textureFormat, int maxLevels, int decodeFlags) {
+        return ktx2TranscodeMipChain(dataBuffer, layerIndex, textureFormat, maxLevels, decodeFlags, true);
+    }
+
+    /**
+     * Allocates and lays out the memory for the mipmap chain just like {@link #ktx2TranscodeMipChain(Buffer, int, BasisuTranscoderTextureFormat, int)} does,
+     * but doesn't transcode anything.
+     * The levels are meant to be transcoded individually using
+     * {@link #ktx2TranscodeInto(Buffer, int, int, BasisuTranscoderTextureFormat, ByteBuffer)} into {@link BasisuMipChain#getLevelData(int)}
+     * (e.g. concurrently, as each level occupies its own part of the buffer).
+     * @return the mip chain with no level data transcoded yet (must be closed when no longer needed)
+     */
+    public static BasisuMipChain ktx2AllocateMipChain(Buffer dataBuffer, int layerIndex, BasisuTranscoderTextureFormat textureFormat, int maxLevels) {
+        return ktx2TranscodeMipChain(dataBuffer, layerIndex, textureFormat, maxLevels, BasisuDecodeFlags.NONE, false);
+    }
+
+    private static BasisuMipChain ktx2TranscodeMipChain(Buffer dataBuffer, int layerIndex, BasisuTranscoderTextureFormat textureFormat, int maxLevels, int decodeFlags, boolean transcodeLevels) {
+        int levelCount;
+        try (Ktx2FileInfo fileInfo = ktx2GetFileInfo(dataBuffer)) {
+            levelCount = Math.min(maxLevels, fileInfo.getTotalMipmapLevels());
+        }
+        if (levelCount <= 0) {
+            throw new BasisuWrapperException("At least one mipmap level must be transcoded.");
+        }
+        int[] levelTable = new int[levelCount * BasisuMipChain.LEVEL_TABLE_STRIDE];
+        ByteBuffer data = ktx2TranscodeMipChainNative(dataBuffer, dataBuffer.capacity(), layerIndex, textureFormat.getId(), levelCount, levelTable, BasisuDecodeFlags.validate(decodeFlags), transcodeLevels);
+        return new BasisuMipChain(textureFormat, data, levelTable);
+    }
+    private static native ByteBuffer ktx2TranscodeMipChainNative(Buffer dataBuffer, int dataSize, int layerIndex, int textureFormatId, int levelCount, int[] levelTable, int decodeFlags, boolean transcodeLevels); /*MANUAL
+        basist::transcoder_texture_format format = static_cast<basist::transcoder_texture_format>(textureFormatId);
+        uint8_t* data = (uint8_t*)env->GetDirectBufferAddress(dataBuffer);
+
+        basisu::vector<basisuWrapper::transcoded_level> levels;
+        uint32_t totalSize;
+        if (!basisuWrapper::ktx2::getMipChainLayout(levels, totalSize, data, dataSize, layerIndex, levelCount, format)) {
+            basisuUtils::throwException(env, "Error during KTX2 image transcoding.");
+            return 0;
+        }
+
+        uint8_t* nativeBuffer = (uint8_t*)malloc(totalSize);
+        if (nativeBuffer == nullptr) {
+            throwAllocationException(env, totalSize);
+            return 0;
+        }
+        if (transcodeLevels && !basisuWrapper::ktx2::transcodeMipChain(nativeBuffer, levels, data, dataSize, layerIndex, format, decodeFlags)) {
+            free(nativeBuffer);
+            basisuUtils::throwException(env, "Error during KTX2 image transcoding.");
+            return 0;
+        }
+
+        env->SetIntArrayRegion(levelTable, 0, levels.size() * 4, (const jint*)levels.data());
+        return env->NewDirectByteBuffer(nativeBuffer, totalSize);
+    */
+
+    /**
+     * Same as {@link #ktx2Transcode(Buffer, int, int, BasisuTranscoderTextureFormat)},
+     * but writes the transcoded texture bytes directly into the provided buffer.
+     * @return the number of bytes written
+     * @throws BasisuWrapperException if the transcoding fails or the output buffer has not enough space remaining
+     * @see #basisTranscodeInto(Buffer, int, int, BasisuTranscoderTextureFormat, ByteBuffer)
+     */
+    public static int ktx2TranscodeInto(Buffer dataBuffer, int layerIndex, int levelIndex, BasisuTranscoderTextureFormat textureFormat, ByteBuffer outBuffer) {
+        return ktx2TranscodeInto(dataBuffer, layerIndex, levelIndex, textureFormat, outBuffer, 1);
+    }
+
+    /**
+     * Same as {@link #ktx2TranscodeInto(Buffer, int, int, BasisuTranscoderTextureFormat, ByteBuffer)},
+     * but UASTC image levels are transcoded concurrently by up to "workerCount" native threads.
+     * ZSTD supercompressed level data is inflated on the calling thread first.
+     * @return the number of bytes written
+     * @see #basisTranscodeInto(Buffer, int, int, BasisuTranscoderTextureFormat, ByteBuffer, int)
+     */
+    public static int ktx2TranscodeInto(Buffer dataBuffer, int layerIndex, int levelIndex, BasisuTranscoderTextureFormat textureFormat, ByteBuffer outBuffer, int workerCount) {
+        return ktx2TranscodeInto(dataBuffer, layerIndex, levelIndex, textureFormat, outBuffer, workerCount, BasisuDecodeFlags.NONE);
+    }
+
+    /**
+     * @param decodeFlags a combination of the {@link BasisuDecodeFlags} constants
+     * @return the number of bytes written
+     * @see #basisTranscodeInto(Buffer, int, int, BasisuTranscoderTextureFormat, ByteBuffer, int, int)
+     */
+    public static int ktx2TranscodeInto(Buffer dataBuffer, int layerIndex, int levelIndex, BasisuTranscoderTextureFormat textureFormat, ByteBuffer outBuffer, int workerCount, int decodeFlags) {
+        validateOutputBuffer(outBuffer);
+        int format = textureFormat.getId();
+        return ktx2TranscodeIntoNative(dataBuffer, dataBuffer.capacity(), layerIndex, levelIndex, format, outBuffer, outBuffer.position(), outBuffer.remaining(), workerCount, BasisuDecodeFlags.validate(decodeFlags));
+    }
+    private static native int ktx2TranscodeIntoNative(Buffer dataBuffer, int dataSize, int layerIndex, int levelIndex, int textureFormatId, ByteBuffer outBuffer, int outOffset, int outCapacity, int workerCount, int decodeFlags); /*MANUAL
+        basist::transcoder_texture_format format = static_cast<basist::transcoder_texture_format>(textureFormatId);
+        uint8_t* data = (uint8_t*)env->GetDirectBufferAddress(dataBuffer);
+        uint8_t* out = (uint8_t*)env->GetDirectBufferAddress(outBuffer) + outOffset;
+
+        uint32_t outSize = 0;
+        if (!basisuWrapper::ktx2::transcodeInto(out, outCapacity, outSize, data, dataSize, layerIndex, levelIndex, format, workerCount > 1 ? (uint32_t)workerCount : 1u, decodeFlags)) {
+            throwTranscodeIntoException(env, outSize, outCapacity, "Error during KTX2 image transcoding.");
+            return 0;
+        }
+        return outSize;
+    */
+
+    /**
+     * Transcodes only a rectangular range of 4x4 blocks of the image level directly into the provided buffer.
+     * Meant for the partial texture updates (e.g. streaming a huge texture level tile by tile
+     * with <code>glCompressedTexSubImage2D</code>) without transcoding the whole level.
+     * <p/>
+     * UASTC blocks are transcoded independently, so only the region blocks are processed.
+     * ETC1S slices can only be decoded as a whole, so the level is transcoded into temporary native memory
+     * and only the region is copied out of it.
+     * PVRTC1/PVRTC2 formats are not supported, as their blocks depend on the neighboring ones.
+     * <p/>
+     * The output layout is described in {@link BasisuTranscoderTextureFormat#getTranscodedRegionSize(int, int, int, int, int, int)}.
+     * @param blockX the region's left block column
+     * @param blockY the region's top block row
+     * @param blocksWidth the region width in blocks
+     * @param blocksHeight the region height in blocks
+     * @return the number of bytes written
+     * @throws BasisuWrapperException if the region is out of the level bounds, the transcoding fails
+     * or the output buffer has not enough space remaining
+     */
+    public static int ktx2TranscodeRegionInto(Buffer dataBuffer, int layerIndex, int levelIndex, int blockX, int blockY, int blocksWidth, int blocksHeight, BasisuTranscoderTextureFormat textureFormat, ByteBuffer outBuffer) {
+        return ktx2TranscodeRegionInto(dataBuffer, layerIndex, levelIndex, blockX, blockY, blocksWidth, blocksHeight, textureFormat, outBuffer, BasisuDecodeFlags.NONE);
+    }
+
+    /**
+     * @param decodeFlags a combination of the {@link BasisuDecodeFlags} constants
+     * @return the number of bytes written
+     * @see #ktx2TranscodeRegionInto(Buffer, int, int, int, int, int, int, BasisuTranscoderTextureFormat, ByteBuffer)
+     */
+    public static int ktx2TranscodeRegionInto(Buffer dataBuffer, int layerIndex, int levelIndex, int blockX, int blockY, int blocksWidth, int blocksHeight, BasisuTranscoderTextureFormat textureFormat, ByteBuffer outBuffer, int decodeFlags) {
+        validateOutputBuffer(outBuffer);
+        int format = textureFormat.getId();
+        return ktx2TranscodeRegionIntoNative(dataBuffer, dataBuffer.capacity(), layerIndex, levelIndex, blockX, blockY, blocksWidth, blocksHeight, format, outBuffer, outBuffer.position(), outBuffer.remaining(), BasisuDecodeFlags.validate(decodeFlags));
+    }
+    private static native int ktx2TranscodeRegionIntoNative(Buffer dataBuffer, int dataSize, int layerIndex, int levelIndex, int blockX, int blockY, int blocksWidth, int blocksHeight, int textureFormatId, ByteBuffer outBuffer, int outOffset, int outCapacity, int decodeFlags); /*MANUAL
+        basist::transcoder_texture_format format = static_cast<basist::transcoder_texture_format>(textureFormatId);
+        uint8_t* data = (uint8_t*)env->GetDirectBufferAddress(dataBuffer);
+        uint8_t* out = (uint8_t*)env->GetDirectBufferAddress(outBuffer) + outOffset;
+
+        if (blockX < 0 || blockY < 0 || blocksWidth <= 0 || blocksHeight <= 0) {
+            basisuUtils::throwException(env, "Invalid block region.");
+            return 0;
+        }
+        basisuWrapper::block_region region = { (uint32_t)blockX, (uint32_t)blockY, (uint32_t)blocksWidth, (uint32_t)blocksHeight };
+
+        uint32_t outSize = 0;
+        if (!basisuWrapper::ktx2::transcodeRegionInto(out, outCapacity, outSize, data, dataSize, layerIndex, levelIndex, region, format, decodeFlags)) {
+            throwTranscodeIntoException(env, outSize, outCapacity, "Error during KTX2 image region transcoding.");
+            return 0;
+        }
+        return outSize;
+    */
+
+    /**
+     * Creates a persistent transcoding session for the KTX2 file data.
+     * The header and the level index get parsed and the transcoding tables get prepared only once for the whole session,
+     * which makes it the preferred way to transcode multiple layers/levels of the same file.
+     * <p/>
+     * The data buffer must remain valid for the whole lifetime of the session.
+     * @return a new session instance with the level cache disabled (must be closed when no longer needed)
+     * @see #ktx2CreateTranscoderSession(Buffer, int)
+     */
+    public static Ktx2TranscoderSession ktx2CreateTranscoderSession(Buffer dataBuffer) {
+        return new Ktx2TranscoderSession(dataBuffer, 0);
+    }
+
+    /**
+     * Same as {@link #ktx2CreateTranscoderSession(Buffer)}, but the session also keeps up to "levelCacheCapacity" bytes
+     * of the inflated ZSTD supercompressed levels in memory, so transcoding the same level again
+     * (e.g. to a different texture format) doesn't inflate it once more.
+     * The least recently used levels get evicted first.
+     * @param levelCacheCapacity the max total size in bytes of the cached inflated levels (zero disables the cache)
+     * @return a new session instance (must be closed when no longer needed)
+     */
+    public static Ktx2TranscoderSession ktx2CreateTranscoderSession(Buffer dataBuffer, int levelCacheCapacity) {
+        return new Ktx2TranscoderSession(dataBuffer, levelCacheCapacity);
+    }
+
+    static Ktx2FileDescription ktx2SessionDescribe(Ktx2TranscoderSession session) {
+        return new Ktx2FileDescription(ktx2SessionDescribeNative(session.addr));
+    }
+    private static native int[] ktx2SessionDescribeNative(long sessionAddr); /*MANUAL
+        basisuWrapper::ktx2_session* session = (basisuWrapper::ktx2_session*)sessionAddr;
+        basisu::vector<uint32_t> description;
+        if (!basisuWrapper::ktx2::describe(description, *session)) {
+            basisuUtils::throwException(env, "Failed to obtain KTX2 file description.");
+            return 0;
+        }
+        return wrapIntoIntArray(env, description);
+    */
+
+    static Ktx2ImageLevelInfo ktx2SessionGetImageLevelInfo(Ktx2TranscoderSession session, int layerIndex, int levelIndex, int faceIndex) {
+        Ktx2ImageLevelInfo imageInfo = new Ktx2ImageLevelInfo();
+        ktx2SessionGetImageLevelInfoNative(session.addr, layerIndex, levelIndex, faceIndex, imageInfo.addr);
+        return imageInfo;
+    }
+    private static native void ktx2SessionGetImageLevelInfoNative(long sessionAddr, int layerIndex, int levelIndex, int faceIndex, long imageInfoAddr); /*
+        basisuWrapper::ktx2_session* session = (basisuWrapper::ktx2_session*)sessionAddr;
+        basist::ktx2_image_level_info* imageInfo = (basist::ktx2_image_level_info*)imageInfoAddr;
+        if (!basisuWrapper::ktx2::getImageLevelInfo(*imageInfo, *session, layerIndex, levelIndex, faceIndex)) {
+            basisuUtils::throwException(env, "Failed to obtain KTX2 image level info.");
+        }
+    */
+
+    static void ktx2SessionSetLevelCacheCapacity(Ktx2TranscoderSession session, int levelCacheCapacity) {
+        if (levelCacheCapacity < 0) {
+            throw new BasisuWrapperException("The level cache capacity must not be negative.");
+        }
+        ktx2SessionSetLevelCacheCapacityNative(session.addr, levelCacheCapacity);
+    }
+    private static native void ktx2SessionSetLevelCacheCapacityNative(long sessionAddr, int levelCacheCapacity); /*
+        basisuWrapper::ktx2_session* session = (basisuWrapper::ktx2_session*)sessionAddr;
+        basisuWrapper::ktx2::setLevelCacheCapacity(*session, (uint32_t)levelCacheCapacity);
+    */
+
+    static int ktx2SessionGetLevelCacheSize(Ktx2TranscoderSession session) {
+        return ktx2SessionGetLevelCacheSizeNative(session.addr);
+    }
+    private static native int ktx2SessionGetLevelCacheSizeNative(long sessionAddr); /*
+        basisuWrapper::ktx2_session* session = (basisuWrapper::ktx2_session*)sessionAddr;
+        return (jint)basisuWrapper::ktx2::getLevelCacheSize(*session);
+    */
+
+    static ByteBuffer ktx2SessionTranscode(Ktx2TranscoderSession session, int layerIndex, int levelIndex, int faceIndex, BasisuTranscoderTextureFormat textureFormat, int decodeFlags) {
+        int format = textureFormat.getId();
+        return ktx2SessionTranscodeNative(session.addr, layerIndex, levelIndex, faceIndex, format, BasisuDecodeFlags.validate(decodeFlags));
+    }
+    private static native ByteBuffer ktx2SessionTranscodeNative(long sessionAddr, int layerIndex, int levelIndex, int faceIndex, int textureFormatId, int decodeFlags); /*
+        basist::transcoder_texture_format format = static_cast<basist::transcoder_texture_format>(textureFormatId);
+        basisuWrapper::ktx2_session* session = (basisuWrapper::ktx2_session*)sessionAddr;
+
+        uint32_t size;
+        if (!basisuWrapper::ktx2::getTranscodedSize(size, *session, layerIndex, levelIndex, faceIndex, format)) {
+            basisuUtils::throwException(env, "Error during KTX2 image transcoding.");
+            return 0;
+        }
+
+        uint8_t* nativeBuffer = (uint8_t*)malloc(size);
+        if (nativeBuffer == nullptr) {
+            throwAllocationException(env, size);
+            return 0;
+        }
+        if (!basisuWrapper::ktx2::transcodeInto(nativeBuffer, size, size, *session, layerIndex, levelIndex, faceIndex, format, 1, decodeFlags)) {
+            free(nativeBuffer);
+            basisuUtils::throwException(env, "Error during KTX2 image transcoding.");
+            return 0;
+        };
+
+        return env->NewDirectByteBuffer(nativeBuffer, size);
+    */
+
+    static int ktx2SessionTranscodeInto(Ktx2TranscoderSession session, int layerIndex, int levelIndex, int faceIndex, BasisuTranscoderTextureFormat textureFormat, ByteBuffer outBuffer, int workerCount, int decodeFlags) {
+        validateOutputBuffer(outBuffer);
+        int format = textureFormat.getId();
+        return ktx2SessionTranscodeIntoNative(session.addr, layerIndex, levelIndex, faceIndex, format, outBuffer, outBuffer.position(), outBuffer.remaining(), workerCount, BasisuDecodeFlags.validate(decodeFlags));
+    }
+    private static native int ktx2SessionTranscodeIntoNative(long sessionAddr, int layerIndex, int levelIndex, int faceIndex, int textureFormatId, ByteBuffer outBuffer, int outOffset, int outCapacity, int workerCount, int decodeFlags); /*MANUAL
+        basist::transcoder_texture_format format = static_cast<basist::transcoder_texture_format>(textureFormatId);
+        basisuWrapper::ktx2_session* session = (basisuWrapper::ktx2_session*)sessionAddr;
+        uint8_t* out = (uint8_t*)env->GetDirectBufferAddress(outBuffer) + outOffset;
+
+        uint32_t outSize = 0;
+        if (!basisuWrapper::ktx2::transcodeInto(out, outCapacity, outSize, *session, layerIndex, levelIndex, faceIndex, format, workerCount > 1 ? (uint32_t)workerCount : 1u, decodeFlags)) {
+            throwTranscodeIntoException(env, outSize, outCapacity, "Error during KTX2 image transcoding.");
+            return 0;
+        }
+        return outSize;
+    */
+
+    static int ktx2SessionTranscodeRegionInto(Ktx2TranscoderSession session, int layerIndex, int levelIndex, int blockX, int blockY, int blocksWidth, int blocksHeight, BasisuTranscoderTextureFormat textureFormat, ByteBuffer outBuffer, int decodeFlags) {
+        validateOutputBuffer(outBuffer);
+        int format = textureFormat.getId();
+        return ktx2SessionTranscodeRegionIntoNative(session.addr, layerIndex, levelIndex, blockX, blockY, blocksWidth, blocksHeight, format, outBuffer, outBuffer.position(), outBuffer.remaining(), BasisuDecodeFlags.validate(decodeFlags));
+    }
+    private static native int ktx2SessionTranscodeRegionIntoNative(long sessionAddr, int layerIndex, int levelIndex, int blockX, int blockY, int blocksWidth, int blocksHeight, int textureFormatId, ByteBuffer outBuffer, int outOffset, int outCapacity, int decodeFlags); /*MANUAL
+        basist::transcoder_texture_format format = static_cast<basist::transcoder_texture_format>(textureFormatId);
+        basisuWrapper::ktx2_session* session = (basisuWrapper::ktx2_session*)sessionAddr;
+        uint8_t* out = (uint8_t*)env->GetDirectBufferAddress(outBuffer) + outOffset;
+
+        if (blockX < 0 || blockY < 0 || blocksWidth <= 0 || blocksHeight <= 0) {
+            basisuUtils::throwException(env, "Invalid block region.");
+            return 0;
+        }
+        basisuWrapper::block_region region = { (uint32_t)blockX, (uint32_t)blockY, (uint32_t)blocksWidth, (uint32_t)blocksHeight };
+
+        uint32_t outSize = 0;
+        if (!basisuWrapper::ktx2::transcodeRegionInto(out, outCapacity, outSize, *session, layerIndex, levelIndex, region, format, decodeFlags)) {
+            throwTranscodeIntoException(env, outSize, outCapacity, "Error during KTX2 image region transcoding.");
+            return 0;
+        }
+        return outSize;
+    */
+
+    /**
+     * @param transcodeLevels if false, the chain memory is only allocated and laid out, but the levels are not transcoded
+     */
+    static BasisuMipChain ktx2SessionTranscodeMipChain(Ktx2TranscoderSession session, int layerIndex, BasisuTranscoderTextureFormat textureFormat, int maxLevels, int decodeFlags, boolean transcodeLevels) {
+        int levelCount = Math.min(maxLevels, ktx2SessionGetLevelCountNative(session.addr));
+        if (levelCount <= 0) {
+            throw new BasisuWrapperException("At least one mipmap level must be transcoded.");
+        }
+        int[] levelTable = new int[levelCount * BasisuMipChain.LEVEL_TABLE_STRIDE];
+        ByteBuffer data = ktx2SessionTranscodeMipChainNative(session.addr, layerIndex, textureFormat.getId(), levelCount, levelTable, BasisuDecodeFlags.validate(decodeFlags), transcodeLevels);
+        return new BasisuMipChain(textureFormat, data, levelTable);
+    }
+    private static native int ktx2SessionGetLevelCountNative(long sessionAddr); /*
+        basisuWrapper::ktx2_session* session = (basisuWrapper::ktx2_session*)sessionAddr;
+        return (jint)session->transcoder.get_levels();
+    */
+    private static native ByteBuffer ktx2SessionTranscodeMipChainNative(long sessionAddr, int layerIndex, int textureFormatId, int levelCount, int[] levelTable, int decodeFlags, boolean transcodeLevels); /*MANUAL
+        basist::transcoder_texture_format format = static_cast<basist::transcoder_texture_format>(textureFormatId);
+        basisuWrapper::ktx2_session* session = (basisuWrapper::ktx2_session*)sessionAddr;
+
+        basisu::vector<basisuWrapper::transcoded_level> levels;
+        uint32_t totalSize;
+        if (!basisuWrapper::ktx2::getMipChainLayout(levels, totalSize, *session, layerIndex, levelCount, format)) {
+            basisuUtils::throwException(env, "Error during KTX2 image transcoding.");
+            return 0;
+        }
+
+        uint8_t* nativeBuffer = (uint8_t*)malloc(totalSize);
+        if (nativeBuffer == nullptr) {
+            throwAllocationException(env, totalSize);
+            return 0;
+        }
+        if (transcodeLevels && !basisuWrapper::ktx2::transcodeMipChain(nativeBuffer, levels, *session, layerIndex, format, decodeFlags)) {
+            free(nativeBuffer);
+            basisuUtils::throwException(env, "Error during KTX2 image transcoding.");
+            return 0;
+        }
+
+        env->SetIntArrayRegion(levelTable, 0, levels.size() * 4, (const jint*)levels.data());
+        return env->NewDirectByteBuffer(nativeBuffer, totalSize);
     */
 
     /**
@@ -194,4 +941,10 @@ public class BasisuWrapper {
     public static void releaseEncodedData(Buffer dataBuffer) {
         // No-op on JNI platforms.
     }
+
+    private static void validateOutputBuffer(ByteBuffer outBuffer) {
+        if (!outBuffer.isDirect()) {
+            throw new BasisuWrapperException("The output buffer must be a direct buffer.");
+        }
+    }
 }
@@ -0,0 +1,80 @@
+package com.crashinvaders.basisu.wrapper;
+
+import static com.crashinvaders.basisu.wrapper.UniqueIdUtils.findOrThrow;
+
+/**
+ * Immutable description of the whole KTX2 file: the general file info and every image level of every layer and face.
+ * Holds the same data as {@link Ktx2FileInfo} and {@link Ktx2ImageLevelInfo} combined,
+ * but is obtained with a single native call and requires no native resources (no need to close it).
+ * <p/>
+ * Use {@link BasisuWrapper#ktx2Describe(java.nio.Buffer)} to obtain an instance.
+ */
+public class Ktx2FileDescription {
+
+    static final int PACKED_SIZE = 7;
+
+    private final int imageWidth;
+    private final int imageHeight;
+    private final int totalLayers;
+    private final int totalMipmapLevels;
+    private final int totalFaces;
+    private final BasisuTextureFormat textureFormat;
+    private final boolean alpha;
+    /** Ordered by layer, then by face, then by level. */
+    private final Ktx2ImageLevelDescription[] levels;
+
+    /**
+     * @param packed the description packed by the native <code>basisuWrapper::ktx2::describe()</code> function
+     */
+    Ktx2FileDescription(int[] packed) {
+        this.imageWidth = packed[0];
+        this.imageHeight = packed[1];
+        this.totalLayers = packed[2];
+        this.totalMipmapLevels = packed[3];
+        this.totalFaces = packed[4];
+        this.textureFormat = findOrThrow(BasisuTextureFormat.values(), packed[5]);
+        this.alpha = (packed[6] & 1) != 0;
+
+        int levelCount = Math.max(1, totalLayers) * totalFaces * totalMipmapLevels;
+        this.levels = new Ktx2ImageLevelDescription[levelCount];
+        int offset = PACKED_SIZE;
+        for (int i = 0; i < levelCount; i++) {
+            levels[i] = new Ktx2ImageLevelDescription(packed, offset);
+            offset += Ktx2ImageLevelDescription.PACKED_SIZE;
+        }
+    }
+
+    /** The number of texture array layers (zero for non-array textures). */
+    public int getTotalLayers() { return totalLayers; }
+
+    public int getTotalMipmapLevels() { return totalMipmapLevels; }
+
+    /** The number of cubemap faces (6 for cubemaps, 1 otherwise). */
+    public int getTotalFaces() { return totalFaces; }
+
+    public int getImageWidth() { return imageWidth; }
+
+    public int getImageHeight() { return imageHeight; }
+
+    public boolean hasAlpha() { return alpha; }
+
+    public BasisuTextureFormat getTextureFormat() { return textureFormat; }
+
+    public Ktx2ImageLevelDescription getImageLevel(int layerIndex, int levelIndex) {
+        return getImageLevel(layerIndex, levelIndex, 0);
+    }
+
+    public Ktx2ImageLevelDescription getImageLevel(int layerIndex, int levelIndex, int faceIndex) {
+        int layers = Math.max(1, totalLayers);
+        if (layerIndex < 0 || layerIndex >= layers) {
+            throw new BasisuWrapperException("layerIndex " + layerIndex + " exceeds the total number of layers (" + layers + ") in the KTX2 file.");
+        }
+        if (faceIndex < 0 || faceIndex >= totalFaces) {
+            throw new BasisuWrapperException("faceIndex " + faceIndex + " exceeds the total number of faces (" + totalFaces + ") in the KTX2 file.");
+        }
+        if (levelIndex < 0 || levelIndex >= totalMipmapLevels) {
+            throw new BasisuWrapperException("levelIndex " + levelIndex + " exceeds the total number of mipmap levels (" + totalMipmapLevels + ") in the KTX2 file.");
+        }
+        return levels[(layerIndex * totalFaces + faceIndex) * totalMipmapLevels + levelIndex];
+    }
+}
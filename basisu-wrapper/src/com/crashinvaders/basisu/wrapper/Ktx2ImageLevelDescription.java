@@ -0,0 +1,76 @@
+package com.crashinvaders.basisu.wrapper;
+
+/**
+ * Immutable description of a single KTX2 image level.
+ * Holds the same data as {@link Ktx2ImageLevelInfo}, but requires no native resources.
+ * @see Ktx2FileDescription
+ */
+public class Ktx2ImageLevelDescription {
+
+    static final int PACKED_SIZE = 11;
+
+    private final int levelIndex;
+    private final int layerIndex;
+    private final int faceIndex;
+    private final int origWidth;
+    private final int origHeight;
+    private final int width;
+    private final int height;
+    private final int numBlocksX;
+    private final int numBlocksY;
+    private final int totalBlocks;
+    private final boolean alphaFlag;
+    private final boolean iframeFlag;
+
+    Ktx2ImageLevelDescription(int[] packed, int offset) {
+        this.levelIndex = packed[offset];
+        this.layerIndex = packed[offset + 1];
+        this.faceIndex = packed[offset + 2];
+        this.origWidth = packed[offset + 3];
+        this.origHeight = packed[offset + 4];
+        this.width = packed[offset + 5];
+        this.height = packed[offset + 6];
+        this.numBlocksX = packed[offset + 7];
+        this.numBlocksY = packed[offset + 8];
+        this.totalBlocks = packed[offset + 9];
+        int flags = packed[offset + 10];
+        this.alphaFlag = (flags & 1) != 0;
+        this.iframeFlag = (flags & 2) != 0;
+    }
+
+    /** The mipmap level index (0=largest) of the image. */
+    public int getLevelIndex() { return levelIndex; }
+
+    /** The texture array layer index of the image. */
+    public int getLayerIndex() { return layerIndex; }
+
+    /** The cubemap face index of the image. */
+    public int getFaceIndex() { return faceIndex; }
+
+    /** The image's actual (or the original source image's) width in pixels, which may not be divisible by 4 pixels. */
+    public int getOrigWidth() { return origWidth; }
+
+    /** The image's actual (or the original source image's) height in pixels, which may not be divisible by 4 pixels. */
+    public int getOrigHeight() { return origHeight; }
+
+    /** The image's physical width, which will always be divisible by 4 pixels. */
+    public int getWidth() { return width; }
+
+    /** The image's physical height, which will always be divisible by 4 pixels. */
+    public int getHeight() { return height; }
+
+    /** The number of blocks in the X dimension. */
+    public int getNumBlocksX() { return numBlocksX; }
+
+    /** The number of blocks in the Y dimension. */
+    public int getNumBlocksY() { return numBlocksY; }
+
+    /** The total number of blocks. */
+    public int getTotalBlocks() { return totalBlocks; }
+
+    /** True if the image has alpha data. */
+    public boolean hasAlphaFlag() { return alphaFlag; }
+
+    /** True if the image is an I-Frame. */
+    public boolean hasIframeFlag() { return iframeFlag; }
+}
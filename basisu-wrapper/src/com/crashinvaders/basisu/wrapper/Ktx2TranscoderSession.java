@@ -0,0 +1,258 @@
+package com.crashinvaders.basisu.wrapper;
+
+import java.io.Closeable;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+
+/**
+ * A persistent transcoding session over a single KTX2 file data.
+ * <p/>
+ * The stateless {@link BasisuWrapper} KTX2 methods initialize a new transcoder, re-parse the header and the level index and
+ * (for ETC1S files) re-decode the global codebooks on every call.
+ * The session does all of that only once upon creation and then serves every layer, level and format from that state.
+ * <p/>
+ * ZSTD supercompressed UASTC levels are inflated on every transcode call by default.
+ * With a non-zero level cache capacity the session keeps the inflated levels in memory
+ * (up to the capacity, the least recently used levels get evicted first),
+ * so transcoding the same level again (e.g. a CPU side RGBA copy plus a GPU format) doesn't inflate it once more.
+ * <p/>
+ * The encoded data buffer must remain valid (not disposed) for the whole lifetime of the session.
+ * <p/>
+ * Use {@link BasisuWrapper#ktx2CreateTranscoderSession(Buffer)} to create a new instance.
+ * <p/>
+ * THREAD SAFETY: All the info and transcode calls may be done from multiple threads at the same time,
+ * each transcode call uses its own transcoder state and the level cache is synchronized. Video frame textures are the exception:
+ * their frames depend on the previously transcoded ones, so they must be transcoded from a single thread.
+ * {@link #close()} must not be called concurrently with any other call.
+ * <p/>
+ * CLOSEABLE: Instances of this class internally manage native resources
+ * and need to be closed using {@link #close()} when no longer needed.
+ */
+public class Ktx2TranscoderSession implements Closeable {
+	/*JNI
+        #include "basisu_wrapper.h"
+	 */
+
+    long addr;
+    final Buffer dataBuffer;
+
+    Ktx2TranscoderSession(Buffer dataBuffer, int levelCacheCapacity) {
+        if (levelCacheCapacity < 0) {
+            throw new BasisuWrapperException("The level cache capacity must not be negative.");
+        }
+        this.dataBuffer = dataBuffer;
+        this.addr = jniCreate(dataBuffer, dataBuffer.capacity(), levelCacheCapacity);
+        if (addr == 0) {
+            throw new BasisuWrapperException("Failed to start transcoding for the KTX2 data.");
+        }
+    }
+
+    Ktx2TranscoderSession(Object ignored) {
+        throw new UnsupportedOperationException("This constructor exists solely for GWT compilation compatibility.");
+    }
+
+    @Override
+    public void close() {
+        if (addr == 0) {
+            throw new IllegalStateException("Object was already closed!");
+        }
+        jniDispose(addr);
+        addr = 0;
+    }
+
+    /**
+     * @return the encoded KTX2 data the session was created for.
+     */
+    public Buffer getDataBuffer() {
+        return dataBuffer;
+    }
+
+    /**
+     * Changes the max total size of the inflated levels the session keeps in memory.
+     * The least recently used levels that don't fit the new capacity get evicted immediately.
+     * @param levelCacheCapacity the capacity in bytes (zero disables the cache and releases all the cached levels)
+     */
+    public void setLevelCacheCapacity(int levelCacheCapacity) {
+        BasisuWrapper.ktx2SessionSetLevelCacheCapacity(this, levelCacheCapacity);
+    }
+
+    /**
+     * @return the total size in bytes of the currently cached inflated levels.
+     */
+    public int getLevelCacheSize() {
+        return BasisuWrapper.ktx2SessionGetLevelCacheSize(this);
+    }
+
+    /**
+     * @return the whole file description obtained with a single native call.
+     * @see BasisuWrapper#ktx2Describe(Buffer)
+     */
+    public Ktx2FileDescription describe() {
+        return BasisuWrapper.ktx2SessionDescribe(this);
+    }
+
+    /**
+     * @return information about the specified image level.
+     * @see BasisuWrapper#ktx2GetImageLevelInfo(Buffer, int, int)
+     */
+    public Ktx2ImageLevelInfo getImageLevelInfo(int layerIndex, int levelIndex) {
+        return BasisuWrapper.ktx2SessionGetImageLevelInfo(this, layerIndex, levelIndex, 0);
+    }
+
+    /**
+     * @return the transcoded image level size in bytes.
+     * @see BasisuWrapper#ktx2GetTranscodedSize(Buffer, int, int, BasisuTranscoderTextureFormat)
+     */
+    public int getTranscodedSize(int layerIndex, int levelIndex, BasisuTranscoderTextureFormat textureFormat) {
+        try (Ktx2ImageLevelInfo levelInfo = getImageLevelInfo(layerIndex, levelIndex)) {
+            return BasisuWrapper.getTranscodedSize(levelInfo.getOrigWidth(), levelInfo.getOrigHeight(), levelInfo.getTotalBlocks(), textureFormat);
+        }
+    }
+
+    /**
+     * Decodes a single mipmap level to any of the supported output texture formats.
+     * @return the transcoded texture bytes
+     * (must be disposed using {@link BasisuWrapper#disposeNativeBuffer(ByteBuffer)})
+     * @see BasisuWrapper#ktx2Transcode(Buffer, int, int, BasisuTranscoderTextureFormat)
+     */
+    public ByteBuffer transcode(int layerIndex, int levelIndex, BasisuTranscoderTextureFormat textureFormat) {
+        return BasisuWrapper.ktx2SessionTranscode(this, layerIndex, levelIndex, 0, textureFormat, BasisuDecodeFlags.NONE);
+    }
+
+    /**
+     * Decodes a single mipmap level using the custom decode flags.
+     * @param decodeFlags a combination of the {@link BasisuDecodeFlags} constants
+     * @see BasisuWrapper#ktx2Transcode(Buffer, int, int, BasisuTranscoderTextureFormat, int)
+     */
+    public ByteBuffer transcode(int layerIndex, int levelIndex, BasisuTranscoderTextureFormat textureFormat, int decodeFlags) {
+        return BasisuWrapper.ktx2SessionTranscode(this, layerIndex, levelIndex, 0, textureFormat, decodeFlags);
+    }
+
+    /**
+     * Decodes a single mipmap level directly into the provided buffer.
+     * @return the number of bytes written
+     * @see BasisuWrapper#ktx2TranscodeInto(Buffer, int, int, BasisuTranscoderTextureFormat, ByteBuffer)
+     */
+    public int transcodeInto(int layerIndex, int levelIndex, BasisuTranscoderTextureFormat textureFormat, ByteBuffer outBuffer) {
+        return BasisuWrapper.ktx2SessionTranscodeInto(this, layerIndex, levelIndex, 0, textureFormat, outBuffer, 1, BasisuDecodeFlags.NONE);
+    }
+
+    /**
+     * Decodes a single mipmap level directly into the provided buffer,
+     * splitting UASTC image levels between up to "workerCount" native threads.
+     * @return the number of bytes written
+     * @see BasisuWrapper#ktx2TranscodeInto(Buffer, int, int, BasisuTranscoderTextureFormat, ByteBuffer, int)
+     */
+    public int transcodeInto(int layerIndex, int levelIndex, BasisuTranscoderTextureFormat textureFormat, ByteBuffer outBuffer, int workerCount) {
+        return BasisuWrapper.ktx2SessionTranscodeInto(this, layerIndex, levelIndex, 0, textureFormat, outBuffer, workerCount, BasisuDecodeFlags.NONE);
+    }
+
+    /**
+     * Decodes a single mipmap level directly into the provided buffer using the custom decode flags.
+     * @param decodeFlags a combination of the {@link BasisuDecodeFlags} constants
+     * @return the number of bytes written
+     * @see BasisuWrapper#ktx2TranscodeInto(Buffer, int, int, BasisuTranscoderTextureFormat, ByteBuffer, int, int)
+     */
+    public int transcodeInto(int layerIndex, int levelIndex, BasisuTranscoderTextureFormat textureFormat, ByteBuffer outBuffer, int workerCount, int decodeFlags) {
+        return BasisuWrapper.ktx2SessionTranscodeInto(this, layerIndex, levelIndex, 0, textureFormat, outBuffer, workerCount, decodeFlags);
+    }
+
+    /**
+     * @param faceIndex the cubemap face index (0..5), see {@link Ktx2FileDescription#getTotalFaces()}
+     * @return information about the specified image level of the cubemap face.
+     */
+    public Ktx2ImageLevelInfo getImageLevelInfo(int layerIndex, int levelIndex, int faceIndex) {
+        return BasisuWrapper.ktx2SessionGetImageLevelInfo(this, layerIndex, levelIndex, faceIndex);
+    }
+
+    /**
+     * Decodes a single mipmap level of the cubemap face directly into the provided buffer.
+     * The faces are ordered as the GL cube map targets are: +X, -X, +Y, -Y, +Z, -Z.
+     * @param faceIndex the cubemap face index (0..5), see {@link Ktx2FileDescription#getTotalFaces()}
+     * @return the number of bytes written
+     */
+    public int transcodeFaceInto(int layerIndex, int levelIndex, int faceIndex, BasisuTranscoderTextureFormat textureFormat, ByteBuffer outBuffer) {
+        return BasisuWrapper.ktx2SessionTranscodeInto(this, layerIndex, levelIndex, faceIndex, textureFormat, outBuffer, 1, BasisuDecodeFlags.NONE);
+    }
+
+    /**
+     * Decodes a single mipmap level of the cubemap face directly into the provided buffer
+     * using up to "workerCount" native threads and the custom decode flags.
+     * @param decodeFlags a combination of the {@link BasisuDecodeFlags} constants
+     * @return the number of bytes written
+     * @see #transcodeFaceInto(int, int, int, BasisuTranscoderTextureFormat, ByteBuffer)
+     */
+    public int transcodeFaceInto(int layerIndex, int levelIndex, int faceIndex, BasisuTranscoderTextureFormat textureFormat, ByteBuffer outBuffer, int workerCount, int decodeFlags) {
+        return BasisuWrapper.ktx2SessionTranscodeInto(this, layerIndex, levelIndex, faceIndex, textureFormat, outBuffer, workerCount, decodeFlags);
+    }
+
+    /**
+     * Transcodes the whole mipmap chain (starting from the base level) of the layer
+     * in a single native call into a single buffer.
+     * @param maxLevels the maximum number of levels to transcode (clamped to the total number of levels)
+     * @return the transcoded mipmap chain (must be closed when no longer needed)
+     */
+    public BasisuMipChain transcodeMipChain(int layerIndex, BasisuTranscoderTextureFormat textureFormat, int maxLevels) {
+        return BasisuWrapper.ktx2SessionTranscodeMipChain(this, layerIndex, textureFormat, maxLevels, BasisuDecodeFlags.NONE, true);
+    }
+
+    /**
+     * Transcodes the whole mipmap chain using the custom decode flags.
+     * @param decodeFlags a combination of the {@link BasisuDecodeFlags} constants
+     * @return the transcoded mipmap chain (must be closed when no longer needed)
+     * @see #transcodeMipChain(int, BasisuTranscoderTextureFormat, int)
+     */
+    public BasisuMipChain transcodeMipChain(int layerIndex, BasisuTranscoderTextureFormat textureFormat, int maxLevels, int decodeFlags) {
+        return BasisuWrapper.ktx2SessionTranscodeMipChain(this, layerIndex, textureFormat, maxLevels, decodeFlags, true);
+    }
+
+    /**
+     * Allocates and lays out the memory for the mipmap chain just like {@link #transcodeMipChain(int, BasisuTranscoderTextureFormat, int)} does,
+     * but doesn't transcode anything.
+     * The levels are meant to be transcoded individually using {@link #transcodeInto(int, int, BasisuTranscoderTextureFormat, ByteBuffer)}
+     * into {@link BasisuMipChain#getLevelData(int)}.
+     * @return the mip chain with no level data transcoded yet (must be closed when no longer needed)
+     */
+    public BasisuMipChain allocateMipChain(int layerIndex, BasisuTranscoderTextureFormat textureFormat, int maxLevels) {
+        return BasisuWrapper.ktx2SessionTranscodeMipChain(this, layerIndex, textureFormat, maxLevels, BasisuDecodeFlags.NONE, false);
+    }
+
+    /**
+     * @return the size in bytes of the image level block region transcoded to the specified format.
+     * @see BasisuTranscoderTextureFormat#getTranscodedRegionSize(int, int, int, int, int, int)
+     */
+    public int getTranscodedRegionSize(int layerIndex, int levelIndex, int blockX, int blockY, int blocksWidth, int blocksHeight, BasisuTranscoderTextureFormat textureFormat) {
+        try (Ktx2ImageLevelInfo levelInfo = getImageLevelInfo(layerIndex, levelIndex)) {
+            return textureFormat.getTranscodedRegionSize(levelInfo.getOrigWidth(), levelInfo.getOrigHeight(), blockX, blockY, blocksWidth, blocksHeight);
+        }
+    }
+
+    /**
+     * Transcodes only a rectangular range of 4x4 blocks of the image level directly into the provided buffer.
+     * @return the number of bytes written
+     * @see BasisuWrapper#ktx2TranscodeRegionInto(Buffer, int, int, int, int, int, int, BasisuTranscoderTextureFormat, ByteBuffer)
+     */
+    public int transcodeRegionInto(int layerIndex, int levelIndex, int blockX, int blockY, int blocksWidth, int blocksHeight, BasisuTranscoderTextureFormat textureFormat, ByteBuffer outBuffer) {
+        return BasisuWrapper.ktx2SessionTranscodeRegionInto(this, layerIndex, levelIndex, blockX, blockY, blocksWidth, blocksHeight, textureFormat, outBuffer, BasisuDecodeFlags.NONE);
+    }
+
+    /**
+     * Transcodes an image level block region using the custom decode flags.
+     * @param decodeFlags a combination of the {@link BasisuDecodeFlags} constants
+     * @return the number of bytes written
+     * @see #transcodeRegionInto(int, int, int, int, int, int, BasisuTranscoderTextureFormat, ByteBuffer)
+     */
+    public int transcodeRegionInto(int layerIndex, int levelIndex, int blockX, int blockY, int blocksWidth, int blocksHeight, BasisuTranscoderTextureFormat textureFormat, ByteBuffer outBuffer, int decodeFlags) {
+        return BasisuWrapper.ktx2SessionTranscodeRegionInto(this, layerIndex, levelIndex, blockX, blockY, blocksWidth, blocksHeight, textureFormat, outBuffer, decodeFlags);
+    }
+
+    private static native long jniCreate(Buffer dataBuffer, int dataSize, int levelCacheCapacity); /*
+        basisuWrapper::ktx2_session* session = basisuWrapper::ktx2::createSession((uint8_t*)dataBuffer, dataSize, (uint32_t)levelCacheCapacity);
+        return reinterpret_cast<intptr_t>(session);
+    */
+
+    private static native void jniDispose(long addr); /*
+        basisuWrapper::ktx2_session* session = (basisuWrapper::ktx2_session*)addr;
+        basisuWrapper::ktx2::disposeSession(session);
+    */
+}
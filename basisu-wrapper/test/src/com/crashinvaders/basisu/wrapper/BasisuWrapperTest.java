@@ -2,16 +2,24 @@ package com.crashinvaders.basisu.wrapper;
 
 import com.badlogic.gdx.utils.SharedLibraryLoader;
 import org.junit.BeforeClass;
+import org.junit.Ignore;
 import org.junit.Test;
 
 import java.awt.image.BufferedImage;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
 
 public class BasisuWrapperTest {
 
@@ -131,6 +139,83 @@ public class BasisuWrapperTest {
         }
     }
 
+    /** The description must hold the same values as the individual info objects. */
+    @Test
+    public void testBasisDescribe() {
+        BasisuFileDescription description = BasisuWrapper.basisDescribe(imageBasisMipmapBuffer);
+
+        try (BasisuFileInfo fileInfo = BasisuWrapper.basisGetFileInfo(imageBasisMipmapBuffer)) {
+            assertEquals(fileInfo.getTextureType(), description.getTextureType());
+            assertEquals(fileInfo.getTextureFormat(), description.getTextureFormat());
+            assertEquals(fileInfo.getVersion(), description.getVersion());
+            assertEquals(fileInfo.getTotalImages(), description.getTotalImages());
+            assertArrayEquals(fileInfo.getImageMipmapLevels(), description.getImageMipmapLevels());
+            assertEquals(fileInfo.isEtc1s(), description.isEtc1s());
+            assertEquals(fileInfo.hasAlphaSlices(), description.hasAlphaSlices());
+        }
+
+        try (BasisuImageInfo imageInfo = BasisuWrapper.basisGetImageInfo(imageBasisMipmapBuffer, 0)) {
+            BasisuImageDescription image = description.getImage(0);
+            assertEquals(imageInfo.getTotalLevels(), image.getTotalLevels());
+            assertEquals(imageInfo.getOrigWidth(), image.getOrigWidth());
+            assertEquals(imageInfo.getOrigHeight(), image.getOrigHeight());
+            assertEquals(imageInfo.getTotalBlocks(), image.getTotalBlocks());
+            assertEquals(imageInfo.hasAlphaFlag(), image.hasAlphaFlag());
+
+            for (int level = 0; level < imageInfo.getTotalLevels(); level++) {
+                try (BasisuImageLevelInfo levelInfo = BasisuWrapper.basisGetImageLevelInfo(imageBasisMipmapBuffer, 0, level)) {
+                    BasisuImageLevelDescription levelDesc = description.getImageLevel(0, level);
+                    assertEquals(level, levelDesc.getLevelIndex());
+                    assertEquals(levelInfo.getOrigWidth(), levelDesc.getOrigWidth());
+                    assertEquals(levelInfo.getOrigHeight(), levelDesc.getOrigHeight());
+                    assertEquals(levelInfo.getWidth(), levelDesc.getWidth());
+                    assertEquals(levelInfo.getHeight(), levelDesc.getHeight());
+                    assertEquals(levelInfo.getTotalBlocks(), levelDesc.getTotalBlocks());
+                    assertEquals(levelInfo.getFirstSliceIndex(), levelDesc.getFirstSliceIndex());
+                }
+            }
+        }
+    }
+
+    /** The pure Java parser must provide the same description as the native one, reading the header part only. */
+    @Test
+    public void testBasisHeaderParser() {
+        int headerSize = BasisuHeaderParser.basisGetRequiredHeaderSize(headerPrefix(imageBasisMipmapBuffer, 77));
+        BasisuFileDescription parsed = BasisuHeaderParser.basisDescribe(headerPrefix(imageBasisMipmapBuffer, headerSize));
+        BasisuFileDescription described = BasisuWrapper.basisDescribe(imageBasisMipmapBuffer);
+
+        assertEquals(described.getTextureType(), parsed.getTextureType());
+        assertEquals(described.getTextureFormat(), parsed.getTextureFormat());
+        assertEquals(described.getVersion(), parsed.getVersion());
+        assertEquals(described.getTotalHeaderSize(), parsed.getTotalHeaderSize());
+        assertEquals(described.getTotalSelectors(), parsed.getTotalSelectors());
+        assertEquals(described.getSelectorCodebookSize(), parsed.getSelectorCodebookSize());
+        assertEquals(described.getTotalEndpoints(), parsed.getTotalEndpoints());
+        assertEquals(described.getEndpointCodebookSize(), parsed.getEndpointCodebookSize());
+        assertEquals(described.getTablesSize(), parsed.getTablesSize());
+        assertEquals(described.getSlicesSize(), parsed.getSlicesSize());
+        assertArrayEquals(described.getImageMipmapLevels(), parsed.getImageMipmapLevels());
+        assertEquals(described.isFlippedY(), parsed.isFlippedY());
+        assertEquals(described.isEtc1s(), parsed.isEtc1s());
+        assertEquals(described.hasAlphaSlices(), parsed.hasAlphaSlices());
+
+        for (int level = 0; level < described.getImage(0).getTotalLevels(); level++) {
+            BasisuImageLevelDescription describedLevel = described.getImageLevel(0, level);
+            BasisuImageLevelDescription parsedLevel = parsed.getImageLevel(0, level);
+            assertEquals(describedLevel.getOrigWidth(), parsedLevel.getOrigWidth());
+            assertEquals(describedLevel.getOrigHeight(), parsedLevel.getOrigHeight());
+            assertEquals(describedLevel.getTotalBlocks(), parsedLevel.getTotalBlocks());
+            assertEquals(describedLevel.getFirstSliceIndex(), parsedLevel.getFirstSliceIndex());
+            assertEquals(describedLevel.hasAlphaFlag(), parsedLevel.hasAlphaFlag());
+            assertEquals(describedLevel.hasIframeFlag(), parsedLevel.hasIframeFlag());
+        }
+    }
+
+    @Test(expected = BasisuWrapperException.class)
+    public void testBasisHeaderParserTruncatedData() {
+        BasisuHeaderParser.basisDescribe(headerPrefix(imageBasisMipmapBuffer, 80));
+    }
+
     @Test
     public void testBasisTranscodeRgba32() {
         try (BasisuImageInfo imageInfo = BasisuWrapper.basisGetImageInfo(imageBasisBuffer, 0)) {
@@ -162,6 +247,46 @@ public class BasisuWrapperTest {
         }
     }
 
+    @Test
+    public void testBasisTranscodeInto() {
+        ByteBuffer expected = BasisuWrapper.basisTranscode(imageBasisBuffer, 0, 0, BasisuTranscoderTextureFormat.ETC2_RGBA);
+        ByteBuffer outBuffer = ByteBuffer.allocateDirect(expected.capacity() + 16);
+        outBuffer.position(16);
+
+        int size = BasisuWrapper.basisTranscodeInto(imageBasisBuffer, 0, 0, BasisuTranscoderTextureFormat.ETC2_RGBA, outBuffer);
+
+        assertEquals(expected.capacity(), size);
+        assertEquals(16, outBuffer.position());
+        assertEquals(expected, outBuffer);
+
+        BasisuWrapper.disposeNativeBuffer(expected);
+    }
+
+    /** The evaluated size must match the actual transcoded data size for every level and format (PVRTC1 padding included). */
+    @Test
+    public void testBasisGetTranscodedSize() {
+        try (BasisuImageInfo imageInfo = BasisuWrapper.basisGetImageInfo(imageBasisMipmapBuffer, 0)) {
+            for (BasisuTranscoderTextureFormat format : BasisuTranscoderTextureFormatSupportIndex.getSupportedTextureFormats(BasisuTextureFormat.ETC1S)) {
+                if ((format == BasisuTranscoderTextureFormat.PVRTC1_4_RGB || format == BasisuTranscoderTextureFormat.PVRTC1_4_RGBA)
+                        && !TestUtils.isSquareAndPowerOfTwo(imageInfo.getWidth(), imageInfo.getHeight())) {
+                    continue;
+                }
+                for (int level = 0; level < imageInfo.getTotalLevels(); level++) {
+                    ByteBuffer transcoded = BasisuWrapper.basisTranscode(imageBasisMipmapBuffer, 0, level, format);
+                    assertEquals(format + " level " + level, transcoded.capacity(),
+                            BasisuWrapper.basisGetTranscodedSize(imageBasisMipmapBuffer, 0, level, format));
+                    BasisuWrapper.disposeNativeBuffer(transcoded);
+                }
+            }
+        }
+    }
+
+    @Test(expected = BasisuWrapperException.class)
+    public void testBasisTranscodeIntoTooSmallBuffer() {
+        ByteBuffer outBuffer = ByteBuffer.allocateDirect(16);
+        BasisuWrapper.basisTranscodeInto(imageBasisBuffer, 0, 0, BasisuTranscoderTextureFormat.ETC2_RGBA, outBuffer);
+    }
+
     /**
      * Transcode to all supported formats for quick stability check (the result texture data is not validated!).
      * This is a valid test as desktops should be able to transcode to any supported texture format
@@ -187,6 +312,83 @@ public class BasisuWrapperTest {
         }
     }
 
+    /** The session must serve every level with the same result as the stateless calls. */
+    @Test
+    public void testBasisTranscoderSession() {
+        try (BasisuTranscoderSession session = BasisuWrapper.basisCreateTranscoderSession(imageBasisMipmapBuffer);
+             BasisuImageInfo imageInfo = session.getImageInfo(0)) {
+
+            for (int level = 0; level < imageInfo.getTotalLevels(); level++) {
+                ByteBuffer expected = BasisuWrapper.basisTranscode(imageBasisMipmapBuffer, 0, level, BasisuTranscoderTextureFormat.ETC2_RGBA);
+                ByteBuffer actual = session.transcode(0, level, BasisuTranscoderTextureFormat.ETC2_RGBA);
+
+                assertEquals(expected, actual);
+
+                BasisuWrapper.disposeNativeBuffer(expected);
+                BasisuWrapper.disposeNativeBuffer(actual);
+            }
+        }
+    }
+
+    @Test
+    public void testBasisTranscodeMipChain() {
+        try (BasisuTranscoderSession session = BasisuWrapper.basisCreateTranscoderSession(imageBasisMipmapBuffer);
+             BasisuImageInfo imageInfo = session.getImageInfo(0);
+             BasisuMipChain mipChain = session.transcodeMipChain(0, BasisuTranscoderTextureFormat.ETC2_RGBA, Integer.MAX_VALUE)) {
+
+            assertEquals(imageInfo.getTotalLevels(), mipChain.getLevelCount());
+            assertEquals(mipChain.getData().capacity(), mipChain.getTotalSize());
+
+            for (int level = 0; level < mipChain.getLevelCount(); level++) {
+                ByteBuffer expected = session.transcode(0, level, BasisuTranscoderTextureFormat.ETC2_RGBA);
+                try (BasisuImageLevelInfo levelInfo = session.getImageLevelInfo(0, level)) {
+                    assertEquals(levelInfo.getOrigWidth(), mipChain.getLevelWidth(level));
+                    assertEquals(levelInfo.getOrigHeight(), mipChain.getLevelHeight(level));
+                }
+                assertEquals(expected, mipChain.getLevelData(level));
+                BasisuWrapper.disposeNativeBuffer(expected);
+            }
+        }
+    }
+
+    @Test
+    public void testBasisAllocateMipChainConcurrentLevels() throws InterruptedException {
+        final BasisuTranscoderTextureFormat format = BasisuTranscoderTextureFormat.ETC2_RGBA;
+        try (final BasisuTranscoderSession session = BasisuWrapper.basisCreateTranscoderSession(imageBasisMipmapBuffer);
+             BasisuMipChain expectedChain = session.transcodeMipChain(0, format, Integer.MAX_VALUE);
+             final BasisuMipChain mipChain = session.allocateMipChain(0, format, Integer.MAX_VALUE)) {
+
+            assertEquals(expectedChain.getLevelCount(), mipChain.getLevelCount());
+            assertEquals(expectedChain.getTotalSize(), mipChain.getTotalSize());
+
+            // Transcode every level from its own thread using the same session.
+            final List<Throwable> errors = new ArrayList<>();
+            List<Thread> threads = new ArrayList<>();
+            for (int level = 0; level < mipChain.getLevelCount(); level++) {
+                final int mipmapLevel = level;
+                Thread thread = new Thread(() -> {
+                    try {
+                        session.transcodeInto(0, mipmapLevel, format, mipChain.getLevelData(mipmapLevel));
+                    } catch (Throwable e) {
+                        synchronized (errors) {
+                            errors.add(e);
+                        }
+                    }
+                });
+                threads.add(thread);
+                thread.start();
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+
+            assertTrue(errors.toString(), errors.isEmpty());
+            for (int level = 0; level < mipChain.getLevelCount(); level++) {
+                assertEquals(expectedChain.getLevelData(level), mipChain.getLevelData(level));
+            }
+        }
+    }
+
     @Test
     public void testKtx2GetFileInfo() {
         try (Ktx2FileInfo fileInfo = BasisuWrapper.ktx2GetFileInfo(imageKtx2Buffer)) {
@@ -219,6 +421,48 @@ public class BasisuWrapperTest {
         }
     }
 
+    @Test
+    public void testKtx2Describe() {
+        Ktx2FileDescription description = BasisuWrapper.ktx2Describe(imageKtx2Buffer);
+
+        assertEquals(2048, description.getImageWidth());
+        assertEquals(2048, description.getImageHeight());
+        assertEquals(0, description.getTotalLayers());
+        assertEquals(1, description.getTotalMipmapLevels());
+        assertEquals(1, description.getTotalFaces());
+        assertEquals(BasisuTextureFormat.UASTC4x4, description.getTextureFormat());
+        assertTrue(description.hasAlpha());
+
+        Ktx2ImageLevelDescription levelDesc = description.getImageLevel(0, 0);
+        assertEquals(2048, levelDesc.getOrigWidth());
+        assertEquals(2048, levelDesc.getOrigHeight());
+        assertEquals(262144, levelDesc.getTotalBlocks());
+        assertTrue(levelDesc.hasAlphaFlag());
+    }
+
+    @Test
+    public void testKtx2HeaderParser() {
+        int headerSize = BasisuHeaderParser.ktx2GetRequiredHeaderSize(headerPrefix(imageKtx2Buffer, 80));
+        Ktx2FileDescription parsed = BasisuHeaderParser.ktx2Describe(headerPrefix(imageKtx2Buffer, headerSize));
+        Ktx2FileDescription described = BasisuWrapper.ktx2Describe(imageKtx2Buffer);
+
+        assertEquals(described.getImageWidth(), parsed.getImageWidth());
+        assertEquals(described.getImageHeight(), parsed.getImageHeight());
+        assertEquals(described.getTotalLayers(), parsed.getTotalLayers());
+        assertEquals(described.getTotalMipmapLevels(), parsed.getTotalMipmapLevels());
+        assertEquals(described.getTotalFaces(), parsed.getTotalFaces());
+        assertEquals(described.getTextureFormat(), parsed.getTextureFormat());
+        assertEquals(described.hasAlpha(), parsed.hasAlpha());
+
+        Ktx2ImageLevelDescription describedLevel = described.getImageLevel(0, 0);
+        Ktx2ImageLevelDescription parsedLevel = parsed.getImageLevel(0, 0);
+        assertEquals(describedLevel.getOrigWidth(), parsedLevel.getOrigWidth());
+        assertEquals(describedLevel.getOrigHeight(), parsedLevel.getOrigHeight());
+        assertEquals(describedLevel.getTotalBlocks(), parsedLevel.getTotalBlocks());
+        assertEquals(describedLevel.hasAlphaFlag(), parsedLevel.hasAlphaFlag());
+        assertEquals(describedLevel.hasIframeFlag(), parsedLevel.hasIframeFlag());
+    }
+
     @Test
     public void testKtx2TranscodeEtc2Rgba() {
         try (Ktx2ImageLevelInfo imageInfo = BasisuWrapper.ktx2GetImageLevelInfo(imageKtx2Buffer, 0, 0)) {
@@ -234,6 +478,324 @@ public class BasisuWrapperTest {
         }
     }
 
+    @Test
+    public void testKtx2TranscodeInto() {
+        ByteBuffer expected = BasisuWrapper.ktx2Transcode(imageKtx2Buffer, 0, 0, BasisuTranscoderTextureFormat.ETC2_RGBA);
+        ByteBuffer outBuffer = ByteBuffer.allocateDirect(expected.capacity());
+
+        int size = BasisuWrapper.ktx2TranscodeInto(imageKtx2Buffer, 0, 0, BasisuTranscoderTextureFormat.ETC2_RGBA, outBuffer);
+
+        assertEquals(expected.capacity(), size);
+        assertEquals(expected, outBuffer);
+
+        BasisuWrapper.disposeNativeBuffer(expected);
+    }
+
+    /**
+     * The session (with and without the level cache) must produce exactly the same output as the stateless calls,
+     * also when the same level is transcoded to several formats in a row.
+     */
+    @Test
+    public void testKtx2TranscoderSession() {
+        BasisuTranscoderTextureFormat[] formats = {
+                BasisuTranscoderTextureFormat.RGBA32,
+                BasisuTranscoderTextureFormat.ETC2_RGBA,
+                BasisuTranscoderTextureFormat.ASTC_4x4_RGBA,
+        };
+
+        try (Ktx2TranscoderSession session = BasisuWrapper.ktx2CreateTranscoderSession(imageKtx2Buffer, 64 * 1024 * 1024)) {
+            assertEquals(BasisuWrapper.ktx2Describe(imageKtx2Buffer).getTotalMipmapLevels(), session.describe().getTotalMipmapLevels());
+
+            for (int pass = 0; pass < 2; pass++) {
+                for (BasisuTranscoderTextureFormat format : formats) {
+                    ByteBuffer expected = BasisuWrapper.ktx2Transcode(imageKtx2Buffer, 0, 0, format);
+                    ByteBuffer outBuffer = ByteBuffer.allocateDirect(expected.capacity());
+
+                    assertEquals(expected.capacity(), session.getTranscodedSize(0, 0, format));
+                    assertEquals(expected.capacity(), session.transcodeInto(0, 0, format, outBuffer));
+                    assertEquals(expected, outBuffer);
+
+                    BasisuWrapper.disposeNativeBuffer(expected);
+                }
+                // Only the ZSTD supercompressed levels get cached, and the cache is disabled after the first pass.
+                assertEquals(pass == 0 && isZstdSupercompressed(imageKtx2Buffer), session.getLevelCacheSize() > 0);
+                session.setLevelCacheCapacity(0);
+                assertEquals(0, session.getLevelCacheSize());
+            }
+        }
+    }
+
+    /** The cache holds each inflated level once, stays within the capacity and doesn't affect the output. */
+    @Test
+    public void testKtx2SessionLevelCache() {
+        assumeTrue("Only the ZSTD supercompressed levels get cached", isZstdSupercompressed(imageKtx2Buffer));
+        BasisuTranscoderTextureFormat format = BasisuTranscoderTextureFormat.ETC2_RGBA;
+        int levelCount = BasisuWrapper.ktx2Describe(imageKtx2Buffer).getTotalMipmapLevels();
+
+        try (Ktx2TranscoderSession cachedSession = BasisuWrapper.ktx2CreateTranscoderSession(imageKtx2Buffer, 64 * 1024 * 1024);
+             Ktx2TranscoderSession uncachedSession = BasisuWrapper.ktx2CreateTranscoderSession(imageKtx2Buffer)) {
+            assertEquals(0, cachedSession.getLevelCacheSize());
+
+            assertSessionsTranscodeEqual(cachedSession, uncachedSession, 0, format);
+            int level0Size = cachedSession.getLevelCacheSize();
+            assertTrue(level0Size > 0);
+            assertEquals(0, uncachedSession.getLevelCacheSize());
+
+            // The same level is served from the cache, not added again.
+            assertSessionsTranscodeEqual(cachedSession, uncachedSession, 0, format);
+            assertEquals(level0Size, cachedSession.getLevelCacheSize());
+
+            if (levelCount > 1) {
+                assertSessionsTranscodeEqual(cachedSession, uncachedSession, 1, format);
+                assertTrue(cachedSession.getLevelCacheSize() > level0Size);
+
+                // Only a single level 0 fits, the least recently used level gets evicted.
+                cachedSession.setLevelCacheCapacity(level0Size);
+                assertTrue(cachedSession.getLevelCacheSize() <= level0Size);
+                for (int level = levelCount - 1; level >= 0; level--) {
+                    assertSessionsTranscodeEqual(cachedSession, uncachedSession, level, format);
+                    assertTrue(cachedSession.getLevelCacheSize() <= level0Size);
+                }
+                assertEquals(level0Size, cachedSession.getLevelCacheSize());
+            }
+
+            // A level larger than the capacity is never cached.
+            cachedSession.setLevelCacheCapacity(level0Size - 1);
+            assertSessionsTranscodeEqual(cachedSession, uncachedSession, 0, format);
+            assertEquals(0, cachedSession.getLevelCacheSize());
+        }
+    }
+
+    private static void assertSessionsTranscodeEqual(Ktx2TranscoderSession session0, Ktx2TranscoderSession session1,
+                                                     int levelIndex, BasisuTranscoderTextureFormat format) {
+        ByteBuffer data0 = session0.transcode(0, levelIndex, format);
+        ByteBuffer data1 = session1.transcode(0, levelIndex, format);
+        assertEquals("Level " + levelIndex, data1, data0);
+        BasisuWrapper.disposeNativeBuffer(data0);
+        BasisuWrapper.disposeNativeBuffer(data1);
+    }
+
+    /** Reads the KTX2 header "supercompressionScheme" field. */
+    private static boolean isZstdSupercompressed(ByteBuffer ktx2Data) {
+        return ktx2Data.duplicate().order(ByteOrder.LITTLE_ENDIAN).getInt(44) == 2;
+    }
+
+    @Test
+    public void testKtx2TranscodeFace() {
+        try (Ktx2TranscoderSession session = BasisuWrapper.ktx2CreateTranscoderSession(imageKtx2Buffer)) {
+            assertEquals(1, session.describe().getTotalFaces());
+
+            BasisuTranscoderTextureFormat format = BasisuTranscoderTextureFormat.ETC2_RGBA;
+            ByteBuffer expected = BasisuWrapper.ktx2Transcode(imageKtx2Buffer, 0, 0, format);
+            ByteBuffer outBuffer = ByteBuffer.allocateDirect(expected.capacity());
+            assertEquals(expected.capacity(), session.transcodeFaceInto(0, 0, 0, format, outBuffer));
+            assertEquals(expected, outBuffer);
+            BasisuWrapper.disposeNativeBuffer(expected);
+        }
+    }
+
+    @Test(expected = BasisuWrapperException.class)
+    public void testKtx2TranscodeFaceOutOfBounds() {
+        try (Ktx2TranscoderSession session = BasisuWrapper.ktx2CreateTranscoderSession(imageKtx2Buffer)) {
+            ByteBuffer outBuffer = ByteBuffer.allocateDirect(session.getTranscodedSize(0, 0, BasisuTranscoderTextureFormat.ETC2_RGBA));
+            session.transcodeFaceInto(0, 0, 1, BasisuTranscoderTextureFormat.ETC2_RGBA, outBuffer);
+        }
+    }
+
+    /** The parallel UASTC transcoding must produce exactly the same output as the single threaded one. */
+    @Test
+    public void testKtx2ParallelTranscode() {
+        int maxWorkers = Math.max(4, Runtime.getRuntime().availableProcessors());
+        BasisuTranscoderTextureFormat[] formats = {
+                BasisuTranscoderTextureFormat.BC7_RGBA,
+                BasisuTranscoderTextureFormat.ASTC_4x4_RGBA,
+                BasisuTranscoderTextureFormat.RGBA32,
+        };
+
+        for (BasisuTranscoderTextureFormat format : formats) {
+            int size = BasisuWrapper.ktx2GetTranscodedSize(imageKtx2Buffer, 0, 0, format);
+            ByteBuffer expected = ByteBuffer.allocateDirect(size);
+            ByteBuffer outBuffer = ByteBuffer.allocateDirect(size);
+            BasisuWrapper.ktx2TranscodeInto(imageKtx2Buffer, 0, 0, format, expected, 1);
+
+            for (int workerCount = 1; workerCount <= maxWorkers; workerCount *= 2) {
+                assertEquals(size, BasisuWrapper.ktx2TranscodeInto(imageKtx2Buffer, 0, 0, format, outBuffer, workerCount));
+                assertEquals(expected, outBuffer);
+            }
+        }
+    }
+
+    /**
+     * Reports the UASTC base level transcoding time for the different worker counts.
+     * Not a part of the regular test run, remove the {@link Ignore} annotation to run it locally.
+     */
+    @Ignore("Benchmark, run manually")
+    @Test
+    public void benchmarkKtx2ParallelTranscode() {
+        final int warmUpIterations = 5;
+        final int iterations = 20;
+        BasisuTranscoderTextureFormat format = BasisuTranscoderTextureFormat.BC7_RGBA;
+        int[] workerCounts = {1, 2, 4, Runtime.getRuntime().availableProcessors()};
+
+        try (Ktx2TranscoderSession session = BasisuWrapper.ktx2CreateTranscoderSession(imageKtx2Buffer)) {
+            Ktx2ImageLevelInfo levelInfo = session.getImageLevelInfo(0, 0);
+            ByteBuffer outBuffer = ByteBuffer.allocateDirect(session.getTranscodedSize(0, 0, format));
+            System.out.println("Transcoding " + levelInfo.getOrigWidth() + "x" + levelInfo.getOrigHeight() + " UASTC level to " + format);
+
+            for (int workerCount : workerCounts) {
+                for (int i = 0; i < warmUpIterations; i++) {
+                    session.transcodeInto(0, 0, format, outBuffer, workerCount);
+                }
+                long startTime = System.nanoTime();
+                for (int i = 0; i < iterations; i++) {
+                    session.transcodeInto(0, 0, format, outBuffer, workerCount);
+                }
+                double averageMillis = (System.nanoTime() - startTime) / 1_000_000.0 / iterations;
+                System.out.println(String.format("%d worker(s): %.2f ms", workerCount, averageMillis));
+            }
+        }
+    }
+
+    /** Every decode flag combination must produce the same data size. */
+    @Test
+    public void testKtx2TranscodeDecodeFlags() {
+        BasisuTranscoderTextureFormat[] formats = {
+                BasisuTranscoderTextureFormat.BC1_RGB,
+                BasisuTranscoderTextureFormat.ETC2_RGBA,
+        };
+        int[] decodeFlagsVariants = {
+                BasisuDecodeFlags.NONE,
+                BasisuDecodeFlags.HIGH_QUALITY,
+                BasisuDecodeFlags.HIGH_QUALITY | BasisuDecodeFlags.BC1_FORBID_THREE_COLOR_BLOCKS,
+        };
+
+        for (BasisuTranscoderTextureFormat format : formats) {
+            int size = BasisuWrapper.ktx2GetTranscodedSize(imageKtx2Buffer, 0, 0, format);
+            ByteBuffer outBuffer = ByteBuffer.allocateDirect(size);
+
+            for (int decodeFlags : decodeFlagsVariants) {
+                assertEquals(size, BasisuWrapper.ktx2TranscodeInto(imageKtx2Buffer, 0, 0, format, outBuffer, 1, decodeFlags));
+            }
+        }
+    }
+
+    @Test(expected = BasisuWrapperException.class)
+    public void testValidateUnsupportedDecodeFlags() {
+        BasisuDecodeFlags.validate(BasisuDecodeFlags.HIGH_QUALITY | 0x10000);
+    }
+
+    @Test(expected = BasisuWrapperException.class)
+    public void testKtx2TranscodeUnsupportedDecodeFlags() {
+        // cDecodeFlagsPVRTCDecodeToNextPow2 changes the transcoded size and is not exposed.
+        BasisuWrapper.ktx2Transcode(imageKtx2Buffer, 0, 0, BasisuTranscoderTextureFormat.RGBA32, 2);
+    }
+
+    /** A transcoded block region must match the same part of the whole transcoded level. */
+    @Test
+    public void testKtx2TranscodeRegion() {
+        BasisuTranscoderTextureFormat[] formats = {
+                BasisuTranscoderTextureFormat.BC7_RGBA,
+                BasisuTranscoderTextureFormat.RGBA32,
+        };
+        try (Ktx2ImageLevelInfo levelInfo = BasisuWrapper.ktx2GetImageLevelInfo(imageKtx2Buffer, 0, 0)) {
+            int numBlocksX = levelInfo.getNumBlocksX();
+            int numBlocksY = levelInfo.getNumBlocksY();
+            // An inner tile and the tile at the bottom right level corner.
+            int[][] regions = {
+                    {1, 2, numBlocksX / 3, numBlocksY / 4},
+                    {numBlocksX / 2, numBlocksY / 2, numBlocksX - numBlocksX / 2, numBlocksY - numBlocksY / 2},
+            };
+
+            for (BasisuTranscoderTextureFormat format : formats) {
+                ByteBuffer level = BasisuWrapper.ktx2Transcode(imageKtx2Buffer, 0, 0, format);
+                for (int[] r : regions) {
+                    int size = BasisuWrapper.getTranscodedRegionSize(levelInfo.getOrigWidth(), levelInfo.getOrigHeight(), r[0], r[1], r[2], r[3], format);
+                    ByteBuffer region = ByteBuffer.allocateDirect(size);
+
+                    assertEquals(size, BasisuWrapper.ktx2TranscodeRegionInto(imageKtx2Buffer, 0, 0, r[0], r[1], r[2], r[3], format, region));
+                    assertRegionEquals(level, region, levelInfo.getOrigWidth(), levelInfo.getOrigHeight(), numBlocksX, r, format);
+                }
+                BasisuWrapper.disposeNativeBuffer(level);
+            }
+        }
+    }
+
+    /** ETC1S regions are cut out of the whole decoded slice, the result must be the same as for UASTC. */
+    @Test
+    public void testBasisTranscodeRegion() {
+        BasisuTranscoderTextureFormat format = BasisuTranscoderTextureFormat.ETC1_RGB;
+        try (BasisuTranscoderSession session = BasisuWrapper.basisCreateTranscoderSession(imageBasisBuffer);
+             BasisuImageLevelInfo levelInfo = session.getImageLevelInfo(0, 0)) {
+            int[] r = {3, 5, levelInfo.getNumBlocksX() / 2, levelInfo.getNumBlocksY() / 3};
+            ByteBuffer level = session.transcode(0, 0, format);
+            ByteBuffer region = ByteBuffer.allocateDirect(session.getTranscodedRegionSize(0, 0, r[0], r[1], r[2], r[3], format));
+
+            session.transcodeRegionInto(0, 0, r[0], r[1], r[2], r[3], format, region);
+            assertRegionEquals(level, region, levelInfo.getOrigWidth(), levelInfo.getOrigHeight(), levelInfo.getNumBlocksX(), r, format);
+
+            // The stateless variant must produce the very same output.
+            ByteBuffer statelessRegion = ByteBuffer.allocateDirect(region.capacity());
+            assertEquals(region.capacity(), BasisuWrapper.basisTranscodeRegionInto(imageBasisBuffer, 0, 0, r[0], r[1], r[2], r[3], format, statelessRegion));
+            assertEquals(region, statelessRegion);
+
+            BasisuWrapper.disposeNativeBuffer(level);
+        }
+    }
+
+    @Test
+    public void testTranscodedRegionSizeValidation() {
+        BasisuTranscoderTextureFormat format = BasisuTranscoderTextureFormat.RGBA32;
+        // A 10x7 level is 3x2 blocks.
+        assertEquals(2 * 3 * 4, BasisuWrapper.getTranscodedRegionSize(10, 7, 2, 1, 1, 1, format));
+        int[][] invalidRegions = {
+                {-1, 0, 1, 1}, {0, -1, 1, 1}, {0, 0, 0, 1}, {0, 0, 1, -1},
+                {3, 0, 1, 1}, {0, 2, 1, 1}, {2, 0, 2, 1}, {0, 1, 1, 2},
+        };
+        for (int[] r : invalidRegions) {
+            try {
+                BasisuWrapper.getTranscodedRegionSize(10, 7, r[0], r[1], r[2], r[3], format);
+                fail("Region " + Arrays.toString(r) + " must be rejected");
+            } catch (BasisuWrapperException expected) {
+                // Expected.
+            }
+        }
+    }
+
+    @Test(expected = BasisuWrapperException.class)
+    public void testKtx2TranscodeRegionOutOfBounds() {
+        try (Ktx2ImageLevelInfo levelInfo = BasisuWrapper.ktx2GetImageLevelInfo(imageKtx2Buffer, 0, 0)) {
+            ByteBuffer region = ByteBuffer.allocateDirect(1024);
+            BasisuWrapper.ktx2TranscodeRegionInto(imageKtx2Buffer, 0, 0, levelInfo.getNumBlocksX() - 1, 0, 2, 1, BasisuTranscoderTextureFormat.BC7_RGBA, region);
+        }
+    }
+
+    private static void assertRegionEquals(ByteBuffer level, ByteBuffer region, int origWidth, int origHeight, int numBlocksX,
+                                           int[] r, BasisuTranscoderTextureFormat format) {
+        int unitSize = format.getBytesPerBlockOrPixel();
+        int rowUnits, rowCount, levelRowUnits, firstUnitX, firstRow;
+        if (format.isCompressedFormat()) {
+            rowUnits = r[2];
+            rowCount = r[3];
+            levelRowUnits = numBlocksX;
+            firstUnitX = r[0];
+            firstRow = r[1];
+        } else {
+            rowUnits = Math.min(r[2] * 4, origWidth - r[0] * 4);
+            rowCount = Math.min(r[3] * 4, origHeight - r[1] * 4);
+            levelRowUnits = origWidth;
+            firstUnitX = r[0] * 4;
+            firstRow = r[1] * 4;
+        }
+        assertEquals(rowUnits * rowCount * unitSize, region.capacity());
+
+        for (int row = 0; row < rowCount; row++) {
+            for (int i = 0; i < rowUnits * unitSize; i++) {
+                byte expected = level.get(((firstRow + row) * levelRowUnits + firstUnitX) * unitSize + i);
+                assertEquals("Region row " + row + ", byte " + i, expected, region.get(row * rowUnits * unitSize + i));
+            }
+        }
+    }
+
     /**
      * Transcode to all supported formats for quick stability check (the result texture data is not validated!).
      * This is a valid test as desktops should be able to transcode to any supported texture format
@@ -262,4 +824,72 @@ public class BasisuWrapperTest {
             }
         }
     }
+
+    /**
+     * Hammers a single shared session, the stateless API and the format support index from many threads at once
+     * and checks that every transcoded level is byte-identical to the single-threaded reference.
+     */
+    @Test
+    public void testConcurrentTranscodeStress() throws Exception {
+        final int threadCount = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+        final int iterations = 16;
+        final BasisuTranscoderTextureFormat basisFormat = BasisuTranscoderTextureFormat.ETC2_RGBA;
+        final BasisuTranscoderTextureFormat ktx2Format = BasisuTranscoderTextureFormat.ASTC_4x4_RGBA;
+
+        try (final BasisuTranscoderSession session = BasisuWrapper.basisCreateTranscoderSession(imageBasisMipmapBuffer);
+             final BasisuMipChain expectedBasis = session.transcodeMipChain(0, basisFormat, Integer.MAX_VALUE)) {
+            final ByteBuffer expectedKtx2 = BasisuWrapper.ktx2Transcode(imageKtx2Buffer, 0, 0, ktx2Format);
+            final int levelCount = expectedBasis.getLevelCount();
+
+            ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+            final CountDownLatch startGate = new CountDownLatch(1);
+            List<Future<Void>> results = new ArrayList<>();
+            try {
+                for (int i = 0; i < threadCount; i++) {
+                    final int threadIndex = i;
+                    results.add(executor.submit(() -> {
+                        ByteBuffer basisOut = ByteBuffer.allocateDirect(expectedBasis.getLevelSize(0));
+                        ByteBuffer ktx2Out = ByteBuffer.allocateDirect(expectedKtx2.capacity());
+                        startGate.await();
+
+                        for (int iteration = 0; iteration < iterations; iteration++) {
+                            assertTrue(BasisuTranscoderTextureFormatSupportIndex.isTextureFormatSupported(basisFormat, BasisuTextureFormat.ETC1S));
+                            assertEquals(levelCount, session.describe().getImage(0).getTotalLevels());
+
+                            // Shared session, each thread walks the levels with a different phase.
+                            int level = (threadIndex + iteration) % levelCount;
+                            basisOut.clear();
+                            int written = session.transcodeInto(0, level, basisFormat, basisOut);
+                            basisOut.limit(written);
+                            assertEquals("Basis level " + level, expectedBasis.getLevelData(level), basisOut);
+
+                            // Stateless calls, every one creates its own transcoder.
+                            if (iteration % 4 == threadIndex % 4) {
+                                ktx2Out.clear();
+                                BasisuWrapper.ktx2TranscodeInto(imageKtx2Buffer, 0, 0, ktx2Format, ktx2Out);
+                                assertEquals(expectedKtx2, ktx2Out);
+                            }
+                        }
+                        return null;
+                    }));
+                }
+                startGate.countDown();
+                for (Future<Void> result : results) {
+                    result.get();
+                }
+            } finally {
+                executor.shutdownNow();
+                BasisuWrapper.disposeNativeBuffer(expectedKtx2);
+            }
+        }
+    }
+
+    /** @return a heap buffer copy of the first bytes of the file, as if only the header part was read. */
+    private static ByteBuffer headerPrefix(ByteBuffer data, int size) {
+        byte[] bytes = new byte[size];
+        ByteBuffer source = data.duplicate();
+        source.position(0);
+        source.get(bytes);
+        return ByteBuffer.wrap(bytes);
+    }
 }
@@ -79,6 +79,7 @@ public class TextureGalleryScreen implements Screen {
         assetManager = new AssetManager();
         assetManager.setLoader(Texture.class, ".basis", new BasisuTextureLoader(assetManager.getFileHandleResolver()));
         assetManager.setLoader(Texture.class, ".ktx2", new Ktx2TextureLoader(assetManager.getFileHandleResolver()));
+        assetManager.setLoader(TextureAtlas.class, ".atlas", new BasisuTextureAtlasLoader(assetManager.getFileHandleResolver()));
         assetManager.load("screen-stuff-etc1s.basis", Texture.class);                               // BASIS/ETC1S RGBA
         assetManager.load("screen-stuff-uastc.basis", Texture.class);                               // BASIS/UASTC RGBA
         assetManager.load("kodim3.basis", Texture.class);                                           // BASIS/ETC1S RGB